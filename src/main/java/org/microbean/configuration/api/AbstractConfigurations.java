@@ -0,0 +1,308 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2018 microBean.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.microbean.configuration.api;
+
+import java.lang.reflect.Type;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A skeletal {@link Configurations} implementation for providers
+ * that can {@linkplain #getConfigurationValue(Map, String) select} a
+ * {@link ConfigurationValue} and are content to have it {@linkplain
+ * Conversions#convert(CharSequence, Type) converted} by the {@link
+ * Conversions} class.
+ *
+ * <p>Subclasses must implement the {@link #getConfigurationValue(Map,
+ * String)} and {@link #getNames()} methods.  A subclass that holds
+ * its {@link ConfigurationValue}s in memory will typically implement
+ * the former by calling {@link ConfigurationValueIndex#select(Map,
+ * String)}.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson"
+ * target="_parent">Laird Nelson</a>
+ *
+ * @see #getConfigurationValue(Map, String)
+ *
+ * @see Conversions
+ */
+public abstract class AbstractConfigurations extends Configurations {
+
+
+  /*
+   * Instance fields.
+   */
+
+
+  /**
+   * The configuration coordinates of this {@link
+   * AbstractConfigurations}.
+   *
+   * <p>This field may be {@code null}.</p>
+   *
+   * @see #getConfigurationCoordinates()
+   */
+  private final Map<String, String> configurationCoordinates;
+
+
+  /*
+   * Constructors.
+   */
+
+
+  /**
+   * Creates a new {@link AbstractConfigurations}.
+   *
+   * @param configurationCoordinates the configuration coordinates of
+   * the new {@link AbstractConfigurations}; may be {@code null}; will
+   * be copied
+   *
+   * @see #getConfigurationCoordinates()
+   */
+  protected AbstractConfigurations(final Map<? extends String, ? extends String> configurationCoordinates) {
+    super();
+    if (configurationCoordinates == null) {
+      this.configurationCoordinates = null;
+    } else {
+      // Copy the configuration coordinates into a compact form that
+      // caches its hashcode, so that caches keyed by them need not
+      // iterate over them on every request.
+      final Map<String, String> copy = new LinkedHashMap<>(configurationCoordinates);
+      final Map<String, String> compactCoordinates = ImmutableCoordinates.copyOf(copy);
+      this.configurationCoordinates = compactCoordinates == null ? Collections.unmodifiableMap(copy) : compactCoordinates;
+    }
+  }
+
+
+  /*
+   * Instance methods.
+   */
+
+
+  /**
+   * Returns the {@link Set} of {@link Type}s supported by the {@link
+   * Conversions} class.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return a non-{@code null}, immutable {@link Set} of {@link
+   * Type}s
+   *
+   * @see Conversions#getConversionTypes()
+   */
+  @Override
+  public Set<Type> getConversionTypes() {
+    return Conversions.getConversionTypes();
+  }
+
+  /**
+   * Returns the configuration coordinates supplied at construction
+   * time.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @return an immutable {@link Map} of configuration coordinates,
+   * or {@code null}
+   */
+  @Override
+  public Map<String, String> getConfigurationCoordinates() {
+    return this.configurationCoordinates;
+  }
+
+  /**
+   * Returns the {@link ConfigurationValue} most suitable for the
+   * supplied {@code configurationCoordinates} and {@code name}, or
+   * {@code null} if there is no such {@link ConfigurationValue}.
+   *
+   * <p>Implementations of this method may return {@code null}.</p>
+   *
+   * @param configurationCoordinates the configuration coordinates in
+   * effect for the request; may be {@code null}
+   *
+   * @param name the name of the configuration property; must not be
+   * {@code null}
+   *
+   * @return the selected {@link ConfigurationValue}, or {@code null}
+   *
+   * @exception NullPointerException if {@code name} is {@code null}
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable
+   *
+   * @see ConfigurationValueIndex#select(Map, String)
+   */
+  @Override
+  public abstract ConfigurationValue getConfigurationValue(final Map<String, String> configurationCoordinates, final String name);
+
+  /**
+   * Returns the {@linkplain ConfigurationValue#getValue() value} of
+   * the {@link ConfigurationValue} {@linkplain
+   * #getConfigurationValue(Map, String) selected} for the supplied
+   * {@code configurationCoordinates} and {@code name}, or the supplied
+   * {@code defaultValue} if there is no such value, {@linkplain
+   * #convert(String, Type) converted} to the type represented by the
+   * supplied {@code type}.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @param <T> the type to which a {@link String}-typed configuration
+   * value should be converted
+   *
+   * @param configurationCoordinates a {@link Map} representing the
+   * configuration coordinates in effect for this request; may be
+   * {@code null}
+   *
+   * @param name the name of the configuration property for which a
+   * value will be returned; must not be {@code null}
+   *
+   * @param type a {@link Type} representing the type to which the
+   * configuration value will be converted; must not be {@code null}
+   *
+   * @param defaultValue the value that will be converted and returned
+   * if {@code null} would otherwise be returned; may be {@code null}
+   *
+   * @return the configuration value, or {@code null}
+   *
+   * @exception NullPointerException if {@code name} or {@code type}
+   * is {@code null}
+   *
+   * @exception ConversionException if type conversion could not occur
+   * for any reason
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable
+   */
+  @Override
+  public <T> T getValue(final Map<String, String> configurationCoordinates, final String name, final Type type, final String defaultValue) {
+    Objects.requireNonNull(name);
+    Objects.requireNonNull(type);
+    final ConfigurationValue configurationValue = this.getConfigurationValue(configurationCoordinates, name);
+    final String value = configurationValue == null ? null : configurationValue.getValue();
+    return this.convert(value == null ? defaultValue : value, type);
+  }
+
+  /**
+   * Returns a {@link Resolution} describing the outcome of a request
+   * for the value of the configuration property suitable for the
+   * supplied {@code configurationCoordinates} and {@code name}, or
+   * the supplied {@code defaultValue} if there is no such value,
+   * converted to the type represented by the supplied {@code type}.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * <p>This implementation {@linkplain #getConfigurationValue(Map,
+   * String) selects} the {@link ConfigurationValue} only once.</p>
+   *
+   * @param <T> the type to which the configuration value should be
+   * converted
+   *
+   * @param configurationCoordinates the configuration coordinates in
+   * effect for the request; may be {@code null}
+   *
+   * @param name the name of the configuration property; must not be
+   * {@code null}
+   *
+   * @param type a {@link Type} representing the type to which the
+   * configuration value should be converted; must not be {@code null}
+   *
+   * @param defaultValue the value that will be converted if there is
+   * no configuration value; may be {@code null}
+   *
+   * @return a non-{@code null} {@link Resolution}
+   *
+   * @exception NullPointerException if {@code name} or {@code type}
+   * is {@code null}
+   */
+  @Override
+  public <T> Resolution<T> resolve(final Map<String, String> configurationCoordinates, final String name, final Type type, final String defaultValue) {
+    Objects.requireNonNull(name);
+    Objects.requireNonNull(type);
+    final ConfigurationValue configurationValue;
+    try {
+      configurationValue = this.getConfigurationValue(configurationCoordinates, name);
+    } catch (final AmbiguousConfigurationValuesException ambiguousConfigurationValuesException) {
+      return new Resolution<>(Resolution.Status.AMBIGUOUS,
+                              configurationCoordinates,
+                              name,
+                              null,
+                              null,
+                              ambiguousConfigurationValuesException.getValues(),
+                              ambiguousConfigurationValuesException);
+    }
+    final String value = configurationValue == null ? null : configurationValue.getValue();
+    final T convertedValue;
+    try {
+      convertedValue = this.convert(value == null ? defaultValue : value, type);
+    } catch (final ConversionException conversionException) {
+      return new Resolution<>(Resolution.Status.CONVERSION_FAILED,
+                              configurationCoordinates,
+                              name,
+                              null,
+                              configurationValue,
+                              null,
+                              conversionException);
+    }
+    final Resolution.Status status;
+    if (convertedValue == null) {
+      status = Resolution.Status.NOT_FOUND;
+    } else if (value == null) {
+      status = Resolution.Status.DEFAULTED;
+    } else {
+      status = Resolution.Status.FOUND;
+    }
+    return new Resolution<>(status, configurationCoordinates, name, convertedValue, configurationValue, null, null);
+  }
+
+  /**
+   * Converts the supplied {@code value} to an object of the type
+   * represented by the supplied {@code type}.
+   *
+   * <p>This method returns {@code null} if the supplied {@code value}
+   * is {@code null}.</p>
+   *
+   * <p>The default implementation of this method calls the {@link
+   * Conversions#convert(CharSequence, Type)} method.  Subclasses that
+   * override the {@link #getConversionTypes()} method should override
+   * this method as well.</p>
+   *
+   * @param <T> the type to which the supplied {@code value} will be
+   * converted
+   *
+   * @param value the value to convert; may be {@code null}
+   *
+   * @param type a {@link Type} representing the type to which the
+   * supplied {@code value} will be converted; must not be {@code
+   * null}
+   *
+   * @return the converted value, or {@code null}
+   *
+   * @exception NullPointerException if {@code type} is {@code null}
+   *
+   * @exception ConversionException if the supplied {@code value}
+   * could not be converted for any reason
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  protected <T> T convert(final String value, final Type type) {
+    return (T)Conversions.convert(value, type);
+  }
+
+}
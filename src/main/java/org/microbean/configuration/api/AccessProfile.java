@@ -0,0 +1,610 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2018 microBean.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.microbean.configuration.api;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+
+import java.lang.reflect.Type;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+
+import java.nio.charset.StandardCharsets;
+
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * A record of the configuration coordinates, names and {@link
+ * Type}s of the configuration values requested from a {@link
+ * Configurations}, typically during application startup, that can
+ * be saved to a file and used on a subsequent startup to {@linkplain
+ * #prefetch(Configurations, Executor) prefetch} those values in
+ * parallel before they are requested.
+ *
+ * <p>Prefetching is only useful if the {@link Configurations} from
+ * which values are prefetched retains them, as, for example, a
+ * {@link CachingConfigurations} does.  A typical startup sequence
+ * looks like this:</p>
+ *
+ * <blockquote><pre>final Configurations cache = new CachingConfigurations(configurations, "tenant", 100000L);
+ * final CompletableFuture&lt;Void&gt; prefetch = AccessProfile.load(path).prefetch(cache, executor);
+ * final AccessProfile profile = new AccessProfile();
+ * final Configurations recording = profile.record(cache);
+ * // ...start the application using recording...
+ * profile.stopRecording();
+ * profile.save(path);</pre></blockquote>
+ *
+ * <p>Only requests for {@link Class}-typed values are saved, since
+ * other {@link Type}s cannot be reliably reconstructed.</p>
+ *
+ * <p>Instances of this class are safe for concurrent use by multiple
+ * threads.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson"
+ * target="_parent">Laird Nelson</a>
+ *
+ * @see #record(Configurations)
+ *
+ * @see #prefetch(Configurations, Executor)
+ */
+public final class AccessProfile {
+
+
+  /*
+   * Static fields.
+   */
+
+
+  /**
+   * The first line of every saved {@link AccessProfile}.
+   */
+  private static final String HEADER = "# microBean configuration access profile 1";
+
+  /**
+   * The maximum number of requests an {@link AccessProfile} will
+   * record.
+   */
+  private static final int MAXIMUM_SIZE = 4096;
+
+  /**
+   * The {@link Class}es representing primitive types, indexed by
+   * name, since {@link Class#forName(String, boolean, ClassLoader)}
+   * cannot load them.
+   */
+  private static final Map<String, Class<?>> primitiveTypes;
+
+  static {
+    final Map<String, Class<?>> map = new HashMap<>();
+    for (final Class<?> c : new Class<?>[] { boolean.class, byte.class, char.class, short.class, int.class, long.class, float.class, double.class }) {
+      map.put(c.getName(), c);
+    }
+    primitiveTypes = Collections.unmodifiableMap(map);
+  }
+
+
+  /*
+   * Instance fields.
+   */
+
+
+  /**
+   * The recorded requests, in the order in which they were first
+   * made.
+   *
+   * <p>This field is never {@code null}.</p>
+   *
+   * @see #add(Map, String, Type)
+   */
+  private final Set<Entry> entries;
+
+  /**
+   * Whether requests are being recorded.
+   *
+   * @see #stopRecording()
+   */
+  private volatile boolean recording;
+
+
+  /*
+   * Constructors.
+   */
+
+
+  /**
+   * Creates a new, empty {@link AccessProfile} that is {@linkplain
+   * #isRecording() recording}.
+   *
+   * @see #record(Configurations)
+   */
+  public AccessProfile() {
+    super();
+    this.entries = new LinkedHashSet<>();
+    this.recording = true;
+  }
+
+
+  /*
+   * Instance methods.
+   */
+
+
+  /**
+   * Returns a {@link Configurations} that passes every request
+   * through to the supplied {@link Configurations} and, while this
+   * {@link AccessProfile} is {@linkplain #isRecording() recording},
+   * records the configuration coordinates, name and {@link Type} of
+   * each request for a converted value.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param configurations the {@link Configurations} whose requests
+   * should be recorded; must not be {@code null}
+   *
+   * @return a non-{@code null} {@link Configurations}
+   *
+   * @exception NullPointerException if {@code configurations} is
+   * {@code null}
+   *
+   * @see #stopRecording()
+   */
+  public final Configurations record(final Configurations configurations) {
+    return new RecordingConfigurations(configurations, this);
+  }
+
+  /**
+   * Returns {@code true} if this {@link AccessProfile} records
+   * requests made of {@link Configurations} returned by its {@link
+   * #record(Configurations)} method.
+   *
+   * @return {@code true} if this {@link AccessProfile} is recording
+   *
+   * @see #stopRecording()
+   */
+  public final boolean isRecording() {
+    return this.recording;
+  }
+
+  /**
+   * Causes this {@link AccessProfile} to stop recording requests,
+   * typically once an application has started.
+   *
+   * @see #isRecording()
+   */
+  public final void stopRecording() {
+    this.recording = false;
+  }
+
+  /**
+   * Returns the number of distinct requests recorded by or loaded
+   * into this {@link AccessProfile}.
+   *
+   * @return the number of distinct requests
+   */
+  public final int size() {
+    synchronized (this.entries) {
+      return this.entries.size();
+    }
+  }
+
+  /**
+   * Records a request, if this {@link AccessProfile} is {@linkplain
+   * #isRecording() recording} and it has not already been recorded.
+   *
+   * @param configurationCoordinates the configuration coordinates of
+   * the request; may be {@code null}
+   *
+   * @param name the name of the request; must not be {@code null}
+   *
+   * @param type the {@link Type} of the request; must not be {@code
+   * null}
+   */
+  final void add(final Map<String, String> configurationCoordinates, final String name, final Type type) {
+    if (this.recording) {
+      synchronized (this.entries) {
+        if (this.entries.size() < MAXIMUM_SIZE) {
+          this.entries.add(new Entry(copy(configurationCoordinates), name, type));
+        }
+      }
+    }
+  }
+
+  /**
+   * Requests every recorded configuration value from the supplied
+   * {@link Configurations}, in parallel, using the supplied {@link
+   * Executor}, so that it is cached, and returns a {@link
+   * CompletableFuture} that completes when all requests have
+   * finished.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * <p>Exceptions thrown while prefetching are ignored, since they
+   * will be thrown again when the application makes the same
+   * request.</p>
+   *
+   * @param configurations the {@link Configurations} from which
+   * values should be prefetched; must not be {@code null}
+   *
+   * @param executor the {@link Executor} to use; must not be {@code
+   * null}
+   *
+   * @return a non-{@code null} {@link CompletableFuture} that
+   * completes normally when all requests have finished
+   *
+   * @exception NullPointerException if either parameter is {@code
+   * null}
+   */
+  public final CompletableFuture<Void> prefetch(final Configurations configurations, final Executor executor) {
+    Objects.requireNonNull(configurations);
+    Objects.requireNonNull(executor);
+    final List<Entry> entries;
+    synchronized (this.entries) {
+      entries = new ArrayList<>(this.entries);
+    }
+    final CompletableFuture<?>[] futures = new CompletableFuture<?>[entries.size()];
+    for (int i = 0; i < futures.length; i++) {
+      final Entry entry = entries.get(i);
+      futures[i] = CompletableFuture.runAsync(() -> {
+          try {
+            configurations.getValue(entry.configurationCoordinates, entry.name, entry.type, null);
+          } catch (final RuntimeException ignored) {
+
+          }
+        }, executor);
+    }
+    return CompletableFuture.allOf(futures);
+  }
+
+  /**
+   * Saves the {@link Class}-typed requests recorded by or loaded
+   * into this {@link AccessProfile} to the file at the supplied
+   * {@link Path}, replacing it if it exists.
+   *
+   * @param path the {@link Path} of the file; must not be {@code
+   * null}
+   *
+   * @exception NullPointerException if {@code path} is {@code null}
+   *
+   * @exception IOException if an input/output error occurs
+   *
+   * @see #load(Path, ClassLoader)
+   */
+  public final void save(final Path path) throws IOException {
+    final List<Entry> entries;
+    synchronized (this.entries) {
+      entries = new ArrayList<>(this.entries);
+    }
+    final Path absolutePath = path.toAbsolutePath();
+    final Path temporaryFile = Files.createTempFile(absolutePath.getParent(), absolutePath.getFileName().toString(), ".tmp");
+    try {
+      try (final BufferedWriter writer = Files.newBufferedWriter(temporaryFile, StandardCharsets.UTF_8)) {
+        writer.write(HEADER);
+        writer.newLine();
+        for (final Entry entry : entries) {
+          if (entry.type instanceof Class) {
+            writer.write(encode(entry.name));
+            writer.write('\t');
+            writer.write(((Class<?>)entry.type).getName());
+            writer.write('\t');
+            if (entry.configurationCoordinates == null) {
+              writer.write('-');
+            } else {
+              final Iterator<Map.Entry<String, String>> iterator = entry.configurationCoordinates.entrySet().iterator();
+              while (iterator.hasNext()) {
+                final Map.Entry<String, String> coordinate = iterator.next();
+                writer.write(encode(coordinate.getKey()));
+                writer.write('=');
+                writer.write(encode(coordinate.getValue()));
+                if (iterator.hasNext()) {
+                  writer.write('&');
+                }
+              }
+            }
+            writer.newLine();
+          }
+        }
+      }
+      try {
+        Files.move(temporaryFile, absolutePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (final AtomicMoveNotSupportedException atomicMoveNotSupportedException) {
+        Files.move(temporaryFile, absolutePath, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temporaryFile);
+    }
+  }
+
+
+  /*
+   * Static methods.
+   */
+
+
+  /**
+   * Loads an {@link AccessProfile} from the file at the supplied
+   * {@link Path}, resolving {@link Class}es using the current
+   * thread's context classloader.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param path the {@link Path} of the file; must not be {@code
+   * null}
+   *
+   * @return a non-{@code null} {@link AccessProfile}
+   *
+   * @exception NullPointerException if {@code path} is {@code null}
+   *
+   * @exception IOException if an input/output error occurs or if the
+   * file is not a saved {@link AccessProfile}
+   *
+   * @see #load(Path, ClassLoader)
+   */
+  public static final AccessProfile load(final Path path) throws IOException {
+    return load(path, Thread.currentThread().getContextClassLoader());
+  }
+
+  /**
+   * Loads an {@link AccessProfile} from the file at the supplied
+   * {@link Path}, resolving {@link Class}es using the supplied
+   * {@link ClassLoader}.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * <p>If the file does not exist, an empty {@link AccessProfile} is
+   * returned.  Requests whose {@link Class}es cannot be found are
+   * skipped.  The returned {@link AccessProfile} is not {@linkplain
+   * #isRecording() recording}.</p>
+   *
+   * @param path the {@link Path} of the file; must not be {@code
+   * null}
+   *
+   * @param classLoader the {@link ClassLoader} to use; may be {@code
+   * null} in which case the bootstrap classloader will be used
+   *
+   * @return a non-{@code null} {@link AccessProfile}
+   *
+   * @exception NullPointerException if {@code path} is {@code null}
+   *
+   * @exception IOException if an input/output error occurs or if the
+   * file is not a saved {@link AccessProfile}
+   *
+   * @see #save(Path)
+   */
+  public static final AccessProfile load(final Path path, final ClassLoader classLoader) throws IOException {
+    final AccessProfile returnValue = new AccessProfile();
+    if (Files.exists(path)) {
+      try (final BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+        String line = reader.readLine();
+        if (!HEADER.equals(line)) {
+          throw new IOException("Not an access profile: " + path);
+        }
+        while ((line = reader.readLine()) != null) {
+          final String[] fields = line.split("\t", -1);
+          if (fields.length != 3) {
+            throw new IOException("Malformed line in " + path + ": " + line);
+          }
+          final Class<?> type;
+          try {
+            type = getClass(fields[1], classLoader);
+          } catch (final ClassNotFoundException classNotFoundException) {
+            continue;
+          }
+          final Map<String, String> configurationCoordinates;
+          if (fields[2].equals("-")) {
+            configurationCoordinates = null;
+          } else if (fields[2].isEmpty()) {
+            configurationCoordinates = Collections.emptyMap();
+          } else {
+            final Map<String, String> map = new LinkedHashMap<>();
+            for (final String coordinate : fields[2].split("&")) {
+              final int equalsIndex = coordinate.indexOf('=');
+              if (equalsIndex < 0) {
+                throw new IOException("Malformed line in " + path + ": " + line);
+              }
+              map.put(decode(coordinate.substring(0, equalsIndex)), decode(coordinate.substring(equalsIndex + 1)));
+            }
+            configurationCoordinates = Collections.unmodifiableMap(map);
+          }
+          returnValue.entries.add(new Entry(configurationCoordinates, decode(fields[0]), type));
+        }
+      }
+    }
+    returnValue.recording = false;
+    return returnValue;
+  }
+
+  /**
+   * Returns the {@link Class} with the supplied name.
+   *
+   * @param name the name of the {@link Class}, as returned by {@link
+   * Class#getName()}; must not be {@code null}
+   *
+   * @param classLoader the {@link ClassLoader} to use; may be {@code
+   * null}
+   *
+   * @return a non-{@code null} {@link Class}
+   *
+   * @exception ClassNotFoundException if the {@link Class} could not
+   * be found
+   */
+  private static final Class<?> getClass(final String name, final ClassLoader classLoader) throws ClassNotFoundException {
+    final Class<?> primitiveType = primitiveTypes.get(name);
+    return primitiveType == null ? Class.forName(name, false, classLoader) : primitiveType;
+  }
+
+  /**
+   * Returns an immutable copy of the supplied configuration
+   * coordinates.
+   *
+   * @param configurationCoordinates the configuration coordinates to
+   * copy; may be {@code null}
+   *
+   * @return an immutable copy of the supplied configuration
+   * coordinates, or {@code null}
+   */
+  private static final Map<String, String> copy(final Map<String, String> configurationCoordinates) {
+    if (configurationCoordinates == null) {
+      return null;
+    } else if (configurationCoordinates.isEmpty()) {
+      return Collections.emptyMap();
+    } else {
+      return Collections.unmodifiableMap(new LinkedHashMap<>(configurationCoordinates));
+    }
+  }
+
+  /**
+   * Encodes the supplied {@link String} so that it contains no tabs,
+   * line terminators, ampersands or equals signs.
+   *
+   * @param s the {@link String} to encode; may be {@code null}
+   *
+   * @return the encoded {@link String}
+   */
+  private static final String encode(final String s) {
+    if (s == null) {
+      return "%00";
+    }
+    try {
+      return URLEncoder.encode(s, "UTF-8");
+    } catch (final UnsupportedEncodingException impossible) {
+      throw new AssertionError(impossible.getMessage(), impossible);
+    }
+  }
+
+  /**
+   * Decodes a {@link String} encoded by the {@link #encode(String)}
+   * method.
+   *
+   * @param s the {@link String} to decode; must not be {@code null}
+   *
+   * @return the decoded {@link String}
+   */
+  private static final String decode(final String s) {
+    if (s.equals("%00")) {
+      return null;
+    }
+    try {
+      return URLDecoder.decode(s, "UTF-8");
+    } catch (final UnsupportedEncodingException impossible) {
+      throw new AssertionError(impossible.getMessage(), impossible);
+    }
+  }
+
+
+  /*
+   * Inner and nested classes.
+   */
+
+
+  /**
+   * A recorded request.
+   *
+   * @author <a href="https://about.me/lairdnelson"
+   * target="_parent">Laird Nelson</a>
+   */
+  private static final class Entry {
+
+    /**
+     * The immutable configuration coordinates of the request; may be
+     * {@code null}.
+     */
+    private final Map<String, String> configurationCoordinates;
+
+    /**
+     * The name of the request; never {@code null}.
+     */
+    private final String name;
+
+    /**
+     * The {@link Type} of the request; never {@code null}.
+     */
+    private final Type type;
+
+    /**
+     * Creates a new {@link Entry}.
+     *
+     * @param configurationCoordinates the immutable configuration
+     * coordinates of the request; may be {@code null}
+     *
+     * @param name the name of the request; must not be {@code null}
+     *
+     * @param type the {@link Type} of the request; must not be {@code
+     * null}
+     */
+    private Entry(final Map<String, String> configurationCoordinates, final String name, final Type type) {
+      super();
+      this.configurationCoordinates = configurationCoordinates;
+      this.name = name;
+      this.type = type;
+    }
+
+    /**
+     * Returns a hashcode for this {@link Entry}.
+     *
+     * @return a hashcode for this {@link Entry}
+     */
+    @Override
+    public final int hashCode() {
+      return (Objects.hashCode(this.configurationCoordinates) * 31 + this.name.hashCode()) * 31 + this.type.hashCode();
+    }
+
+    /**
+     * Returns {@code true} if the supplied {@link Object} is an
+     * {@link Entry} representing the same request.
+     *
+     * @param other the {@link Object} to test; may be {@code null}
+     *
+     * @return {@code true} if the supplied {@link Object} is equal to
+     * this {@link Entry}; {@code false} otherwise
+     */
+    @Override
+    public final boolean equals(final Object other) {
+      if (other == this) {
+        return true;
+      } else if (other instanceof Entry) {
+        final Entry her = (Entry)other;
+        return
+          this.name.equals(her.name) &&
+          this.type.equals(her.type) &&
+          Objects.equals(this.configurationCoordinates, her.configurationCoordinates);
+      } else {
+        return false;
+      }
+    }
+
+  }
+
+}
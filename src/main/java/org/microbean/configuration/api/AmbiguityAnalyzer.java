@@ -0,0 +1,496 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2018 microBean.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.microbean.configuration.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A utility class that finds, ahead of time, every ambiguity that a
+ * {@link ConfigurationValueIndex} built from a given collection of
+ * {@link ConfigurationValue}s could report for any request, so that,
+ * for example, a configuration change can be rejected before it is
+ * deployed.
+ *
+ * <h2>Completeness</h2>
+ *
+ * <p>Suppose a request made with some configuration coordinates
+ * <em>R</em> is ambiguous because two equally suitable candidates
+ * <em>A</em> and <em>B</em> have differing values.  Then a request
+ * made with just the union of <em>A</em>'s and <em>B</em>'s
+ * coordinates, which is a subset of <em>R</em>, has <em>A</em> and
+ * <em>B</em> among its candidates, and every one of its candidates
+ * is also a candidate for <em>R</em> and so is no more suitable than
+ * <em>A</em> and <em>B</em>; that request is therefore ambiguous as
+ * well.  It follows that it suffices to make one request for every
+ * pair of equally suitable {@link ConfigurationValue}s with the same
+ * name, differing values and compatible coordinates (coordinates
+ * that do not assign different values to the same dimension), using
+ * the union of their coordinates.  Two distinct sets of coordinates
+ * with the same dimensions are never compatible, so pairs are
+ * found by joining groups of coordinates with different dimensions
+ * on the dimensions they share, and the work is spread across a
+ * {@link ForkJoinPool} by configuration property name.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson"
+ * target="_parent">Laird Nelson</a>
+ *
+ * @see #analyze(Collection, ForkJoinPool)
+ *
+ * @see ConfigurationValueIndex
+ */
+public final class AmbiguityAnalyzer {
+
+
+  /*
+   * Static fields.
+   */
+
+
+  /**
+   * The number of names at or below which an analysis task analyzes
+   * names itself instead of forking.
+   */
+  private static final int THRESHOLD = 8;
+
+
+  /*
+   * Constructors.
+   */
+
+
+  /**
+   * Creates a new {@link AmbiguityAnalyzer}.
+   */
+  private AmbiguityAnalyzer() {
+    super();
+  }
+
+
+  /*
+   * Static methods.
+   */
+
+
+  /**
+   * Analyzes the supplied {@link ConfigurationValue}s using the
+   * {@linkplain ForkJoinPool#commonPool() common fork-join pool} and
+   * returns an {@link AmbiguousConfigurationValuesException}
+   * describing each distinct ambiguity found.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param values the {@link ConfigurationValue}s to analyze; may be
+   * {@code null}; {@code null} elements are ignored
+   *
+   * @return a non-{@code null}, immutable {@link List} of {@link
+   * AmbiguousConfigurationValuesException}s, none of which has been
+   * thrown
+   *
+   * @see #analyze(Collection, ForkJoinPool)
+   */
+  public static final List<AmbiguousConfigurationValuesException> analyze(final Collection<? extends ConfigurationValue> values) {
+    return analyze(values, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Analyzes the supplied {@link ConfigurationValue}s using the
+   * supplied {@link ForkJoinPool} and returns an {@link
+   * AmbiguousConfigurationValuesException} describing each distinct
+   * ambiguity found.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * <p>Each returned {@link AmbiguousConfigurationValuesException}'s
+   * {@linkplain AmbiguousConfigurationValuesException#getCoordinates()
+   * coordinates} are the smallest configuration coordinates at which
+   * the ambiguity was found, and its {@linkplain
+   * AmbiguousConfigurationValuesException#getValues() values} are
+   * the conflicting {@link ConfigurationValue}s.  An ambiguity
+   * involving the same conflicting {@link ConfigurationValue}s is
+   * reported only once.  The returned {@link List} is sorted by
+   * configuration property name.</p>
+   *
+   * @param values the {@link ConfigurationValue}s to analyze; may be
+   * {@code null}; {@code null} elements are ignored
+   *
+   * @param pool the {@link ForkJoinPool} to use; must not be {@code
+   * null}
+   *
+   * @return a non-{@code null}, immutable {@link List} of {@link
+   * AmbiguousConfigurationValuesException}s, none of which has been
+   * thrown
+   *
+   * @exception NullPointerException if {@code pool} is {@code null}
+   */
+  public static final List<AmbiguousConfigurationValuesException> analyze(final Collection<? extends ConfigurationValue> values, final ForkJoinPool pool) {
+    Objects.requireNonNull(pool);
+    final ConfigurationValueIndex index = new ConfigurationValueIndex(values);
+    final Set<String> nameSet = index.getNames();
+    if (nameSet.isEmpty()) {
+      return Collections.emptyList();
+    }
+    final List<String> nameList = new ArrayList<>(nameSet.size());
+    for (final String name : nameSet) {
+      if (name != null) {
+        nameList.add(name);
+      }
+    }
+    final String[] names = nameList.toArray(new String[nameList.size()]);
+    Arrays.sort(names);
+    return Collections.unmodifiableList(pool.invoke(new AnalysisTask(index, names, 0, names.length)));
+  }
+
+  /**
+   * Returns an {@link AmbiguousConfigurationValuesException} for
+   * each distinct ambiguity involving {@link ConfigurationValue}s
+   * with the supplied {@code name}.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param index the {@link ConfigurationValueIndex} containing the
+   * {@link ConfigurationValue}s; must not be {@code null}
+   *
+   * @param name the name; must not be {@code null}
+   *
+   * @return a non-{@code null} {@link Collection} of {@link
+   * AmbiguousConfigurationValuesException}s
+   */
+  private static final Collection<AmbiguousConfigurationValuesException> analyze(final ConfigurationValueIndex index, final String name) {
+    final List<ConfigurationValue> values = index.getValues(name);
+    if (values.size() < 2) {
+      return Collections.emptySet();
+    }
+
+    // Group equally suitable values first by the dimensions of their
+    // coordinates and then by their coordinates, recording the
+    // distinct values found at each set of coordinates.
+    final Map<Rank, Map<Set<String>, Map<Map<String, String>, Set<String>>>> buckets = new HashMap<>();
+    for (final ConfigurationValue value : values) {
+      final Map<String, String> coordinates = value.getCoordinates() == null ? Collections.emptyMap() : value.getCoordinates();
+      final Rank rank = new Rank(value.isAuthoritative(), value.specificity());
+      Map<Set<String>, Map<Map<String, String>, Set<String>>> groupsByDimensions = buckets.get(rank);
+      if (groupsByDimensions == null) {
+        groupsByDimensions = new HashMap<>();
+        buckets.put(rank, groupsByDimensions);
+      }
+      Map<Map<String, String>, Set<String>> groups = groupsByDimensions.get(coordinates.keySet());
+      if (groups == null) {
+        groups = new HashMap<>();
+        groupsByDimensions.put(coordinates.keySet(), groups);
+      }
+      Set<String> distinctValues = groups.get(coordinates);
+      if (distinctValues == null) {
+        distinctValues = new HashSet<>(2);
+        groups.put(coordinates, distinctValues);
+      }
+      distinctValues.add(value.getValue());
+    }
+
+    final Map<Set<ConfigurationValue>, AmbiguousConfigurationValuesException> ambiguities = new LinkedHashMap<>();
+    final Set<Map<String, String>> requested = new HashSet<>();
+    for (final Map<Set<String>, Map<Map<String, String>, Set<String>>> groupsByDimensions : buckets.values()) {
+
+      // Values at identical coordinates.
+      for (final Map<Map<String, String>, Set<String>> groups : groupsByDimensions.values()) {
+        for (final Map.Entry<Map<String, String>, Set<String>> group : groups.entrySet()) {
+          if (group.getValue().size() > 1) {
+            request(index, name, group.getKey(), requested, ambiguities);
+          }
+        }
+      }
+
+      // Values at compatible coordinates with different dimensions.
+      if (groupsByDimensions.size() > 1) {
+        final List<Map.Entry<Set<String>, Map<Map<String, String>, Set<String>>>> dimensionGroups = new ArrayList<>(groupsByDimensions.entrySet());
+        for (int i = 0; i < dimensionGroups.size(); i++) {
+          final Set<String> dimensions1 = dimensionGroups.get(i).getKey();
+          final Map<Map<String, String>, Set<String>> groups1 = dimensionGroups.get(i).getValue();
+          for (int j = i + 1; j < dimensionGroups.size(); j++) {
+            final Set<String> dimensions2 = dimensionGroups.get(j).getKey();
+            final Map<Map<String, String>, Set<String>> groups2 = dimensionGroups.get(j).getValue();
+            final Set<String> sharedDimensions = new HashSet<>(dimensions1);
+            sharedDimensions.retainAll(dimensions2);
+
+            // Hash join groups1 and groups2 on their shared dimensions.
+            final Map<Map<String, String>, List<Map.Entry<Map<String, String>, Set<String>>>> joinTable = new HashMap<>();
+            for (final Map.Entry<Map<String, String>, Set<String>> group1 : groups1.entrySet()) {
+              final Map<String, String> projection = project(group1.getKey(), sharedDimensions);
+              List<Map.Entry<Map<String, String>, Set<String>>> list = joinTable.get(projection);
+              if (list == null) {
+                list = new ArrayList<>(1);
+                joinTable.put(projection, list);
+              }
+              list.add(group1);
+            }
+            for (final Map.Entry<Map<String, String>, Set<String>> group2 : groups2.entrySet()) {
+              final List<Map.Entry<Map<String, String>, Set<String>>> matches = joinTable.get(project(group2.getKey(), sharedDimensions));
+              if (matches != null) {
+                final Set<String> values2 = group2.getValue();
+                for (final Map.Entry<Map<String, String>, Set<String>> group1 : matches) {
+                  final Set<String> values1 = group1.getValue();
+                  if (values1.size() > 1 || values2.size() > 1 || !values1.equals(values2)) {
+                    final Map<String, String> union = new HashMap<>(group1.getKey());
+                    union.putAll(group2.getKey());
+                    request(index, name, union, requested, ambiguities);
+                  }
+                }
+              }
+            }
+          }
+        }
+      }
+    }
+    return ambiguities.values();
+  }
+
+  /**
+   * Makes a request of the supplied {@link ConfigurationValueIndex}
+   * with the supplied {@code configurationCoordinates} and {@code
+   * name}, unless such a request has already been made, and records
+   * any ambiguity that results and has not already been recorded.
+   *
+   * @param index the {@link ConfigurationValueIndex}; must not be
+   * {@code null}
+   *
+   * @param name the name; must not be {@code null}
+   *
+   * @param configurationCoordinates the configuration coordinates;
+   * must not be {@code null}
+   *
+   * @param requested the configuration coordinates of requests
+   * already made; must not be {@code null}
+   *
+   * @param ambiguities the recorded ambiguities, indexed by their
+   * conflicting {@link ConfigurationValue}s; must not be {@code
+   * null}
+   */
+  private static final void request(final ConfigurationValueIndex index,
+                                    final String name,
+                                    final Map<String, String> configurationCoordinates,
+                                    final Set<Map<String, String>> requested,
+                                    final Map<Set<ConfigurationValue>, AmbiguousConfigurationValuesException> ambiguities) {
+    if (requested.add(configurationCoordinates)) {
+      try {
+        index.select(configurationCoordinates, name);
+      } catch (final AmbiguousConfigurationValuesException ambiguity) {
+        final Set<ConfigurationValue> key = new HashSet<>(ambiguity.getValues());
+        if (!ambiguities.containsKey(key)) {
+          ambiguities.put(key, ambiguity);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns a new {@link Map} containing only those entries of the
+   * supplied {@code configurationCoordinates} whose keys are in the
+   * supplied {@code dimensions}.
+   *
+   * @param configurationCoordinates the configuration coordinates;
+   * must not be {@code null}
+   *
+   * @param dimensions the dimensions to retain; must not be {@code
+   * null}
+   *
+   * @return a non-{@code null} {@link Map}
+   */
+  private static final Map<String, String> project(final Map<String, String> configurationCoordinates, final Set<String> dimensions) {
+    if (dimensions.isEmpty()) {
+      return Collections.emptyMap();
+    }
+    final Map<String, String> returnValue = new HashMap<>();
+    for (final String dimension : dimensions) {
+      returnValue.put(dimension, configurationCoordinates.get(dimension));
+    }
+    return returnValue;
+  }
+
+
+  /*
+   * Inner and nested classes.
+   */
+
+
+  /**
+   * The suitability of a {@link ConfigurationValue}, as used by
+   * {@link ConfigurationValueIndex}.
+   *
+   * @author <a href="https://about.me/lairdnelson"
+   * target="_parent">Laird Nelson</a>
+   */
+  private static final class Rank {
+
+    /**
+     * Whether the {@link ConfigurationValue} is {@linkplain
+     * ConfigurationValue#isAuthoritative() authoritative}.
+     */
+    private final boolean authoritative;
+
+    /**
+     * The {@linkplain ConfigurationValue#specificity() specificity}
+     * of the {@link ConfigurationValue}.
+     */
+    private final int specificity;
+
+    /**
+     * Creates a new {@link Rank}.
+     *
+     * @param authoritative whether the {@link ConfigurationValue} is
+     * authoritative
+     *
+     * @param specificity the specificity of the {@link
+     * ConfigurationValue}
+     */
+    private Rank(final boolean authoritative, final int specificity) {
+      super();
+      this.authoritative = authoritative;
+      this.specificity = specificity;
+    }
+
+    /**
+     * Returns a hashcode for this {@link Rank}.
+     *
+     * @return a hashcode for this {@link Rank}
+     */
+    @Override
+    public final int hashCode() {
+      return this.authoritative ? ~this.specificity : this.specificity;
+    }
+
+    /**
+     * Returns {@code true} if the supplied {@link Object} is an equal
+     * {@link Rank}.
+     *
+     * @param other the {@link Object} to test; may be {@code null}
+     *
+     * @return {@code true} if the supplied {@link Object} is equal to
+     * this {@link Rank}; {@code false} otherwise
+     */
+    @Override
+    public final boolean equals(final Object other) {
+      if (other == this) {
+        return true;
+      } else if (other instanceof Rank) {
+        final Rank her = (Rank)other;
+        return this.authoritative == her.authoritative && this.specificity == her.specificity;
+      } else {
+        return false;
+      }
+    }
+
+  }
+
+  /**
+   * A {@link RecursiveTask} that analyzes a range of configuration
+   * property names.
+   *
+   * @author <a href="https://about.me/lairdnelson"
+   * target="_parent">Laird Nelson</a>
+   */
+  private static final class AnalysisTask extends RecursiveTask<List<AmbiguousConfigurationValuesException>> {
+
+    /**
+     * The version of this class for {@linkplain
+     * java.io.Serializable serialization} purposes.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The {@link ConfigurationValueIndex} containing the {@link
+     * ConfigurationValue}s; never {@code null}.
+     */
+    private final transient ConfigurationValueIndex index;
+
+    /**
+     * The sorted names; never {@code null}.
+     */
+    private final transient String[] names;
+
+    /**
+     * The index of the first name this {@link AnalysisTask}
+     * analyzes.
+     */
+    private final int low;
+
+    /**
+     * The index after that of the last name this {@link
+     * AnalysisTask} analyzes.
+     */
+    private final int high;
+
+    /**
+     * Creates a new {@link AnalysisTask}.
+     *
+     * @param index the {@link ConfigurationValueIndex} containing the
+     * {@link ConfigurationValue}s; must not be {@code null}
+     *
+     * @param names the sorted names; must not be {@code null}
+     *
+     * @param low the index of the first name to analyze
+     *
+     * @param high the index after that of the last name to analyze
+     */
+    private AnalysisTask(final ConfigurationValueIndex index, final String[] names, final int low, final int high) {
+      super();
+      this.index = index;
+      this.names = names;
+      this.low = low;
+      this.high = high;
+    }
+
+    /**
+     * Analyzes the names in this {@link AnalysisTask}'s range,
+     * forking subtasks if the range is large.
+     *
+     * @return a non-{@code null} {@link List} of {@link
+     * AmbiguousConfigurationValuesException}s
+     */
+    @Override
+    protected final List<AmbiguousConfigurationValuesException> compute() {
+      final List<AmbiguousConfigurationValuesException> returnValue;
+      if (this.high - this.low <= THRESHOLD) {
+        returnValue = new ArrayList<>();
+        for (int i = this.low; i < this.high; i++) {
+          returnValue.addAll(analyze(this.index, this.names[i]));
+        }
+      } else {
+        final int middle = (this.low + this.high) >>> 1;
+        final AnalysisTask left = new AnalysisTask(this.index, this.names, this.low, middle);
+        left.fork();
+        final List<AmbiguousConfigurationValuesException> right = new AnalysisTask(this.index, this.names, middle, this.high).compute();
+        returnValue = left.join();
+        returnValue.addAll(right);
+      }
+      return returnValue;
+    }
+
+  }
+
+}
@@ -106,7 +106,43 @@ public class AmbiguousConfigurationValuesException extends ConfigurationExceptio
                                                final Map<? extends String, ? extends String> configurationCoordinates,
                                                final String name,
                                                final Collection<? extends ConfigurationValue> values) {
-    super(message, cause);
+    this(message, cause, configurationCoordinates, name, values, true);
+  }
+
+  /**
+   * Creates a new {@link AmbiguousConfigurationValuesException},
+   * optionally without a stack trace.
+   *
+   * @param message the error message; may be {@code null}
+   *
+   * @param cause the {@link Throwable} that caused this {@link
+   * AmbiguousConfigurationValuesException} to be created; may be
+   * {@code null}
+   *
+   * @param configurationCoordinates the configuration coordinates in
+   * effect at the time conflicting values were found; may be {@code
+   * null}
+   *
+   * @param name the name of the configuration property for which a
+   * value was requested; must not be {@code null}
+   *
+   * @param values the conflicting values; may be {@code null}
+   *
+   * @param writableStackTrace whether this {@link
+   * AmbiguousConfigurationValuesException} should have a stack trace
+   *
+   * @exception NullPointerException if {@code name} is {@code null}
+   *
+   * @see ConfigurationException#ConfigurationException(String,
+   * Throwable, boolean)
+   */
+  public AmbiguousConfigurationValuesException(final String message,
+                                               final Throwable cause,
+                                               final Map<? extends String, ? extends String> configurationCoordinates,
+                                               final String name,
+                                               final Collection<? extends ConfigurationValue> values,
+                                               final boolean writableStackTrace) {
+    super(message, cause, writableStackTrace);
     if (name == null) {
       final NullPointerException throwMe = new NullPointerException();
       throwMe.addSuppressed(this);
@@ -0,0 +1,247 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2018 microBean.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.microbean.configuration.api;
+
+import java.util.Collection;
+
+/**
+ * A compact, immutable probabilistic membership structure over a
+ * fixed set of configuration property names.
+ *
+ * <p>A {@link BloomFilter} never reports that a name it was built
+ * from is absent, but may, with a small probability, report that a
+ * name it was not built from is present.</p>
+ *
+ * <p>Instances of this class are safe for concurrent use by multiple
+ * threads.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson"
+ * target="_parent">Laird Nelson</a>
+ *
+ * @see Configurations#isNameIndexingEnabled()
+ */
+final class BloomFilter {
+
+
+  /*
+   * Static fields.
+   */
+
+
+  /**
+   * The number of bits allotted per element.
+   *
+   * <p>Ten bits per element with {@linkplain #HASH_FUNCTION_COUNT
+   * seven hash functions} yields a false positive probability of
+   * slightly less than one percent.</p>
+   */
+  private static final int BITS_PER_ELEMENT = 10;
+
+  /**
+   * The number of hash functions applied to each element.
+   */
+  private static final int HASH_FUNCTION_COUNT = 7;
+
+
+  /*
+   * Instance fields.
+   */
+
+
+  /**
+   * The bit set backing this {@link BloomFilter}.
+   *
+   * <p>This field is never {@code null} and its length is always a
+   * power of two.</p>
+   */
+  private final long[] bits;
+
+  /**
+   * A mask used to reduce a hash value to a bit index.
+   */
+  private final int mask;
+
+  /**
+   * The version of the {@link Configurations} whose {@linkplain
+   * Configurations#getNames() names} were used to build this {@link
+   * BloomFilter}.
+   */
+  private final long version;
+
+
+  /*
+   * Constructors.
+   */
+
+
+  /**
+   * Creates a new {@link BloomFilter}.
+   *
+   * @param names the names the new {@link BloomFilter} will contain;
+   * may be {@code null}; {@code null} elements are ignored
+   *
+   * @param version the version of the {@link Configurations} from
+   * which the supplied {@code names} were acquired
+   */
+  BloomFilter(final Collection<? extends String> names, final long version) {
+    super();
+    final int size = names == null ? 0 : names.size();
+    // Round the number of bits up to a power of two (with a floor of
+    // 64) so that indices may be computed with a mask.
+    final long desiredBits = Math.max(64L, (long)size * BITS_PER_ELEMENT);
+    final int bitCount = (int)Math.min(1L << 30, Long.highestOneBit(desiredBits - 1L) << 1);
+    this.bits = new long[bitCount >>> 6];
+    this.mask = bitCount - 1;
+    this.version = version;
+    if (size > 0) {
+      this.addAll(names);
+    }
+  }
+
+  /**
+   * Creates a new {@link BloomFilter} containing every name
+   * contained by the supplied {@link BloomFilter} together with the
+   * supplied {@code names}.
+   *
+   * <p>The new {@link BloomFilter} is the same size as the supplied
+   * one, so its false positive probability is somewhat higher.</p>
+   *
+   * @param prior the {@link BloomFilter} to copy; must not be {@code
+   * null}
+   *
+   * @param names additional names the new {@link BloomFilter} will
+   * contain; must not be {@code null}; {@code null} elements are
+   * ignored
+   *
+   * @param version the version of the {@link Configurations} to
+   * which the new {@link BloomFilter} corresponds
+   *
+   * @exception NullPointerException if {@code prior} or {@code
+   * names} is {@code null}
+   */
+  BloomFilter(final BloomFilter prior, final Collection<? extends String> names, final long version) {
+    super();
+    this.bits = prior.bits.clone();
+    this.mask = prior.mask;
+    this.version = version;
+    this.addAll(names);
+  }
+
+
+  /*
+   * Instance methods.
+   */
+
+
+  /**
+   * Returns the version of the {@link Configurations} whose
+   * {@linkplain Configurations#getNames() names} were used to build
+   * this {@link BloomFilter}.
+   *
+   * @return the version of the {@link Configurations} whose names
+   * were used to build this {@link BloomFilter}
+   */
+  final long getVersion() {
+    return this.version;
+  }
+
+  /**
+   * Adds the supplied {@code names} to this {@link BloomFilter}.
+   *
+   * <p>This method must be called only during construction.</p>
+   *
+   * @param names the names to add; must not be {@code null}; {@code
+   * null} elements are ignored
+   */
+  private final void addAll(final Collection<? extends String> names) {
+    for (final String name : names) {
+      if (name != null) {
+        final int h1 = spread(name.hashCode());
+        final int h2 = rehash(h1);
+        for (int i = 0; i < HASH_FUNCTION_COUNT; i++) {
+          final int index = (h1 + i * h2) & this.mask;
+          this.bits[index >>> 6] |= 1L << index;
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns {@code false} if the supplied {@code name} was definitely
+   * not one of the names used to build this {@link BloomFilter}, and
+   * {@code true} if it may have been.
+   *
+   * <p>This method does not allocate.</p>
+   *
+   * @param name the name to test; may be {@code null} in which case
+   * {@code true} will be returned
+   *
+   * @return {@code false} if the supplied {@code name} is definitely
+   * absent; {@code true} otherwise
+   */
+  final boolean mightContain(final String name) {
+    if (name == null) {
+      return true;
+    }
+    final int h1 = spread(name.hashCode());
+    final int h2 = rehash(h1);
+    for (int i = 0; i < HASH_FUNCTION_COUNT; i++) {
+      final int index = (h1 + i * h2) & this.mask;
+      if ((this.bits[index >>> 6] & (1L << index)) == 0L) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+
+  /*
+   * Static methods.
+   */
+
+
+  /**
+   * Applies the MurmurHash3 finalization step to the supplied hash
+   * value so that its bits are well distributed.
+   *
+   * @param h the hash value to spread
+   *
+   * @return the spread hash value
+   */
+  private static final int spread(int h) {
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h;
+  }
+
+  /**
+   * Derives a second, odd, hash value from the supplied hash value
+   * for use in double hashing.
+   *
+   * @param h the hash value from which a second hash value should be
+   * derived
+   *
+   * @return a second, odd, hash value
+   */
+  private static final int rehash(final int h) {
+    return spread(h ^ 0x9e3779b9) | 1;
+  }
+
+}
@@ -0,0 +1,650 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2018 microBean.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.microbean.configuration.api;
+
+import java.lang.reflect.Type;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link Configurations} that is bound to a fixed set of
+ * configuration coordinates and that answers requests made with
+ * those coordinates from a flat table of precomputed {@link
+ * ConfigurationValue}s.
+ *
+ * <p>If the delegate {@link Configurations} guarantees that its
+ * {@linkplain Configurations#getNames() names} are complete, by
+ * {@linkplain Configurations#isNameIndexingEnabled() enabling name
+ * indexing}, the table is built up front from the {@link
+ * ConfigurationValue}s that it selects for every one of them, and a
+ * name missing from the table has no value.  Otherwise the table is
+ * filled in as names are requested, and the absence of a value is
+ * recorded in it as well, for up to {@value
+ * #MAXIMUM_NEGATIVE_ENTRIES} names, so that the outcome of every
+ * request is the same as the outcome of the same request made of
+ * the delegate directly.  Whenever the
+ * delegate reports that its {@linkplain
+ * Configurations#configurationChanged() configuration has changed},
+ * the entries for only the {@linkplain
+ * Configurations#configurationChanged(Set) configuration properties
+ * that changed} are recomputed, if they are known, and the table is
+ * rebuilt otherwise.  Requests made with any other configuration
+ * coordinates are passed through to the delegate.</p>
+ *
+ * <p>Instances of this class are safe for concurrent use by multiple
+ * threads.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson"
+ * target="_parent">Laird Nelson</a>
+ *
+ * @see Configurations#bind(Map)
+ */
+final class BoundConfigurations extends ForwardingConfigurations {
+
+
+  /*
+   * Static fields.
+   */
+
+
+  /**
+   * A sentinel recording, in a {@link Table} that is not {@linkplain
+   * Table#complete complete}, that there is no {@link
+   * ConfigurationValue} for a name.
+   */
+  private static final Object NONE = new Object();
+
+  /**
+   * The maximum number of names for which a {@link Table} that is
+   * not {@linkplain Table#complete complete} records that there is
+   * no {@link ConfigurationValue}, so that requests for arbitrarily
+   * many missing names cannot make it grow without bound.
+   */
+  private static final int MAXIMUM_NEGATIVE_ENTRIES = 1024;
+
+
+  /*
+   * Instance fields.
+   */
+
+
+  /**
+   * The configuration coordinates to which this {@link
+   * BoundConfigurations} is bound.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final Map<String, String> coordinates;
+
+  /**
+   * The current {@link Table}.
+   *
+   * <p>This field may be {@code null}.</p>
+   */
+  private volatile Table table;
+
+
+  /*
+   * Constructors.
+   */
+
+
+  /**
+   * Creates a new {@link BoundConfigurations}.
+   *
+   * @param delegate the {@link Configurations} whose values will be
+   * flattened; must not be {@code null}
+   *
+   * @param coordinates the configuration coordinates to bind to; may
+   * be {@code null}
+   *
+   * @exception NullPointerException if {@code delegate} is {@code
+   * null}
+   */
+  BoundConfigurations(final Configurations delegate, final Map<String, String> coordinates) {
+    super(delegate);
+    if (coordinates == null || coordinates.isEmpty()) {
+      this.coordinates = Collections.emptyMap();
+    } else {
+      this.coordinates = Collections.unmodifiableMap(new HashMap<>(coordinates));
+    }
+  }
+
+
+  /*
+   * Instance methods.
+   */
+
+
+  /**
+   * Returns the configuration coordinates to which this {@link
+   * BoundConfigurations} is bound.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return a non-{@code null}, unmodifiable {@link Map} of
+   * configuration coordinates
+   */
+  @Override
+  public final Map<String, String> getConfigurationCoordinates() {
+    return this.coordinates;
+  }
+
+  /**
+   * Returns a new {@link BoundConfigurations} bound to the same
+   * configuration coordinates as this one that flattens the values
+   * of the supplied {@code delegate}.
+   *
+   * @param delegate the {@link Configurations} whose values will be
+   * flattened; must not be {@code null}
+   *
+   * @return a new {@link BoundConfigurations}
+   *
+   * @exception NullPointerException if {@code delegate} is {@code
+   * null}
+   */
+  @Override
+  protected final Configurations withDelegate(final Configurations delegate) {
+    return new BoundConfigurations(delegate, this.coordinates);
+  }
+
+  /**
+   * Returns the {@link ConfigurationValue} suitable for the supplied
+   * {@code configurationCoordinates} and {@code name}, consulting
+   * the flattened table if the supplied {@code
+   * configurationCoordinates} are those to which this {@link
+   * BoundConfigurations} is bound.
+   *
+   * @param configurationCoordinates the configuration coordinates in
+   * effect for the request; may be {@code null}
+   *
+   * @param name the name of the configuration property; must not be
+   * {@code null}
+   *
+   * @return the selected {@link ConfigurationValue}, or {@code null}
+   *
+   * @exception NullPointerException if {@code name} is {@code null}
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable
+   */
+  @Override
+  public final ConfigurationValue getConfigurationValue(final Map<String, String> configurationCoordinates, final String name) {
+    if (name == null || !this.isBound(configurationCoordinates)) {
+      return this.getDelegate().getConfigurationValue(configurationCoordinates, name);
+    }
+    final Object entry = this.getEntry(this.getTable(), name);
+    if (entry instanceof AmbiguousConfigurationValuesException) {
+      throw rethrow((AmbiguousConfigurationValuesException)entry);
+    }
+    return (ConfigurationValue)entry;
+  }
+
+  /**
+   * Returns a {@link Resolution} describing the outcome of a request
+   * for the value of the configuration property suitable for the
+   * supplied {@code configurationCoordinates} and {@code name},
+   * reporting an ambiguity recorded in the flattened table without
+   * creating an exception.
+   *
+   * @param <T> the type to which the configuration value should be
+   * converted
+   *
+   * @param configurationCoordinates the configuration coordinates in
+   * effect for the request; may be {@code null}
+   *
+   * @param name the name of the configuration property; must not be
+   * {@code null}
+   *
+   * @param type a {@link Type} representing the type to which the
+   * configuration value should be converted; must not be {@code null}
+   *
+   * @param defaultValue the value that will be converted if there is
+   * no configuration value; may be {@code null}
+   *
+   * @return a non-{@code null} {@link Resolution}
+   *
+   * @exception NullPointerException if {@code name} or {@code type}
+   * is {@code null}
+   */
+  @Override
+  public final <T> Resolution<T> resolve(final Map<String, String> configurationCoordinates, final String name, final Type type, final String defaultValue) {
+    if (name != null && type != null && this.isBound(configurationCoordinates)) {
+      final Object entry = this.getEntry(this.getTable(), name);
+      if (entry instanceof AmbiguousConfigurationValuesException) {
+        return new Resolution<>(Resolution.Status.AMBIGUOUS,
+                                configurationCoordinates,
+                                name,
+                                null,
+                                null,
+                                ((AmbiguousConfigurationValuesException)entry).getValues(),
+                                null);
+      }
+    }
+    return super.resolve(configurationCoordinates, name, type, defaultValue);
+  }
+
+  /**
+   * Returns a configuration value corresponding to the configuration
+   * property suitable for the supplied {@code
+   * configurationCoordinates} and {@code name}, or the supplied
+   * {@code defaultValue} if {@code null} would otherwise be returned,
+   * converted, if possible, to the type represented by the supplied
+   * {@code type}.
+   *
+   * <p>If the supplied {@code configurationCoordinates} are those to
+   * which this {@link BoundConfigurations} is bound, then the value
+   * is found in the flattened table, and converted values are
+   * memoized until the entry from which they were converted
+   * changes.  Otherwise the request is
+   * passed through to the delegate.</p>
+   *
+   * @param <T> the type to which a {@link String}-typed configuration
+   * value should be converted
+   *
+   * @param configurationCoordinates a {@link Map} representing the
+   * configuration coordinates in effect for this request; may be
+   * {@code null}
+   *
+   * @param name the name of the configuration property for which a
+   * value will be returned; must not be {@code null}
+   *
+   * @param type a {@link Type} representing the type to which the
+   * configuration value will be converted; must not be {@code null}
+   *
+   * @param defaultValue the value that will be converted and returned
+   * if {@code null} would otherwise be returned; may be {@code null}
+   *
+   * @return the configuration value, or {@code null}
+   *
+   * @exception NullPointerException if {@code name} or {@code type}
+   * is {@code null}
+   *
+   * @exception ConversionException if type conversion could not occur
+   * for any reason
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public final <T> T getValue(final Map<String, String> configurationCoordinates, final String name, final Type type, final String defaultValue) {
+    if (name == null || type == null || !this.isBound(configurationCoordinates)) {
+      return this.getDelegate().getValue(configurationCoordinates, name, type, defaultValue);
+    }
+    final Table table = this.getTable();
+    final Object entry = this.getEntry(table, name);
+    final T returnValue;
+    if (entry == null) {
+      returnValue = defaultValue == null ? null : this.getDelegate().getValue(configurationCoordinates, name, type, defaultValue);
+    } else if (entry instanceof AmbiguousConfigurationValuesException) {
+      throw rethrow((AmbiguousConfigurationValuesException)entry);
+    } else if (type == String.class) {
+      final String value = ((ConfigurationValue)entry).getValue();
+      returnValue = (T)(value == null ? defaultValue : value);
+    } else {
+      ConcurrentMap<String, Object> convertedValues = table.convertedValues.get(type);
+      if (convertedValues == null) {
+        convertedValues = new ConcurrentHashMap<>();
+        final ConcurrentMap<String, Object> old = table.convertedValues.putIfAbsent(type, convertedValues);
+        if (old != null) {
+          convertedValues = old;
+        }
+      }
+      final Converted converted = (Converted)convertedValues.get(name);
+      final Object convertedValue;
+      if (converted == null || converted.source != entry) {
+        // Either nothing has been memoized, or what was memoized was
+        // converted from an entry that has since changed.
+        convertedValue = this.getDelegate().getValue(configurationCoordinates, name, type, null);
+        convertedValues.put(name, new Converted(entry, convertedValue));
+      } else {
+        convertedValue = converted.value;
+      }
+      returnValue = convertedValue == null && defaultValue != null ? this.getDelegate().getValue(configurationCoordinates, name, type, defaultValue) : (T)convertedValue;
+    }
+    return returnValue;
+  }
+
+  /**
+   * Returns {@code true} if the supplied {@code
+   * configurationCoordinates} are those to which this {@link
+   * BoundConfigurations} is bound.
+   *
+   * @param configurationCoordinates the configuration coordinates to
+   * test; may be {@code null}
+   *
+   * @return {@code true} if the supplied {@code
+   * configurationCoordinates} are those to which this {@link
+   * BoundConfigurations} is bound; {@code false} otherwise
+   */
+  private final boolean isBound(final Map<String, String> configurationCoordinates) {
+    return configurationCoordinates == this.coordinates || (configurationCoordinates != null && configurationCoordinates.equals(this.coordinates));
+  }
+
+  /**
+   * Returns the current {@link Table}, first bringing it up to date
+   * if the delegate's configuration has changed since it was last
+   * built.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return a non-{@code null} {@link Table}
+   */
+  private final Table getTable() {
+    final long version = this.getDelegate().getVersion();
+    Table table = this.table;
+    if (table == null || table.version != version) {
+      synchronized (this) {
+        table = this.table;
+        if (table == null) {
+          table = this.newTable(version);
+        } else if (table.version != version) {
+          final Set<String> changedNames = this.getDelegate().getChangedNames(table.version);
+          if (changedNames == null) {
+            table = this.newTable(version);
+          } else {
+            // Recompute only the entries that changed.  Readers still
+            // holding the prior Table may observe the new entries,
+            // which is harmless, and memoized conversions of the old
+            // entries are recognized as stale by their source.
+            for (final String name : changedNames) {
+              if (name != null) {
+                final Object entry = table.complete ? this.select(name) : null;
+                if (entry == null) {
+                  if (table.entries.remove(name) == NONE) {
+                    table.negativeEntryCount.decrementAndGet();
+                  }
+                } else {
+                  table.entries.put(name, entry);
+                }
+              }
+            }
+            table = new Table(version, table.complete, table.entries, table.negativeEntryCount, table.convertedValues);
+          }
+        }
+        this.table = table;
+      }
+    }
+    return table;
+  }
+
+  /**
+   * Returns the entry in the supplied {@link Table} for the supplied
+   * {@code name}, first selecting it and recording it in the {@link
+   * Table} if the {@link Table} is not {@linkplain Table#complete
+   * complete} and has no entry for it yet.
+   *
+   * <p>The absence of a {@link ConfigurationValue} is recorded only
+   * while fewer than {@link #MAXIMUM_NEGATIVE_ENTRIES} such absences
+   * are recorded; beyond that, a name without a {@link
+   * ConfigurationValue} is selected afresh every time it is
+   * requested.</p>
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @param table the {@link Table}; must not be {@code null}
+   *
+   * @param name the name of the configuration property; must not be
+   * {@code null}
+   *
+   * @return a {@link ConfigurationValue}, an {@link
+   * AmbiguousConfigurationValuesException}, or {@code null}
+   */
+  private final Object getEntry(final Table table, final String name) {
+    Object entry = table.entries.get(name);
+    if (entry == null && !table.complete) {
+      entry = this.select(name);
+      synchronized (this) {
+        // Record the entry only if nothing has changed since the
+        // table was brought up to date; otherwise it may already be
+        // stale.  Holding the lock ensures that a change reported
+        // after this check removes the entry again.
+        if (this.getDelegate().getVersion() == table.version) {
+          if (entry != null) {
+            final Object old = table.entries.putIfAbsent(name, entry);
+            if (old != null) {
+              entry = old;
+            }
+          } else if (table.negativeEntryCount.get() < MAXIMUM_NEGATIVE_ENTRIES) {
+            final Object old = table.entries.putIfAbsent(name, NONE);
+            if (old == null) {
+              table.negativeEntryCount.incrementAndGet();
+            } else {
+              entry = old;
+            }
+          }
+        }
+      }
+    }
+    return entry == NONE ? null : entry;
+  }
+
+  /**
+   * Returns a new {@link Table} for the supplied {@code version} of
+   * the delegate, which is {@linkplain #flatten() flattened} up front
+   * only if the delegate {@linkplain
+   * Configurations#isNameIndexingEnabled() guarantees that its names
+   * are complete}.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param version the version of the delegate
+   *
+   * @return a new, non-{@code null} {@link Table}
+   */
+  private final Table newTable(final long version) {
+    final boolean complete = this.getDelegate().isNameIndexingEnabled();
+    return new Table(version, complete, complete ? this.flatten() : new ConcurrentHashMap<>(), new AtomicInteger(), new ConcurrentHashMap<>());
+  }
+
+  /**
+   * Selects, for every name known to the delegate, the {@link
+   * ConfigurationValue} suitable for the configuration coordinates
+   * to which this {@link BoundConfigurations} is bound.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return a non-{@code null} {@link Map} whose values are either
+   * {@link ConfigurationValue}s or {@link
+   * AmbiguousConfigurationValuesException}s
+   */
+  private final ConcurrentMap<String, Object> flatten() {
+    final Set<String> names = this.getDelegate().getNames();
+    final ConcurrentMap<String, Object> entries = new ConcurrentHashMap<>(names.size() * 4 / 3 + 1);
+    for (final String name : names) {
+      if (name != null) {
+        final Object entry = this.select(name);
+        if (entry != null) {
+          entries.put(name, entry);
+        }
+      }
+    }
+    return entries;
+  }
+
+  /**
+   * Selects the {@link ConfigurationValue} suitable for the
+   * configuration coordinates to which this {@link
+   * BoundConfigurations} is bound and the supplied {@code name}.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @param name the name of the configuration property; must not be
+   * {@code null}
+   *
+   * @return a {@link ConfigurationValue}, an {@link
+   * AmbiguousConfigurationValuesException}, or {@code null}
+   */
+  private final Object select(final String name) {
+    try {
+      return this.getDelegate().getConfigurationValue(this.coordinates, name);
+    } catch (final AmbiguousConfigurationValuesException ambiguousConfigurationValuesException) {
+      // Defer reporting the ambiguity until the name is actually
+      // requested, just as the delegate would.
+      return ambiguousConfigurationValuesException;
+    }
+  }
+
+
+  /*
+   * Static methods.
+   */
+
+
+  /**
+   * Returns a new {@link AmbiguousConfigurationValuesException}
+   * describing the same ambiguity as the supplied one, so that its
+   * stack trace reflects the current request.
+   *
+   * @param e the {@link AmbiguousConfigurationValuesException}
+   * recorded when the table was built; must not be {@code null}
+   *
+   * @return a new {@link AmbiguousConfigurationValuesException}
+   */
+  private static final AmbiguousConfigurationValuesException rethrow(final AmbiguousConfigurationValuesException e) {
+    return new AmbiguousConfigurationValuesException(e.getMessage(), e, e.getCoordinates(), e.getName(), e.getValues());
+  }
+
+
+  /*
+   * Inner and nested classes.
+   */
+
+
+  /**
+   * A converted value, memoized together with the entry from which
+   * it was converted.
+   *
+   * @author <a href="https://about.me/lairdnelson"
+   * target="_parent">Laird Nelson</a>
+   */
+  private static final class Converted {
+
+    /**
+     * The entry from which the {@linkplain #value value} was
+     * converted; never {@code null}.
+     */
+    private final Object source;
+
+    /**
+     * The converted value; may be {@code null}.
+     */
+    private final Object value;
+
+    /**
+     * Creates a new {@link Converted}.
+     *
+     * @param source the entry from which the supplied {@code value}
+     * was converted; must not be {@code null}
+     *
+     * @param value the converted value; may be {@code null}
+     */
+    private Converted(final Object source, final Object value) {
+      super();
+      this.source = source;
+      this.value = value;
+    }
+
+  }
+
+  /**
+   * A flattened table of selected {@link ConfigurationValue}s,
+   * together with memoized conversions of their values.
+   *
+   * @author <a href="https://about.me/lairdnelson"
+   * target="_parent">Laird Nelson</a>
+   */
+  private static final class Table {
+
+    /**
+     * The version of the delegate from which this {@link Table} was
+     * built.
+     */
+    private final long version;
+
+    /**
+     * Whether {@link #entries} contains an entry for every name that
+     * might have one, as opposed to only for the names that have
+     * been requested.
+     */
+    private final boolean complete;
+
+    /**
+     * The selected {@link ConfigurationValue}s (or {@link
+     * AmbiguousConfigurationValuesException}s, or, if this {@link
+     * Table} is not {@linkplain #complete complete}, {@link #NONE}),
+     * keyed by name; never {@code null}.
+     */
+    private final ConcurrentMap<String, Object> entries;
+
+    /**
+     * The number of {@link #NONE} entries in {@link #entries}, which
+     * is only changed while the monitor of the {@link
+     * BoundConfigurations} is held; never {@code null}.
+     */
+    private final AtomicInteger negativeEntryCount;
+
+    /**
+     * Memoized {@link Converted} values, keyed by {@link Type} and
+     * then by name; never {@code null}.
+     */
+    private final ConcurrentMap<Type, ConcurrentMap<String, Object>> convertedValues;
+
+    /**
+     * Creates a new {@link Table}.
+     *
+     * @param version the version of the delegate from which the new
+     * {@link Table} was built
+     *
+     * @param complete whether {@code entries} contains an entry for
+     * every name that might have one
+     *
+     * @param entries the selected {@link ConfigurationValue}s (or
+     * {@link AmbiguousConfigurationValuesException}s), keyed by name;
+     * must not be {@code null}
+     *
+     * @param negativeEntryCount the number of {@link #NONE} entries
+     * in {@code entries}; must not be {@code null}
+     *
+     * @param convertedValues memoized {@link Converted} values, keyed
+     * by {@link Type} and then by name; must not be {@code null}
+     */
+    private Table(final long version,
+                  final boolean complete,
+                  final ConcurrentMap<String, Object> entries,
+                  final AtomicInteger negativeEntryCount,
+                  final ConcurrentMap<Type, ConcurrentMap<String, Object>> convertedValues) {
+      super();
+      this.version = version;
+      this.complete = complete;
+      this.entries = entries;
+      this.negativeEntryCount = negativeEntryCount;
+      this.convertedValues = convertedValues;
+    }
+
+  }
+
+}
@@ -0,0 +1,136 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2018 microBean.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.microbean.configuration.api;
+
+import java.nio.ByteBuffer;
+
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+
+import java.util.Map; // for javadoc only
+
+/**
+ * A {@link ReadableByteChannel} that reads the remaining bytes of a
+ * {@link ByteBuffer} without copying them anywhere other than into
+ * the destination {@link ByteBuffer}s supplied to its {@link
+ * #read(ByteBuffer)} method.
+ *
+ * <p>Instances of this class are not safe for concurrent use by
+ * multiple threads.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson"
+ * target="_parent">Laird Nelson</a>
+ *
+ * @see Configurations#getChannel(Map, String)
+ */
+final class ByteBufferChannel implements ReadableByteChannel {
+
+
+  /*
+   * Instance fields.
+   */
+
+
+  /**
+   * The {@link ByteBuffer} from which bytes are read.
+   *
+   * <p>This field is {@code null} once this {@link
+   * ByteBufferChannel} has been {@linkplain #close() closed}.</p>
+   */
+  private ByteBuffer source;
+
+
+  /*
+   * Constructors.
+   */
+
+
+  /**
+   * Creates a new {@link ByteBufferChannel}.
+   *
+   * @param source the {@link ByteBuffer} whose remaining bytes will
+   * be read; must not be {@code null}; its position is not affected
+   *
+   * @exception NullPointerException if {@code source} is {@code null}
+   */
+  ByteBufferChannel(final ByteBuffer source) {
+    super();
+    this.source = source.duplicate();
+  }
+
+
+  /*
+   * Instance methods.
+   */
+
+
+  /**
+   * Transfers as many remaining bytes as will fit from the source
+   * {@link ByteBuffer} into the supplied {@code destination}.
+   *
+   * @param destination the {@link ByteBuffer} to fill; must not be
+   * {@code null}
+   *
+   * @return the number of bytes transferred, or {@code -1} if no
+   * bytes remain
+   *
+   * @exception ClosedChannelException if this {@link
+   * ByteBufferChannel} has been {@linkplain #close() closed}
+   */
+  @Override
+  public final int read(final ByteBuffer destination) throws ClosedChannelException {
+    final ByteBuffer source = this.source;
+    if (source == null) {
+      throw new ClosedChannelException();
+    }
+    final int remaining = source.remaining();
+    if (remaining <= 0) {
+      return -1;
+    }
+    final int count = Math.min(remaining, destination.remaining());
+    if (count == remaining) {
+      destination.put(source);
+    } else {
+      final int limit = source.limit();
+      source.limit(source.position() + count);
+      destination.put(source);
+      source.limit(limit);
+    }
+    return count;
+  }
+
+  /**
+   * Returns {@code true} if this {@link ByteBufferChannel} has not
+   * been {@linkplain #close() closed}.
+   *
+   * @return {@code true} if this {@link ByteBufferChannel} is open;
+   * {@code false} otherwise
+   */
+  @Override
+  public final boolean isOpen() {
+    return this.source != null;
+  }
+
+  /**
+   * Closes this {@link ByteBufferChannel}.
+   */
+  @Override
+  public final void close() {
+    this.source = null;
+  }
+
+}
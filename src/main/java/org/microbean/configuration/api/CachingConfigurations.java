@@ -0,0 +1,1445 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2018 microBean.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.microbean.configuration.api;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Type;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+import java.util.function.ToLongFunction;
+
+/**
+ * A {@link Configurations} that caches the converted values returned
+ * by a delegate {@link Configurations} in a bounded, weighted cache
+ * partitioned by the value of a chosen configuration coordinate,
+ * such as a tenant identifier.
+ *
+ * <p>Each partition is bounded by an equal share of the maximum
+ * weight and evicts entries using a policy modeled on
+ * W-TinyLFU: new entries enter a small LRU window, and an entry
+ * leaving the window is admitted to the main, segmented LRU region
+ * only if it has been requested more frequently, according to a
+ * {@linkplain FrequencySketch compact frequency sketch}, than the
+ * entry it would displace.  Frequently requested entries therefore
+ * stay resident even when very many distinct configuration
+ * coordinates, each requested only occasionally, pass through the
+ * cache, and configuration coordinates that are not requested
+ * occupy no space at all.</p>
+ *
+ * <p>As in Caffeine, a cache hit takes no lock.  It is recorded in a
+ * small buffer, one of several among which threads are striped, and
+ * the recorded hits are applied to the eviction policy in batches by
+ * whichever thread finds a buffer full and the partition's lock
+ * free, or by the next thread to cache a value.  A hit recorded while
+ * its buffer is full and the lock is held is dropped, which only
+ * makes the policy slightly less accurate.</p>
+ *
+ * <p>Only the results of requests made without a default value are
+ * cached; a default value is applied to a cached {@code null}
+ * result by the delegate on every request.  {@link
+ * AmbiguousConfigurationValuesException}s are not cached.  Whenever
+ * the delegate reports that its {@linkplain
+ * Configurations#configurationChanged() configuration has changed},
+ * the cached values of only the {@linkplain
+ * Configurations#configurationChanged(Set) configuration properties
+ * that changed} are discarded, if they are known, and the entire
+ * cache is discarded otherwise.</p>
+ *
+ * <p>Instances of this class are safe for concurrent use by multiple
+ * threads.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson"
+ * target="_parent">Laird Nelson</a>
+ *
+ * @see #getStatistics()
+ */
+public final class CachingConfigurations extends ForwardingConfigurations {
+
+
+  /*
+   * Static fields.
+   */
+
+
+  /**
+   * A sentinel representing a cached {@code null} value.
+   */
+  private static final Object NULL = new Object();
+
+  /**
+   * The default number of partitions.
+   */
+  private static final int DEFAULT_PARTITION_COUNT = 16;
+
+  /**
+   * The maximum weight of the cache of a {@linkplain #snapshot()
+   * snapshot}, which serves a single {@linkplain
+   * Configurations#readConsistently(java.util.function.Function)
+   * consistent read} and so is kept small.
+   */
+  private static final long SNAPSHOT_MAXIMUM_WEIGHT = 1024L;
+
+  /**
+   * The number of cache hits each {@link ReadBuffer} can record
+   * before it must be drained; always a power of two.
+   */
+  private static final int READ_BUFFER_SIZE = 16;
+
+  /**
+   * The maximum number of {@link ReadBuffer}s in a {@link
+   * Partition}; always a power of two.
+   */
+  private static final int MAXIMUM_READ_BUFFER_COUNT = 16;
+
+
+  /*
+   * Instance fields.
+   */
+
+
+  /**
+   * The name of the configuration coordinate whose value selects a
+   * {@link Partition}.
+   *
+   * <p>This field may be {@code null}.</p>
+   */
+  private final String partitionCoordinate;
+
+  /**
+   * The {@link Partition}s.
+   *
+   * <p>This field is never {@code null} and its length is always a
+   * power of two.</p>
+   */
+  private final Partition[] partitions;
+
+  /**
+   * The {@link ToLongFunction} used to compute the weight of a
+   * cached value.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final ToLongFunction<Object> weigher;
+
+  /**
+   * The number of requests answered from the cache.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final LongAdder hitCount;
+
+  /**
+   * The number of requests passed through to the delegate.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final LongAdder missCount;
+
+  /**
+   * The number of entries evicted or refused admission.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final LongAdder evictionCount;
+
+
+  /*
+   * Constructors.
+   */
+
+
+  /**
+   * Creates a new {@link CachingConfigurations} with sixteen
+   * partitions that weighs values {@linkplain #weigh(Object) by
+   * their approximate size}.
+   *
+   * @param delegate the {@link Configurations} whose values will be
+   * cached; must not be {@code null}
+   *
+   * @param partitionCoordinate the name of the configuration
+   * coordinate whose value selects the partition in which a value
+   * will be cached; may be {@code null}
+   *
+   * @param maximumWeight the maximum total weight of all cached
+   * values; must be positive
+   *
+   * @exception NullPointerException if {@code delegate} is {@code
+   * null}
+   *
+   * @exception IllegalArgumentException if {@code maximumWeight} is
+   * not positive
+   *
+   * @see #CachingConfigurations(Configurations, String, int, long,
+   * ToLongFunction)
+   */
+  public CachingConfigurations(final Configurations delegate, final String partitionCoordinate, final long maximumWeight) {
+    this(delegate, partitionCoordinate, DEFAULT_PARTITION_COUNT, maximumWeight, CachingConfigurations::weigh);
+  }
+
+  /**
+   * Creates a new {@link CachingConfigurations}.
+   *
+   * @param delegate the {@link Configurations} whose values will be
+   * cached; must not be {@code null}
+   *
+   * @param partitionCoordinate the name of the configuration
+   * coordinate whose value selects the partition in which a value
+   * will be cached; may be {@code null}
+   *
+   * @param partitionCount the number of partitions; must be
+   * positive; will be rounded up to a power of two
+   *
+   * @param maximumWeight the maximum total weight of all cached
+   * values; must be positive
+   *
+   * @param weigher a {@link ToLongFunction} that returns the
+   * non-negative weight of a value, which may be {@code null}; must
+   * not be {@code null}
+   *
+   * @exception NullPointerException if {@code delegate} or {@code
+   * weigher} is {@code null}
+   *
+   * @exception IllegalArgumentException if {@code partitionCount} or
+   * {@code maximumWeight} is not positive
+   */
+  public CachingConfigurations(final Configurations delegate,
+                               final String partitionCoordinate,
+                               final int partitionCount,
+                               final long maximumWeight,
+                               final ToLongFunction<Object> weigher) {
+    super(delegate);
+    this.weigher = Objects.requireNonNull(weigher);
+    if (partitionCount <= 0) {
+      throw new IllegalArgumentException("partitionCount <= 0: " + partitionCount);
+    }
+    if (maximumWeight <= 0L) {
+      throw new IllegalArgumentException("maximumWeight <= 0: " + maximumWeight);
+    }
+    this.partitionCoordinate = partitionCoordinate;
+    this.hitCount = new LongAdder();
+    this.missCount = new LongAdder();
+    this.evictionCount = new LongAdder();
+    final int length = partitionCount == 1 ? 1 : Math.min(1 << 16, Integer.highestOneBit(partitionCount - 1) << 1);
+    this.partitions = new Partition[length];
+    final long partitionMaximumWeight = Math.max(1L, maximumWeight / length);
+    for (int i = 0; i < length; i++) {
+      this.partitions[i] = new Partition(delegate, partitionMaximumWeight, this.evictionCount);
+    }
+  }
+
+
+  /*
+   * Instance methods.
+   */
+
+
+  /**
+   * Returns a new {@link CachingConfigurations} that caches, in a
+   * small, separate cache of its own, the converted values of the
+   * supplied {@code delegate}, which is a {@linkplain
+   * Configurations#snapshot() snapshot} of this {@link
+   * CachingConfigurations}' delegate.
+   *
+   * <p>Values cached by this {@link CachingConfigurations} are not
+   * used, since they may not be consistent with the supplied {@code
+   * delegate}.</p>
+   *
+   * @param delegate the {@link Configurations} whose values will be
+   * cached; must not be {@code null}
+   *
+   * @return a new {@link CachingConfigurations}
+   *
+   * @exception NullPointerException if {@code delegate} is {@code
+   * null}
+   */
+  @Override
+  protected final Configurations withDelegate(final Configurations delegate) {
+    return new CachingConfigurations(delegate, this.partitionCoordinate, 1, SNAPSHOT_MAXIMUM_WEIGHT, this.weigher);
+  }
+
+  /**
+   * Returns a configuration value corresponding to the configuration
+   * property suitable for the supplied {@code
+   * configurationCoordinates} and {@code name}, or the supplied
+   * {@code defaultValue} if {@code null} would otherwise be returned,
+   * converted, if possible, to the type represented by the supplied
+   * {@code type}, consulting the cache first.
+   *
+   * @param <T> the type to which a {@link String}-typed configuration
+   * value should be converted
+   *
+   * @param configurationCoordinates a {@link Map} representing the
+   * configuration coordinates in effect for this request; may be
+   * {@code null}
+   *
+   * @param name the name of the configuration property for which a
+   * value will be returned; must not be {@code null}
+   *
+   * @param type a {@link Type} representing the type to which the
+   * configuration value will be converted; must not be {@code null}
+   *
+   * @param defaultValue the value that will be converted and returned
+   * if {@code null} would otherwise be returned; may be {@code null}
+   *
+   * @return the configuration value, or {@code null}
+   *
+   * @exception NullPointerException if {@code name} or {@code type}
+   * is {@code null}
+   *
+   * @exception ConversionException if type conversion could not occur
+   * for any reason
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public final <T> T getValue(final Map<String, String> configurationCoordinates, final String name, final Type type, final String defaultValue) {
+    if (name == null || type == null) {
+      return this.getDelegate().getValue(configurationCoordinates, name, type, defaultValue);
+    }
+    final long version = this.getDelegate().getVersion();
+    final String partitionValue = configurationCoordinates == null ? null : configurationCoordinates.get(this.partitionCoordinate);
+    final Partition partition = this.getPartition(partitionValue);
+    final int hashCode = Key.hashCode(configurationCoordinates, name, type);
+    Object value = partition.get(configurationCoordinates, name, type, hashCode, version);
+    if (value == null) {
+      this.missCount.increment();
+      value = this.getDelegate().getValue(configurationCoordinates, name, type, null);
+      partition.put(new Key(configurationCoordinates, name, type, hashCode),
+                    value == null ? NULL : value,
+                    Math.max(1L, this.weigher.applyAsLong(value)),
+                    version);
+    } else {
+      this.hitCount.increment();
+      if (value == NULL) {
+        value = null;
+      }
+    }
+    return value == null && defaultValue != null ? this.getDelegate().getValue(configurationCoordinates, name, type, defaultValue) : (T)value;
+  }
+
+  /**
+   * Discards every cached value.
+   *
+   * <p>This method is safe for concurrent use by multiple
+   * threads.</p>
+   */
+  public final void invalidateAll() {
+    for (final Partition partition : this.partitions) {
+      partition.clear();
+    }
+  }
+
+  /**
+   * Returns a snapshot of {@link Statistics} describing the
+   * effectiveness of this {@link CachingConfigurations}.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return a non-{@code null} {@link Statistics}
+   */
+  public final Statistics getStatistics() {
+    long weight = 0L;
+    long size = 0L;
+    for (final Partition partition : this.partitions) {
+      partition.lock.lock();
+      try {
+        weight += partition.getWeight();
+        size += partition.size();
+      } finally {
+        partition.lock.unlock();
+      }
+    }
+    return new Statistics(this.hitCount.sum(), this.missCount.sum(), this.evictionCount.sum(), size, weight);
+  }
+
+  /**
+   * Returns the {@link Partition} in which values requested with
+   * configuration coordinates whose partitioning coordinate has the
+   * supplied {@code value} are cached.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param value the value of the partitioning coordinate; may be
+   * {@code null}
+   *
+   * @return a non-{@code null} {@link Partition}
+   */
+  private final Partition getPartition(final String value) {
+    final Partition returnValue;
+    if (this.partitions.length == 1) {
+      returnValue = this.partitions[0];
+    } else {
+      int h = Objects.hashCode(value);
+      h ^= h >>> 16;
+      h *= 0x85ebca6b;
+      h ^= h >>> 13;
+      returnValue = this.partitions[h & (this.partitions.length - 1)];
+    }
+    return returnValue;
+  }
+
+
+  /*
+   * Static methods.
+   */
+
+
+  /**
+   * Returns an approximate weight for the supplied value: the length
+   * of a {@link CharSequence} or an array, the size of a {@link
+   * Collection} or a {@link Map}, or {@code 1} for any other value.
+   *
+   * @param value the value to weigh; may be {@code null}
+   *
+   * @return the weight of the supplied value; always {@code 1} or
+   * greater
+   */
+  private static final long weigh(final Object value) {
+    final long weight;
+    if (value instanceof CharSequence) {
+      weight = ((CharSequence)value).length();
+    } else if (value instanceof Collection) {
+      weight = ((Collection<?>)value).size();
+    } else if (value instanceof Map) {
+      weight = ((Map<?, ?>)value).size();
+    } else if (value != null && value.getClass().isArray()) {
+      weight = Array.getLength(value);
+    } else {
+      weight = 1L;
+    }
+    return Math.max(1L, weight);
+  }
+
+
+  /*
+   * Inner and nested classes.
+   */
+
+
+  /**
+   * An immutable snapshot of statistics describing the effectiveness
+   * of a {@link CachingConfigurations}.
+   *
+   * @author <a href="https://about.me/lairdnelson"
+   * target="_parent">Laird Nelson</a>
+   *
+   * @see CachingConfigurations#getStatistics()
+   */
+  public static final class Statistics {
+
+    /**
+     * The number of requests answered from the cache.
+     */
+    private final long hitCount;
+
+    /**
+     * The number of requests passed through to the delegate.
+     */
+    private final long missCount;
+
+    /**
+     * The number of entries evicted or refused admission.
+     */
+    private final long evictionCount;
+
+    /**
+     * The number of cached entries.
+     */
+    private final long size;
+
+    /**
+     * The total weight of cached entries.
+     */
+    private final long weight;
+
+    /**
+     * Creates a new {@link Statistics}.
+     *
+     * @param hitCount the number of requests answered from the cache
+     *
+     * @param missCount the number of requests passed through to the
+     * delegate
+     *
+     * @param evictionCount the number of entries evicted or refused
+     * admission
+     *
+     * @param size the number of cached entries
+     *
+     * @param weight the total weight of cached entries
+     */
+    private Statistics(final long hitCount, final long missCount, final long evictionCount, final long size, final long weight) {
+      super();
+      this.hitCount = hitCount;
+      this.missCount = missCount;
+      this.evictionCount = evictionCount;
+      this.size = size;
+      this.weight = weight;
+    }
+
+    /**
+     * Returns the number of requests answered from the cache.
+     *
+     * @return the number of requests answered from the cache
+     */
+    public final long getHitCount() {
+      return this.hitCount;
+    }
+
+    /**
+     * Returns the number of requests passed through to the delegate.
+     *
+     * @return the number of requests passed through to the delegate
+     */
+    public final long getMissCount() {
+      return this.missCount;
+    }
+
+    /**
+     * Returns the ratio of requests answered from the cache to all
+     * requests, or {@code 1.0} if there have been no requests.
+     *
+     * @return the hit rate, between {@code 0.0} and {@code 1.0}
+     * inclusive
+     */
+    public final double getHitRate() {
+      final long requestCount = this.hitCount + this.missCount;
+      return requestCount == 0L ? 1.0 : (double)this.hitCount / (double)requestCount;
+    }
+
+    /**
+     * Returns the number of entries evicted or refused admission.
+     *
+     * @return the number of entries evicted or refused admission
+     */
+    public final long getEvictionCount() {
+      return this.evictionCount;
+    }
+
+    /**
+     * Returns the number of cached entries.
+     *
+     * @return the number of cached entries
+     */
+    public final long getSize() {
+      return this.size;
+    }
+
+    /**
+     * Returns the total weight of cached entries.
+     *
+     * @return the total weight of cached entries
+     */
+    public final long getWeight() {
+      return this.weight;
+    }
+
+    /**
+     * Returns a non-{@code null} {@link String} representation of
+     * this {@link Statistics}.
+     *
+     * @return a non-{@code null} {@link String}
+     */
+    @Override
+    public final String toString() {
+      return "hits: " + this.hitCount +
+        "; misses: " + this.missCount +
+        "; evictions: " + this.evictionCount +
+        "; size: " + this.size +
+        "; weight: " + this.weight;
+    }
+
+  }
+
+  /**
+   * A cache key composed of configuration coordinates, a name and a
+   * {@link Type}.
+   *
+   * <p>The hashcode of a {@link Key} is derived from its name, its
+   * {@link Type} and the {@linkplain Map#hashCode() hashcode} of its
+   * configuration coordinates, which an {@link ImmutableCoordinates},
+   * such as the configuration coordinates of a {@linkplain
+   * ScopedCoordinates#enter(Map) scope}, caches.  A cached {@link
+   * Key} stores its configuration coordinates as an array of keys
+   * and values sorted by key, so that it can be compared with the
+   * configuration coordinates of a request by {@linkplain
+   * Map#get(Object) looking up} each of its keys.  Each thread looks
+   * up entries using a single reusable {@linkplain Partition#probes
+   * probe} {@link Key}, so that a cache hit allocates nothing.</p>
+   *
+   * @author <a href="https://about.me/lairdnelson"
+   * target="_parent">Laird Nelson</a>
+   */
+  private static final class Key {
+
+    /**
+     * The configuration coordinates of the request that a
+     * {@linkplain Partition#probes probe} represents; {@code null} in
+     * a cached {@link Key} and in an idle probe.
+     */
+    private Map<String, String> configurationCoordinates;
+
+    /**
+     * The configuration coordinates of a cached {@link Key}, as
+     * alternating keys and values sorted by key; {@code null} in a
+     * probe and if the configuration coordinates were {@code null}.
+     */
+    private final String[] coordinates;
+
+    /**
+     * The name; never {@code null} except in an idle {@linkplain
+     * Partition#probes probe}.
+     *
+     * <p>This field is only reassigned in a probe.</p>
+     */
+    private String name;
+
+    /**
+     * The {@link Type}; never {@code null} except in an idle
+     * {@linkplain Partition#probes probe}.
+     *
+     * <p>This field is only reassigned in a probe.</p>
+     */
+    private Type type;
+
+    /**
+     * The hashcode.
+     *
+     * <p>This field is only reassigned in a {@linkplain
+     * Partition#probes probe}.</p>
+     */
+    private int hashCode;
+
+    /**
+     * Creates a new, idle {@link Key} for use as a {@linkplain
+     * Partition#probes probe}.
+     */
+    private Key() {
+      super();
+      this.coordinates = null;
+    }
+
+    /**
+     * Creates a new {@link Key} suitable for caching whose hashcode
+     * is already known.
+     *
+     * @param configurationCoordinates the configuration coordinates,
+     * which are copied; may be {@code null}
+     *
+     * @param name the name; must not be {@code null}
+     *
+     * @param type the {@link Type}; must not be {@code null}
+     *
+     * @param hashCode the {@linkplain #hashCode(Map, String, Type)
+     * hashcode} of an equal {@link Key}
+     */
+    private Key(final Map<String, String> configurationCoordinates, final String name, final Type type, final int hashCode) {
+      super();
+      this.coordinates = flatten(configurationCoordinates);
+      this.name = name;
+      this.type = type;
+      this.hashCode = hashCode;
+    }
+
+    /**
+     * Returns the hashcode of this {@link Key}.
+     *
+     * @return the hashcode of this {@link Key}
+     *
+     * @see #hashCode(Map, String, Type)
+     */
+    @Override
+    public final int hashCode() {
+      return this.hashCode;
+    }
+
+    /**
+     * Returns {@code true} if the supplied {@link Object} is a {@link
+     * Key} with equal configuration coordinates, name and {@link
+     * Type}.
+     *
+     * <p>This method does not allocate when comparing a {@linkplain
+     * Partition#probes probe} with a cached {@link Key}.</p>
+     *
+     * @param other the {@link Object} to test; may be {@code null}
+     *
+     * @return {@code true} if the supplied {@link Object} is equal to
+     * this {@link Key}; {@code false} otherwise
+     */
+    @Override
+    public final boolean equals(final Object other) {
+      if (other == this) {
+        return true;
+      } else if (other instanceof Key) {
+        final Key her = (Key)other;
+        if (this.hashCode != her.hashCode || !this.name.equals(her.name) || !this.type.equals(her.type)) {
+          return false;
+        }
+        final Map<String, String> myMap = this.configurationCoordinates;
+        final Map<String, String> herMap = her.configurationCoordinates;
+        if (myMap == null) {
+          return herMap == null ? Arrays.equals(this.coordinates, her.coordinates) : matches(this.coordinates, herMap);
+        } else if (herMap == null) {
+          return matches(her.coordinates, myMap);
+        } else {
+          return myMap.equals(herMap);
+        }
+      } else {
+        return false;
+      }
+    }
+
+    /**
+     * Returns the hashcode of a {@link Key} with the supplied
+     * configuration coordinates, name and {@link Type}.
+     *
+     * <p>{@code null} configuration coordinates have the same
+     * hashcode as empty ones, but are still distinguished from them
+     * by the {@link #equals(Object)} method.</p>
+     *
+     * @param configurationCoordinates the configuration coordinates;
+     * may be {@code null}
+     *
+     * @param name the name; must not be {@code null}
+     *
+     * @param type the {@link Type}; must not be {@code null}
+     *
+     * @return the hashcode
+     */
+    private static final int hashCode(final Map<String, String> configurationCoordinates, final String name, final Type type) {
+      return (Objects.hashCode(configurationCoordinates) * 31 + name.hashCode()) * 31 + type.hashCode();
+    }
+
+    /**
+     * Returns the supplied configuration coordinates as an array of
+     * alternating keys and values sorted by key, or {@code null} if
+     * they are {@code null}.
+     *
+     * @param configurationCoordinates the configuration coordinates;
+     * may be {@code null}
+     *
+     * @return an array of keys and values, or {@code null}
+     */
+    private static final String[] flatten(final Map<String, String> configurationCoordinates) {
+      if (configurationCoordinates == null) {
+        return null;
+      }
+      final List<Map.Entry<String, String>> entries = new ArrayList<>(configurationCoordinates.entrySet());
+      entries.sort(Map.Entry.comparingByKey(Comparator.nullsFirst(Comparator.naturalOrder())));
+      final String[] returnValue = new String[entries.size() * 2];
+      int i = 0;
+      for (final Map.Entry<String, String> entry : entries) {
+        returnValue[i++] = entry.getKey();
+        returnValue[i++] = entry.getValue();
+      }
+      return returnValue;
+    }
+
+    /**
+     * Returns {@code true} if the supplied configuration coordinates,
+     * as returned by the {@link #flatten(Map)} method, are equal to
+     * the supplied {@link Map} of configuration coordinates.
+     *
+     * <p>This method does not allocate unless the supplied {@link
+     * Map}'s {@link Map#get(Object)} method does.</p>
+     *
+     * @param coordinates an array of keys and values; may be {@code
+     * null}
+     *
+     * @param configurationCoordinates the configuration coordinates;
+     * must not be {@code null}
+     *
+     * @return {@code true} if the configuration coordinates are equal
+     */
+    private static final boolean matches(final String[] coordinates, final Map<String, String> configurationCoordinates) {
+      if (coordinates == null || coordinates.length != configurationCoordinates.size() * 2) {
+        return false;
+      }
+      for (int i = 0; i < coordinates.length; i += 2) {
+        final String value = coordinates[i + 1];
+        final String otherValue = configurationCoordinates.get(coordinates[i]);
+        if (value == null) {
+          if (otherValue != null || !configurationCoordinates.containsKey(coordinates[i])) {
+            return false;
+          }
+        } else if (!value.equals(otherValue)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+  }
+
+  /**
+   * A cache entry, linked into one of the queues of a {@link
+   * Partition}.
+   *
+   * @author <a href="https://about.me/lairdnelson"
+   * target="_parent">Laird Nelson</a>
+   */
+  private static final class Node {
+
+    /**
+     * The {@link Key}; {@code null} only for sentinels.
+     */
+    private final Key key;
+
+    /**
+     * The cached value; {@code null} only for sentinels.
+     */
+    private final Object value;
+
+    /**
+     * The weight of the cached value.
+     */
+    private final long weight;
+
+    /**
+     * The sentinel heading the queue in which this {@link Node} is
+     * linked, or {@code null}.
+     */
+    private Node queue;
+
+    /**
+     * The previous {@link Node} in the queue, or {@code null}.
+     */
+    private Node previous;
+
+    /**
+     * The next {@link Node} in the queue, or {@code null}.
+     */
+    private Node next;
+
+    /**
+     * Creates a new {@link Node}; if {@code key} is {@code null} the
+     * new {@link Node} is the sentinel head of an empty queue.
+     *
+     * @param key the {@link Key}; may be {@code null}
+     *
+     * @param value the cached value; may be {@code null} only if
+     * {@code key} is {@code null}
+     *
+     * @param weight the weight of the cached value
+     */
+    private Node(final Key key, final Object value, final long weight) {
+      super();
+      this.key = key;
+      this.value = value;
+      this.weight = weight;
+      if (key == null) {
+        this.previous = this;
+        this.next = this;
+      }
+    }
+
+    /**
+     * Returns {@code true} if this sentinel {@link Node} heads an
+     * empty queue.
+     *
+     * @return {@code true} if this {@link Node} heads an empty queue
+     */
+    private final boolean isEmpty() {
+      return this.next == this;
+    }
+
+    /**
+     * Links the supplied {@link Node} at the tail of the queue headed
+     * by this sentinel {@link Node}.
+     *
+     * @param node the {@link Node} to link; must not be {@code null}
+     */
+    private final void append(final Node node) {
+      node.queue = this;
+      node.previous = this.previous;
+      node.next = this;
+      this.previous.next = node;
+      this.previous = node;
+    }
+
+    /**
+     * Unlinks this {@link Node} from its queue.
+     */
+    private final void unlink() {
+      this.previous.next = this.next;
+      this.next.previous = this.previous;
+      this.previous = null;
+      this.next = null;
+      this.queue = null;
+    }
+
+  }
+
+  /**
+   * A bounded, lossy buffer of {@link Node}s that satisfied cache
+   * hits, written by any number of threads without locking and
+   * drained by one thread at a time while it holds the {@linkplain
+   * Partition#lock lock} of its {@link Partition}.
+   *
+   * @author <a href="https://about.me/lairdnelson"
+   * target="_parent">Laird Nelson</a>
+   */
+  private static final class ReadBuffer {
+
+    /**
+     * The recorded {@link Node}s, each in the slot given by its
+     * write count modulo {@link
+     * CachingConfigurations#READ_BUFFER_SIZE}; never {@code null}.
+     */
+    private final AtomicReferenceArray<Node> nodes;
+
+    /**
+     * The number of {@link Node}s ever recorded; never {@code null}.
+     */
+    private final AtomicLong writeCount;
+
+    /**
+     * The number of {@link Node}s ever drained; never {@code null}.
+     *
+     * <p>This field is only changed while the {@linkplain
+     * Partition#lock lock} of the {@link Partition} is held.</p>
+     */
+    private final AtomicLong readCount;
+
+    /**
+     * Creates a new, empty {@link ReadBuffer}.
+     */
+    private ReadBuffer() {
+      super();
+      this.nodes = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+      this.writeCount = new AtomicLong();
+      this.readCount = new AtomicLong();
+    }
+
+    /**
+     * Records the supplied {@link Node} unless this {@link
+     * ReadBuffer} is full, and returns {@code false} if it is.
+     *
+     * <p>If another thread records a {@link Node} at the same time,
+     * the supplied {@link Node} is silently dropped.</p>
+     *
+     * <p>This method does not allocate.</p>
+     *
+     * @param node the {@link Node}; must not be {@code null}
+     *
+     * @return {@code false} if this {@link ReadBuffer} is full
+     */
+    private final boolean offer(final Node node) {
+      final long writeCount = this.writeCount.get();
+      if (writeCount - this.readCount.get() >= READ_BUFFER_SIZE) {
+        return false;
+      }
+      if (this.writeCount.compareAndSet(writeCount, writeCount + 1L)) {
+        this.nodes.lazySet((int)writeCount & (READ_BUFFER_SIZE - 1), node);
+      }
+      return true;
+    }
+
+    /**
+     * Removes and returns the oldest recorded {@link Node}, or
+     * returns {@code null} if there is none.
+     *
+     * <p>This method must be called while holding the {@linkplain
+     * Partition#lock lock} of the {@link Partition}.</p>
+     *
+     * @return the oldest recorded {@link Node}, or {@code null}
+     */
+    private final Node poll() {
+      final long readCount = this.readCount.get();
+      if (readCount == this.writeCount.get()) {
+        return null;
+      }
+      final int index = (int)readCount & (READ_BUFFER_SIZE - 1);
+      final Node node = this.nodes.get(index);
+      if (node != null) {
+        // Otherwise the thread that claimed this slot has not yet
+        // filled it; it will be drained next time.
+        this.nodes.lazySet(index, null);
+        this.readCount.lazySet(readCount + 1L);
+      }
+      return node;
+    }
+
+  }
+
+  /**
+   * A bounded, weighted region of the cache with its own window,
+   * probationary and protected queues and its own {@link
+   * FrequencySketch}.
+   *
+   * <p>Cached values are read without locking.  All other methods of
+   * this class must be called while holding its {@link #lock}, and
+   * those that are not private acquire it themselves.</p>
+   *
+   * @author <a href="https://about.me/lairdnelson"
+   * target="_parent">Laird Nelson</a>
+   */
+  private static final class Partition {
+
+    /**
+     * A reusable {@link Key} for each thread whose fields are
+     * assigned to look up entries in the {@link #nodes} map without
+     * allocating; never {@code null}, and never stored in the {@link
+     * #nodes} map.
+     */
+    private static final ThreadLocal<Key> probes = ThreadLocal.withInitial(Key::new);
+
+    /**
+     * The maximum total weight of the entries in the window.
+     */
+    private final long windowMaximumWeight;
+
+    /**
+     * The maximum total weight of the entries in the main region.
+     */
+    private final long mainMaximumWeight;
+
+    /**
+     * The maximum total weight of the entries in the protected
+     * segment of the main region.
+     */
+    private final long protectedMaximumWeight;
+
+    /**
+     * The {@link Configurations} whose values are cached; never
+     * {@code null}.
+     */
+    private final Configurations delegate;
+
+    /**
+     * Incremented whenever an entry is evicted or refused admission;
+     * never {@code null}.
+     */
+    private final LongAdder evictionCount;
+
+    /**
+     * Guards the queues, the weights and the {@link #sketch}, and
+     * changes to the {@link #nodes} map and the {@link #version};
+     * never {@code null}.
+     */
+    private final ReentrantLock lock;
+
+    /**
+     * The entries, indexed by {@link Key}; never {@code null}.
+     */
+    private final Map<Key, Node> nodes;
+
+    /**
+     * The {@link ReadBuffer}s recording cache hits, each created the
+     * first time a thread striped to it records one; never {@code
+     * null}.
+     */
+    private final AtomicReferenceArray<ReadBuffer> readBuffers;
+
+    /**
+     * Estimates how frequently each {@link Key} is requested; never
+     * {@code null}.
+     */
+    private final FrequencySketch sketch;
+
+    /**
+     * The sentinel heading the window queue; never {@code null}.
+     */
+    private final Node window;
+
+    /**
+     * The sentinel heading the probationary segment of the main
+     * region; never {@code null}.
+     */
+    private final Node probation;
+
+    /**
+     * The sentinel heading the protected segment of the main region;
+     * never {@code null}.
+     */
+    private final Node protectedQueue;
+
+    /**
+     * The total weight of the entries in the window.
+     */
+    private long windowWeight;
+
+    /**
+     * The total weight of the entries in the probationary segment.
+     */
+    private long probationWeight;
+
+    /**
+     * The total weight of the entries in the protected segment.
+     */
+    private long protectedWeight;
+
+    /**
+     * The version of the delegate from which the entries were
+     * cached.
+     */
+    private volatile long version;
+
+    /**
+     * Creates a new {@link Partition}.
+     *
+     * @param delegate the {@link Configurations} whose values will be
+     * cached; must not be {@code null}
+     *
+     * @param maximumWeight the maximum total weight of the entries in
+     * this {@link Partition}; must be positive
+     *
+     * @param evictionCount the {@link LongAdder} incremented whenever
+     * an entry is evicted or refused admission; must not be {@code
+     * null}
+     */
+    private Partition(final Configurations delegate, final long maximumWeight, final LongAdder evictionCount) {
+      super();
+      this.delegate = delegate;
+      // As in W-TinyLFU, the window is one percent of the whole, and
+      // the protected segment is eighty percent of the remainder.
+      this.windowMaximumWeight = Math.max(1L, maximumWeight / 100L);
+      this.mainMaximumWeight = Math.max(1L, maximumWeight - this.windowMaximumWeight);
+      this.protectedMaximumWeight = this.mainMaximumWeight * 4L / 5L;
+      this.evictionCount = evictionCount;
+      this.lock = new ReentrantLock();
+      this.nodes = new ConcurrentHashMap<>();
+      final int processors = Runtime.getRuntime().availableProcessors();
+      this.readBuffers = new AtomicReferenceArray<>(processors <= 1 ? 1 : Math.min(MAXIMUM_READ_BUFFER_COUNT, Integer.highestOneBit(processors - 1) << 1));
+      this.sketch = new FrequencySketch(maximumWeight);
+      this.window = new Node(null, null, 0L);
+      this.probation = new Node(null, null, 0L);
+      this.protectedQueue = new Node(null, null, 0L);
+    }
+
+    /**
+     * Returns the cached value indexed under a {@link Key} composed
+     * of the supplied configuration coordinates, name and {@link
+     * Type}, or {@code null} if there is no such value, recording a
+     * hit so that the eviction policy learns of it.
+     *
+     * <p>This method takes no lock unless the supplied {@code version}
+     * is newer than that of the entries in this {@link Partition}, or
+     * a {@link ReadBuffer} needs to be drained, and does not
+     * allocate.</p>
+     *
+     * @param configurationCoordinates the configuration coordinates;
+     * may be {@code null}
+     *
+     * @param name the name; must not be {@code null}
+     *
+     * @param type the {@link Type}; must not be {@code null}
+     *
+     * @param hashCode the {@linkplain Key#hashCode(Map, String,
+     * Type) hashcode} of the {@link Key}
+     *
+     * @param version the current version of the delegate; if it
+     * differs from the version of the delegate when the entries in
+     * this {@link Partition} were cached, then they are discarded
+     *
+     * @return the cached value, or {@code null}
+     */
+    private final Object get(final Map<String, String> configurationCoordinates,
+                             final String name,
+                             final Type type,
+                             final int hashCode,
+                             final long version) {
+      if (version > this.version) {
+        this.lock.lock();
+        try {
+          this.validate(version);
+        } finally {
+          this.lock.unlock();
+        }
+      }
+      final Key probe = probes.get();
+      probe.configurationCoordinates = configurationCoordinates;
+      probe.name = name;
+      probe.type = type;
+      probe.hashCode = hashCode;
+      final Node node = this.nodes.get(probe);
+      probe.configurationCoordinates = null;
+      probe.name = null;
+      probe.type = null;
+      if (node == null) {
+        return null;
+      }
+      if (!this.getReadBuffer().offer(node) && this.lock.tryLock()) {
+        try {
+          this.drainReadBuffers();
+        } finally {
+          this.lock.unlock();
+        }
+      }
+      return node.value;
+    }
+
+    /**
+     * Caches the supplied {@code value} under the supplied {@link
+     * Key}, evicting other entries as necessary.
+     *
+     * <p>Because this method is called after a cache miss, it also
+     * records the request so that the frequency of its {@link Key} is
+     * known.</p>
+     *
+     * @param key the {@link Key}; must not be {@code null}
+     *
+     * @param value the value; must not be {@code null}
+     *
+     * @param weight the weight of the value; must be positive
+     *
+     * @param version the version of the delegate from which the
+     * value was acquired
+     */
+    private final void put(final Key key, final Object value, final long weight, final long version) {
+      this.lock.lock();
+      try {
+        this.drainReadBuffers();
+        this.sketch.increment(key.hashCode());
+        this.validate(version);
+        if (version != this.version) {
+          // The value is already stale.
+          return;
+        }
+        Node node = this.nodes.get(key);
+        if (node != null) {
+          this.remove(node);
+        }
+        if (weight > this.mainMaximumWeight) {
+          // The value could never be admitted.
+          this.evictionCount.increment();
+          return;
+        }
+        node = new Node(key, value, weight);
+        this.nodes.put(key, node);
+        this.window.append(node);
+        this.windowWeight += weight;
+        this.evict();
+      } finally {
+        this.lock.unlock();
+      }
+    }
+
+    /**
+     * Returns the number of entries in this {@link Partition}.
+     *
+     * @return the number of entries in this {@link Partition}
+     */
+    private final int size() {
+      this.lock.lock();
+      try {
+        return this.nodes.size();
+      } finally {
+        this.lock.unlock();
+      }
+    }
+
+    /**
+     * Returns the total weight of the entries in this {@link
+     * Partition}.
+     *
+     * @return the total weight of the entries in this {@link
+     * Partition}
+     */
+    private final long getWeight() {
+      this.lock.lock();
+      try {
+        return this.windowWeight + this.probationWeight + this.protectedWeight;
+      } finally {
+        this.lock.unlock();
+      }
+    }
+
+    /**
+     * Discards every entry in this {@link Partition}.
+     */
+    private final void clear() {
+      this.lock.lock();
+      try {
+        this.nodes.clear();
+        for (final Node head : new Node[] { this.window, this.probation, this.protectedQueue }) {
+          head.previous = head;
+          head.next = head;
+        }
+        this.windowWeight = 0L;
+        this.probationWeight = 0L;
+        this.protectedWeight = 0L;
+      } finally {
+        this.lock.unlock();
+      }
+    }
+
+    /**
+     * Discards the entries in this {@link Partition} whose
+     * configuration properties have changed, or all of them if those
+     * are not known, if the supplied version of the delegate is newer
+     * than the version from which they were cached.
+     *
+     * @param version the current version of the delegate
+     */
+    private final void validate(final long version) {
+      if (version > this.version) {
+        if (!this.nodes.isEmpty()) {
+          final Set<String> changedNames = this.delegate.getChangedNames(this.version);
+          if (changedNames == null) {
+            this.clear();
+          } else if (!changedNames.isEmpty()) {
+            final List<Node> stale = new ArrayList<>();
+            for (final Node node : this.nodes.values()) {
+              if (changedNames.contains(node.key.name)) {
+                stale.add(node);
+              }
+            }
+            for (final Node node : stale) {
+              this.remove(node);
+            }
+          }
+        }
+        this.version = version;
+      }
+    }
+
+    /**
+     * Returns the {@link ReadBuffer} to which the current thread is
+     * striped, creating it if necessary.
+     *
+     * @return a non-{@code null} {@link ReadBuffer}
+     */
+    private final ReadBuffer getReadBuffer() {
+      final int index = (int)((Thread.currentThread().getId() * 0x9E3779B97F4A7C15L) >>> 32) & (this.readBuffers.length() - 1);
+      ReadBuffer readBuffer = this.readBuffers.get(index);
+      if (readBuffer == null) {
+        readBuffer = new ReadBuffer();
+        if (!this.readBuffers.compareAndSet(index, null, readBuffer)) {
+          readBuffer = this.readBuffers.get(index);
+        }
+      }
+      return readBuffer;
+    }
+
+    /**
+     * Applies every hit recorded in the {@link ReadBuffer}s to the
+     * {@link #sketch} and the queues, ignoring hits on entries that
+     * have since been removed.
+     */
+    private final void drainReadBuffers() {
+      for (int i = 0; i < this.readBuffers.length(); i++) {
+        final ReadBuffer readBuffer = this.readBuffers.get(i);
+        if (readBuffer != null) {
+          Node node;
+          while ((node = readBuffer.poll()) != null) {
+            this.sketch.increment(node.key.hashCode());
+            if (this.nodes.get(node.key) == node) {
+              this.onHit(node);
+            }
+          }
+        }
+      }
+    }
+
+    /**
+     * Promotes the supplied {@link Node} in response to a request
+     * that it satisfied.
+     *
+     * @param node the {@link Node}; must not be {@code null}
+     */
+    private final void onHit(final Node node) {
+      final Node queue = node.queue;
+      if (queue == this.probation) {
+        node.unlink();
+        this.probationWeight -= node.weight;
+        this.protectedQueue.append(node);
+        this.protectedWeight += node.weight;
+        while (this.protectedWeight > this.protectedMaximumWeight && !this.protectedQueue.isEmpty()) {
+          final Node demoted = this.protectedQueue.next;
+          demoted.unlink();
+          this.protectedWeight -= demoted.weight;
+          this.probation.append(demoted);
+          this.probationWeight += demoted.weight;
+        }
+      } else {
+        node.unlink();
+        queue.append(node);
+      }
+    }
+
+    /**
+     * Moves entries from the window to the main region while the
+     * window is too heavy, admitting each to the main region only if
+     * it is requested more frequently than the entries it would
+     * displace.
+     */
+    private final void evict() {
+      while (this.windowWeight > this.windowMaximumWeight) {
+        final Node candidate = this.window.next;
+        candidate.unlink();
+        this.windowWeight -= candidate.weight;
+        boolean admit = true;
+        final int candidateFrequency = this.sketch.frequency(candidate.key.hashCode());
+        while (this.probationWeight + this.protectedWeight + candidate.weight > this.mainMaximumWeight) {
+          final Node victim = this.probation.isEmpty() ? this.protectedQueue.next : this.probation.next;
+          if (candidateFrequency > this.sketch.frequency(victim.key.hashCode())) {
+            this.remove(victim);
+            this.evictionCount.increment();
+          } else {
+            admit = false;
+            break;
+          }
+        }
+        if (admit) {
+          this.probation.append(candidate);
+          this.probationWeight += candidate.weight;
+        } else {
+          this.nodes.remove(candidate.key);
+          this.evictionCount.increment();
+        }
+      }
+    }
+
+    /**
+     * Removes the supplied {@link Node} from this {@link Partition}.
+     *
+     * @param node the {@link Node}; must not be {@code null}
+     */
+    private final void remove(final Node node) {
+      final Node queue = node.queue;
+      if (queue == this.window) {
+        this.windowWeight -= node.weight;
+      } else if (queue == this.probation) {
+        this.probationWeight -= node.weight;
+      } else {
+        this.protectedWeight -= node.weight;
+      }
+      node.unlink();
+      this.nodes.remove(node.key);
+    }
+
+  }
+
+}
@@ -0,0 +1,149 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2018 microBean.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.microbean.configuration.api;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A bounded record of the names of the configuration properties
+ * whose values changed at each of the most recent versions of a
+ * {@link Configurations}.
+ *
+ * <p>Instances of this class are safe for concurrent use by multiple
+ * threads.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson"
+ * target="_parent">Laird Nelson</a>
+ *
+ * @see Configurations#configurationChanged(Set)
+ */
+final class ChangeLog {
+
+
+  /*
+   * Static fields.
+   */
+
+
+  /**
+   * The number of versions recorded.
+   */
+  private static final int CAPACITY = 64;
+
+
+  /*
+   * Instance fields.
+   */
+
+
+  /**
+   * The recorded versions, indexed by version modulo {@link
+   * #CAPACITY}.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final long[] versions;
+
+  /**
+   * The names that changed at each recorded version, in the same
+   * order as {@link #versions}; a {@code null} element means that
+   * any name may have changed.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final Set<?>[] names;
+
+
+  /*
+   * Constructors.
+   */
+
+
+  /**
+   * Creates a new {@link ChangeLog}.
+   */
+  ChangeLog() {
+    super();
+    this.versions = new long[CAPACITY];
+    this.names = new Set<?>[CAPACITY];
+  }
+
+
+  /*
+   * Instance methods.
+   */
+
+
+  /**
+   * Records that the supplied {@code names} changed at the supplied
+   * {@code version}.
+   *
+   * @param version the version; must be positive
+   *
+   * @param names the names that changed; may be {@code null} in
+   * which case any name may have changed
+   */
+  final synchronized void record(final long version, final Set<String> names) {
+    final int slot = (int)(version % CAPACITY);
+    this.versions[slot] = version;
+    this.names[slot] = names;
+  }
+
+  /**
+   * Returns the names that changed at any version after {@code
+   * sinceVersion} up to and including {@code currentVersion}, or
+   * {@code null} if they cannot be known, either because a change to
+   * any name was recorded or because some of those versions are no
+   * longer, or not yet, recorded.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @param sinceVersion the last version already accounted for
+   *
+   * @param currentVersion the version to account for
+   *
+   * @return an immutable {@link Set} of names, or {@code null}
+   */
+  @SuppressWarnings("unchecked")
+  final synchronized Set<String> getChangedNames(final long sinceVersion, final long currentVersion) {
+    if (currentVersion <= sinceVersion) {
+      return Collections.emptySet();
+    } else if (currentVersion - sinceVersion > CAPACITY) {
+      return null;
+    }
+    Set<String> returnValue = null;
+    for (long version = sinceVersion + 1L; version <= currentVersion; version++) {
+      final int slot = (int)(version % CAPACITY);
+      final Set<String> names = (Set<String>)this.names[slot];
+      if (this.versions[slot] != version || names == null) {
+        return null;
+      }
+      if (returnValue == null) {
+        returnValue = names;
+      } else {
+        if (!(returnValue instanceof HashSet)) {
+          returnValue = new HashSet<>(returnValue);
+        }
+        returnValue.addAll(names);
+      }
+    }
+    return returnValue instanceof HashSet ? Collections.unmodifiableSet(returnValue) : returnValue;
+  }
+
+}
@@ -82,5 +82,29 @@ public class ConfigurationException extends RuntimeException {
   public ConfigurationException(final String message, final Throwable cause) {
     super(message, cause);
   }
+
+  /**
+   * Creates a new {@link ConfigurationException}, optionally without
+   * a stack trace.
+   *
+   * <p>A {@link ConfigurationException} created without a stack
+   * trace is much cheaper to create, and is suitable for signaling
+   * expected conditions on frequently executed paths.</p>
+   *
+   * @param message the error message; may be {@code null}
+   *
+   * @param cause the {@link Throwable} that caused this {@link
+   * ConfigurationException} to be created; may be {@code null}
+   *
+   * @param writableStackTrace whether this {@link
+   * ConfigurationException} should have a stack trace; if {@code
+   * false}, then its stack trace will be empty and suppressed
+   * exceptions may not be added to it
+   *
+   * @see Throwable#Throwable(String, Throwable, boolean, boolean)
+   */
+  protected ConfigurationException(final String message, final Throwable cause, final boolean writableStackTrace) {
+    super(message, cause, writableStackTrace, writableStackTrace);
+  }
   
 }
@@ -0,0 +1,165 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2018 microBean.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.microbean.configuration.api;
+
+import java.io.Serializable; // for javadoc only
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A {@link ConfigurationException} that aggregates the {@link
+ * ConfigurationException}s, such as {@link ConversionException}s and
+ * {@link AmbiguousConfigurationValuesException}s, encountered while
+ * resolving a number of configuration values at once.
+ *
+ * <p>Each aggregated {@link ConfigurationException} is also
+ * {@linkplain Throwable#getSuppressed() suppressed} by this {@link
+ * ConfigurationValidationException}.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson"
+ * target="_parent">Laird Nelson</a>
+ *
+ * @see Configurations#warm(Map, Map)
+ */
+public class ConfigurationValidationException extends ConfigurationException {
+
+
+  /*
+   * Static fields.
+   */
+
+
+  /**
+   * The version of this class for {@linkplain Serializable
+   * serialization} purposes.
+   */
+  private static final long serialVersionUID = 1L;
+
+
+  /*
+   * Instance fields.
+   */
+
+
+  /**
+   * The aggregated {@link ConfigurationException}s, indexed by the
+   * name of the configuration property whose value could not be
+   * resolved.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final Map<String, ConfigurationException> failures;
+
+
+  /*
+   * Constructors.
+   */
+
+
+  /**
+   * Creates a new {@link ConfigurationValidationException}.
+   *
+   * @param failures the {@link ConfigurationException}s to
+   * aggregate, indexed by the name of the configuration property
+   * whose value could not be resolved; may be {@code null}
+   */
+  public ConfigurationValidationException(final Map<? extends String, ? extends ConfigurationException> failures) {
+    this(null, failures);
+  }
+
+  /**
+   * Creates a new {@link ConfigurationValidationException}.
+   *
+   * @param message the error message; may be {@code null} in which
+   * case a message summarizing the supplied {@code failures} will be
+   * used instead
+   *
+   * @param failures the {@link ConfigurationException}s to
+   * aggregate, indexed by the name of the configuration property
+   * whose value could not be resolved; may be {@code null}
+   */
+  public ConfigurationValidationException(final String message, final Map<? extends String, ? extends ConfigurationException> failures) {
+    super(message == null ? summarize(failures) : message);
+    if (failures == null || failures.isEmpty()) {
+      this.failures = Collections.emptyMap();
+    } else {
+      this.failures = Collections.unmodifiableMap(new LinkedHashMap<>(failures));
+      for (final ConfigurationException failure : this.failures.values()) {
+        if (failure != null) {
+          this.addSuppressed(failure);
+        }
+      }
+    }
+  }
+
+
+  /*
+   * Instance methods.
+   */
+
+
+  /**
+   * Returns an immutable {@link Map} of the aggregated {@link
+   * ConfigurationException}s, indexed by the name of the
+   * configuration property whose value could not be resolved.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return a non-{@code null}, immutable {@link Map} of {@link
+   * ConfigurationException}s
+   */
+  public final Map<String, ConfigurationException> getFailures() {
+    return this.failures;
+  }
+
+
+  /*
+   * Static methods.
+   */
+
+
+  /**
+   * Returns a message summarizing the supplied {@code failures}.
+   *
+   * @param failures the {@link ConfigurationException}s, indexed by
+   * the name of the configuration property whose value could not be
+   * resolved; may be {@code null}
+   *
+   * @return a non-{@code null} message
+   */
+  private static final String summarize(final Map<? extends String, ? extends ConfigurationException> failures) {
+    final int size = failures == null ? 0 : failures.size();
+    final StringBuilder sb = new StringBuilder();
+    sb.append(size).append(size == 1 ? " configuration value" : " configuration values").append(" could not be resolved");
+    if (size > 0) {
+      sb.append(": ");
+      boolean first = true;
+      for (final Map.Entry<? extends String, ? extends ConfigurationException> entry : failures.entrySet()) {
+        if (!first) {
+          sb.append("; ");
+        }
+        first = false;
+        final ConfigurationException failure = entry.getValue();
+        sb.append(entry.getKey()).append(": ").append(failure == null ? null : failure.getMessage());
+      }
+    }
+    return sb.toString();
+  }
+
+}
@@ -92,6 +92,14 @@ public class ConfigurationValue implements Serializable {
    */
   private final boolean authoritative;
 
+  /**
+   * The memoized hashcode of this {@link ConfigurationValue}, or
+   * {@code 0} if it has not yet been computed.
+   *
+   * @see #hash()
+   */
+  private transient int hashCode;
+
 
   /*
    * Constructors.
@@ -107,7 +115,9 @@ public class ConfigurationValue implements Serializable {
    * @param coordinates the configuration coordinates to which this
    * {@link ConfigurationValue} applies; must be a subset of the
    * configuration coordinates that resulted in this {@link
-   * ConfigurationValue} being created; may be {@code null}
+   * ConfigurationValue} being created; may be {@code null}; copied
+   * unless it was {@linkplain ScopedCoordinates#intern(Map)
+   * interned}, in which case it is shared
    *
    * @param name the name of the configuration property for which this
    * is a value; must not be {@code null}
@@ -128,7 +138,11 @@ public class ConfigurationValue implements Serializable {
     if (coordinates == null || coordinates.isEmpty()) {
       this.coordinates = Collections.emptyMap();
     } else {
-      this.coordinates = Collections.unmodifiableMap(new HashMap<>(coordinates));
+      // Coordinates that are already immutable, such as interned
+      // ones, are shared rather than copied; others are copied into
+      // a compact form.
+      final Map<String, String> compactCoordinates = ImmutableCoordinates.copyOf(coordinates);
+      this.coordinates = compactCoordinates == null ? Collections.unmodifiableMap(new HashMap<>(coordinates)) : compactCoordinates;
     }
     this.name = name;
     this.value = value;
@@ -231,23 +245,45 @@ public class ConfigurationValue implements Serializable {
    */
   @Override
   public int hashCode() {
-    int hashCode = 17;
-
-    // Note: getSource() and isAuthoritative() are deliberately
-    // omitted from hashCode calculation.
-    
-    final Object coordinates = this.getCoordinates();
-    int c = coordinates == null ? 0 : coordinates.hashCode();
-    hashCode = 37 * hashCode + c;
-
-    final Object name = this.getName();
-    c = name == null ? 0 : name.hashCode();
-    hashCode = 37 * hashCode + c;
-
-    final Object value = this.getValue();
-    c = value == null ? 0 : value.hashCode();
-    hashCode = 37 * hashCode + c;
-    
+    return this.hash();
+  }
+
+  /**
+   * Returns the memoized hashcode of this {@link
+   * ConfigurationValue}, computing it first if necessary.
+   *
+   * <p>Because the values from which the hashcode is computed never
+   * change, this method does not allocate once the hashcode has been
+   * memoized, and the {@link #equals(Object)} method may use it to
+   * reject unequal {@link ConfigurationValue}s cheaply regardless of
+   * whether the {@link #hashCode()} method has been
+   * overridden.</p>
+   *
+   * @return the hashcode
+   */
+  private final int hash() {
+    int hashCode = this.hashCode;
+    if (hashCode == 0) {
+      hashCode = 17;
+
+      // Note: getSource() and isAuthoritative() are deliberately
+      // omitted from hashCode calculation.
+
+      final Object coordinates = this.getCoordinates();
+      int c = coordinates == null ? 0 : coordinates.hashCode();
+      hashCode = 37 * hashCode + c;
+
+      final Object name = this.getName();
+      c = name == null ? 0 : name.hashCode();
+      hashCode = 37 * hashCode + c;
+
+      final Object value = this.getValue();
+      c = value == null ? 0 : value.hashCode();
+      hashCode = 37 * hashCode + c;
+
+      // A benign data race, as in String#hashCode().
+      this.hashCode = hashCode;
+    }
     return hashCode;
   }
 
@@ -285,16 +321,11 @@ public class ConfigurationValue implements Serializable {
 
       // Note: getSource() and isAuthoritative() are
       // deliberately omitted from the algorithm.
-      
-      final Object coordinates = this.getCoordinates();
-      if (coordinates == null) {
-        if (her.getCoordinates() != null) {
-          return false;
-        }
-      } else if (!coordinates.equals(her.getCoordinates())) {
+
+      if (this.hash() != her.hash()) {
         return false;
       }
-      
+
       final Object name = this.getName();
       if (name == null) {
         if (her.getName() != null) {
@@ -313,6 +344,17 @@ public class ConfigurationValue implements Serializable {
         return false;
       }
 
+      // Coordinates are compared last, since comparing them is the
+      // most expensive.
+      final Object coordinates = this.getCoordinates();
+      if (coordinates == null) {
+        if (her.getCoordinates() != null) {
+          return false;
+        }
+      } else if (coordinates != her.getCoordinates() && !coordinates.equals(her.getCoordinates())) {
+        return false;
+      }
+
       return true;
     } else {
       return false;
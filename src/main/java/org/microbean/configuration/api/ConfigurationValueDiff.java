@@ -0,0 +1,566 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2018 microBean.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.microbean.configuration.api;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * An immutable description of the differences between two
+ * collections of {@link ConfigurationValue}s, such as those loaded
+ * before and after a reload.
+ *
+ * <p>Two {@link ConfigurationValue}s are considered to be the same
+ * if they are {@linkplain ConfigurationValue#equals(Object) equal}
+ * and are either both or neither {@linkplain
+ * ConfigurationValue#isAuthoritative() authoritative}, since
+ * authoritative values are preferred when values are selected.
+ * A {@link ConfigurationValue} present only in the new collection
+ * whose {@linkplain ConfigurationValue#getName() name} and
+ * {@linkplain ConfigurationValue#getCoordinates() coordinates} match
+ * those of a {@link ConfigurationValue} present only in the old
+ * collection is reported as {@linkplain #getChanged() changed};
+ * otherwise it is reported as {@linkplain #getAdded() added}.  A
+ * {@link ConfigurationValue} present only in the old collection that
+ * was not changed is reported as {@linkplain #getRemoved()
+ * removed}.</p>
+ *
+ * <p>A {@link ConfigurationValueDiff} is computed in time linear in
+ * the sizes of the two collections.  Its {@linkplain
+ * #getChangedNames() changed names} are suitable for supplying to
+ * the {@link Configurations#configurationChanged(Set)} method so
+ * that only what was derived from them is discarded:</p>
+ *
+ * <blockquote><pre>final ConfigurationValueDiff diff = ConfigurationValueDiff.of(oldValues, newValues);
+ * this.values = newValues;
+ * this.configurationChanged(diff.getChangedNames());</pre></blockquote>
+ *
+ * <p>Instances of this class are safe for concurrent use by multiple
+ * threads.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson"
+ * target="_parent">Laird Nelson</a>
+ *
+ * @see #of(Collection, Collection)
+ *
+ * @see Configurations#configurationChanged(Set)
+ */
+public final class ConfigurationValueDiff {
+
+
+  /*
+   * Instance fields.
+   */
+
+
+  /**
+   * The {@link ConfigurationValue}s present only in the new
+   * collection and not reported as changed.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final List<ConfigurationValue> added;
+
+  /**
+   * The {@link ConfigurationValue}s present only in the old
+   * collection and not reported as changed.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final List<ConfigurationValue> removed;
+
+  /**
+   * The {@link Change}s.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final List<Change> changed;
+
+  /**
+   * The names of all added, removed and changed {@link
+   * ConfigurationValue}s.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final Set<String> changedNames;
+
+
+  /*
+   * Constructors.
+   */
+
+
+  /**
+   * Creates a new {@link ConfigurationValueDiff}.
+   *
+   * @param added the added {@link ConfigurationValue}s; must not be
+   * {@code null}
+   *
+   * @param removed the removed {@link ConfigurationValue}s; must not
+   * be {@code null}
+   *
+   * @param changed the {@link Change}s; must not be {@code null}
+   */
+  private ConfigurationValueDiff(final List<ConfigurationValue> added,
+                                 final List<ConfigurationValue> removed,
+                                 final List<Change> changed) {
+    super();
+    this.added = Collections.unmodifiableList(added);
+    this.removed = Collections.unmodifiableList(removed);
+    this.changed = Collections.unmodifiableList(changed);
+    final Set<String> changedNames = new HashSet<>();
+    for (final ConfigurationValue value : added) {
+      changedNames.add(value.getName());
+    }
+    for (final ConfigurationValue value : removed) {
+      changedNames.add(value.getName());
+    }
+    for (final Change change : changed) {
+      changedNames.add(change.getNewValue().getName());
+    }
+    changedNames.remove(null);
+    this.changedNames = Collections.unmodifiableSet(changedNames);
+  }
+
+
+  /*
+   * Instance methods.
+   */
+
+
+  /**
+   * Returns {@code true} if the two collections of {@link
+   * ConfigurationValue}s from which this {@link
+   * ConfigurationValueDiff} was computed contain the same {@link
+   * ConfigurationValue}s.
+   *
+   * @return {@code true} if there are no differences; {@code false}
+   * otherwise
+   */
+  public final boolean isEmpty() {
+    return this.added.isEmpty() && this.removed.isEmpty() && this.changed.isEmpty();
+  }
+
+  /**
+   * Returns an immutable {@link List} of the {@link
+   * ConfigurationValue}s present only in the new collection that are
+   * not reported as {@linkplain #getChanged() changed}.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return a non-{@code null}, immutable {@link List} of {@link
+   * ConfigurationValue}s
+   */
+  public final List<ConfigurationValue> getAdded() {
+    return this.added;
+  }
+
+  /**
+   * Returns an immutable {@link List} of the {@link
+   * ConfigurationValue}s present only in the old collection that are
+   * not reported as {@linkplain #getChanged() changed}.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return a non-{@code null}, immutable {@link List} of {@link
+   * ConfigurationValue}s
+   */
+  public final List<ConfigurationValue> getRemoved() {
+    return this.removed;
+  }
+
+  /**
+   * Returns an immutable {@link List} of {@link Change}s, each
+   * pairing a {@link ConfigurationValue} present only in the old
+   * collection with one present only in the new collection that has
+   * the same name and coordinates.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return a non-{@code null}, immutable {@link List} of {@link
+   * Change}s
+   */
+  public final List<Change> getChanged() {
+    return this.changed;
+  }
+
+  /**
+   * Returns an immutable {@link Set} of the names of all added,
+   * removed and changed {@link ConfigurationValue}s.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return a non-{@code null}, immutable {@link Set} of names
+   *
+   * @see Configurations#configurationChanged(Set)
+   */
+  public final Set<String> getChangedNames() {
+    return this.changedNames;
+  }
+
+  /**
+   * Returns a non-{@code null} {@link String} representation of this
+   * {@link ConfigurationValueDiff}.
+   *
+   * @return a non-{@code null} {@link String}
+   */
+  @Override
+  public final String toString() {
+    return "added: " + this.added + "; removed: " + this.removed + "; changed: " + this.changed;
+  }
+
+
+  /*
+   * Static methods.
+   */
+
+
+  /**
+   * Computes and returns a {@link ConfigurationValueDiff} describing
+   * the differences between the supplied collections of {@link
+   * ConfigurationValue}s.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param oldValues the old {@link ConfigurationValue}s; may be
+   * {@code null}; {@code null} elements are ignored
+   *
+   * @param newValues the new {@link ConfigurationValue}s; may be
+   * {@code null}; {@code null} elements are ignored
+   *
+   * @return a non-{@code null} {@link ConfigurationValueDiff}
+   */
+  public static final ConfigurationValueDiff of(final Collection<? extends ConfigurationValue> oldValues,
+                                                final Collection<? extends ConfigurationValue> newValues) {
+    final List<ConfigurationValue> added = new ArrayList<>();
+    final List<ConfigurationValue> removed = new ArrayList<>();
+    final List<Change> changed = new ArrayList<>();
+    if (oldValues == null || oldValues.isEmpty()) {
+      if (newValues != null) {
+        for (final ConfigurationValue value : newValues) {
+          if (value != null) {
+            added.add(value);
+          }
+        }
+      }
+    } else if (newValues == null || newValues.isEmpty()) {
+      for (final ConfigurationValue value : oldValues) {
+        if (value != null) {
+          removed.add(value);
+        }
+      }
+    } else {
+      // Count the old values so that duplicates are accounted for.
+      final Map<Exact, int[]> unmatched = new HashMap<>(oldValues.size() * 4 / 3 + 1);
+      for (final ConfigurationValue value : oldValues) {
+        if (value != null) {
+          final Exact exact = new Exact(value);
+          final int[] count = unmatched.get(exact);
+          if (count == null) {
+            unmatched.put(exact, new int[] { 1 });
+          } else {
+            count[0]++;
+          }
+        }
+      }
+      final List<ConfigurationValue> candidates = new ArrayList<>();
+      for (final ConfigurationValue value : newValues) {
+        if (value != null) {
+          final Exact exact = new Exact(value);
+          final int[] count = unmatched.get(exact);
+          if (count == null) {
+            candidates.add(value);
+          } else if (--count[0] == 0) {
+            unmatched.remove(exact);
+          }
+        }
+      }
+      if (candidates.isEmpty()) {
+        addAll(removed, unmatched);
+      } else if (unmatched.isEmpty()) {
+        added.addAll(candidates);
+      } else {
+        // Pair remaining old and new values that occupy the same
+        // slot, i.e. have the same name and coordinates.
+        final Map<Slot, List<ConfigurationValue>> slots = new HashMap<>();
+        for (final Map.Entry<Exact, int[]> entry : unmatched.entrySet()) {
+          final ConfigurationValue value = entry.getKey().value;
+          final Slot slot = new Slot(value);
+          List<ConfigurationValue> list = slots.get(slot);
+          if (list == null) {
+            list = new ArrayList<>(1);
+            slots.put(slot, list);
+          }
+          for (int i = entry.getValue()[0]; i > 0; i--) {
+            list.add(value);
+          }
+        }
+        for (final ConfigurationValue value : candidates) {
+          final List<ConfigurationValue> list = slots.get(new Slot(value));
+          if (list == null || list.isEmpty()) {
+            added.add(value);
+          } else {
+            changed.add(new Change(list.remove(list.size() - 1), value));
+          }
+        }
+        for (final List<ConfigurationValue> list : slots.values()) {
+          removed.addAll(list);
+        }
+      }
+    }
+    return new ConfigurationValueDiff(added, removed, changed);
+  }
+
+  /**
+   * Adds every key in the supplied {@link Map} to the supplied
+   * {@link List} as many times as its count indicates.
+   *
+   * @param list the {@link List} to add to; must not be {@code null}
+   *
+   * @param counts a {@link Map} of {@link Exact}s to counts; must
+   * not be {@code null}
+   */
+  private static final void addAll(final List<ConfigurationValue> list, final Map<Exact, int[]> counts) {
+    for (final Map.Entry<Exact, int[]> entry : counts.entrySet()) {
+      for (int i = entry.getValue()[0]; i > 0; i--) {
+        list.add(entry.getKey().value);
+      }
+    }
+  }
+
+
+  /*
+   * Inner and nested classes.
+   */
+
+
+  /**
+   * An immutable pairing of an old {@link ConfigurationValue} with a
+   * new {@link ConfigurationValue} that has the same name and
+   * coordinates but is not {@linkplain
+   * ConfigurationValue#equals(Object) equal} to it, or differs from it
+   * in whether it is {@linkplain ConfigurationValue#isAuthoritative()
+   * authoritative}.
+   *
+   * @author <a href="https://about.me/lairdnelson"
+   * target="_parent">Laird Nelson</a>
+   *
+   * @see ConfigurationValueDiff#getChanged()
+   */
+  public static final class Change {
+
+    /**
+     * The old {@link ConfigurationValue}.
+     *
+     * <p>This field is never {@code null}.</p>
+     */
+    private final ConfigurationValue oldValue;
+
+    /**
+     * The new {@link ConfigurationValue}.
+     *
+     * <p>This field is never {@code null}.</p>
+     */
+    private final ConfigurationValue newValue;
+
+    /**
+     * Creates a new {@link Change}.
+     *
+     * @param oldValue the old {@link ConfigurationValue}; must not be
+     * {@code null}
+     *
+     * @param newValue the new {@link ConfigurationValue}; must not be
+     * {@code null}
+     */
+    private Change(final ConfigurationValue oldValue, final ConfigurationValue newValue) {
+      super();
+      this.oldValue = oldValue;
+      this.newValue = newValue;
+    }
+
+    /**
+     * Returns the old {@link ConfigurationValue}.
+     *
+     * <p>This method never returns {@code null}.</p>
+     *
+     * @return the non-{@code null} old {@link ConfigurationValue}
+     */
+    public final ConfigurationValue getOldValue() {
+      return this.oldValue;
+    }
+
+    /**
+     * Returns the new {@link ConfigurationValue}.
+     *
+     * <p>This method never returns {@code null}.</p>
+     *
+     * @return the non-{@code null} new {@link ConfigurationValue}
+     */
+    public final ConfigurationValue getNewValue() {
+      return this.newValue;
+    }
+
+    /**
+     * Returns a non-{@code null} {@link String} representation of
+     * this {@link Change}.
+     *
+     * @return a non-{@code null} {@link String}
+     */
+    @Override
+    public final String toString() {
+      return this.oldValue + " -> " + this.newValue;
+    }
+
+  }
+
+  /**
+   * A {@link ConfigurationValue} that is equal to another only if the
+   * {@link ConfigurationValue}s are {@linkplain
+   * ConfigurationValue#equals(Object) equal} and are either both or
+   * neither {@linkplain ConfigurationValue#isAuthoritative()
+   * authoritative}.
+   *
+   * @author <a href="https://about.me/lairdnelson"
+   * target="_parent">Laird Nelson</a>
+   */
+  private static final class Exact {
+
+    /**
+     * The {@link ConfigurationValue} this {@link Exact} represents.
+     *
+     * <p>This field is never {@code null}.</p>
+     */
+    private final ConfigurationValue value;
+
+    /**
+     * Creates a new {@link Exact}.
+     *
+     * @param value the {@link ConfigurationValue} the new {@link
+     * Exact} will represent; must not be {@code null}
+     */
+    private Exact(final ConfigurationValue value) {
+      super();
+      this.value = value;
+    }
+
+    /**
+     * Returns a hashcode for this {@link Exact}.
+     *
+     * @return a hashcode for this {@link Exact}
+     */
+    @Override
+    public final int hashCode() {
+      return this.value.hashCode();
+    }
+
+    /**
+     * Returns {@code true} if the supplied {@link Object} is an {@link
+     * Exact} whose {@link ConfigurationValue} is {@linkplain
+     * ConfigurationValue#equals(Object) equal} to this one's and has
+     * the same {@linkplain ConfigurationValue#isAuthoritative()
+     * authority}.
+     *
+     * @param other the {@link Object} to test; may be {@code null}
+     *
+     * @return {@code true} if the supplied {@link Object} is equal to
+     * this {@link Exact}; {@code false} otherwise
+     */
+    @Override
+    public final boolean equals(final Object other) {
+      if (other == this) {
+        return true;
+      } else if (other instanceof Exact) {
+        final ConfigurationValue her = ((Exact)other).value;
+        return this.value.isAuthoritative() == her.isAuthoritative() && this.value.equals(her);
+      } else {
+        return false;
+      }
+    }
+
+  }
+
+  /**
+   * The name and coordinates of a {@link ConfigurationValue}.
+   *
+   * @author <a href="https://about.me/lairdnelson"
+   * target="_parent">Laird Nelson</a>
+   */
+  private static final class Slot {
+
+    /**
+     * The {@link ConfigurationValue} whose name and coordinates this
+     * {@link Slot} represents.
+     *
+     * <p>This field is never {@code null}.</p>
+     */
+    private final ConfigurationValue value;
+
+    /**
+     * Creates a new {@link Slot}.
+     *
+     * @param value the {@link ConfigurationValue} whose name and
+     * coordinates the new {@link Slot} will represent; must not be
+     * {@code null}
+     */
+    private Slot(final ConfigurationValue value) {
+      super();
+      this.value = value;
+    }
+
+    /**
+     * Returns a hashcode for this {@link Slot}.
+     *
+     * @return a hashcode for this {@link Slot}
+     */
+    @Override
+    public final int hashCode() {
+      return 31 * Objects.hashCode(this.value.getName()) + Objects.hashCode(this.value.getCoordinates());
+    }
+
+    /**
+     * Returns {@code true} if the supplied {@link Object} is a {@link
+     * Slot} with the same name and coordinates.
+     *
+     * @param other the {@link Object} to test; may be {@code null}
+     *
+     * @return {@code true} if the supplied {@link Object} is equal to
+     * this {@link Slot}; {@code false} otherwise
+     */
+    @Override
+    public final boolean equals(final Object other) {
+      if (other == this) {
+        return true;
+      } else if (other instanceof Slot) {
+        final ConfigurationValue her = ((Slot)other).value;
+        return
+          Objects.equals(this.value.getName(), her.getName()) &&
+          Objects.equals(this.value.getCoordinates(), her.getCoordinates());
+      } else {
+        return false;
+      }
+    }
+
+  }
+
+}
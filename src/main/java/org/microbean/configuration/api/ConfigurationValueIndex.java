@@ -0,0 +1,788 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2018 microBean.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.microbean.configuration.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * An immutable index over a fixed collection of {@link
+ * ConfigurationValue}s that selects the {@link ConfigurationValue}
+ * suitable for a given set of configuration coordinates and a given
+ * configuration property name.
+ *
+ * <h2>Selection</h2>
+ *
+ * <p>A {@link ConfigurationValue} is a <em>candidate</em> for a
+ * request if its {@linkplain ConfigurationValue#getName() name} is
+ * the requested name and its {@linkplain
+ * ConfigurationValue#getCoordinates() coordinates} are a subset of
+ * the requested configuration coordinates.  Among the candidates,
+ * {@linkplain ConfigurationValue#isAuthoritative() authoritative}
+ * ones are preferred over non-authoritative ones, and then more
+ * {@linkplain ConfigurationValue#specificity() specific} ones are
+ * preferred over less specific ones.  If, after applying these
+ * rules, more than one candidate remains and the remaining
+ * candidates do not all have {@linkplain Object#equals(Object) equal}
+ * {@linkplain ConfigurationValue#getValue() values}, an {@link
+ * AmbiguousConfigurationValuesException} is thrown.</p>
+ *
+ * <h2>Indexing</h2>
+ *
+ * <p>For each configuration property name, every {@link
+ * ConfigurationValue} is assigned an integral identifier, and a
+ * sorted posting list of identifiers is maintained for each
+ * <em>dimension</em>=<em>value</em> pair appearing in any {@link
+ * ConfigurationValue}'s coordinates.  A {@link ConfigurationValue}
+ * with a specificity of <em>n</em> is a candidate for a request if
+ * and only if its identifier appears in exactly <em>n</em> of the
+ * posting lists selected by the request's coordinates, so candidate
+ * selection merges only those posting lists and therefore scales with
+ * the number of matching {@link ConfigurationValue}s rather than with
+ * the total number of {@link ConfigurationValue}s for the name.</p>
+ *
+ * <p>Instances of this class are safe for concurrent use by multiple
+ * threads.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson"
+ * target="_parent">Laird Nelson</a>
+ *
+ * @see ConfigurationValue
+ *
+ * @see AmbiguousConfigurationValuesException
+ */
+public final class ConfigurationValueIndex {
+
+
+  /*
+   * Static fields.
+   */
+
+
+  /**
+   * A shared, empty array of identifiers.
+   */
+  private static final int[] EMPTY_INT_ARRAY = new int[0];
+
+  /**
+   * Shared arrays each containing a single identifier equal to its
+   * index in this array, since most posting lists and lists of
+   * unqualified identifiers contain only one identifier.
+   *
+   * <p>This field is never {@code null}.</p>
+   *
+   * @see #ids(List)
+   */
+  private static final int[][] SINGLETON_INT_ARRAYS = new int[64][];
+
+  /**
+   * A {@link Comparator} ordering dimensions and their values,
+   * either of which may be {@code null}.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private static final Comparator<String> ORDER = Comparator.nullsFirst(Comparator.<String>naturalOrder());
+
+  static {
+    for (int i = 0; i < SINGLETON_INT_ARRAYS.length; i++) {
+      SINGLETON_INT_ARRAYS[i] = new int[] { i };
+    }
+  }
+
+
+  /*
+   * Instance fields.
+   */
+
+
+  /**
+   * A {@link Map} of per-name indexes, keyed by configuration
+   * property name.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final Map<String, NameEntry> entries;
+
+  /**
+   * The total number of {@link ConfigurationValue}s indexed by this
+   * {@link ConfigurationValueIndex}.
+   */
+  private final int size;
+
+
+  /*
+   * Constructors.
+   */
+
+
+  /**
+   * Creates a new {@link ConfigurationValueIndex}.
+   *
+   * @param values the {@link ConfigurationValue}s to index; may be
+   * {@code null}; {@code null} elements are ignored
+   */
+  public ConfigurationValueIndex(final Collection<? extends ConfigurationValue> values) {
+    super();
+    if (values == null || values.isEmpty()) {
+      this.entries = Collections.emptyMap();
+      this.size = 0;
+    } else {
+      final Map<String, List<ConfigurationValue>> valuesByName = new HashMap<>();
+      int size = 0;
+      for (final ConfigurationValue value : values) {
+        if (value != null) {
+          List<ConfigurationValue> list = valuesByName.get(value.getName());
+          if (list == null) {
+            list = new ArrayList<>();
+            valuesByName.put(value.getName(), list);
+          }
+          list.add(value);
+          size++;
+        }
+      }
+      final Map<String, NameEntry> entries = new HashMap<>(valuesByName.size() * 4 / 3 + 1);
+      for (final Map.Entry<String, List<ConfigurationValue>> entry : valuesByName.entrySet()) {
+        entries.put(entry.getKey(), new NameEntry(entry.getValue()));
+      }
+      this.entries = Collections.unmodifiableMap(entries);
+      this.size = size;
+    }
+  }
+
+
+  /*
+   * Instance methods.
+   */
+
+
+  /**
+   * Returns the total number of {@link ConfigurationValue}s indexed
+   * by this {@link ConfigurationValueIndex}.
+   *
+   * @return the total number of {@link ConfigurationValue}s indexed
+   * by this {@link ConfigurationValueIndex}; always zero or a
+   * positive integer
+   */
+  public final int size() {
+    return this.size;
+  }
+
+  /**
+   * Returns an {@linkplain Collections#unmodifiableSet(Set)
+   * unmodifiable <code>Set</code>} of the names of the {@link
+   * ConfigurationValue}s indexed by this {@link
+   * ConfigurationValueIndex}.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return a non-{@code null}, unmodifiable {@link Set} of names
+   */
+  public final Set<String> getNames() {
+    return this.entries.keySet();
+  }
+
+  /**
+   * Returns an unmodifiable {@link List} of all the {@link
+   * ConfigurationValue}s indexed by this {@link
+   * ConfigurationValueIndex} whose {@linkplain
+   * ConfigurationValue#getName() name} is the supplied {@code name},
+   * regardless of their coordinates.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param name the name; may be {@code null} in which case an
+   * {@linkplain List#isEmpty() empty} {@link List} will be returned
+   *
+   * @return a non-{@code null}, unmodifiable {@link List} of {@link
+   * ConfigurationValue}s
+   */
+  public final List<ConfigurationValue> getValues(final String name) {
+    final NameEntry entry = name == null ? null : this.entries.get(name);
+    return entry == null ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(entry.values));
+  }
+
+  /**
+   * Returns an unmodifiable {@link List} of the <em>candidate</em>
+   * {@link ConfigurationValue}s for the supplied {@code
+   * configurationCoordinates} and {@code name}: those whose name is
+   * the supplied {@code name} and whose coordinates are a subset of
+   * the supplied {@code configurationCoordinates}.
+   *
+   * <p>This method never returns {@code null}.  The returned {@link
+   * List} preserves the order in which its elements were supplied to
+   * the {@linkplain #ConfigurationValueIndex(Collection)
+   * constructor}.</p>
+   *
+   * @param configurationCoordinates the configuration coordinates in
+   * effect for the request; may be {@code null}
+   *
+   * @param name the name of the configuration property; may be
+   * {@code null} in which case an {@linkplain List#isEmpty() empty}
+   * {@link List} will be returned
+   *
+   * @return a non-{@code null}, unmodifiable {@link List} of
+   * candidate {@link ConfigurationValue}s
+   *
+   * @see #select(Map, String)
+   */
+  public final List<ConfigurationValue> getCandidates(final Map<? extends String, ? extends String> configurationCoordinates, final String name) {
+    final NameEntry entry = name == null ? null : this.entries.get(name);
+    final List<ConfigurationValue> returnValue;
+    if (entry == null) {
+      returnValue = Collections.emptyList();
+    } else {
+      final int[] ids = entry.getCandidateIds(configurationCoordinates);
+      if (ids.length == 0) {
+        returnValue = Collections.emptyList();
+      } else {
+        final ConfigurationValue[] candidates = new ConfigurationValue[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+          candidates[i] = entry.values[ids[i]];
+        }
+        returnValue = Collections.unmodifiableList(Arrays.asList(candidates));
+      }
+    }
+    return returnValue;
+  }
+
+  /**
+   * Returns the {@link ConfigurationValue} that is suitable for the
+   * supplied {@code configurationCoordinates} and {@code name}
+   * according to the {@linkplain ConfigurationValueIndex selection
+   * rules} described in the documentation for this class, or {@code
+   * null} if there is no such {@link ConfigurationValue}.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @param configurationCoordinates the configuration coordinates in
+   * effect for the request; may be {@code null}
+   *
+   * @param name the name of the configuration property; must not be
+   * {@code null}
+   *
+   * @return the selected {@link ConfigurationValue}, or {@code null}
+   *
+   * @exception NullPointerException if {@code name} is {@code null}
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * equally suitable {@link ConfigurationValue}s with differing
+   * values were found
+   */
+  public final ConfigurationValue select(final Map<String, String> configurationCoordinates, final String name) {
+    Objects.requireNonNull(name);
+    final NameEntry entry = this.entries.get(name);
+    final ConfigurationValue returnValue;
+    if (entry == null) {
+      returnValue = null;
+    } else {
+      returnValue = select(configurationCoordinates, name, entry.values, entry.getCandidateIds(configurationCoordinates));
+    }
+    return returnValue;
+  }
+
+  /**
+   * Returns a {@link Resolution} describing the {@link
+   * ConfigurationValue} that is suitable for the supplied {@code
+   * configurationCoordinates} and {@code name} according to the
+   * {@linkplain ConfigurationValueIndex selection rules} described in
+   * the documentation for this class, without throwing an exception
+   * if there is no single such {@link ConfigurationValue}.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * <p>The {@linkplain Resolution#getStatus() status} of the returned
+   * {@link Resolution} is {@link Resolution.Status#FOUND}, {@link
+   * Resolution.Status#NOT_FOUND} or {@link
+   * Resolution.Status#AMBIGUOUS}.  Its {@linkplain
+   * Resolution#getCompetingValues() competing values} are all the
+   * candidates or, if it is ambiguous, the conflicting ones.</p>
+   *
+   * @param configurationCoordinates the configuration coordinates in
+   * effect for the request; may be {@code null}
+   *
+   * @param name the name of the configuration property; must not be
+   * {@code null}
+   *
+   * @return a non-{@code null} {@link Resolution} whose {@linkplain
+   * Resolution#getValue() value} is the {@linkplain
+   * ConfigurationValue#getValue() value} of the selected {@link
+   * ConfigurationValue}
+   *
+   * @exception NullPointerException if {@code name} is {@code null}
+   *
+   * @see #select(Map, String)
+   */
+  public final Resolution<String> resolve(final Map<String, String> configurationCoordinates, final String name) {
+    Objects.requireNonNull(name);
+    final NameEntry entry = this.entries.get(name);
+    final Resolution<String> returnValue;
+    if (entry == null) {
+      returnValue = new Resolution<>(Resolution.Status.NOT_FOUND, configurationCoordinates, name, null, null, null, null);
+    } else {
+      final int[] ids = entry.getCandidateIds(configurationCoordinates);
+      final Object choice = choose(entry.values, ids);
+      if (choice == null) {
+        returnValue = new Resolution<>(Resolution.Status.NOT_FOUND, configurationCoordinates, name, null, null, null, null);
+      } else if (choice instanceof List) {
+        @SuppressWarnings("unchecked")
+        final List<ConfigurationValue> ties = (List<ConfigurationValue>)choice;
+        returnValue = new Resolution<>(Resolution.Status.AMBIGUOUS, configurationCoordinates, name, null, null, ties, null);
+      } else {
+        final ConfigurationValue selected = (ConfigurationValue)choice;
+        final List<ConfigurationValue> candidates = new ArrayList<>(ids.length);
+        for (final int id : ids) {
+          candidates.add(entry.values[id]);
+        }
+        returnValue = new Resolution<>(selected.getValue() == null ? Resolution.Status.NOT_FOUND : Resolution.Status.FOUND,
+                                       configurationCoordinates,
+                                       name,
+                                       selected.getValue(),
+                                       selected,
+                                       candidates,
+                                       null);
+      }
+    }
+    return returnValue;
+  }
+
+  /**
+   * Returns a non-{@code null} {@link String} representation of this
+   * {@link ConfigurationValueIndex}.
+   *
+   * @return a non-{@code null} {@link String} representation of this
+   * {@link ConfigurationValueIndex}
+   */
+  @Override
+  public final String toString() {
+    return this.getClass().getSimpleName() + " (" + this.entries.size() + " names, " + this.size + " values)";
+  }
+
+
+  /*
+   * Static methods.
+   */
+
+
+  /**
+   * Selects the most suitable {@link ConfigurationValue} from among
+   * the supplied candidates according to the {@linkplain
+   * ConfigurationValueIndex selection rules} described in the
+   * documentation for this class.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @param configurationCoordinates the configuration coordinates in
+   * effect for the request; used only for error reporting; may be
+   * {@code null}
+   *
+   * @param name the name of the configuration property; used only
+   * for error reporting; must not be {@code null}
+   *
+   * @param values an array of {@link ConfigurationValue}s; must not
+   * be {@code null}
+   *
+   * @param candidateIds the indices within {@code values} of the
+   * candidates; must not be {@code null}
+   *
+   * @return the selected {@link ConfigurationValue}, or {@code null}
+   * if {@code candidateIds} is empty
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * equally suitable {@link ConfigurationValue}s with differing
+   * values were found
+   */
+  static final ConfigurationValue select(final Map<String, String> configurationCoordinates,
+                                         final String name,
+                                         final ConfigurationValue[] values,
+                                         final int[] candidateIds) {
+    final Object choice = choose(values, candidateIds);
+    if (choice instanceof List) {
+      @SuppressWarnings("unchecked")
+      final List<ConfigurationValue> ties = (List<ConfigurationValue>)choice;
+      throw new AmbiguousConfigurationValuesException(null, null, configurationCoordinates, name, ties);
+    }
+    return (ConfigurationValue)choice;
+  }
+
+  /**
+   * Chooses the most suitable {@link ConfigurationValue} from among
+   * the supplied candidates according to the {@linkplain
+   * ConfigurationValueIndex selection rules} described in the
+   * documentation for this class, without throwing an exception if
+   * there is no single such {@link ConfigurationValue}.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @param values an array of {@link ConfigurationValue}s; must not
+   * be {@code null}
+   *
+   * @param candidateIds the indices within {@code values} of the
+   * candidates; must not be {@code null}
+   *
+   * @return the selected {@link ConfigurationValue}, a {@link List}
+   * of two or more equally suitable {@link ConfigurationValue}s with
+   * differing values, or {@code null} if {@code candidateIds} is
+   * empty
+   */
+  private static final Object choose(final ConfigurationValue[] values, final int[] candidateIds) {
+    ConfigurationValue best = null;
+    List<ConfigurationValue> ties = null;
+    for (final int id : candidateIds) {
+      final ConfigurationValue candidate = values[id];
+      if (best == null) {
+        best = candidate;
+      } else {
+        final int comparison = compare(candidate, best);
+        if (comparison > 0) {
+          best = candidate;
+          ties = null;
+        } else if (comparison == 0 && !Objects.equals(candidate.getValue(), best.getValue())) {
+          if (ties == null) {
+            ties = new ArrayList<>();
+            ties.add(best);
+          }
+          ties.add(candidate);
+        }
+      }
+    }
+    return ties == null ? best : ties;
+  }
+
+  /**
+   * Compares two {@link ConfigurationValue}s for suitability,
+   * returning a positive integer if {@code a} is more suitable than
+   * {@code b}, a negative integer if {@code b} is more suitable than
+   * {@code a}, and zero if they are equally suitable.
+   *
+   * @param a the first {@link ConfigurationValue}; must not be {@code
+   * null}
+   *
+   * @param b the second {@link ConfigurationValue}; must not be
+   * {@code null}
+   *
+   * @return a positive integer, zero or a negative integer
+   */
+  static final int compare(final ConfigurationValue a, final ConfigurationValue b) {
+    final boolean aAuthoritative = a.isAuthoritative();
+    if (aAuthoritative != b.isAuthoritative()) {
+      return aAuthoritative ? 1 : -1;
+    }
+    return Integer.compare(a.specificity(), b.specificity());
+  }
+
+
+  /**
+   * Returns the supplied identifiers as an array, which is shared if
+   * it is empty or contains a single small identifier.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param ids the identifiers; must not be {@code null}
+   *
+   * @return a non-{@code null} array of identifiers that must not be
+   * modified
+   */
+  private static final int[] ids(final List<Integer> ids) {
+    final int size = ids.size();
+    if (size == 0) {
+      return EMPTY_INT_ARRAY;
+    } else if (size == 1) {
+      final int id = ids.get(0).intValue();
+      if (id < SINGLETON_INT_ARRAYS.length) {
+        return SINGLETON_INT_ARRAYS[id];
+      }
+    }
+    final int[] returnValue = new int[size];
+    for (int i = 0; i < size; i++) {
+      returnValue[i] = ids.get(i).intValue();
+    }
+    return returnValue;
+  }
+
+
+  /*
+   * Inner and nested classes.
+   */
+
+
+  /**
+   * An inverted index over all the {@link ConfigurationValue}s for a
+   * single configuration property name.
+   *
+   * @author <a href="https://about.me/lairdnelson"
+   * target="_parent">Laird Nelson</a>
+   */
+  private static final class NameEntry {
+
+    /**
+     * The {@link ConfigurationValue}s for the name, indexed by
+     * identifier; never {@code null}.
+     */
+    private final ConfigurationValue[] values;
+
+    /**
+     * The identifiers of those {@link ConfigurationValue}s whose
+     * specificity is zero, in ascending order; never {@code null}.
+     */
+    private final int[] unqualifiedIds;
+
+    /**
+     * The dimensions of the <em>dimension</em>=<em>value</em> pairs
+     * for which there are posting lists, sorted first by dimension
+     * and then by value; never {@code null}.
+     *
+     * <p>Sorted parallel arrays are used instead of nested {@link
+     * Map}s because they occupy a fraction of the memory, which
+     * matters when there are very many names.</p>
+     *
+     * @see #find(String, String)
+     */
+    private final String[] dimensions;
+
+    /**
+     * The values of the <em>dimension</em>=<em>value</em> pairs for
+     * which there are posting lists, in the same order as the {@link
+     * #dimensions}; never {@code null}.
+     */
+    private final String[] dimensionValues;
+
+    /**
+     * The sorted posting lists of identifiers, in the same order as
+     * the {@link #dimensions}; never {@code null}.
+     */
+    private final int[][] postings;
+
+    /**
+     * Creates a new {@link NameEntry}.
+     *
+     * @param values the {@link ConfigurationValue}s for a single
+     * name; must not be {@code null} or contain {@code null}
+     * elements
+     */
+    private NameEntry(final List<? extends ConfigurationValue> values) {
+      super();
+      this.values = values.toArray(new ConfigurationValue[values.size()]);
+      final List<Posting> postings = new ArrayList<>();
+      final List<Integer> unqualifiedIds = new ArrayList<>();
+      for (int id = 0; id < this.values.length; id++) {
+        final Map<String, String> coordinates = this.values[id].getCoordinates();
+        if (coordinates == null || coordinates.isEmpty()) {
+          unqualifiedIds.add(Integer.valueOf(id));
+        } else {
+          for (final Map.Entry<String, String> coordinate : coordinates.entrySet()) {
+            postings.add(new Posting(coordinate.getKey(), coordinate.getValue(), id));
+          }
+        }
+      }
+      this.unqualifiedIds = ids(unqualifiedIds);
+      // The sort is stable, so identifiers remain in ascending order
+      // within each posting list.
+      postings.sort(null);
+      final List<String> dimensions = new ArrayList<>();
+      final List<String> dimensionValues = new ArrayList<>();
+      final List<int[]> postingLists = new ArrayList<>();
+      final List<Integer> ids = new ArrayList<>();
+      for (int i = 0; i < postings.size(); i++) {
+        final Posting posting = postings.get(i);
+        ids.add(Integer.valueOf(posting.id));
+        if (i + 1 == postings.size() || posting.compareTo(postings.get(i + 1)) != 0) {
+          dimensions.add(posting.dimension);
+          dimensionValues.add(posting.value);
+          postingLists.add(ids(ids));
+          ids.clear();
+        }
+      }
+      this.dimensions = dimensions.toArray(new String[dimensions.size()]);
+      this.dimensionValues = dimensionValues.toArray(new String[dimensionValues.size()]);
+      this.postings = postingLists.toArray(new int[postingLists.size()][]);
+    }
+
+    /**
+     * Returns the sorted posting list for the supplied {@code
+     * dimension} and {@code value}, or {@code null} if there is no
+     * such posting list.
+     *
+     * <p>This method may return {@code null}.</p>
+     *
+     * @param dimension the dimension; may be {@code null}
+     *
+     * @param value the value; may be {@code null}
+     *
+     * @return a sorted posting list, or {@code null}
+     */
+    private final int[] find(final String dimension, final String value) {
+      int low = 0;
+      int high = this.dimensions.length - 1;
+      while (low <= high) {
+        final int middle = (low + high) >>> 1;
+        int comparison = ORDER.compare(this.dimensions[middle], dimension);
+        if (comparison == 0) {
+          comparison = ORDER.compare(this.dimensionValues[middle], value);
+        }
+        if (comparison < 0) {
+          low = middle + 1;
+        } else if (comparison > 0) {
+          high = middle - 1;
+        } else {
+          return this.postings[middle];
+        }
+      }
+      return null;
+    }
+
+    /**
+     * Returns the identifiers, in ascending order, of those {@link
+     * ConfigurationValue}s whose coordinates are a subset of the
+     * supplied {@code configurationCoordinates}.
+     *
+     * <p>This method never returns {@code null}.</p>
+     *
+     * @param configurationCoordinates the configuration coordinates;
+     * may be {@code null}
+     *
+     * @return a non-{@code null} array of identifiers
+     */
+    private final int[] getCandidateIds(final Map<? extends String, ? extends String> configurationCoordinates) {
+      if (configurationCoordinates == null || configurationCoordinates.isEmpty() || this.postings.length == 0) {
+        return this.unqualifiedIds;
+      }
+
+      // Gather the posting list for each dimension=value pair in the
+      // request.  A value appears in at most one posting list per
+      // dimension, so it is a candidate if and only if it appears in
+      // as many of the gathered lists as it has coordinates.
+      final int[][] lists = new int[configurationCoordinates.size()][];
+      int listCount = 0;
+      int total = 0;
+      for (final Map.Entry<? extends String, ? extends String> coordinate : configurationCoordinates.entrySet()) {
+        final int[] ids = this.find(coordinate.getKey(), coordinate.getValue());
+        if (ids != null) {
+          lists[listCount++] = ids;
+          total += ids.length;
+        }
+      }
+      if (listCount == 0) {
+        return this.unqualifiedIds;
+      }
+
+      // Merge the gathered lists, counting occurrences of each
+      // identifier, and merge in the unqualified identifiers.
+      final int[] candidates = new int[this.unqualifiedIds.length + total];
+      int candidateCount = 0;
+      final int[] cursors = new int[listCount];
+      int u = 0;
+      while (true) {
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < listCount; i++) {
+          if (cursors[i] < lists[i].length && lists[i][cursors[i]] < min) {
+            min = lists[i][cursors[i]];
+          }
+        }
+        if (min == Integer.MAX_VALUE) {
+          break;
+        }
+        int occurrences = 0;
+        for (int i = 0; i < listCount; i++) {
+          if (cursors[i] < lists[i].length && lists[i][cursors[i]] == min) {
+            occurrences++;
+            cursors[i]++;
+          }
+        }
+        while (u < this.unqualifiedIds.length && this.unqualifiedIds[u] < min) {
+          candidates[candidateCount++] = this.unqualifiedIds[u++];
+        }
+        if (occurrences == this.values[min].specificity()) {
+          candidates[candidateCount++] = min;
+        }
+      }
+      while (u < this.unqualifiedIds.length) {
+        candidates[candidateCount++] = this.unqualifiedIds[u++];
+      }
+      return candidateCount == 0 ? EMPTY_INT_ARRAY : candidateCount == candidates.length ? candidates : Arrays.copyOf(candidates, candidateCount);
+    }
+
+  }
+
+  /**
+   * A <em>dimension</em>=<em>value</em> pair from the coordinates of
+   * the {@link ConfigurationValue} with a given identifier, used
+   * while building the posting lists of a {@link NameEntry}.
+   *
+   * @author <a href="https://about.me/lairdnelson"
+   * target="_parent">Laird Nelson</a>
+   */
+  private static final class Posting implements Comparable<Posting> {
+
+    /**
+     * The dimension; may be {@code null}.
+     */
+    private final String dimension;
+
+    /**
+     * The value; may be {@code null}.
+     */
+    private final String value;
+
+    /**
+     * The identifier of the {@link ConfigurationValue}.
+     */
+    private final int id;
+
+    /**
+     * Creates a new {@link Posting}.
+     *
+     * @param dimension the dimension; may be {@code null}
+     *
+     * @param value the value; may be {@code null}
+     *
+     * @param id the identifier of the {@link ConfigurationValue}
+     */
+    private Posting(final String dimension, final String value, final int id) {
+      super();
+      this.dimension = dimension;
+      this.value = value;
+      this.id = id;
+    }
+
+    /**
+     * Compares this {@link Posting} to the supplied {@link Posting}
+     * by dimension and then by value, ignoring identifiers.
+     *
+     * @param her the {@link Posting} to compare; must not be {@code
+     * null}
+     *
+     * @return a negative integer, zero or a positive integer as this
+     * {@link Posting} is less than, equal to or greater than the
+     * supplied {@link Posting}
+     */
+    @Override
+    public final int compareTo(final Posting her) {
+      final int comparison = ORDER.compare(this.dimension, her.dimension);
+      return comparison == 0 ? ORDER.compare(this.value, her.value) : comparison;
+    }
+
+  }
+
+}
@@ -16,15 +16,39 @@
  */
 package org.microbean.configuration.api;
 
+import java.io.Reader;
+
 import java.lang.reflect.Type;
 
+import java.nio.ByteBuffer;
+
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+import java.nio.charset.StandardCharsets;
+
 import java.util.Collection;
-import java.util.Collections; // for javadoc only
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Objects;
 import java.util.ServiceConfigurationError;
 import java.util.ServiceLoader;
 import java.util.Set;
+import java.util.TreeSet;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import java.util.function.Function;
 
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -48,6 +72,34 @@ public abstract class Configurations {
 
   private static volatile ServiceLoader<Configurations> configurationsLoader;
 
+  /**
+   * The maximum number of converted default values that will be
+   * memoized for any given {@link Type}.
+   *
+   * @see #getConvertedDefaultValue(Map, String, Type, String)
+   */
+  private static final int MAX_CONVERTED_DEFAULT_VALUES_PER_TYPE = 1024;
+
+  /**
+   * The maximum number of times a read transaction will be attempted
+   * against a {@link Configurations} that cannot take {@linkplain
+   * #snapshot() snapshots} before giving up.
+   *
+   * @see #readConsistently(Function)
+   */
+  private static final int MAX_CONSISTENT_READ_ATTEMPTS = 100;
+
+  /**
+   * Whether instances of a given {@link Configurations} subclass are
+   * known to convert the configuration values they expose with their
+   * {@link #convert(String, Type)} method, indexed by subclass.
+   *
+   * <p>This field is never {@code null}.</p>
+   *
+   * @see #isConvertingWithConvert()
+   */
+  private static final ConcurrentMap<Class<?>, Boolean> convertingWithConvert = new ConcurrentHashMap<>();
+
 
   /*
    * Instance fields.
@@ -63,6 +115,90 @@ public abstract class Configurations {
    */
   protected final Logger logger;
 
+  /**
+   * A counter incremented every time the {@link
+   * #configurationChanged()} method is called.
+   *
+   * <p>This field is never {@code null}.</p>
+   *
+   * @see #configurationChanged()
+   */
+  private final AtomicLong version;
+
+  /**
+   * A {@link BloomFilter} built from the return value of the {@link
+   * #getNames()} method, used to avoid looking up names that cannot
+   * have values.
+   *
+   * <p>This field is never {@code null}.  The {@link BloomFilter}
+   * it refers to may be {@code null}, and is only used if the {@link
+   * #isNameIndexingEnabled()} method returns {@code true}.</p>
+   *
+   * @see #isNameIndexingEnabled()
+   */
+  private final AtomicReference<BloomFilter> nameFilter;
+
+  /**
+   * Whether a thread is currently building a new {@link
+   * #nameFilter}.
+   *
+   * <p>Only one thread at a time builds a {@link BloomFilter}; while
+   * it does so, other threads behave as though the name they are
+   * testing might be present rather than building one of their
+   * own.</p>
+   *
+   * <p>This field is never {@code null}.</p>
+   *
+   * @see #mightContainName(String)
+   */
+  private final AtomicBoolean nameFilterBuilding;
+
+  /**
+   * A {@link NameIndex} built from the return value of the {@link
+   * #getNames()} method, used to answer prefix queries.
+   *
+   * <p>This field may be {@code null}, and is only used if the {@link
+   * #isNameIndexingEnabled()} method returns {@code true}.</p>
+   *
+   * @see #getNames(String)
+   */
+  private volatile NameIndex nameIndex;
+
+  /**
+   * Whether a thread is currently building a new {@link
+   * #nameIndex}.
+   *
+   * <p>Only one thread at a time builds a {@link NameIndex}; while it
+   * does so, other threads examine every name instead of building
+   * one of their own.</p>
+   *
+   * <p>This field is never {@code null}.</p>
+   *
+   * @see #getNames(String)
+   */
+  private final AtomicBoolean nameIndexBuilding;
+
+  /**
+   * A record of the names of the configuration properties whose
+   * values changed at recent versions.
+   *
+   * <p>This field is never {@code null}.</p>
+   *
+   * @see #configurationChanged(Set)
+   */
+  private final ChangeLog changeLog;
+
+  /**
+   * Memoized conversions of {@link String}-typed default values,
+   * keyed by the {@link Type} to which they were converted and then
+   * by the default value itself.
+   *
+   * <p>This field is never {@code null}.</p>
+   *
+   * @see #getConvertedDefaultValue(Map, String, Type, String)
+   */
+  private final ConcurrentMap<Type, ConcurrentMap<String, Object>> convertedDefaultValues;
+
 
   /*
    * Constructors.
@@ -79,6 +215,12 @@ public abstract class Configurations {
    */
   protected Configurations() {
     super();
+    this.version = new AtomicLong();
+    this.nameFilter = new AtomicReference<>();
+    this.nameFilterBuilding = new AtomicBoolean();
+    this.nameIndexBuilding = new AtomicBoolean();
+    this.changeLog = new ChangeLog();
+    this.convertedDefaultValues = new ConcurrentHashMap<>();
     this.logger = this.createLogger();
     if (this.logger == null) {
       throw new IllegalStateException("createLogger() == null");
@@ -105,6 +247,250 @@ public abstract class Configurations {
     return Logger.getLogger(this.getClass().getName());
   }
 
+  /**
+   * Returns {@code true} if this {@link Configurations} may build
+   * and consult indexes derived from the return value of its {@link
+   * #getNames()} method to avoid looking up names that cannot have
+   * values.
+   *
+   * <p>The default implementation of this method returns {@code
+   * false}.</p>
+   *
+   * <p>Subclasses that override this method to return {@code true}
+   * must guarantee that their {@link #getNames()} method returns the
+   * name of every configuration property for which a value might be
+   * returned, and must call the {@link #configurationChanged()}
+   * method whenever the set of such names changes, such as after a
+   * reload.</p>
+   *
+   * @return {@code true} if indexes derived from the return value of
+   * the {@link #getNames()} method may be used; {@code false}
+   * otherwise
+   *
+   * @see #configurationChanged()
+   *
+   * @see #getNames()
+   */
+  protected boolean isNameIndexingEnabled() {
+    return false;
+  }
+
+  /**
+   * Returns {@code true} if this {@link Configurations} calls the
+   * {@link #configurationChanged()} method, or the {@link
+   * #configurationChanged(Set)} method, whenever any configuration
+   * value it exposes changes, so that values derived from them may
+   * be retained until then.
+   *
+   * <p>The default implementation of this method returns {@code
+   * false}.</p>
+   *
+   * <p>Subclasses whose configuration values never change, or that
+   * report every change before exposing changed configuration values,
+   * are encouraged to override this method to return {@code
+   * true}.</p>
+   *
+   * @return {@code true} if every change to the configuration values
+   * of this {@link Configurations} is reported; {@code false}
+   * otherwise
+   *
+   * @see #configurationChanged()
+   *
+   * @see #interpolate()
+   */
+  protected boolean isChangeReportingEnabled() {
+    return false;
+  }
+
+  /**
+   * Notifies this {@link Configurations} that the configuration
+   * values it exposes, or the names of the configuration properties
+   * for which it might return values, have changed.
+   *
+   * <p>Subclasses should call this method whenever they reload or
+   * otherwise alter their configuration values.  Any state derived
+   * from the prior configuration, such as indexes built from the
+   * return value of the {@link #getNames()} method, will be
+   * discarded and lazily rebuilt.</p>
+   *
+   * <p>This method is safe for concurrent use by multiple
+   * threads.</p>
+   *
+   * @see #isNameIndexingEnabled()
+   *
+   * @see #configurationChanged(Set)
+   */
+  protected final void configurationChanged() {
+    this.changeLog.record(this.version.incrementAndGet(), null);
+    this.nameFilter.set(null);
+    this.nameIndex = null;
+    this.convertedDefaultValues.clear();
+  }
+
+  /**
+   * Notifies this {@link Configurations} that the configuration
+   * values it exposes for configuration properties with the supplied
+   * {@code names}, and only those, have changed, possibly because
+   * such properties were added or removed.
+   *
+   * <p>This method behaves like the {@link #configurationChanged()}
+   * method, except that {@link Configurations} implementations that
+   * {@linkplain CachingConfigurations cache} or {@linkplain
+   * #bind(Map) flatten} the values of this {@link Configurations}
+   * discard only what they derived from the configuration
+   * properties with the supplied {@code names}, provided they catch
+   * up before many more changes are reported.  The supplied {@code
+   * names} are typically {@linkplain
+   * ConfigurationValueDiff#getChangedNames() those} of a {@link
+   * ConfigurationValueDiff} computed after a reload.</p>
+   *
+   * <p>If {@code names} is empty, this method does nothing.</p>
+   *
+   * <p>This method is safe for concurrent use by multiple
+   * threads.</p>
+   *
+   * @param names the names of the configuration properties whose
+   * values have changed; must not be {@code null}
+   *
+   * @exception NullPointerException if {@code names} is {@code null}
+   *
+   * @see ConfigurationValueDiff
+   *
+   * @see #configurationChanged()
+   */
+  protected final void configurationChanged(final Set<String> names) {
+    if (!names.isEmpty()) {
+      final Set<String> changedNames = Collections.unmodifiableSet(new HashSet<>(names));
+      final long version = this.version.incrementAndGet();
+      this.changeLog.record(version, changedNames);
+      final BloomFilter nameFilter = this.nameFilter.get();
+      if (nameFilter != null) {
+        // Names may only have been added, so a filter that reflects
+        // the immediately preceding version remains correct once the
+        // changed names are added to it.  Any other filter, or one
+        // that another thread has replaced in the meantime, may be
+        // missing names and is discarded so that it is rebuilt.
+        final BloomFilter newNameFilter;
+        if (nameFilter.getVersion() == version - 1L) {
+          newNameFilter = new BloomFilter(nameFilter, changedNames, version);
+        } else {
+          newNameFilter = null;
+        }
+        if (!this.nameFilter.compareAndSet(nameFilter, newNameFilter)) {
+          this.nameFilter.set(null);
+        }
+      }
+      this.nameIndex = null;
+    }
+  }
+
+  /**
+   * Returns the names of the configuration properties whose values
+   * have changed since this {@link Configurations} was at the
+   * supplied {@code version}, or {@code null} if they cannot be
+   * known, in which case any configuration value may have changed.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * <p>Implementations of {@link Configurations} that delegate to
+   * another {@link Configurations} override this method to return
+   * the changed names of their delegate.</p>
+   *
+   * @param version a version previously returned by the {@link
+   * #getVersion()} method
+   *
+   * @return an immutable {@link Set} of names, or {@code null}
+   *
+   * @see #configurationChanged(Set)
+   */
+  Set<String> getChangedNames(final long version) {
+    return this.changeLog.getChangedNames(version, this.version.get());
+  }
+
+  /**
+   * Returns the number of times the {@link #configurationChanged()}
+   * method has been called on this {@link Configurations}.
+   *
+   * @return the version of this {@link Configurations}; always zero
+   * or a positive integer
+   *
+   * <p>Implementations of {@link Configurations} that delegate to
+   * another {@link Configurations} override this method to return
+   * the version of their delegate.</p>
+   *
+   * @see #configurationChanged()
+   */
+  long getVersion() {
+    return this.version.get();
+  }
+
+  /**
+   * Returns {@code false} if the supplied {@code name} is definitely
+   * not the name of a configuration property for which this {@link
+   * Configurations} might return a value, and {@code true} if it
+   * might be.
+   *
+   * <p>If the {@link #isNameIndexingEnabled()} method returns {@code
+   * false}, then this method always returns {@code true}.  It also
+   * returns {@code true} while another thread is rebuilding the
+   * {@link BloomFilter} after a {@linkplain #configurationChanged()
+   * change}, so that a reload does not cause every thread performing
+   * lookups to rebuild it at once.</p>
+   *
+   * @param name the name to test; may be {@code null}
+   *
+   * @return {@code false} if the supplied {@code name} is definitely
+   * not the name of a configuration property for which this {@link
+   * Configurations} might return a value; {@code true} otherwise
+   *
+   * @see #isNameIndexingEnabled()
+   */
+  private final boolean mightContainName(final String name) {
+    if (name == null || !this.isNameIndexingEnabled()) {
+      return true;
+    }
+    final long version = this.version.get();
+    final BloomFilter priorNameFilter = this.nameFilter.get();
+    BloomFilter nameFilter = priorNameFilter;
+    if (nameFilter == null || nameFilter.getVersion() != version) {
+      if (!this.nameFilterBuilding.compareAndSet(false, true)) {
+        return true;
+      }
+      try {
+        nameFilter = new BloomFilter(this.getNames(), version);
+        // Publish the new filter only if no other thread has replaced
+        // the stale one in the meantime, so that a newer filter is
+        // never overwritten by this one.
+        this.nameFilter.compareAndSet(priorNameFilter, nameFilter);
+      } finally {
+        this.nameFilterBuilding.set(false);
+      }
+    }
+    return nameFilter.mightContain(name);
+  }
+
+  /**
+   * Returns the configuration coordinates that the {@code getValue}
+   * overloads (and similar methods) that do not accept configuration
+   * coordinates use: those of the innermost {@linkplain
+   * ScopedCoordinates#enter(Map) scope} in effect on the current
+   * thread, if there is one and they are non-{@code null}, or those
+   * returned by the {@link #getConfigurationCoordinates()} method
+   * otherwise.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @return the configuration coordinates in effect, or {@code null}
+   *
+   * @see ScopedCoordinates#current()
+   *
+   * @see #getConfigurationCoordinates()
+   */
+  private final Map<String, String> getCurrentConfigurationCoordinates() {
+    final Map<String, String> scopedConfigurationCoordinates = ScopedCoordinates.current();
+    return scopedConfigurationCoordinates == null ? this.getConfigurationCoordinates() : scopedConfigurationCoordinates;
+  }
+
   /**
    * Returns a non-{@code null}, {@linkplain
    * Collections#unmodifiableSet(Set) immutable} {@link Set} of {@link
@@ -122,6 +508,43 @@ public abstract class Configurations {
    */
   public abstract Set<Type> getConversionTypes();
 
+  /**
+   * Converts the supplied {@code value} to an object of the type
+   * represented by the supplied {@code type}, in the same way that
+   * this {@link Configurations} converts the configuration values it
+   * exposes, if possible.
+   *
+   * <p>This method returns {@code null} if the supplied {@code value}
+   * is {@code null}.</p>
+   *
+   * <p>The default implementation of this method calls the {@link
+   * Conversions#convert(CharSequence, Type)} method.  {@link
+   * AbstractConfigurations} overrides it, and {@link
+   * ForwardingConfigurations} overrides it to call its delegate.</p>
+   *
+   * @param <T> the type to which the supplied {@code value} will be
+   * converted
+   *
+   * @param value the value to convert; may be {@code null}
+   *
+   * @param type a {@link Type} representing the type to which the
+   * supplied {@code value} will be converted; must not be {@code
+   * null}
+   *
+   * @return the converted value, or {@code null}
+   *
+   * @exception NullPointerException if {@code type} is {@code null}
+   *
+   * @exception ConversionException if the supplied {@code value}
+   * could not be converted for any reason
+   *
+   * @see #interpolate()
+   */
+  @SuppressWarnings("unchecked")
+  protected <T> T convert(final String value, final Type type) {
+    return (T)Conversions.convert(value, type);
+  }
+
   /**
    * Returns a {@link Map} of <em>configuration
    * coordinates</em>&mdash;aspects and their values that define a
@@ -130,8 +553,16 @@ public abstract class Configurations {
    *
    * <p>Implementations of this method may return {@code null}.</p>
    *
+   * <p>The {@code getValue} overloads (and similar methods) that do
+   * not accept configuration coordinates use the configuration
+   * coordinates returned by this method unless a {@linkplain
+   * ScopedCoordinates#enter(Map) scope} with non-{@code null}
+   * configuration coordinates is in effect on the current thread.</p>
+   *
    * @return a {@link Map} of configuration coordinates; may be {@code
    * null}
+   *
+   * @see ScopedCoordinates
    */
   public abstract Map<String, String> getConfigurationCoordinates();
 
@@ -154,7 +585,7 @@ public abstract class Configurations {
    * @see #getValue(Map, String, Type, String)
    */
   public final String getValue(final String name) {
-    return this.getValue(this.getConfigurationCoordinates(), name, String.class, null);
+    return this.getValue(this.getCurrentConfigurationCoordinates(), name, String.class, null);
   }
 
   /**
@@ -180,7 +611,7 @@ public abstract class Configurations {
    * @see #getValue(Map, String, Type, String)
    */
   public final String getValue(final String name, final String defaultValue) {
-    return this.getValue(this.getConfigurationCoordinates(), name, String.class, defaultValue);
+    return this.getValue(this.getCurrentConfigurationCoordinates(), name, String.class, defaultValue);
   }
 
   /**
@@ -271,7 +702,7 @@ public abstract class Configurations {
    * @see #getValue(Map, String, Type, String)
    */
   public final <T> T getValue(final String name, final Class<T> type) {
-    return this.getValue(this.getConfigurationCoordinates(), name, type, null);
+    return this.getValue(this.getCurrentConfigurationCoordinates(), name, type, null);
   }
 
   /**
@@ -307,7 +738,7 @@ public abstract class Configurations {
    * @see #getValue(Map, String, Type, String)
    */
   public final <T> T getValue(final String name, final Class<T> type, final String defaultValue) {
-    return this.getValue(this.getConfigurationCoordinates(), name, type, defaultValue);
+    return this.getValue(this.getCurrentConfigurationCoordinates(), name, type, defaultValue);
   }
 
   /**
@@ -387,7 +818,7 @@ public abstract class Configurations {
    * @see #getValue(Map, String, Type, String)
    */
   public final <T> T getValue(final Map<String, String> configurationCoordinates, final String name, final Class<T> type, final String defaultValue) {
-    return this.getValue(configurationCoordinates, name, (Type)type, defaultValue);
+    return this.getValueWithDefault(configurationCoordinates, name, type, defaultValue);
   }
 
   /**
@@ -422,7 +853,7 @@ public abstract class Configurations {
    * @see #getValue(Map, String, Type, String)
    */
   public final <T> T getValue(final String name, final TypeLiteral<T> typeLiteral) {
-    return this.getValue(this.getConfigurationCoordinates(), name, typeLiteral, null);
+    return this.getValue(this.getCurrentConfigurationCoordinates(), name, typeLiteral, null);
   }
 
   /**
@@ -461,7 +892,7 @@ public abstract class Configurations {
    * @see #getValue(Map, String, Type, String)
    */
   public final <T> T getValue(final String name, final TypeLiteral<T> typeLiteral, final String defaultValue) {
-    return this.getValue(this.getConfigurationCoordinates(), name, typeLiteral, defaultValue);
+    return this.getValue(this.getCurrentConfigurationCoordinates(), name, typeLiteral, defaultValue);
   }
 
   /**
@@ -544,7 +975,7 @@ public abstract class Configurations {
    * @see #getValue(Map, String, Type, String)
    */
   public final <T> T getValue(final Map<String, String> configurationCoordinates, final String name, final TypeLiteral<T> typeLiteral, final String defaultValue) {
-    return this.getValue(configurationCoordinates, name, typeLiteral == null ? (Type)null : typeLiteral.getType(), defaultValue);
+    return this.getValueWithDefault(configurationCoordinates, name, typeLiteral == null ? (Type)null : typeLiteral.getType(), defaultValue);
   }
 
   /**
@@ -578,7 +1009,7 @@ public abstract class Configurations {
    * @see #getValue(Map, String, Type, String)
    */
   public final <T> T getValue(final String name, final Type type) {
-    return this.getValue(this.getConfigurationCoordinates(), name, type, null);
+    return this.getValue(this.getCurrentConfigurationCoordinates(), name, type, null);
   }
 
   /**
@@ -617,7 +1048,7 @@ public abstract class Configurations {
    * @see #getValue(Map, String, Type, String)
    */
   public final <T> T getValue(final String name, final Type type, final String defaultValue) {
-    return this.getValue(this.getConfigurationCoordinates(), name, type, defaultValue);
+    return this.getValueWithDefault(this.getCurrentConfigurationCoordinates(), name, type, defaultValue);
   }
 
   /**
@@ -700,93 +1131,112 @@ public abstract class Configurations {
 
   /**
    * Returns a configuration value corresponding to the configuration
-   * property suitable for the supplied {@code
-   * configurationCoordinates} and {@code name}, or the supplied
-   * {@code defaultValue} if {@code null} would otherwise be returned.
+   * property suitable for the supplied {@code name}, converted, if
+   * possible, to the type represented by the supplied {@code
+   * type}, or the supplied, already-typed {@code defaultValue}
+   * if {@code null} would otherwise be returned.
    *
    * <p>This method may return {@code null}.</p>
    *
-   * @param configurationCoordinates a {@link Map} representing the
-   * configuration coordinates in effect for this request; may be
-   * {@code null}
+   * <p>Unlike the {@code getValue} overloads that accept a {@link
+   * String}-typed default value, this method never converts the
+   * supplied {@code defaultValue}.</p>
    *
-   * @param names names of configuration properties for which a value
-   * will be returned; each element will be tried in turn; must not be
-   * {@code null}
+   * @param <T> the type to which a {@link String}-typed configuration
+   * value should be converted
+   *
+   * @param name the name of the configuration property for which a
+   * value will be returned; must not be {@code null}
+   *
+   * @param type a {@link Class} representing the type to which the
+   * configuration value will be converted; must not be {@code null}
    *
    * @param defaultValue the value that will be returned if {@code
    * null} would otherwise be returned; may be {@code null}
    *
-   * @return the configuration value, or {@code null}
+   * @return the configuration value, or the supplied {@code
+   * defaultValue}
    *
    * @exception NullPointerException if {@code name} or {@code type}
    * is {@code null}
    *
+   * @exception ConversionException if type conversion could not occur
+   * for any reason
+   *
    * @exception AmbiguousConfigurationValuesException if two or more
    * values were found that could be suitable
+   *
+   * @see #getValueOrDefault(Map, String, Type, Object)
    */
-  public final String getValue(final Map<String, String> configurationCoordinates, final Collection<String> names, final String defaultValue) {
-    return this.getValue(configurationCoordinates, names, String.class, defaultValue);
+  public final <T> T getValueOrDefault(final String name, final Class<T> type, final T defaultValue) {
+    return this.getValueOrDefault(this.getCurrentConfigurationCoordinates(), name, (Type)type, defaultValue);
   }
 
   /**
    * Returns a configuration value corresponding to the configuration
-   * property suitable for the supplied {@code
-   * configurationCoordinates} and {@code name}, or null.
+   * property suitable for the supplied {@code name}, converted, if
+   * possible, to the type represented by the supplied {@code
+   * typeLiteral}, or the supplied, already-typed {@code defaultValue}
+   * if {@code null} would otherwise be returned.
    *
    * <p>This method may return {@code null}.</p>
    *
-   * @param configurationCoordinates a {@link Map} representing the
-   * configuration coordinates in effect for this request; may be
-   * {@code null}
+   * <p>Unlike the {@code getValue} overloads that accept a {@link
+   * String}-typed default value, this method never converts the
+   * supplied {@code defaultValue}.</p>
    *
-   * @param names names of configuration properties for which a value
-   * will be returned; each element will be tried in turn; must not be
+   * @param <T> the type to which a {@link String}-typed configuration
+   * value should be converted
+   *
+   * @param name the name of the configuration property for which a
+   * value will be returned; must not be {@code null}
+   *
+   * @param typeLiteral a {@link TypeLiteral} representing the type to
+   * which the configuration value will be converted; must not be
    * {@code null}
    *
-   * @return the configuration value, or {@code null}
+   * @param defaultValue the value that will be returned if {@code
+   * null} would otherwise be returned; may be {@code null}
    *
-   * @exception NullPointerException if {@code names} or {@code type}
+   * @return the configuration value, or the supplied {@code
+   * defaultValue}
+   *
+   * @exception NullPointerException if {@code name} or {@code typeLiteral}
    * is {@code null}
    *
+   * @exception ConversionException if type conversion could not occur
+   * for any reason
+   *
    * @exception AmbiguousConfigurationValuesException if two or more
    * values were found that could be suitable
+   *
+   * @see #getValueOrDefault(Map, String, Type, Object)
    */
-  public final String getValue(final Map<String, String> configurationCoordinates, final Collection<String> names) {
-    return this.getValue(configurationCoordinates, names, String.class, null);
+  public final <T> T getValueOrDefault(final String name, final TypeLiteral<T> typeLiteral, final T defaultValue) {
+    return this.getValueOrDefault(this.getCurrentConfigurationCoordinates(), name, typeLiteral == null ? (Type)null : typeLiteral.getType(), defaultValue);
   }
 
   /**
    * Returns a configuration value corresponding to the configuration
-   * property suitable for the supplied {@code names}, or null.
+   * property suitable for the supplied {@code name}, converted, if
+   * possible, to the type represented by the supplied {@code
+   * type}, or the supplied, already-typed {@code defaultValue}
+   * if {@code null} would otherwise be returned.
    *
    * <p>This method may return {@code null}.</p>
    *
-   * @param names names of configuration properties for which a value
-   * will be returned; each element will be tried in turn; must not be
-   * {@code null}
-   *
-   * @return the configuration value, or {@code null}
-   *
-   * @exception NullPointerException if {@code names} is {@code null}
+   * <p>Unlike the {@code getValue} overloads that accept a {@link
+   * String}-typed default value, this method never converts the
+   * supplied {@code defaultValue}.</p>
    *
-   * @exception AmbiguousConfigurationValuesException if two or more
-   * values were found that could be suitable
-   */
-  public final String getValue(final Collection<String> names) {
-    return this.getValue(this.getConfigurationCoordinates(), names, String.class, null);
-  }
-
-  /**
-   * Returns a configuration value corresponding to the configuration
-   * property suitable for the supplied {@code names}, or the supplied
-   * {@code defaultValue}.
+   * @param <T> the type to which a {@link String}-typed configuration
+   * value should be converted
    *
-   * <p>This method may return {@code null}.</p>
+   * @param name the name of the configuration property for which a
+   * value will be returned; must not be {@code null}
    *
-   * @param names names of configuration properties for which a value
-   * will be returned; each element will be tried in turn; must not be
-   * {@code null}
+   * @param type a {@link Type} representing the type to which the
+   * configuration value will be converted; must not be {@code null}
    *
    * @param defaultValue the value that will be returned if {@code
    * null} would otherwise be returned; may be {@code null}
@@ -794,18 +1244,1175 @@ public abstract class Configurations {
    * @return the configuration value, or the supplied {@code
    * defaultValue}
    *
-   * @exception NullPointerException if {@code names} is {@code null}
+   * @exception NullPointerException if {@code name} or {@code type}
+   * is {@code null}
+   *
+   * @exception ConversionException if type conversion could not occur
+   * for any reason
    *
    * @exception AmbiguousConfigurationValuesException if two or more
    * values were found that could be suitable
+   *
+   * @see #getValueOrDefault(Map, String, Type, Object)
    */
-  public final String getValue(final Collection<String> names, final String defaultValue) {
-    return this.getValue(this.getConfigurationCoordinates(), names, String.class, defaultValue);
+  public final <T> T getValueOrDefault(final String name, final Type type, final T defaultValue) {
+    return this.getValueOrDefault(this.getCurrentConfigurationCoordinates(), name, type, defaultValue);
   }
 
   /**
    * Returns a configuration value corresponding to the configuration
-   * property suitable for the supplied {@code names}, converted, if
+   * property suitable for the supplied {@code
+   * configurationCoordinates} and {@code name}, converted, if
+   * possible, to the type represented by the supplied {@code
+   * type}, or the supplied, already-typed {@code defaultValue}
+   * if {@code null} would otherwise be returned.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * <p>Unlike the {@code getValue} overloads that accept a {@link
+   * String}-typed default value, this method never converts the
+   * supplied {@code defaultValue}.</p>
+   *
+   * @param <T> the type to which a {@link String}-typed configuration
+   * value should be converted
+   *
+   * @param configurationCoordinates a {@link Map} representing the
+   * configuration coordinates in effect for this request; may be
+   * {@code null}
+   *
+   * @param name the name of the configuration property for which a
+   * value will be returned; must not be {@code null}
+   *
+   * @param type a {@link Class} representing the type to which the
+   * configuration value will be converted; must not be {@code null}
+   *
+   * @param defaultValue the value that will be returned if {@code
+   * null} would otherwise be returned; may be {@code null}
+   *
+   * @return the configuration value, or the supplied {@code
+   * defaultValue}
+   *
+   * @exception NullPointerException if {@code name} or {@code type}
+   * is {@code null}
+   *
+   * @exception ConversionException if type conversion could not occur
+   * for any reason
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable
+   *
+   * @see #getValueOrDefault(Map, String, Type, Object)
+   */
+  public final <T> T getValueOrDefault(final Map<String, String> configurationCoordinates, final String name, final Class<T> type, final T defaultValue) {
+    return this.getValueOrDefault(configurationCoordinates, name, (Type)type, defaultValue);
+  }
+
+  /**
+   * Returns a configuration value corresponding to the configuration
+   * property suitable for the supplied {@code
+   * configurationCoordinates} and {@code name}, converted, if
+   * possible, to the type represented by the supplied {@code
+   * typeLiteral}, or the supplied, already-typed {@code defaultValue}
+   * if {@code null} would otherwise be returned.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * <p>Unlike the {@code getValue} overloads that accept a {@link
+   * String}-typed default value, this method never converts the
+   * supplied {@code defaultValue}.</p>
+   *
+   * @param <T> the type to which a {@link String}-typed configuration
+   * value should be converted
+   *
+   * @param configurationCoordinates a {@link Map} representing the
+   * configuration coordinates in effect for this request; may be
+   * {@code null}
+   *
+   * @param name the name of the configuration property for which a
+   * value will be returned; must not be {@code null}
+   *
+   * @param typeLiteral a {@link TypeLiteral} representing the type to
+   * which the configuration value will be converted; must not be
+   * {@code null}
+   *
+   * @param defaultValue the value that will be returned if {@code
+   * null} would otherwise be returned; may be {@code null}
+   *
+   * @return the configuration value, or the supplied {@code
+   * defaultValue}
+   *
+   * @exception NullPointerException if {@code name} or {@code typeLiteral}
+   * is {@code null}
+   *
+   * @exception ConversionException if type conversion could not occur
+   * for any reason
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable
+   *
+   * @see #getValueOrDefault(Map, String, Type, Object)
+   */
+  public final <T> T getValueOrDefault(final Map<String, String> configurationCoordinates, final String name, final TypeLiteral<T> typeLiteral, final T defaultValue) {
+    return this.getValueOrDefault(configurationCoordinates, name, typeLiteral == null ? (Type)null : typeLiteral.getType(), defaultValue);
+  }
+
+  /**
+   * Returns a configuration value corresponding to the configuration
+   * property suitable for the supplied {@code
+   * configurationCoordinates} and {@code name}, converted, if
+   * possible, to the type represented by the supplied {@code
+   * type}, or the supplied, already-typed {@code defaultValue}
+   * if {@code null} would otherwise be returned.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * <p>Unlike the {@code getValue} overloads that accept a {@link
+   * String}-typed default value, this method never converts the
+   * supplied {@code defaultValue}.</p>
+   *
+   * @param <T> the type to which a {@link String}-typed configuration
+   * value should be converted
+   *
+   * @param configurationCoordinates a {@link Map} representing the
+   * configuration coordinates in effect for this request; may be
+   * {@code null}
+   *
+   * @param name the name of the configuration property for which a
+   * value will be returned; must not be {@code null}
+   *
+   * @param type a {@link Type} representing the type to which the
+   * configuration value will be converted; must not be {@code null}
+   *
+   * @param defaultValue the value that will be returned if {@code
+   * null} would otherwise be returned; may be {@code null}
+   *
+   * @return the configuration value, or the supplied {@code
+   * defaultValue}
+   *
+   * @exception NullPointerException if {@code name} or {@code type}
+   * is {@code null}
+   *
+   * @exception ConversionException if type conversion could not occur
+   * for any reason
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable
+   */
+  public final <T> T getValueOrDefault(final Map<String, String> configurationCoordinates, final String name, final Type type, final T defaultValue) {
+    final T returnValue = this.getValue(configurationCoordinates, name, type, (String)null);
+    return returnValue == null ? defaultValue : returnValue;
+  }
+
+  /**
+   * Returns a configuration value corresponding to the configuration
+   * property suitable for the supplied {@code names}, converted, if
+   * possible, to the type represented by the supplied {@code
+   * type}, or the supplied, already-typed {@code defaultValue}
+   * if {@code null} would otherwise be returned.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * <p>Unlike the {@code getValue} overloads that accept a {@link
+   * String}-typed default value, this method never converts the
+   * supplied {@code defaultValue}.</p>
+   *
+   * @param <T> the type to which a {@link String}-typed configuration
+   * value should be converted
+   *
+   * @param names names of configuration properties for which a value
+   * will be returned; each element will be tried in turn; must not be
+   * {@code null}
+   *
+   * @param type a {@link Class} representing the type to which the
+   * configuration value will be converted; must not be {@code null}
+   *
+   * @param defaultValue the value that will be returned if {@code
+   * null} would otherwise be returned; may be {@code null}
+   *
+   * @return the configuration value, or the supplied {@code
+   * defaultValue}
+   *
+   * @exception NullPointerException if {@code names} or {@code type}
+   * is {@code null}
+   *
+   * @exception ConversionException if type conversion could not occur
+   * for any reason
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable
+   *
+   * @see #getValueOrDefault(Map, Collection, Type, Object)
+   */
+  public final <T> T getValueOrDefault(final Collection<String> names, final Class<T> type, final T defaultValue) {
+    return this.getValueOrDefault(this.getCurrentConfigurationCoordinates(), names, (Type)type, defaultValue);
+  }
+
+  /**
+   * Returns a configuration value corresponding to the configuration
+   * property suitable for the supplied {@code names}, converted, if
+   * possible, to the type represented by the supplied {@code
+   * typeLiteral}, or the supplied, already-typed {@code defaultValue}
+   * if {@code null} would otherwise be returned.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * <p>Unlike the {@code getValue} overloads that accept a {@link
+   * String}-typed default value, this method never converts the
+   * supplied {@code defaultValue}.</p>
+   *
+   * @param <T> the type to which a {@link String}-typed configuration
+   * value should be converted
+   *
+   * @param names names of configuration properties for which a value
+   * will be returned; each element will be tried in turn; must not be
+   * {@code null}
+   *
+   * @param typeLiteral a {@link TypeLiteral} representing the type to
+   * which the configuration value will be converted; must not be
+   * {@code null}
+   *
+   * @param defaultValue the value that will be returned if {@code
+   * null} would otherwise be returned; may be {@code null}
+   *
+   * @return the configuration value, or the supplied {@code
+   * defaultValue}
+   *
+   * @exception NullPointerException if {@code names} or {@code typeLiteral}
+   * is {@code null}
+   *
+   * @exception ConversionException if type conversion could not occur
+   * for any reason
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable
+   *
+   * @see #getValueOrDefault(Map, Collection, Type, Object)
+   */
+  public final <T> T getValueOrDefault(final Collection<String> names, final TypeLiteral<T> typeLiteral, final T defaultValue) {
+    return this.getValueOrDefault(this.getCurrentConfigurationCoordinates(), names, typeLiteral == null ? (Type)null : typeLiteral.getType(), defaultValue);
+  }
+
+  /**
+   * Returns a configuration value corresponding to the configuration
+   * property suitable for the supplied {@code names}, converted, if
+   * possible, to the type represented by the supplied {@code
+   * type}, or the supplied, already-typed {@code defaultValue}
+   * if {@code null} would otherwise be returned.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * <p>Unlike the {@code getValue} overloads that accept a {@link
+   * String}-typed default value, this method never converts the
+   * supplied {@code defaultValue}.</p>
+   *
+   * @param <T> the type to which a {@link String}-typed configuration
+   * value should be converted
+   *
+   * @param names names of configuration properties for which a value
+   * will be returned; each element will be tried in turn; must not be
+   * {@code null}
+   *
+   * @param type a {@link Type} representing the type to which the
+   * configuration value will be converted; must not be {@code null}
+   *
+   * @param defaultValue the value that will be returned if {@code
+   * null} would otherwise be returned; may be {@code null}
+   *
+   * @return the configuration value, or the supplied {@code
+   * defaultValue}
+   *
+   * @exception NullPointerException if {@code names} or {@code type}
+   * is {@code null}
+   *
+   * @exception ConversionException if type conversion could not occur
+   * for any reason
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable
+   *
+   * @see #getValueOrDefault(Map, Collection, Type, Object)
+   */
+  public final <T> T getValueOrDefault(final Collection<String> names, final Type type, final T defaultValue) {
+    return this.getValueOrDefault(this.getCurrentConfigurationCoordinates(), names, type, defaultValue);
+  }
+
+  /**
+   * Returns a configuration value corresponding to the configuration
+   * property suitable for the supplied {@code
+   * configurationCoordinates} and {@code names}, converted, if
+   * possible, to the type represented by the supplied {@code
+   * type}, or the supplied, already-typed {@code defaultValue}
+   * if {@code null} would otherwise be returned.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * <p>Unlike the {@code getValue} overloads that accept a {@link
+   * String}-typed default value, this method never converts the
+   * supplied {@code defaultValue}.</p>
+   *
+   * @param <T> the type to which a {@link String}-typed configuration
+   * value should be converted
+   *
+   * @param configurationCoordinates a {@link Map} representing the
+   * configuration coordinates in effect for this request; may be
+   * {@code null}
+   *
+   * @param names names of configuration properties for which a value
+   * will be returned; each element will be tried in turn; must not be
+   * {@code null}
+   *
+   * @param type a {@link Class} representing the type to which the
+   * configuration value will be converted; must not be {@code null}
+   *
+   * @param defaultValue the value that will be returned if {@code
+   * null} would otherwise be returned; may be {@code null}
+   *
+   * @return the configuration value, or the supplied {@code
+   * defaultValue}
+   *
+   * @exception NullPointerException if {@code names} or {@code type}
+   * is {@code null}
+   *
+   * @exception ConversionException if type conversion could not occur
+   * for any reason
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable
+   *
+   * @see #getValueOrDefault(Map, Collection, Type, Object)
+   */
+  public final <T> T getValueOrDefault(final Map<String, String> configurationCoordinates, final Collection<String> names, final Class<T> type, final T defaultValue) {
+    return this.getValueOrDefault(configurationCoordinates, names, (Type)type, defaultValue);
+  }
+
+  /**
+   * Returns a configuration value corresponding to the configuration
+   * property suitable for the supplied {@code
+   * configurationCoordinates} and {@code names}, converted, if
+   * possible, to the type represented by the supplied {@code
+   * typeLiteral}, or the supplied, already-typed {@code defaultValue}
+   * if {@code null} would otherwise be returned.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * <p>Unlike the {@code getValue} overloads that accept a {@link
+   * String}-typed default value, this method never converts the
+   * supplied {@code defaultValue}.</p>
+   *
+   * @param <T> the type to which a {@link String}-typed configuration
+   * value should be converted
+   *
+   * @param configurationCoordinates a {@link Map} representing the
+   * configuration coordinates in effect for this request; may be
+   * {@code null}
+   *
+   * @param names names of configuration properties for which a value
+   * will be returned; each element will be tried in turn; must not be
+   * {@code null}
+   *
+   * @param typeLiteral a {@link TypeLiteral} representing the type to
+   * which the configuration value will be converted; must not be
+   * {@code null}
+   *
+   * @param defaultValue the value that will be returned if {@code
+   * null} would otherwise be returned; may be {@code null}
+   *
+   * @return the configuration value, or the supplied {@code
+   * defaultValue}
+   *
+   * @exception NullPointerException if {@code names} or {@code typeLiteral}
+   * is {@code null}
+   *
+   * @exception ConversionException if type conversion could not occur
+   * for any reason
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable
+   *
+   * @see #getValueOrDefault(Map, Collection, Type, Object)
+   */
+  public final <T> T getValueOrDefault(final Map<String, String> configurationCoordinates, final Collection<String> names, final TypeLiteral<T> typeLiteral, final T defaultValue) {
+    return this.getValueOrDefault(configurationCoordinates, names, typeLiteral == null ? (Type)null : typeLiteral.getType(), defaultValue);
+  }
+
+  /**
+   * Returns a configuration value corresponding to the configuration
+   * property suitable for the supplied {@code
+   * configurationCoordinates} and {@code names}, converted, if
+   * possible, to the type represented by the supplied {@code
+   * type}, or the supplied, already-typed {@code defaultValue}
+   * if {@code null} would otherwise be returned.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * <p>Unlike the {@code getValue} overloads that accept a {@link
+   * String}-typed default value, this method never converts the
+   * supplied {@code defaultValue}.</p>
+   *
+   * @param <T> the type to which a {@link String}-typed configuration
+   * value should be converted
+   *
+   * @param configurationCoordinates a {@link Map} representing the
+   * configuration coordinates in effect for this request; may be
+   * {@code null}
+   *
+   * @param names names of configuration properties for which a value
+   * will be returned; each element will be tried in turn; must not be
+   * {@code null}
+   *
+   * @param type a {@link Type} representing the type to which the
+   * configuration value will be converted; must not be {@code null}
+   *
+   * @param defaultValue the value that will be returned if {@code
+   * null} would otherwise be returned; may be {@code null}
+   *
+   * @return the configuration value, or the supplied {@code
+   * defaultValue}
+   *
+   * @exception NullPointerException if {@code names} or {@code type}
+   * is {@code null}
+   *
+   * @exception ConversionException if type conversion could not occur
+   * for any reason
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable
+   */
+  public final <T> T getValueOrDefault(final Map<String, String> configurationCoordinates, final Collection<String> names, final Type type, final T defaultValue) {
+    final T returnValue = this.getValue(configurationCoordinates, names, type, (String)null);
+    return returnValue == null ? defaultValue : returnValue;
+  }
+
+  /**
+   * Returns a configuration value corresponding to the configuration
+   * property suitable for the supplied {@code
+   * configurationCoordinates} and {@code name}, or the supplied
+   * {@code defaultValue} if {@code null} would otherwise be returned,
+   * converted, if possible, to the type represented by the supplied
+   * {@code type}, memoizing the conversion of the supplied {@code
+   * defaultValue}.
+   *
+   * @param <T> the type to which a {@link String}-typed configuration
+   * value should be converted
+   *
+   * @param configurationCoordinates a {@link Map} representing the
+   * configuration coordinates in effect for this request; may be
+   * {@code null}
+   *
+   * @param name the name of the configuration property for which a
+   * value will be returned; must not be {@code null}
+   *
+   * @param type a {@link Type} representing the type to which the
+   * configuration value will be converted; must not be {@code null}
+   *
+   * @param defaultValue the value that will be converted and returned
+   * if {@code null} would otherwise be returned; may be {@code null}
+   *
+   * @return the configuration value, or {@code null}
+   *
+   * @exception NullPointerException if {@code name} or {@code type}
+   * is {@code null}
+   *
+   * @exception ConversionException if type conversion could not occur
+   * for any reason
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable
+   *
+   * @see #getConvertedDefaultValue(Map, String, Type, String)
+   */
+  private final <T> T getValueWithDefault(final Map<String, String> configurationCoordinates, final String name, final Type type, final String defaultValue) {
+    T returnValue = this.getValue(configurationCoordinates, name, type, null);
+    if (returnValue == null && defaultValue != null) {
+      returnValue = this.getConvertedDefaultValue(configurationCoordinates, name, type, defaultValue);
+    }
+    return returnValue;
+  }
+
+  /**
+   * Returns the result of converting the supplied {@code
+   * defaultValue} to the type represented by the supplied {@code
+   * type}.
+   *
+   * <p>This method is called only after a call to the {@link
+   * #getValue(Map, String, Type, String)} method with a {@code null}
+   * default value has returned {@code null}.  If this {@link
+   * Configurations} is {@linkplain #isConvertingWithConvert() known}
+   * to convert the values it exposes with its {@link #convert(String,
+   * Type)} method, the conversion is delegated to that method, without
+   * looking the configuration property up again, and memoized so that
+   * subsequent calls with the same {@code defaultValue} and {@code
+   * type} do not convert it again.  Otherwise the {@link
+   * #getValue(Map, String, Type, String)} method is called again with
+   * the supplied {@code defaultValue}, so that implementations that
+   * perform their own conversions convert it.</p>
+   *
+   * @param <T> the type to which the supplied {@code defaultValue}
+   * should be converted
+   *
+   * @param configurationCoordinates a {@link Map} representing the
+   * configuration coordinates in effect for the request; may be
+   * {@code null}
+   *
+   * @param name the name of the configuration property for which a
+   * value was requested; may be {@code null} only if the request was
+   * made with no name
+   *
+   * @param type a {@link Type} representing the type to which the
+   * supplied {@code defaultValue} will be converted; must not be
+   * {@code null}
+   *
+   * @param defaultValue the value to convert; must not be {@code
+   * null}
+   *
+   * @return the converted default value, or {@code null}
+   *
+   * @exception NullPointerException if {@code type} is {@code null}
+   *
+   * @exception ConversionException if type conversion could not occur
+   * for any reason
+   */
+  @SuppressWarnings("unchecked")
+  private final <T> T getConvertedDefaultValue(final Map<String, String> configurationCoordinates,
+                                               final String name,
+                                               final Type type,
+                                               final String defaultValue) {
+    Objects.requireNonNull(type);
+    if (!this.isConvertingWithConvert()) {
+      return this.getValue(configurationCoordinates, name, type, defaultValue);
+    }
+    ConcurrentMap<String, Object> convertedDefaultValues = this.convertedDefaultValues.get(type);
+    T returnValue = convertedDefaultValues == null ? null : (T)convertedDefaultValues.get(defaultValue);
+    if (returnValue == null) {
+      returnValue = this.convert(defaultValue, type);
+      if (returnValue != null) {
+        if (convertedDefaultValues == null) {
+          convertedDefaultValues = new ConcurrentHashMap<>();
+          final ConcurrentMap<String, Object> old = this.convertedDefaultValues.putIfAbsent(type, convertedDefaultValues);
+          if (old != null) {
+            convertedDefaultValues = old;
+          }
+        }
+        if (convertedDefaultValues.size() < MAX_CONVERTED_DEFAULT_VALUES_PER_TYPE) {
+          convertedDefaultValues.putIfAbsent(defaultValue, returnValue);
+        }
+      }
+    }
+    return returnValue;
+  }
+  /**
+   * Returns {@code true} if this {@link Configurations} is known to
+   * convert the configuration values it exposes with its {@link
+   * #convert(String, Type)} method, so that a default value may be
+   * converted by that method rather than by the {@link #getValue(Map,
+   * String, Type, String)} method.
+   *
+   * <p>A {@link Configurations} is known to do so if it is an {@link
+   * AbstractConfigurations} that does not override the {@link
+   * #getValue(Map, String, Type, String)} method, or if it overrides
+   * the {@link #convert(String, Type)} method itself.  {@link
+   * ForwardingConfigurations} overrides this method to consult its
+   * delegate as well.</p>
+   *
+   * @return {@code true} if this {@link Configurations} is known to
+   * convert the configuration values it exposes with its {@link
+   * #convert(String, Type)} method
+   *
+   * @see #getConvertedDefaultValue(Map, String, Type, String)
+   */
+  boolean isConvertingWithConvert() {
+    return convertingWithConvert.computeIfAbsent(this.getClass(), c -> isConvertingWithConvert(c)).booleanValue();
+  }
+
+
+  /**
+   * Returns the {@link ConfigurationValue} that would be used to
+   * produce a configuration value for the configuration property
+   * with the supplied {@code name} in the location in configuration
+   * space identified by the supplied {@code
+   * configurationCoordinates}, or {@code null} if there is no such
+   * {@link ConfigurationValue}.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * <p>The default implementation of this method calls the {@link
+   * #getValue(Map, String, Type, String)} method with {@link
+   * String String.class} as the type and, if a non-{@code null}
+   * value results, returns a new, non-{@linkplain
+   * ConfigurationValue#isAuthoritative() authoritative} {@link
+   * ConfigurationValue} whose {@linkplain
+   * ConfigurationValue#getSource() source} is the name of this {@link
+   * Configurations}' class and whose {@linkplain
+   * ConfigurationValue#getCoordinates() coordinates} are empty,
+   * since the coordinates of the value that was actually selected
+   * are unknown.  Subclasses that know which {@link
+   * ConfigurationValue} they select are encouraged to override this
+   * method to return it.</p>
+   *
+   * @param configurationCoordinates a {@link Map} representing the
+   * configuration coordinates in effect for this request; may be
+   * {@code null}
+   *
+   * @param name the name of the configuration property; must not be
+   * {@code null}
+   *
+   * @return the selected {@link ConfigurationValue}, or {@code null}
+   *
+   * @exception NullPointerException if {@code name} is {@code null}
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable
+   *
+   * @see #getValue(Map, String, Type, String)
+   */
+  public ConfigurationValue getConfigurationValue(final Map<String, String> configurationCoordinates, final String name) {
+    final String value = this.getValue(configurationCoordinates, name, String.class, null);
+    return value == null ? null : new ConfigurationValue(this.getClass().getName(), null, name, value, false);
+  }
+
+  /**
+   * Returns the {@link ConfigurationValue}s that are considered when
+   * a {@link ConfigurationValue} is {@linkplain
+   * #getConfigurationValue(Map, String) selected} for the supplied
+   * {@code configurationCoordinates} and {@code name}, or {@code
+   * null} if they cannot be known.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * <p>The default implementation of this method returns {@code
+   * null}.  Implementations that select among several {@link
+   * ConfigurationValue}s override this method so that {@linkplain
+   * LookupTracer#trace(Configurations) traces} can report the values
+   * that competed.</p>
+   *
+   * @param configurationCoordinates a {@link Map} representing the
+   * configuration coordinates in effect for this request; may be
+   * {@code null}
+   *
+   * @param name the name of the configuration property; must not be
+   * {@code null}
+   *
+   * @return an immutable {@link Collection} of {@link
+   * ConfigurationValue}s, or {@code null}
+   *
+   * @exception NullPointerException if {@code name} is {@code null}
+   *
+   * @see LookupTracer
+   */
+  Collection<? extends ConfigurationValue> getCandidates(final Map<String, String> configurationCoordinates, final String name) {
+    Objects.requireNonNull(name);
+    return null;
+  }
+
+  /**
+   * Returns a {@link Resolution} describing the outcome of a request
+   * for the {@link String}-typed value of the configuration property
+   * with the supplied {@code name}, using the {@linkplain
+   * #getConfigurationCoordinates() configuration coordinates in
+   * effect}.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param name the name of the configuration property; must not be
+   * {@code null}
+   *
+   * @return a non-{@code null} {@link Resolution}
+   *
+   * @exception NullPointerException if {@code name} is {@code null}
+   *
+   * @see #resolve(Map, String, Type, String)
+   */
+  public final Resolution<String> resolve(final String name) {
+    return this.resolve(this.getCurrentConfigurationCoordinates(), name, String.class, null);
+  }
+
+  /**
+   * Returns a {@link Resolution} describing the outcome of a request
+   * for the value of the configuration property with the supplied
+   * {@code name}, converted to the supplied {@code type}, using the
+   * {@linkplain #getConfigurationCoordinates() configuration
+   * coordinates in effect}.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param <T> the type to which the configuration value should be
+   * converted
+   *
+   * @param name the name of the configuration property; must not be
+   * {@code null}
+   *
+   * @param type a {@link Class} representing the type to which the
+   * configuration value should be converted; must not be {@code null}
+   *
+   * @return a non-{@code null} {@link Resolution}
+   *
+   * @exception NullPointerException if {@code name} or {@code type}
+   * is {@code null}
+   *
+   * @see #resolve(Map, String, Type, String)
+   */
+  public final <T> Resolution<T> resolve(final String name, final Class<T> type) {
+    return this.resolve(this.getCurrentConfigurationCoordinates(), name, type, null);
+  }
+
+  /**
+   * Returns a {@link Resolution} describing the outcome of a request
+   * for the value of the configuration property suitable for the
+   * supplied {@code configurationCoordinates} and {@code name},
+   * converted to the supplied {@code type}.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param <T> the type to which the configuration value should be
+   * converted
+   *
+   * @param configurationCoordinates the configuration coordinates in
+   * effect for the request; may be {@code null}
+   *
+   * @param name the name of the configuration property; must not be
+   * {@code null}
+   *
+   * @param type a {@link Class} representing the type to which the
+   * configuration value should be converted; must not be {@code null}
+   *
+   * @return a non-{@code null} {@link Resolution}
+   *
+   * @exception NullPointerException if {@code name} or {@code type}
+   * is {@code null}
+   *
+   * @see #resolve(Map, String, Type, String)
+   */
+  public final <T> Resolution<T> resolve(final Map<String, String> configurationCoordinates, final String name, final Class<T> type) {
+    return this.resolve(configurationCoordinates, name, type, null);
+  }
+
+  /**
+   * Returns a {@link Resolution} describing the outcome of a request
+   * for the value of the configuration property suitable for the
+   * supplied {@code configurationCoordinates} and {@code name},
+   * converted to the type represented by the supplied {@code
+   * typeLiteral}.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param <T> the type to which the configuration value should be
+   * converted
+   *
+   * @param configurationCoordinates the configuration coordinates in
+   * effect for the request; may be {@code null}
+   *
+   * @param name the name of the configuration property; must not be
+   * {@code null}
+   *
+   * @param typeLiteral a {@link TypeLiteral} representing the type to
+   * which the configuration value should be converted; must not be
+   * {@code null}
+   *
+   * @return a non-{@code null} {@link Resolution}
+   *
+   * @exception NullPointerException if {@code name} or {@code
+   * typeLiteral} is {@code null}
+   *
+   * @see #resolve(Map, String, Type, String)
+   */
+  public final <T> Resolution<T> resolve(final Map<String, String> configurationCoordinates, final String name, final TypeLiteral<T> typeLiteral) {
+    return this.resolve(configurationCoordinates, name, typeLiteral == null ? (Type)null : typeLiteral.getType(), null);
+  }
+
+  /**
+   * Returns a {@link Resolution} describing the outcome of a request
+   * for the value of the configuration property suitable for the
+   * supplied {@code configurationCoordinates} and {@code name}, or
+   * the supplied {@code defaultValue} if there is no such value,
+   * converted to the type represented by the supplied {@code type},
+   * reporting misses, ambiguities and conversion failures by way of
+   * the returned {@link Resolution}'s {@linkplain
+   * Resolution#getStatus() status} rather than by throwing
+   * exceptions.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * <p>The default implementation of this method looks the
+   * configuration value up exactly once, by calling the {@link
+   * #getValue(Map, String, Type, String)} method with a {@code null}
+   * default value, and converts the supplied {@code defaultValue}
+   * only if that returns {@code null}, without looking the
+   * configuration property up again.  Because the {@link
+   * #getValue(Map, String, Type, String)} method does not report
+   * which {@link ConfigurationValue} it selected, the returned {@link
+   * Resolution}'s {@linkplain Resolution#getConfigurationValue()
+   * configuration value} is {@code null}.  Because that method
+   * reports ambiguities and conversion failures only by throwing
+   * {@link AmbiguousConfigurationValuesException}s and {@link
+   * ConversionException}s, the default implementation catches them;
+   * implementations that can detect either without creating an
+   * exception, such as {@link AbstractConfigurations}, are encouraged
+   * to override this method.  Overrides must not return {@code
+   * null}, and should throw only {@link
+   * NullPointerException}s.</p>
+   *
+   * @param <T> the type to which the configuration value should be
+   * converted
+   *
+   * @param configurationCoordinates the configuration coordinates in
+   * effect for the request; may be {@code null}
+   *
+   * @param name the name of the configuration property; must not be
+   * {@code null}
+   *
+   * @param type a {@link Type} representing the type to which the
+   * configuration value should be converted; must not be {@code null}
+   *
+   * @param defaultValue the value that will be converted if there is
+   * no configuration value; may be {@code null}
+   *
+   * @return a non-{@code null} {@link Resolution}
+   *
+   * @exception NullPointerException if {@code name} or {@code type}
+   * is {@code null}
+   *
+   * @see Resolution
+   */
+  public <T> Resolution<T> resolve(final Map<String, String> configurationCoordinates, final String name, final Type type, final String defaultValue) {
+    Objects.requireNonNull(name);
+    Objects.requireNonNull(type);
+    T value = null;
+    try {
+      value = this.getValue(configurationCoordinates, name, type, null);
+    } catch (final AmbiguousConfigurationValuesException ambiguousConfigurationValuesException) {
+      return new Resolution<>(Resolution.Status.AMBIGUOUS,
+                              configurationCoordinates,
+                              name,
+                              null,
+                              null,
+                              ambiguousConfigurationValuesException.getValues(),
+                              ambiguousConfigurationValuesException);
+    } catch (final ConversionException conversionException) {
+      return new Resolution<>(Resolution.Status.CONVERSION_FAILED,
+                              configurationCoordinates,
+                              name,
+                              null,
+                              null,
+                              null,
+                              conversionException);
+    }
+    final Resolution.Status status;
+    if (value != null) {
+      status = Resolution.Status.FOUND;
+    } else if (defaultValue == null) {
+      status = Resolution.Status.NOT_FOUND;
+    } else {
+      try {
+        value = this.getConvertedDefaultValue(configurationCoordinates, name, type, defaultValue);
+      } catch (final ConversionException conversionException) {
+        return new Resolution<>(Resolution.Status.CONVERSION_FAILED,
+                                configurationCoordinates,
+                                name,
+                                null,
+                                null,
+                                null,
+                                conversionException);
+      }
+      status = value == null ? Resolution.Status.NOT_FOUND : Resolution.Status.DEFAULTED;
+    }
+    return new Resolution<>(status, configurationCoordinates, name, value, null, null, null);
+  }
+
+
+  /**
+   * Returns a read-only {@link ByteBuffer} containing the UTF-8
+   * encoding of the configuration value corresponding to the
+   * configuration property with the supplied {@code name}, or {@code
+   * null} if there is no such value.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @param name the name of the configuration property; must not be
+   * {@code null}
+   *
+   * @return a read-only {@link ByteBuffer}, or {@code null}
+   *
+   * @exception NullPointerException if {@code name} is {@code null}
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable
+   *
+   * @see #getByteBuffer(Map, String)
+   */
+  public final ByteBuffer getByteBuffer(final String name) {
+    return this.getByteBuffer(this.getCurrentConfigurationCoordinates(), name);
+  }
+
+  /**
+   * Returns a read-only {@link ByteBuffer} containing the UTF-8
+   * encoding of the configuration value corresponding to the
+   * configuration property suitable for the supplied {@code
+   * configurationCoordinates} and {@code name}, or {@code null} if
+   * there is no such value.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * <p>This method is intended for configuration values that are
+   * large enough that holding them as {@link String}s is undesirable,
+   * such as certificate bundles or routing tables.  The default
+   * implementation of this method encodes the {@linkplain
+   * ConfigurationValue#getValue() value} of the {@link
+   * ConfigurationValue} returned by the {@link
+   * #getConfigurationValue(Map, String)} method, and so offers no
+   * savings.  Subclasses whose values are backed by files or by
+   * mapped memory are encouraged to override this method to return
+   * a read-only view of that storage without copying it.</p>
+   *
+   * <p>Overrides of this method must return a new {@link ByteBuffer}
+   * (which may share content with others) on every invocation, since
+   * callers may change its position and limit.</p>
+   *
+   * @param configurationCoordinates a {@link Map} representing the
+   * configuration coordinates in effect for this request; may be
+   * {@code null}
+   *
+   * @param name the name of the configuration property; must not be
+   * {@code null}
+   *
+   * @return a read-only {@link ByteBuffer}, or {@code null}
+   *
+   * @exception NullPointerException if {@code name} is {@code null}
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable
+   *
+   * @see #getChannel(Map, String)
+   *
+   * @see #getReader(Map, String)
+   */
+  public ByteBuffer getByteBuffer(final Map<String, String> configurationCoordinates, final String name) {
+    final ConfigurationValue configurationValue = this.getConfigurationValue(configurationCoordinates, name);
+    final String value = configurationValue == null ? null : configurationValue.getValue();
+    return value == null ? null : StandardCharsets.UTF_8.encode(value).asReadOnlyBuffer();
+  }
+
+  /**
+   * Returns a {@link ReadableByteChannel} that reads the UTF-8
+   * encoding of the configuration value corresponding to the
+   * configuration property with the supplied {@code name}, or {@code
+   * null} if there is no such value.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @param name the name of the configuration property; must not be
+   * {@code null}
+   *
+   * @return a {@link ReadableByteChannel}, or {@code null}
+   *
+   * @exception NullPointerException if {@code name} is {@code null}
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable
+   *
+   * @see #getChannel(Map, String)
+   */
+  public final ReadableByteChannel getChannel(final String name) {
+    return this.getChannel(this.getCurrentConfigurationCoordinates(), name);
+  }
+
+  /**
+   * Returns a {@link ReadableByteChannel} that reads the UTF-8
+   * encoding of the configuration value corresponding to the
+   * configuration property suitable for the supplied {@code
+   * configurationCoordinates} and {@code name}, or {@code null} if
+   * there is no such value.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * <p>The returned {@link ReadableByteChannel} reads directly from
+   * the {@link ByteBuffer} returned by the {@link
+   * #getByteBuffer(Map, String)} method.</p>
+   *
+   * @param configurationCoordinates a {@link Map} representing the
+   * configuration coordinates in effect for this request; may be
+   * {@code null}
+   *
+   * @param name the name of the configuration property; must not be
+   * {@code null}
+   *
+   * @return a {@link ReadableByteChannel}, or {@code null}
+   *
+   * @exception NullPointerException if {@code name} is {@code null}
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable
+   *
+   * @see #getByteBuffer(Map, String)
+   */
+  public final ReadableByteChannel getChannel(final Map<String, String> configurationCoordinates, final String name) {
+    final ByteBuffer byteBuffer = this.getByteBuffer(configurationCoordinates, name);
+    return byteBuffer == null ? null : new ByteBufferChannel(byteBuffer);
+  }
+
+  /**
+   * Returns a {@link Reader} that reads the configuration value
+   * corresponding to the configuration property with the supplied
+   * {@code name}, or {@code null} if there is no such value.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @param name the name of the configuration property; must not be
+   * {@code null}
+   *
+   * @return a {@link Reader}, or {@code null}
+   *
+   * @exception NullPointerException if {@code name} is {@code null}
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable
+   *
+   * @see #getReader(Map, String)
+   */
+  public final Reader getReader(final String name) {
+    return this.getReader(this.getCurrentConfigurationCoordinates(), name);
+  }
+
+  /**
+   * Returns a {@link Reader} that reads the configuration value
+   * corresponding to the configuration property suitable for the
+   * supplied {@code configurationCoordinates} and {@code name}, or
+   * {@code null} if there is no such value.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * <p>The returned {@link Reader} decodes, incrementally, the UTF-8
+   * bytes in the {@link ByteBuffer} returned by the {@link
+   * #getByteBuffer(Map, String)} method.</p>
+   *
+   * @param configurationCoordinates a {@link Map} representing the
+   * configuration coordinates in effect for this request; may be
+   * {@code null}
+   *
+   * @param name the name of the configuration property; must not be
+   * {@code null}
+   *
+   * @return a {@link Reader}, or {@code null}
+   *
+   * @exception NullPointerException if {@code name} is {@code null}
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable
+   *
+   * @see #getByteBuffer(Map, String)
+   */
+  public final Reader getReader(final Map<String, String> configurationCoordinates, final String name) {
+    final ReadableByteChannel channel = this.getChannel(configurationCoordinates, name);
+    return channel == null ? null : Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), -1);
+  }
+
+  /**
+   * Returns a configuration value corresponding to the configuration
+   * property suitable for the supplied {@code
+   * configurationCoordinates} and {@code name}, or the supplied
+   * {@code defaultValue} if {@code null} would otherwise be returned.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @param configurationCoordinates a {@link Map} representing the
+   * configuration coordinates in effect for this request; may be
+   * {@code null}
+   *
+   * @param names names of configuration properties for which a value
+   * will be returned; each element will be tried in turn; must not be
+   * {@code null}
+   *
+   * @param defaultValue the value that will be returned if {@code
+   * null} would otherwise be returned; may be {@code null}
+   *
+   * @return the configuration value, or {@code null}
+   *
+   * @exception NullPointerException if {@code name} or {@code type}
+   * is {@code null}
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable
+   */
+  public final String getValue(final Map<String, String> configurationCoordinates, final Collection<String> names, final String defaultValue) {
+    return this.getValue(configurationCoordinates, names, String.class, defaultValue);
+  }
+
+  /**
+   * Returns a configuration value corresponding to the configuration
+   * property suitable for the supplied {@code
+   * configurationCoordinates} and {@code name}, or null.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @param configurationCoordinates a {@link Map} representing the
+   * configuration coordinates in effect for this request; may be
+   * {@code null}
+   *
+   * @param names names of configuration properties for which a value
+   * will be returned; each element will be tried in turn; must not be
+   * {@code null}
+   *
+   * @return the configuration value, or {@code null}
+   *
+   * @exception NullPointerException if {@code names} or {@code type}
+   * is {@code null}
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable
+   */
+  public final String getValue(final Map<String, String> configurationCoordinates, final Collection<String> names) {
+    return this.getValue(configurationCoordinates, names, String.class, null);
+  }
+
+  /**
+   * Returns a configuration value corresponding to the configuration
+   * property suitable for the supplied {@code names}, or null.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @param names names of configuration properties for which a value
+   * will be returned; each element will be tried in turn; must not be
+   * {@code null}
+   *
+   * @return the configuration value, or {@code null}
+   *
+   * @exception NullPointerException if {@code names} is {@code null}
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable
+   */
+  public final String getValue(final Collection<String> names) {
+    return this.getValue(this.getCurrentConfigurationCoordinates(), names, String.class, null);
+  }
+
+  /**
+   * Returns a configuration value corresponding to the configuration
+   * property suitable for the supplied {@code names}, or the supplied
+   * {@code defaultValue}.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @param names names of configuration properties for which a value
+   * will be returned; each element will be tried in turn; must not be
+   * {@code null}
+   *
+   * @param defaultValue the value that will be returned if {@code
+   * null} would otherwise be returned; may be {@code null}
+   *
+   * @return the configuration value, or the supplied {@code
+   * defaultValue}
+   *
+   * @exception NullPointerException if {@code names} is {@code null}
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable
+   */
+  public final String getValue(final Collection<String> names, final String defaultValue) {
+    return this.getValue(this.getCurrentConfigurationCoordinates(), names, String.class, defaultValue);
+  }
+
+  /**
+   * Returns a configuration value corresponding to the configuration
+   * property suitable for the supplied {@code names}, converted, if
    * possible, to the type represented by the supplied {@code
    * type}, or the supplied {@code defaultValue}.
    *
@@ -839,15 +2446,15 @@ public abstract class Configurations {
    * @see #getValue(Map, Collection, Type, String)
    */
   public final <T> T getValue(final Collection<String> names, final Class<T> type, final String defaultValue) {
-    return this.getValue(this.getConfigurationCoordinates(), names, type, defaultValue);
+    return this.getValue(this.getCurrentConfigurationCoordinates(), names, type, defaultValue);
   }
 
   public final <T> T getValue(final Collection<String> names, final Type type, final String defaultValue) {
-    return this.getValue(this.getConfigurationCoordinates(), names, type, defaultValue);
+    return this.getValue(this.getCurrentConfigurationCoordinates(), names, type, defaultValue);
   }
 
   public final <T> T getValue(final Collection<String> names, final TypeLiteral<T> typeLiteral, final String defaultValue) {
-    return this.getValue(this.getConfigurationCoordinates(), names, typeLiteral == null ? (Type)null : typeLiteral.getType(), defaultValue);
+    return this.getValue(this.getCurrentConfigurationCoordinates(), names, typeLiteral == null ? (Type)null : typeLiteral.getType(), defaultValue);
   }
 
   /**
@@ -882,7 +2489,7 @@ public abstract class Configurations {
    * @see #getValue(Map, Collection, Type, String)
    */
   public final <T> T getValue(final Collection<String> names, final Class<T> type) {
-    return this.getValue(this.getConfigurationCoordinates(), names, type, null);
+    return this.getValue(this.getCurrentConfigurationCoordinates(), names, type, null);
   }
 
   /**
@@ -917,7 +2524,7 @@ public abstract class Configurations {
    * @see #getValue(Map, Collection, Type, String)
    */
   public final <T> T getValue(final Collection<String> names, final Type type) {
-    return this.getValue(this.getConfigurationCoordinates(), names, type, null);
+    return this.getValue(this.getCurrentConfigurationCoordinates(), names, type, null);
   }
 
   /**
@@ -952,7 +2559,7 @@ public abstract class Configurations {
    * @see #getValue(Map, Collection, Type, String)
    */
   public final <T> T getValue(final Collection<String> names, final TypeLiteral<T> typeLiteral) {
-    return this.getValue(this.getConfigurationCoordinates(), names, typeLiteral == null ? (Type)null : typeLiteral.getType(), null);
+    return this.getValue(this.getCurrentConfigurationCoordinates(), names, typeLiteral == null ? (Type)null : typeLiteral.getType(), null);
   }
 
   /**
@@ -1086,7 +2693,7 @@ public abstract class Configurations {
    */
   public final <T> T getValue(final Map<String, String> configurationCoordinates, final Collection<String> names, final Type type, final String defaultValue) {
     final String cn = this.getClass().getName();
-    final Logger logger = Logger.getLogger(cn);
+    final Logger logger = this.logger;
     final String mn = "getValue";
     if (logger.isLoggable(Level.FINER)) {
       logger.entering(cn, mn, new Object[] { configurationCoordinates, names, type, defaultValue });
@@ -1099,22 +2706,20 @@ public abstract class Configurations {
       // We need two passes.  The first pass will use null as a
       // default value and will keep going if null is returned by the
       // abstract getValue(Map, String, Type, String) implementation.
+      // Names that cannot have values are skipped entirely.
       for (final String name : names) {
-        returnValue = this.getValue(configurationCoordinates, name, type, null);
-        if (returnValue != null) {
-          break;
-        }
-      }
-      if (returnValue == null) {
-        // We didn't find any values.  Do it again, but this time with
-        // the defaultValue.
-        for (final String name : names) {
-          returnValue = this.getValue(configurationCoordinates, name, type, defaultValue);
+        if (this.mightContainName(name)) {
+          returnValue = this.getValue(configurationCoordinates, name, type, null);
           if (returnValue != null) {
             break;
           }
         }
       }
+      if (returnValue == null && defaultValue != null) {
+        // We didn't find any values, so the second pass would simply
+        // convert the defaultValue on behalf of the first name.
+        returnValue = this.getConvertedDefaultValue(configurationCoordinates, names.iterator().next(), type, defaultValue);
+      }
     }
 
     if (logger.isLoggable(Level.FINER)) {
@@ -1142,12 +2747,573 @@ public abstract class Configurations {
    */
   public abstract Set<String> getNames();
 
+  /**
+   * Returns an {@linkplain Collections#unmodifiableSet(Set)
+   * unmodifiable <code>Set</code>} of those names {@linkplain
+   * #getNames() of <code>ConfigurationValue</code>s that might be
+   * returned by this <code>Configurations</code> instance} that
+   * {@linkplain String#startsWith(String) start with} the supplied
+   * {@code prefix}.
+   *
+   * <p>This method never returns {@code null}.  The returned {@link
+   * Set} iterates over its elements in their {@linkplain
+   * String#compareTo(String) natural order}.</p>
+   *
+   * <p>If the {@link #isNameIndexingEnabled()} method returns {@code
+   * true}, then this method runs in time proportional to the
+   * logarithm of the number of names plus the number of matching
+   * names.  Otherwise every name is examined.</p>
+   *
+   * @param prefix the prefix, such as {@code db.primary.}; may be
+   * {@code null} or {@linkplain String#isEmpty() empty} in which
+   * case all names will be returned
+   *
+   * @return a non-{@code null} {@link Set} of names of {@link
+   * ConfigurationValue}s
+   *
+   * @see #getNames()
+   *
+   * @see #isNameIndexingEnabled()
+   */
+  public final Set<String> getNames(final String prefix) {
+    final Set<String> returnValue;
+    final NameIndex nameIndex = this.getNameIndex();
+    if (nameIndex != null) {
+      returnValue = nameIndex.getNames(prefix == null ? "" : prefix);
+    } else {
+      final Set<String> names = this.getNames();
+      if (names == null || names.isEmpty()) {
+        returnValue = Collections.emptySet();
+      } else {
+        final Set<String> matches = new TreeSet<>();
+        for (final String name : names) {
+          if (name != null && (prefix == null || name.startsWith(prefix))) {
+            matches.add(name);
+          }
+        }
+        returnValue = Collections.unmodifiableSet(matches);
+      }
+    }
+    return returnValue;
+  }
+
+  /**
+   * Returns a {@link NameIndex} current as of this {@link
+   * Configurations}' present version, building it if necessary, or
+   * {@code null} if {@linkplain #isNameIndexingEnabled() name
+   * indexing is disabled} or another thread is already building
+   * one.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * <p>Only one thread at a time builds a {@link NameIndex}, so that
+   * a {@linkplain #configurationChanged() reload} does not cause
+   * every thread performing prefix queries to rebuild it at
+   * once.</p>
+   *
+   * @return a {@link NameIndex}, or {@code null}
+   *
+   * @see #getNames(String)
+   */
+  private final NameIndex getNameIndex() {
+    if (!this.isNameIndexingEnabled()) {
+      return null;
+    }
+    final long version = this.version.get();
+    NameIndex nameIndex = this.nameIndex;
+    if (nameIndex == null || nameIndex.getVersion() != version) {
+      if (!this.nameIndexBuilding.compareAndSet(false, true)) {
+        return null;
+      }
+      try {
+        nameIndex = new NameIndex(this.getNames(), version);
+        this.nameIndex = nameIndex;
+      } finally {
+        this.nameIndexBuilding.set(false);
+      }
+    }
+    return nameIndex;
+  }
+
+  /**
+   * Returns an {@linkplain Collections#unmodifiableMap(Map)
+   * unmodifiable <code>Map</code>} of configuration values, indexed
+   * by the names of their configuration properties, for all
+   * configuration properties whose names {@linkplain
+   * String#startsWith(String) start with} the supplied {@code
+   * prefix}.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param prefix the prefix, such as {@code db.primary.}; may be
+   * {@code null}
+   *
+   * @return a non-{@code null} {@link Map} of configuration values
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable for any matching
+   * configuration property
+   *
+   * @see #getValues(Map, String, Type)
+   */
+  public final Map<String, String> getValues(final String prefix) {
+    return this.getValues(this.getCurrentConfigurationCoordinates(), prefix, String.class);
+  }
+
+  /**
+   * Returns an {@linkplain Collections#unmodifiableMap(Map)
+   * unmodifiable <code>Map</code>} of configuration values suitable
+   * for the supplied {@code configurationCoordinates}, indexed by the
+   * names of their configuration properties, for all configuration
+   * properties whose names {@linkplain String#startsWith(String)
+   * start with} the supplied {@code prefix}.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param configurationCoordinates a {@link Map} representing the
+   * configuration coordinates in effect for this request; may be
+   * {@code null}
+   *
+   * @param prefix the prefix, such as {@code db.primary.}; may be
+   * {@code null}
+   *
+   * @return a non-{@code null} {@link Map} of configuration values
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable for any matching
+   * configuration property
+   *
+   * @see #getValues(Map, String, Type)
+   */
+  public final Map<String, String> getValues(final Map<String, String> configurationCoordinates, final String prefix) {
+    return this.getValues(configurationCoordinates, prefix, String.class);
+  }
+
+  /**
+   * Returns an {@linkplain Collections#unmodifiableMap(Map)
+   * unmodifiable <code>Map</code>} of configuration values suitable
+   * for the supplied {@code configurationCoordinates}, converted, if
+   * possible, to the type represented by the supplied {@code type}
+   * and indexed by the names of their configuration properties, for
+   * all configuration properties whose names {@linkplain
+   * String#startsWith(String) start with} the supplied {@code
+   * prefix}.
+   *
+   * <p>This method never returns {@code null}.  Configuration
+   * properties for which no value is found are not represented in
+   * the returned {@link Map}, which iterates over its entries in the
+   * {@linkplain String#compareTo(String) natural order} of their
+   * keys.</p>
+   *
+   * @param <T> the type to which {@link String}-typed configuration
+   * values should be converted
+   *
+   * @param configurationCoordinates a {@link Map} representing the
+   * configuration coordinates in effect for this request; may be
+   * {@code null}
+   *
+   * @param prefix the prefix, such as {@code db.primary.}; may be
+   * {@code null}
+   *
+   * @param type a {@link Type} representing the type to which the
+   * configuration values will be converted; must not be {@code null}
+   *
+   * @return a non-{@code null} {@link Map} of configuration values
+   *
+   * @exception NullPointerException if {@code type} is {@code null}
+   *
+   * @exception ConversionException if type conversion could not occur
+   * for any reason
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable for any matching
+   * configuration property
+   *
+   * @see #getNames(String)
+   */
+  public final <T> Map<String, T> getValues(final Map<String, String> configurationCoordinates, final String prefix, final Type type) {
+    final Set<String> names = this.getNames(prefix);
+    assert names != null;
+    final Map<String, T> returnValue;
+    if (names.isEmpty()) {
+      returnValue = Collections.emptyMap();
+    } else {
+      final Map<String, T> values = new LinkedHashMap<>();
+      for (final String name : names) {
+        final T value = this.getValue(configurationCoordinates, name, type, null);
+        if (value != null) {
+          values.put(name, value);
+        }
+      }
+      returnValue = Collections.unmodifiableMap(values);
+    }
+    return returnValue;
+  }
+
+
+  /**
+   * Returns a {@link Configurations} that is bound to the
+   * {@linkplain #getConfigurationCoordinates() configuration
+   * coordinates of this <code>Configurations</code>} and that
+   * answers requests made with them from a flat table of
+   * precomputed {@link ConfigurationValue}s.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return a non-{@code null} {@link Configurations}
+   *
+   * @see #bind(Map)
+   */
+  public final Configurations bind() {
+    return this.bind(this.getConfigurationCoordinates());
+  }
+
+  /**
+   * Returns a {@link Configurations} that is bound to the supplied
+   * {@code configurationCoordinates} and that answers requests made
+   * with them from a flat table of precomputed {@link
+   * ConfigurationValue}s.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * <p>The returned {@link Configurations} reports the supplied
+   * {@code configurationCoordinates} as {@linkplain
+   * #getConfigurationCoordinates() its own}, so all of its {@code
+   * getValue} overloads that do not take configuration coordinates
+   * are answered by a single hash lookup into a table that maps
+   * names to the {@link ConfigurationValue}s that {@linkplain
+   * #getConfigurationValue(Map, String) this
+   * <code>Configurations</code> selects} for them.  The table is
+   * built on first use from every {@linkplain #getNames() name} if
+   * {@linkplain #isNameIndexingEnabled() name indexing is enabled},
+   * and is otherwise filled in, absences included, as names are
+   * requested.  Converted values
+   * are memoized as well, and so must not be modified by callers.
+   * Requests made with any other configuration coordinates are
+   * passed through to this {@link Configurations}.</p>
+   *
+   * <p>The table is rebuilt after this {@link Configurations}
+   * {@linkplain #configurationChanged() reports a change}.  If this
+   * {@link Configurations} does not report changes, the returned
+   * {@link Configurations} will continue to return the values that
+   * were in effect when its table was built.</p>
+   *
+   * @param configurationCoordinates the configuration coordinates to
+   * bind to; may be {@code null}
+   *
+   * @return a non-{@code null} {@link Configurations}
+   *
+   * @see #getConfigurationValue(Map, String)
+   *
+   * @see #configurationChanged()
+   */
+  public final Configurations bind(final Map<String, String> configurationCoordinates) {
+    return new BoundConfigurations(this, configurationCoordinates);
+  }
+
+  /**
+   * Returns a {@link Configurations} that exposes the configuration
+   * values of this {@link Configurations} with references to the
+   * values of other configuration properties expanded.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * <p>A reference takes the form <code>${<em>name</em>}</code>, or
+   * <code>${<em>name</em>:<em>default</em>}</code>, in which case
+   * <em>default</em>, which may itself contain references, is used
+   * if there is no value for <em>name</em>.  The sequence
+   * <code>$${</code> stands for a literal <code>${</code>.  A
+   * reference is resolved using the same configuration coordinates
+   * as the request whose value contains it.  Default values supplied
+   * to {@code getValue} methods are not expanded.</p>
+   *
+   * <p>Each distinct configuration value is parsed only once, and
+   * expanded values are memoized for each set of configuration
+   * coordinates.  The returned {@link Configurations} records which
+   * configuration properties refer to which others.  When this
+   * {@link Configurations} {@linkplain
+   * #configurationChanged(Set) reports} that certain configuration
+   * properties have changed, only those properties and the ones that
+   * depend on them, directly or indirectly, are expanded again.
+   * Such dependents are also reported as changed to {@linkplain
+   * CachingConfigurations caches} built on top of the returned
+   * {@link Configurations}.  A reference cycle causes a {@link
+   * ConfigurationException} to be thrown.</p>
+   *
+   * <p>Expanded values are {@linkplain AbstractConfigurations#convert(String,
+   * Type) converted} by this {@link Configurations} if it is an
+   * {@link AbstractConfigurations}, and by the {@link Conversions}
+   * class otherwise.</p>
+   *
+   * @return a non-{@code null} {@link Configurations}
+   *
+   * @see #configurationChanged(Set)
+   */
+  public final Configurations interpolate() {
+    return new InterpolatingConfigurations(this);
+  }
+
+  /**
+   * Applies the supplied {@code reader} to a {@link Configurations}
+   * whose configuration values do not change while it runs, so that
+   * related configuration values it reads, such as a database URL,
+   * user name and password, are consistent with one another even if
+   * this {@link Configurations} is reloaded concurrently, and returns
+   * its result.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * <p>If this {@link Configurations} can take a {@linkplain
+   * #snapshot() snapshot}, then the {@code reader} is applied once to
+   * that snapshot.  Otherwise the {@code reader} is applied to this
+   * {@link Configurations}, and, if a {@linkplain
+   * #configurationChanged() change} was reported while it ran, it is
+   * applied again, up to a fixed number of times.  In neither case
+   * are any locks taken, so neither readers nor reloads ever wait
+   * for one another.</p>
+   *
+   * <p>Because it may be applied more than once, the {@code reader}
+   * should do nothing but read configuration values.</p>
+   *
+   * <p><strong>The reads are guaranteed to be consistent only if this
+   * {@link Configurations} can take snapshots, or if it reports
+   * changes before it exposes changed configuration values</strong>,
+   * as, for example, {@link SharedSnapshotConfigurations} does.  A
+   * {@link Configurations} that exposes changed configuration values
+   * first and reports the change afterwards leaves a window in which
+   * a {@code reader} may see a mixture of old and new values without
+   * the change being detected, and one that never reports changes at
+   * all, such as {@link RemoteConfigurations}, offers no consistency
+   * beyond that of its individual reads.</p>
+   *
+   * @param <R> the type of the result
+   *
+   * @param reader the {@link Function} that will read configuration
+   * values from the {@link Configurations} it is supplied with; must
+   * not be {@code null}
+   *
+   * @return the result of applying the {@code reader}, or {@code
+   * null}
+   *
+   * @exception NullPointerException if {@code reader} is {@code null}
+   *
+   * @exception ConfigurationException if the {@code reader} could not
+   * complete without a change being reported after a number of
+   * attempts, or if the {@code reader} throws one
+   *
+   * @see #snapshot()
+   */
+  public final <R> R readConsistently(final Function<? super Configurations, ? extends R> reader) {
+    Objects.requireNonNull(reader);
+    final Configurations snapshot = this.snapshot();
+    if (snapshot != null) {
+      return reader.apply(snapshot);
+    }
+    for (int attempt = 0; attempt < MAX_CONSISTENT_READ_ATTEMPTS; attempt++) {
+      final long version = this.getVersion();
+      final R returnValue = reader.apply(this);
+      if (this.getVersion() == version) {
+        return returnValue;
+      }
+      Thread.yield();
+    }
+    throw new ConfigurationException("Configuration changed during each of " + MAX_CONSISTENT_READ_ATTEMPTS + " attempts to read it consistently");
+  }
+
+  /**
+   * Returns a {@link Configurations} that exposes the configuration
+   * values of this {@link Configurations} as they are at the moment
+   * of invocation and that never changes, or {@code null} if this
+   * {@link Configurations} cannot take snapshots.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * <p>The default implementation of this method returns {@code
+   * null}.  Implementations that keep their configuration values in
+   * immutable structures that are replaced, rather than modified,
+   * when they are reloaded are encouraged to override this method to
+   * return a view of the current structure, which costs only an
+   * allocation.  Implementations that never change may return
+   * themselves.</p>
+   *
+   * <p>Overrides of this method must be safe for concurrent use by
+   * multiple threads and must not block on reloads.</p>
+   *
+   * @return a {@link Configurations} that never changes, or {@code
+   * null}
+   *
+   * @see #readConsistently(Function)
+   */
+  protected Configurations snapshot() {
+    return null;
+  }
+
+  /**
+   * Resolves and converts the values of the configuration properties
+   * named by the keys of the supplied {@link Map} to the {@link
+   * Type}s indexed under them, in parallel, using the {@linkplain
+   * ForkJoinPool#commonPool() common fork-join pool} and the
+   * {@linkplain #getConfigurationCoordinates() configuration
+   * coordinates in effect}, and throws a {@link
+   * ConfigurationValidationException} if any of them could not be
+   * resolved.
+   *
+   * @param namesAndTypes a {@link Map} of {@link Type}s indexed by
+   * the names of the configuration properties whose values should
+   * be resolved; may be {@code null}
+   *
+   * @exception ConfigurationValidationException if any value could
+   * not be resolved
+   *
+   * @see #warm(Map, Map, ForkJoinPool)
+   */
+  public final void warm(final Map<? extends String, ? extends Type> namesAndTypes) {
+    this.warm(this.getCurrentConfigurationCoordinates(), namesAndTypes, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Resolves and converts the values of the configuration properties
+   * named by the keys of the supplied {@link Map} to the {@link
+   * Type}s indexed under them, in parallel, using the {@linkplain
+   * ForkJoinPool#commonPool() common fork-join pool} and the supplied
+   * {@code configurationCoordinates}, and throws a {@link
+   * ConfigurationValidationException} if any of them could not be
+   * resolved.
+   *
+   * @param configurationCoordinates the configuration coordinates in
+   * effect for the requests; may be {@code null}
+   *
+   * @param namesAndTypes a {@link Map} of {@link Type}s indexed by
+   * the names of the configuration properties whose values should
+   * be resolved; may be {@code null}
+   *
+   * @exception ConfigurationValidationException if any value could
+   * not be resolved
+   *
+   * @see #warm(Map, Map, ForkJoinPool)
+   */
+  public final void warm(final Map<String, String> configurationCoordinates, final Map<? extends String, ? extends Type> namesAndTypes) {
+    this.warm(configurationCoordinates, namesAndTypes, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Resolves and converts the values of the configuration properties
+   * named by the keys of the supplied {@link Map} to the {@link
+   * Type}s indexed under them, in parallel, using the supplied {@link
+   * ForkJoinPool} and {@code configurationCoordinates}, and throws a
+   * {@link ConfigurationValidationException} if any of them could not
+   * be resolved.
+   *
+   * <p>This method is intended to be called while an application
+   * starts, so that invalid configuration is reported all at once
+   * and immediately, rather than one value at a time as it is first
+   * requested, and so that {@link Configurations} implementations
+   * that {@linkplain CachingConfigurations cache} or {@linkplain
+   * #bind(Map) flatten} values are populated before they are
+   * needed.</p>
+   *
+   * <p>Every value is requested by way of the {@link #getValue(Map,
+   * String, Type, String)} method, without a default value.  A
+   * {@code null} {@link Type} is treated as {@link String
+   * String.class}.  Every {@link ConfigurationException}, such as a
+   * {@link ConversionException} or an {@link
+   * AmbiguousConfigurationValuesException}, is collected, and any
+   * other {@link RuntimeException} is collected after being wrapped
+   * in a {@link ConfigurationException}; the collected exceptions
+   * are reported together, in the iteration order of the supplied
+   * {@code namesAndTypes}, by a single {@link
+   * ConfigurationValidationException}.</p>
+   *
+   * @param configurationCoordinates the configuration coordinates in
+   * effect for the requests; may be {@code null}
+   *
+   * @param namesAndTypes a {@link Map} of {@link Type}s indexed by
+   * the names of the configuration properties whose values should
+   * be resolved; may be {@code null}
+   *
+   * @param pool the {@link ForkJoinPool} to use; must not be {@code
+   * null}
+   *
+   * @exception NullPointerException if {@code pool} is {@code null}
+   *
+   * @exception ConfigurationValidationException if any value could
+   * not be resolved
+   */
+  public final void warm(final Map<String, String> configurationCoordinates,
+                         final Map<? extends String, ? extends Type> namesAndTypes,
+                         final ForkJoinPool pool) {
+    Objects.requireNonNull(pool);
+    if (namesAndTypes != null && !namesAndTypes.isEmpty()) {
+      final int size = namesAndTypes.size();
+      final String[] names = new String[size];
+      final Type[] types = new Type[size];
+      int i = 0;
+      for (final Map.Entry<? extends String, ? extends Type> entry : namesAndTypes.entrySet()) {
+        names[i] = entry.getKey();
+        types[i] = entry.getValue() == null ? String.class : entry.getValue();
+        i++;
+      }
+      final ConfigurationException[] failures = new ConfigurationException[size];
+      pool.invoke(new WarmingTask(this, configurationCoordinates, names, types, failures, 0, size));
+      Map<String, ConfigurationException> failureMap = null;
+      for (i = 0; i < size; i++) {
+        if (failures[i] != null) {
+          if (failureMap == null) {
+            failureMap = new LinkedHashMap<>();
+          }
+          failureMap.put(names[i], failures[i]);
+        }
+      }
+      if (failureMap != null) {
+        throw new ConfigurationValidationException(failureMap);
+      }
+    }
+  }
+
 
   /*
    * Static methods.
    */
 
 
+  /**
+   * Returns {@code true} if instances of the supplied {@link
+   * Configurations} subclass are known to convert the configuration
+   * values they expose with their {@link #convert(String, Type)}
+   * method.
+   *
+   * @param c the {@link Configurations} subclass; must not be {@code
+   * null}
+   *
+   * @return {@code true} if instances of {@code c} are an {@link
+   * AbstractConfigurations} that does not override the {@link
+   * #getValue(Map, String, Type, String)} method, or override the
+   * {@link #convert(String, Type)} method themselves
+   *
+   * @see #isConvertingWithConvert()
+   */
+  private static final boolean isConvertingWithConvert(final Class<?> c) {
+    try {
+      if (c.getMethod("getValue", Map.class, String.class, Type.class, String.class).getDeclaringClass() == AbstractConfigurations.class) {
+        return true;
+      }
+      for (Class<?> declarer = c; declarer != null; declarer = declarer.getSuperclass()) {
+        if (declarer == AbstractConfigurations.class || declarer == ForwardingConfigurations.class || declarer == Configurations.class) {
+          return false;
+        }
+        try {
+          declarer.getDeclaredMethod("convert", String.class, Type.class);
+          return true;
+        } catch (final NoSuchMethodException noSuchMethodException) {
+          // Keep looking in the superclass.
+        }
+      }
+    } catch (final NoSuchMethodException | SecurityException exception) {
+      // Fall through.
+    }
+    return false;
+  }
+
   /**
    * Returns a {@link Configurations} implementation found using the
    * standard {@link ServiceLoader} mechanism.
@@ -1178,13 +3344,16 @@ public abstract class Configurations {
       assert configurationsLoader != null;
       Configurations.configurationsLoader = configurationsLoader;
     }
-    final Iterator<Configurations> configurationsIterator = configurationsLoader.iterator();
-    assert configurationsIterator != null;
-    while (returnValue == null && configurationsIterator.hasNext()) {
-      try {
-        returnValue = configurationsIterator.next();
-      } catch (final ServiceConfigurationError badServiceProviderFile) {
-        throw new ConfigurationException(badServiceProviderFile);
+    // ServiceLoader instances are not safe for concurrent use.
+    synchronized (configurationsLoader) {
+      final Iterator<Configurations> configurationsIterator = configurationsLoader.iterator();
+      assert configurationsIterator != null;
+      while (returnValue == null && configurationsIterator.hasNext()) {
+        try {
+          returnValue = configurationsIterator.next();
+        } catch (final ServiceConfigurationError badServiceProviderFile) {
+          throw new ConfigurationException(badServiceProviderFile);
+        }
       }
     }
     if (returnValue == null) {
@@ -1196,4 +3365,139 @@ public abstract class Configurations {
     return returnValue;
   }
 
+
+  /*
+   * Inner and nested classes.
+   */
+
+
+  /**
+   * A {@link RecursiveAction} that requests a range of configuration
+   * values, recording any {@link ConfigurationException}s.
+   *
+   * @author <a href="https://about.me/lairdnelson"
+   * target="_parent">Laird Nelson</a>
+   *
+   * @see Configurations#warm(Map, Map, ForkJoinPool)
+   */
+  private static final class WarmingTask extends RecursiveAction {
+
+    /**
+     * The version of this class for {@linkplain
+     * java.io.Serializable serialization} purposes.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The number of values at or below which a {@link WarmingTask}
+     * requests values itself instead of forking.
+     */
+    private static final int THRESHOLD = 4;
+
+    /**
+     * The {@link Configurations} from which values are requested;
+     * never {@code null}.
+     */
+    private final transient Configurations configurations;
+
+    /**
+     * The configuration coordinates in effect for the requests; may
+     * be {@code null}.
+     */
+    private final transient Map<String, String> configurationCoordinates;
+
+    /**
+     * The names of the configuration properties; never {@code null}.
+     */
+    private final transient String[] names;
+
+    /**
+     * The {@link Type}s to which values are to be converted, in the
+     * same order as their names; never {@code null}.
+     */
+    private final transient Type[] types;
+
+    /**
+     * The recorded {@link ConfigurationException}s, in the same order
+     * as the names of the configuration properties whose values could
+     * not be resolved; never {@code null}.
+     */
+    private final transient ConfigurationException[] failures;
+
+    /**
+     * The index of the first value this {@link WarmingTask} requests.
+     */
+    private final int low;
+
+    /**
+     * The index after that of the last value this {@link WarmingTask}
+     * requests.
+     */
+    private final int high;
+
+    /**
+     * Creates a new {@link WarmingTask}.
+     *
+     * @param configurations the {@link Configurations} from which
+     * values will be requested; must not be {@code null}
+     *
+     * @param configurationCoordinates the configuration coordinates
+     * in effect for the requests; may be {@code null}
+     *
+     * @param names the names of the configuration properties; must
+     * not be {@code null}
+     *
+     * @param types the {@link Type}s to which values will be
+     * converted; must not be {@code null}
+     *
+     * @param failures an array in which {@link
+     * ConfigurationException}s will be recorded; must not be {@code
+     * null}
+     *
+     * @param low the index of the first value to request
+     *
+     * @param high the index after that of the last value to request
+     */
+    private WarmingTask(final Configurations configurations,
+                        final Map<String, String> configurationCoordinates,
+                        final String[] names,
+                        final Type[] types,
+                        final ConfigurationException[] failures,
+                        final int low,
+                        final int high) {
+      super();
+      this.configurations = configurations;
+      this.configurationCoordinates = configurationCoordinates;
+      this.names = names;
+      this.types = types;
+      this.failures = failures;
+      this.low = low;
+      this.high = high;
+    }
+
+    /**
+     * Requests the values in this {@link WarmingTask}'s range,
+     * forking subtasks if the range is large.
+     */
+    @Override
+    protected final void compute() {
+      if (this.high - this.low <= THRESHOLD) {
+        for (int i = this.low; i < this.high; i++) {
+          try {
+            this.configurations.getValue(this.configurationCoordinates, this.names[i], this.types[i], null);
+          } catch (final ConfigurationException configurationException) {
+            this.failures[i] = configurationException;
+          } catch (final RuntimeException runtimeException) {
+            this.failures[i] = new ConfigurationException(runtimeException.getMessage(), runtimeException);
+          }
+        }
+      } else {
+        final int middle = (this.low + this.high) >>> 1;
+        invokeAll(new WarmingTask(this.configurations, this.configurationCoordinates, this.names, this.types, this.failures, this.low, middle),
+                  new WarmingTask(this.configurations, this.configurationCoordinates, this.names, this.types, this.failures, middle, this.high));
+      }
+    }
+
+  }
+
 }
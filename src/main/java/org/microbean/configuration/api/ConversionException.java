@@ -76,5 +76,24 @@ public class ConversionException extends ConfigurationException {
   public ConversionException(final String message, final Throwable cause) {
     super(message, cause);
   }
+
+  /**
+   * Creates a new {@link ConversionException}, optionally without a
+   * stack trace.
+   *
+   * @param message the error message; may be {@code null}
+   *
+   * @param cause the {@link Throwable} causing this {@link
+   * ConversionException}; may be {@code null}
+   *
+   * @param writableStackTrace whether this {@link
+   * ConversionException} should have a stack trace
+   *
+   * @see ConfigurationException#ConfigurationException(String,
+   * Throwable, boolean)
+   */
+  public ConversionException(final String message, final Throwable cause, final boolean writableStackTrace) {
+    super(message, cause, writableStackTrace);
+  }
   
 }
@@ -0,0 +1,1031 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2018 microBean.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.microbean.configuration.api;
+
+import java.io.Serializable;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * A utility class that converts {@link String}-typed (or, more
+ * generally, {@link CharSequence}-typed) configuration values into
+ * scalars, arrays and collections.
+ *
+ * <h2>Delimited Values</h2>
+ *
+ * <p>Array and collection types are produced from values whose
+ * elements are separated by a delimiter, which is {@linkplain
+ * #DEFAULT_DELIMITER a comma} unless otherwise specified.
+ * Whitespace surrounding each element is ignored.  A value that is
+ * empty or consists only of whitespace has no elements.  Within
+ * {@link String} elements a delimiter or a backslash may be escaped
+ * with a backslash.</p>
+ *
+ * <p>Delimited values are parsed by scanning the supplied {@link
+ * CharSequence} directly.  Numeric and {@code boolean} elements are
+ * decoded in place without creating intermediate {@link String}s,
+ * and arrays are sized exactly by a preliminary scan.  {@code int}
+ * and {@code long} elements requested as a {@link List} are stored
+ * in a primitive array and boxed only when retrieved.  All {@link
+ * List}s and {@link Set}s returned by this class are
+ * unmodifiable.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson"
+ * target="_parent">Laird Nelson</a>
+ *
+ * @see #convert(CharSequence, Type)
+ */
+public final class Conversions {
+
+
+  /*
+   * Static fields.
+   */
+
+
+  /**
+   * The delimiter used to separate the elements of array and
+   * collection values when no other delimiter is specified.
+   */
+  public static final char DEFAULT_DELIMITER = ',';
+
+  /**
+   * The escape character that may precede a delimiter or another
+   * escape character within a {@link String} element.
+   */
+  private static final char ESCAPE = '\\';
+
+  /**
+   * An immutable {@link Set} of the {@link Class}es to which this
+   * class can convert values.
+   *
+   * <p>This field is never {@code null}.</p>
+   *
+   * @see #getConversionTypes()
+   */
+  private static final Set<Type> conversionTypes;
+
+  static {
+    final Set<Type> types = new HashSet<>();
+    types.addAll(Arrays.asList(Object.class, CharSequence.class, String.class,
+                               Boolean.class, Boolean.TYPE,
+                               Byte.class, Byte.TYPE,
+                               Character.class, Character.TYPE,
+                               Short.class, Short.TYPE,
+                               Integer.class, Integer.TYPE,
+                               Long.class, Long.TYPE,
+                               Float.class, Float.TYPE,
+                               Double.class, Double.TYPE,
+                               boolean[].class, int[].class, long[].class, double[].class, String[].class,
+                               Collection.class, Iterable.class, List.class, Set.class));
+    conversionTypes = Collections.unmodifiableSet(types);
+  }
+
+
+  /*
+   * Constructors.
+   */
+
+
+  /**
+   * Creates a new {@link Conversions}.
+   */
+  private Conversions() {
+    super();
+  }
+
+
+  /*
+   * Static methods.
+   */
+
+
+  /**
+   * Returns a non-{@code null}, {@linkplain
+   * Collections#unmodifiableSet(Set) immutable} {@link Set} of the
+   * {@link Class}es to which the {@link #convert(CharSequence, Type)}
+   * method can convert values.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * <p>In addition to the {@link Class}es in the returned {@link
+   * Set}, the {@link #convert(CharSequence, Type)} method can
+   * convert values to any {@code enum} type, to arrays of any
+   * supported scalar type, and to {@link List}s, {@link Set}s, {@link
+   * Collection}s and {@link Iterable}s parameterized with any
+   * supported scalar type.</p>
+   *
+   * @return a non-{@code null}, immutable {@link Set} of {@link
+   * Type}s
+   *
+   * @see Configurations#getConversionTypes()
+   */
+  public static final Set<Type> getConversionTypes() {
+    return conversionTypes;
+  }
+
+  /**
+   * Converts the supplied {@code value} to an object of the supplied
+   * {@code type}.
+   *
+   * <p>This method returns {@code null} if and only if the supplied
+   * {@code value} is {@code null}.</p>
+   *
+   * @param <T> the type to which the supplied {@code value} will be
+   * converted
+   *
+   * @param value the value to convert; may be {@code null}
+   *
+   * @param type a {@link Class} representing the type to which the
+   * supplied {@code value} will be converted; must not be {@code
+   * null}
+   *
+   * @return the converted value, or {@code null}
+   *
+   * @exception NullPointerException if {@code type} is {@code null}
+   *
+   * @exception ConversionException if the supplied {@code value}
+   * could not be converted for any reason
+   *
+   * @see #convert(CharSequence, Type)
+   */
+  @SuppressWarnings("unchecked")
+  public static final <T> T convert(final CharSequence value, final Class<T> type) {
+    return (T)convert(value, (Type)type);
+  }
+
+  /**
+   * Converts the supplied {@code value} to an object of the type
+   * represented by the supplied {@code type}.
+   *
+   * <p>This method returns {@code null} if and only if the supplied
+   * {@code value} is {@code null}.</p>
+   *
+   * @param value the value to convert; may be {@code null}
+   *
+   * @param type a {@link Type} representing the type to which the
+   * supplied {@code value} will be converted; must not be {@code
+   * null}
+   *
+   * @return the converted value, or {@code null}
+   *
+   * @exception NullPointerException if {@code type} is {@code null}
+   *
+   * @exception ConversionException if the supplied {@code value}
+   * could not be converted for any reason
+   *
+   * @see #getConversionTypes()
+   */
+  public static final Object convert(final CharSequence value, final Type type) {
+    if (type == null) {
+      throw new NullPointerException("type");
+    }
+    if (value == null) {
+      return null;
+    }
+    final Object returnValue;
+    if (type instanceof Class) {
+      final Class<?> c = (Class<?>)type;
+      if (c.isArray()) {
+        returnValue = toArray(value, DEFAULT_DELIMITER, c.getComponentType());
+      } else if (c == List.class || c == Collection.class || c == Iterable.class) {
+        returnValue = toList(value, DEFAULT_DELIMITER);
+      } else if (c == Set.class) {
+        returnValue = toSet(value, DEFAULT_DELIMITER, String.class);
+      } else {
+        returnValue = toScalar(value, 0, value.length(), c);
+      }
+    } else if (type instanceof ParameterizedType) {
+      final ParameterizedType parameterizedType = (ParameterizedType)type;
+      final Type rawType = parameterizedType.getRawType();
+      final Type[] typeArguments = parameterizedType.getActualTypeArguments();
+      if (typeArguments == null || typeArguments.length != 1) {
+        throw new ConversionException("Unsupported type: " + type);
+      }
+      final Class<?> elementType = toElementClass(typeArguments[0]);
+      if (elementType == null) {
+        throw new ConversionException("Unsupported element type: " + typeArguments[0]);
+      }
+      if (rawType == List.class || rawType == Collection.class || rawType == Iterable.class) {
+        returnValue = toList(value, DEFAULT_DELIMITER, elementType);
+      } else if (rawType == Set.class) {
+        returnValue = toSet(value, DEFAULT_DELIMITER, elementType);
+      } else {
+        throw new ConversionException("Unsupported type: " + type);
+      }
+    } else {
+      throw new ConversionException("Unsupported type: " + type);
+    }
+    return returnValue;
+  }
+
+  /**
+   * Parses the supplied comma-delimited {@code value} into an {@code
+   * int} array without creating any intermediate objects.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param value the value to parse; must not be {@code null}
+   *
+   * @return a non-{@code null} {@code int} array
+   *
+   * @exception NullPointerException if {@code value} is {@code null}
+   *
+   * @exception ConversionException if any element could not be
+   * parsed
+   *
+   * @see #toIntArray(CharSequence, char)
+   */
+  public static final int[] toIntArray(final CharSequence value) {
+    return toIntArray(value, DEFAULT_DELIMITER);
+  }
+
+  /**
+   * Parses the supplied {@code value} into an {@code int} array
+   * without creating any intermediate objects.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param value the value to parse; must not be {@code null}
+   *
+   * @param delimiter the delimiter separating elements
+   *
+   * @return a non-{@code null} {@code int} array
+   *
+   * @exception NullPointerException if {@code value} is {@code null}
+   *
+   * @exception ConversionException if any element could not be
+   * parsed
+   */
+  public static final int[] toIntArray(final CharSequence value, final char delimiter) {
+    final int length = value.length();
+    final int count = count(value, delimiter, false);
+    final int[] returnValue = new int[count];
+    int start = 0;
+    for (int i = 0; i < count; i++) {
+      final int end = indexOf(value, delimiter, start, length, false);
+      final long parsed = parseLong(value, start, end);
+      if (parsed < Integer.MIN_VALUE || parsed > Integer.MAX_VALUE) {
+        throw new ConversionException("Value out of range for int: " + trim(value, start, end));
+      }
+      returnValue[i] = (int)parsed;
+      start = end + 1;
+    }
+    return returnValue;
+  }
+
+  /**
+   * Parses the supplied comma-delimited {@code value} into a {@code
+   * long} array without creating any intermediate objects.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param value the value to parse; must not be {@code null}
+   *
+   * @return a non-{@code null} {@code long} array
+   *
+   * @exception NullPointerException if {@code value} is {@code null}
+   *
+   * @exception ConversionException if any element could not be
+   * parsed
+   *
+   * @see #toLongArray(CharSequence, char)
+   */
+  public static final long[] toLongArray(final CharSequence value) {
+    return toLongArray(value, DEFAULT_DELIMITER);
+  }
+
+  /**
+   * Parses the supplied {@code value} into a {@code long} array
+   * without creating any intermediate objects.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param value the value to parse; must not be {@code null}
+   *
+   * @param delimiter the delimiter separating elements
+   *
+   * @return a non-{@code null} {@code long} array
+   *
+   * @exception NullPointerException if {@code value} is {@code null}
+   *
+   * @exception ConversionException if any element could not be
+   * parsed
+   */
+  public static final long[] toLongArray(final CharSequence value, final char delimiter) {
+    final int length = value.length();
+    final int count = count(value, delimiter, false);
+    final long[] returnValue = new long[count];
+    int start = 0;
+    for (int i = 0; i < count; i++) {
+      final int end = indexOf(value, delimiter, start, length, false);
+      returnValue[i] = parseLong(value, start, end);
+      start = end + 1;
+    }
+    return returnValue;
+  }
+
+  /**
+   * Parses the supplied {@code value} into a {@code boolean} array
+   * without creating any intermediate objects.
+   *
+   * <p>An element is {@code true} if it is equal, ignoring case, to
+   * {@code true}, and {@code false} otherwise, exactly as {@link
+   * Boolean#parseBoolean(String)} would parse it.</p>
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param value the value to parse; must not be {@code null}
+   *
+   * @param delimiter the delimiter separating elements
+   *
+   * @return a non-{@code null} {@code boolean} array
+   *
+   * @exception NullPointerException if {@code value} is {@code null}
+   */
+  public static final boolean[] toBooleanArray(final CharSequence value, final char delimiter) {
+    final int length = value.length();
+    final int count = count(value, delimiter, false);
+    final boolean[] returnValue = new boolean[count];
+    int start = 0;
+    for (int i = 0; i < count; i++) {
+      final int end = indexOf(value, delimiter, start, length, false);
+      returnValue[i] = parseBoolean(value, start, end);
+      start = end + 1;
+    }
+    return returnValue;
+  }
+
+  /**
+   * Parses the supplied comma-delimited {@code value} into an
+   * unmodifiable {@link List} of {@link String}s.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param value the value to parse; must not be {@code null}
+   *
+   * @return a non-{@code null}, unmodifiable {@link List}
+   *
+   * @exception NullPointerException if {@code value} is {@code null}
+   *
+   * @see #toList(CharSequence, char)
+   */
+  public static final List<String> toList(final CharSequence value) {
+    return toList(value, DEFAULT_DELIMITER);
+  }
+
+  /**
+   * Parses the supplied {@code value} into an unmodifiable {@link
+   * List} of {@link String}s, one per element.
+   *
+   * <p>This method never returns {@code null}.  Each element is the
+   * only {@link String} created for it.</p>
+   *
+   * @param value the value to parse; must not be {@code null}
+   *
+   * @param delimiter the delimiter separating elements
+   *
+   * @return a non-{@code null}, unmodifiable {@link List}
+   *
+   * @exception NullPointerException if {@code value} is {@code null}
+   */
+  public static final List<String> toList(final CharSequence value, final char delimiter) {
+    return Collections.unmodifiableList(Arrays.asList(toStringArray(value, delimiter)));
+  }
+
+  /**
+   * Parses the supplied {@code value} into an unmodifiable {@link
+   * List} whose elements are of the supplied {@code elementType}.
+   *
+   * <p>This method never returns {@code null}.  {@link Integer} and
+   * {@link Long} elements are stored in a primitive array and boxed
+   * only when retrieved.</p>
+   *
+   * @param <E> the type of the elements
+   *
+   * @param value the value to parse; must not be {@code null}
+   *
+   * @param delimiter the delimiter separating elements
+   *
+   * @param elementType the type of the elements; must not be {@code
+   * null}
+   *
+   * @return a non-{@code null}, unmodifiable {@link List}
+   *
+   * @exception NullPointerException if {@code value} or {@code
+   * elementType} is {@code null}
+   *
+   * @exception ConversionException if any element could not be
+   * converted
+   */
+  @SuppressWarnings("unchecked")
+  public static final <E> List<E> toList(final CharSequence value, final char delimiter, final Class<E> elementType) {
+    final List<?> returnValue;
+    if (elementType == String.class || elementType == CharSequence.class || elementType == Object.class) {
+      returnValue = toList(value, delimiter);
+    } else if (elementType == Integer.class) {
+      returnValue = new IntList(toIntArray(value, delimiter));
+    } else if (elementType == Long.class) {
+      returnValue = new LongList(toLongArray(value, delimiter));
+    } else {
+      returnValue = Collections.unmodifiableList(Arrays.asList((Object[])toArray(value, delimiter, elementType)));
+    }
+    return (List<E>)returnValue;
+  }
+
+  /**
+   * Parses the supplied {@code value} into an unmodifiable {@link
+   * Set} whose elements are of the supplied {@code elementType} and
+   * which preserves the order in which they were encountered.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param <E> the type of the elements
+   *
+   * @param value the value to parse; must not be {@code null}
+   *
+   * @param delimiter the delimiter separating elements
+   *
+   * @param elementType the type of the elements; must not be {@code
+   * null}
+   *
+   * @return a non-{@code null}, unmodifiable {@link Set}
+   *
+   * @exception NullPointerException if {@code value} or {@code
+   * elementType} is {@code null}
+   *
+   * @exception ConversionException if any element could not be
+   * converted
+   */
+  public static final <E> Set<E> toSet(final CharSequence value, final char delimiter, final Class<E> elementType) {
+    final List<E> list = toList(value, delimiter, elementType);
+    final Set<E> returnValue;
+    if (list.isEmpty()) {
+      returnValue = Collections.emptySet();
+    } else if (list.size() == 1) {
+      returnValue = Collections.singleton(list.get(0));
+    } else {
+      returnValue = Collections.unmodifiableSet(new LinkedHashSet<>(list));
+    }
+    return returnValue;
+  }
+
+  /**
+   * Parses the supplied {@code value} into an array whose component
+   * type is the supplied {@code componentType}.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param value the value to parse; must not be {@code null}
+   *
+   * @param delimiter the delimiter separating elements
+   *
+   * @param componentType the component type of the array; must not
+   * be {@code null}
+   *
+   * @return a non-{@code null} array
+   *
+   * @exception NullPointerException if {@code value} or {@code
+   * componentType} is {@code null}
+   *
+   * @exception ConversionException if any element could not be
+   * converted
+   */
+  private static final Object toArray(final CharSequence value, final char delimiter, final Class<?> componentType) {
+    final Object returnValue;
+    if (componentType == Integer.TYPE) {
+      returnValue = toIntArray(value, delimiter);
+    } else if (componentType == Long.TYPE) {
+      returnValue = toLongArray(value, delimiter);
+    } else if (componentType == Boolean.TYPE) {
+      returnValue = toBooleanArray(value, delimiter);
+    } else if (componentType == String.class || componentType == CharSequence.class || componentType == Object.class) {
+      final String[] strings = toStringArray(value, delimiter);
+      if (componentType == String.class) {
+        returnValue = strings;
+      } else {
+        returnValue = Array.newInstance(componentType, strings.length);
+        System.arraycopy(strings, 0, returnValue, 0, strings.length);
+      }
+    } else if (componentType.isArray()) {
+      throw new ConversionException("Unsupported component type: " + componentType);
+    } else {
+      final int length = value.length();
+      final int count = count(value, delimiter, false);
+      returnValue = Array.newInstance(componentType, count);
+      int start = 0;
+      for (int i = 0; i < count; i++) {
+        final int end = indexOf(value, delimiter, start, length, false);
+        Array.set(returnValue, i, toScalar(value, start, end, componentType));
+        start = end + 1;
+      }
+    }
+    return returnValue;
+  }
+
+  /**
+   * Parses the supplied {@code value} into an array of {@link
+   * String}s, honoring escapes.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param value the value to parse; must not be {@code null}
+   *
+   * @param delimiter the delimiter separating elements
+   *
+   * @return a non-{@code null} array of {@link String}s
+   *
+   * @exception NullPointerException if {@code value} is {@code null}
+   */
+  private static final String[] toStringArray(final CharSequence value, final char delimiter) {
+    final int length = value.length();
+    final int count = count(value, delimiter, true);
+    final String[] returnValue = new String[count];
+    int start = 0;
+    for (int i = 0; i < count; i++) {
+      final int end = indexOf(value, delimiter, start, length, true);
+      returnValue[i] = unescape(value, start, end);
+      start = end + 1;
+    }
+    return returnValue;
+  }
+
+  /**
+   * Converts the portion of the supplied {@code value} between the
+   * supplied indices, less surrounding whitespace, to an object of
+   * the supplied scalar {@code type}.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param value the value; must not be {@code null}
+   *
+   * @param start the index of the first character, inclusive
+   *
+   * @param end the index of the last character, exclusive
+   *
+   * @param type the scalar type; must not be {@code null}
+   *
+   * @return a non-{@code null} converted value
+   *
+   * @exception ConversionException if the value could not be
+   * converted
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static final Object toScalar(final CharSequence value, final int start, final int end, final Class<?> type) {
+    final Object returnValue;
+    if (type == String.class || type == CharSequence.class || type == Object.class) {
+      returnValue = start == 0 && end == value.length() ? value.toString() : value.subSequence(start, end).toString();
+    } else if (type == Integer.class || type == Integer.TYPE) {
+      returnValue = Integer.valueOf((int)parseLong(value, start, end, Integer.MIN_VALUE, Integer.MAX_VALUE));
+    } else if (type == Long.class || type == Long.TYPE) {
+      returnValue = Long.valueOf(parseLong(value, start, end));
+    } else if (type == Boolean.class || type == Boolean.TYPE) {
+      returnValue = Boolean.valueOf(parseBoolean(value, start, end));
+    } else if (type == Short.class || type == Short.TYPE) {
+      returnValue = Short.valueOf((short)parseLong(value, start, end, Short.MIN_VALUE, Short.MAX_VALUE));
+    } else if (type == Byte.class || type == Byte.TYPE) {
+      returnValue = Byte.valueOf((byte)parseLong(value, start, end, Byte.MIN_VALUE, Byte.MAX_VALUE));
+    } else if (type == Double.class || type == Double.TYPE) {
+      try {
+        returnValue = Double.valueOf(trim(value, start, end));
+      } catch (final NumberFormatException numberFormatException) {
+        throw new ConversionException(numberFormatException.getMessage(), numberFormatException);
+      }
+    } else if (type == Float.class || type == Float.TYPE) {
+      try {
+        returnValue = Float.valueOf(trim(value, start, end));
+      } catch (final NumberFormatException numberFormatException) {
+        throw new ConversionException(numberFormatException.getMessage(), numberFormatException);
+      }
+    } else if (type == Character.class || type == Character.TYPE) {
+      final String trimmed = end - start == 1 ? null : trim(value, start, end);
+      if (trimmed == null) {
+        returnValue = Character.valueOf(value.charAt(start));
+      } else if (trimmed.length() == 1) {
+        returnValue = Character.valueOf(trimmed.charAt(0));
+      } else {
+        throw new ConversionException("Not a single character: " + value.subSequence(start, end));
+      }
+    } else if (type.isEnum()) {
+      try {
+        returnValue = Enum.valueOf((Class)type, trim(value, start, end));
+      } catch (final IllegalArgumentException illegalArgumentException) {
+        throw new ConversionException(illegalArgumentException.getMessage(), illegalArgumentException);
+      }
+    } else {
+      throw new ConversionException("Unsupported type: " + type);
+    }
+    return returnValue;
+  }
+
+  /**
+   * Returns the {@link Class} corresponding to the supplied element
+   * {@link Type} of a parameterized collection type, or {@code null}
+   * if it is not a supported scalar type.
+   *
+   * @param type the element type; may be {@code null}
+   *
+   * @return a {@link Class}, or {@code null}
+   */
+  private static final Class<?> toElementClass(final Type type) {
+    final Class<?> returnValue;
+    if (type instanceof Class) {
+      final Class<?> c = (Class<?>)type;
+      returnValue = c.isArray() || c.isPrimitive() || Collection.class.isAssignableFrom(c) ? null : c;
+    } else if (type instanceof WildcardType) {
+      final Type[] upperBounds = ((WildcardType)type).getUpperBounds();
+      returnValue = upperBounds != null && upperBounds.length == 1 && ((WildcardType)type).getLowerBounds().length == 0 ? toElementClass(upperBounds[0]) : null;
+    } else {
+      returnValue = null;
+    }
+    return returnValue;
+  }
+
+  /**
+   * Returns the number of elements in the supplied {@code value}.
+   *
+   * @param value the value; must not be {@code null}
+   *
+   * @param delimiter the delimiter separating elements
+   *
+   * @param escapes whether escapes are honored
+   *
+   * @return the number of elements; always zero or a positive
+   * integer
+   */
+  private static final int count(final CharSequence value, final char delimiter, final boolean escapes) {
+    final int length = value.length();
+    boolean blank = true;
+    int count = 1;
+    for (int i = 0; i < length; i++) {
+      final char c = value.charAt(i);
+      if (escapes && c == ESCAPE) {
+        blank = false;
+        i++;
+      } else if (c == delimiter) {
+        blank = false;
+        count++;
+      } else if (blank && !Character.isWhitespace(c)) {
+        blank = false;
+      }
+    }
+    return blank ? 0 : count;
+  }
+
+  /**
+   * Returns the index of the next unescaped occurrence of the
+   * supplied {@code delimiter} in the supplied {@code value} at or
+   * after {@code start}, or {@code end} if there is no such
+   * occurrence.
+   *
+   * @param value the value; must not be {@code null}
+   *
+   * @param delimiter the delimiter
+   *
+   * @param start the index at which to begin searching, inclusive
+   *
+   * @param end the index at which to stop searching, exclusive
+   *
+   * @param escapes whether escapes are honored
+   *
+   * @return the index of the delimiter, or {@code end}
+   */
+  private static final int indexOf(final CharSequence value, final char delimiter, final int start, final int end, final boolean escapes) {
+    for (int i = start; i < end; i++) {
+      final char c = value.charAt(i);
+      if (escapes && c == ESCAPE) {
+        i++;
+      } else if (c == delimiter) {
+        return i;
+      }
+    }
+    return end;
+  }
+
+  /**
+   * Parses the portion of the supplied {@code value} between the
+   * supplied indices, less surrounding whitespace, as a decimal
+   * {@code long} without creating any intermediate objects.
+   *
+   * @param value the value; must not be {@code null}
+   *
+   * @param start the index of the first character, inclusive
+   *
+   * @param end the index of the last character, exclusive
+   *
+   * @return the parsed {@code long}
+   *
+   * @exception ConversionException if the portion is not a valid
+   * decimal {@code long}
+   */
+  private static final long parseLong(final CharSequence value, final int start, final int end) {
+    return parseLong(value, start, end, Long.MIN_VALUE, Long.MAX_VALUE);
+  }
+
+  /**
+   * Parses the portion of the supplied {@code value} between the
+   * supplied indices, less surrounding whitespace, as a decimal
+   * {@code long} that must lie within the supplied bounds, without
+   * creating any intermediate objects.
+   *
+   * @param value the value; must not be {@code null}
+   *
+   * @param start the index of the first character, inclusive
+   *
+   * @param end the index of the last character, exclusive
+   *
+   * @param min the smallest permitted value
+   *
+   * @param max the largest permitted value
+   *
+   * @return the parsed {@code long}
+   *
+   * @exception ConversionException if the portion is not a valid
+   * decimal {@code long} within the supplied bounds
+   */
+  private static final long parseLong(final CharSequence value, int start, int end, final long min, final long max) {
+    while (start < end && Character.isWhitespace(value.charAt(start))) {
+      start++;
+    }
+    while (end > start && Character.isWhitespace(value.charAt(end - 1))) {
+      end--;
+    }
+    if (start == end) {
+      throw new ConversionException("Empty numeric element");
+    }
+    int i = start;
+    final char first = value.charAt(i);
+    final boolean negative = first == '-';
+    if (negative || first == '+') {
+      i++;
+      if (i == end) {
+        throw new ConversionException("Not a number: " + value.subSequence(start, end));
+      }
+    }
+    // Accumulate negatively, as Long.parseLong does, so that
+    // Long.MIN_VALUE can be represented.
+    final long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+    final long multiplicationLimit = limit / 10L;
+    long result = 0L;
+    for (; i < end; i++) {
+      final int digit = Character.digit(value.charAt(i), 10);
+      if (digit < 0 || result < multiplicationLimit) {
+        throw new ConversionException("Not a number: " + value.subSequence(start, end));
+      }
+      result *= 10L;
+      if (result < limit + digit) {
+        throw new ConversionException("Not a number: " + value.subSequence(start, end));
+      }
+      result -= digit;
+    }
+    if (!negative) {
+      result = -result;
+    }
+    if (result < min || result > max) {
+      throw new ConversionException("Value out of range: " + value.subSequence(start, end));
+    }
+    return result;
+  }
+
+  /**
+   * Parses the portion of the supplied {@code value} between the
+   * supplied indices, less surrounding whitespace, as a {@code
+   * boolean}, exactly as {@link Boolean#parseBoolean(String)} would.
+   *
+   * @param value the value; must not be {@code null}
+   *
+   * @param start the index of the first character, inclusive
+   *
+   * @param end the index of the last character, exclusive
+   *
+   * @return {@code true} if the portion is equal, ignoring case, to
+   * {@code true}; {@code false} otherwise
+   */
+  private static final boolean parseBoolean(final CharSequence value, int start, int end) {
+    while (start < end && Character.isWhitespace(value.charAt(start))) {
+      start++;
+    }
+    while (end > start && Character.isWhitespace(value.charAt(end - 1))) {
+      end--;
+    }
+    return end - start == 4 &&
+      Character.toLowerCase(value.charAt(start)) == 't' &&
+      Character.toLowerCase(value.charAt(start + 1)) == 'r' &&
+      Character.toLowerCase(value.charAt(start + 2)) == 'u' &&
+      Character.toLowerCase(value.charAt(start + 3)) == 'e';
+  }
+
+  /**
+   * Returns the portion of the supplied {@code value} between the
+   * supplied indices, less surrounding whitespace, as a {@link
+   * String}.
+   *
+   * @param value the value; must not be {@code null}
+   *
+   * @param start the index of the first character, inclusive
+   *
+   * @param end the index of the last character, exclusive
+   *
+   * @return a non-{@code null} {@link String}
+   */
+  private static final String trim(final CharSequence value, int start, int end) {
+    while (start < end && Character.isWhitespace(value.charAt(start))) {
+      start++;
+    }
+    while (end > start && Character.isWhitespace(value.charAt(end - 1))) {
+      end--;
+    }
+    return value.subSequence(start, end).toString();
+  }
+
+  /**
+   * Returns the portion of the supplied {@code value} between the
+   * supplied indices, less surrounding whitespace and with escapes
+   * removed, as a {@link String}.
+   *
+   * @param value the value; must not be {@code null}
+   *
+   * @param start the index of the first character, inclusive
+   *
+   * @param end the index of the last character, exclusive
+   *
+   * @return a non-{@code null} {@link String}
+   */
+  private static final String unescape(final CharSequence value, int start, int end) {
+    while (start < end && Character.isWhitespace(value.charAt(start))) {
+      start++;
+    }
+    while (end > start && Character.isWhitespace(value.charAt(end - 1)) && (end - 2 < start || value.charAt(end - 2) != ESCAPE)) {
+      end--;
+    }
+    int escape = -1;
+    for (int i = start; i < end; i++) {
+      if (value.charAt(i) == ESCAPE) {
+        escape = i;
+        break;
+      }
+    }
+    if (escape < 0) {
+      return value.subSequence(start, end).toString();
+    }
+    final StringBuilder sb = new StringBuilder(end - start);
+    sb.append(value, start, escape);
+    for (int i = escape; i < end; i++) {
+      final char c = value.charAt(i);
+      if (c == ESCAPE && i + 1 < end) {
+        sb.append(value.charAt(++i));
+      } else {
+        sb.append(c);
+      }
+    }
+    return sb.toString();
+  }
+
+
+  /*
+   * Inner and nested classes.
+   */
+
+
+  /**
+   * An immutable {@link List} of {@link Integer}s backed by an {@code
+   * int} array.
+   *
+   * @author <a href="https://about.me/lairdnelson"
+   * target="_parent">Laird Nelson</a>
+   */
+  private static final class IntList extends AbstractList<Integer> implements RandomAccess, Serializable {
+
+    /**
+     * The version of this class for {@linkplain Serializable
+     * serialization} purposes.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The backing array; never {@code null}.
+     */
+    private final int[] values;
+
+    /**
+     * Creates a new {@link IntList}.
+     *
+     * @param values the backing array; must not be {@code null}
+     */
+    private IntList(final int[] values) {
+      super();
+      this.values = values;
+    }
+
+    /**
+     * Returns the element at the supplied {@code index}.
+     *
+     * @param index the index
+     *
+     * @return the element at the supplied {@code index}
+     *
+     * @exception ArrayIndexOutOfBoundsException if {@code index} is
+     * out of range
+     */
+    @Override
+    public final Integer get(final int index) {
+      return Integer.valueOf(this.values[index]);
+    }
+
+    /**
+     * Returns the number of elements in this {@link IntList}.
+     *
+     * @return the number of elements in this {@link IntList}
+     */
+    @Override
+    public final int size() {
+      return this.values.length;
+    }
+
+  }
+
+  /**
+   * An immutable {@link List} of {@link Long}s backed by a {@code
+   * long} array.
+   *
+   * @author <a href="https://about.me/lairdnelson"
+   * target="_parent">Laird Nelson</a>
+   */
+  private static final class LongList extends AbstractList<Long> implements RandomAccess, Serializable {
+
+    /**
+     * The version of this class for {@linkplain Serializable
+     * serialization} purposes.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The backing array; never {@code null}.
+     */
+    private final long[] values;
+
+    /**
+     * Creates a new {@link LongList}.
+     *
+     * @param values the backing array; must not be {@code null}
+     */
+    private LongList(final long[] values) {
+      super();
+      this.values = values;
+    }
+
+    /**
+     * Returns the element at the supplied {@code index}.
+     *
+     * @param index the index
+     *
+     * @return the element at the supplied {@code index}
+     *
+     * @exception ArrayIndexOutOfBoundsException if {@code index} is
+     * out of range
+     */
+    @Override
+    public final Long get(final int index) {
+      return Long.valueOf(this.values[index]);
+    }
+
+    /**
+     * Returns the number of elements in this {@link LongList}.
+     *
+     * @return the number of elements in this {@link LongList}
+     */
+    @Override
+    public final int size() {
+      return this.values.length;
+    }
+
+  }
+
+}
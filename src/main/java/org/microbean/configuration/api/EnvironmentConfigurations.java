@@ -0,0 +1,548 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2018 microBean.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.microbean.configuration.api;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import java.util.function.Supplier;
+
+/**
+ * An {@link AbstractConfigurations} whose {@link
+ * ConfigurationValue}s are {@linkplain System#getProperties() system
+ * properties} and {@linkplain System#getenv() environment
+ * variables}.
+ *
+ * <p>A configuration property is found by its exact name first, and
+ * then by its <em>normalized</em> name, which is its name in upper
+ * case with every character that is not a letter or a digit replaced
+ * by an underscore, so that a request for {@code db.url} finds an
+ * environment variable named {@code DB_URL}.  In either case a system
+ * property takes precedence over an environment variable.</p>
+ *
+ * <p>Both sources are read and indexed by name and normalized name
+ * when an instance of this class is created and when it is
+ * {@linkplain #refresh() refreshed}, and not otherwise.  The outcome
+ * of each distinct request, for up to 4096 distinct names, is
+ * remembered, so that every request after the first for a
+ * given name costs a single hash lookup.  Once that many names have
+ * been requested, further outcomes are not remembered, and the next
+ * refresh that finds any change reports that every configuration
+ * value may have changed.</p>
+ *
+ * <p>Instances of this class are safe for concurrent use by multiple
+ * threads.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson"
+ * target="_parent">Laird Nelson</a>
+ *
+ * @see #refresh()
+ */
+public final class EnvironmentConfigurations extends AbstractConfigurations {
+
+
+  /*
+   * Static fields.
+   */
+
+
+  /**
+   * The {@linkplain ConfigurationValue#getSource() source} of {@link
+   * ConfigurationValue}s that are system properties.
+   */
+  private static final String SYSTEM_PROPERTIES = "System properties";
+
+  /**
+   * The {@linkplain ConfigurationValue#getSource() source} of {@link
+   * ConfigurationValue}s that are environment variables.
+   */
+  private static final String ENVIRONMENT_VARIABLES = "Environment variables";
+
+  /**
+   * The maximum number of distinct requested names whose outcomes an
+   * {@link Index} remembers.
+   *
+   * @see Index#get(String)
+   */
+  private static final int MAX_REMEMBERED_NAMES = 4096;
+
+
+  /*
+   * Instance fields.
+   */
+
+
+  /**
+   * The {@link Supplier} of environment variables.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final Supplier<? extends Map<String, String>> environmentSupplier;
+
+  /**
+   * The {@link Supplier} of system properties.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final Supplier<? extends Properties> systemPropertiesSupplier;
+
+  /**
+   * The current {@link Index}.
+   *
+   * <p>This field is never {@code null}.</p>
+   *
+   * @see #refresh()
+   */
+  private volatile Index index;
+
+
+  /*
+   * Constructors.
+   */
+
+
+  /**
+   * Creates a new {@link EnvironmentConfigurations} over {@link
+   * System#getenv()} and {@link System#getProperties()}.
+   *
+   * @param configurationCoordinates the configuration coordinates of
+   * the new {@link EnvironmentConfigurations}; may be {@code null}
+   */
+  public EnvironmentConfigurations(final Map<? extends String, ? extends String> configurationCoordinates) {
+    this(configurationCoordinates, System::getenv, System::getProperties);
+  }
+
+  /**
+   * Creates a new {@link EnvironmentConfigurations} over the
+   * environment variables and system properties returned by the
+   * supplied {@link Supplier}s, each of which is invoked once now
+   * and once each time the new {@link EnvironmentConfigurations} is
+   * {@linkplain #refresh() refreshed}.
+   *
+   * @param configurationCoordinates the configuration coordinates of
+   * the new {@link EnvironmentConfigurations}; may be {@code null}
+   *
+   * @param environmentSupplier a {@link Supplier} of environment
+   * variables; must not be {@code null}
+   *
+   * @param systemPropertiesSupplier a {@link Supplier} of system
+   * properties; must not be {@code null}
+   *
+   * @exception NullPointerException if either {@link Supplier} is
+   * {@code null}
+   */
+  public EnvironmentConfigurations(final Map<? extends String, ? extends String> configurationCoordinates,
+                                   final Supplier<? extends Map<String, String>> environmentSupplier,
+                                   final Supplier<? extends Properties> systemPropertiesSupplier) {
+    super(configurationCoordinates);
+    this.environmentSupplier = Objects.requireNonNull(environmentSupplier);
+    this.systemPropertiesSupplier = Objects.requireNonNull(systemPropertiesSupplier);
+    this.index = this.read();
+  }
+
+
+  /*
+   * Instance methods.
+   */
+
+
+  /**
+   * Returns the names of all system properties and environment
+   * variables as of the last {@linkplain #refresh() refresh},
+   * together with their normalized forms.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * <p>A request made with any other name whose normalized form is
+   * among the returned names also finds a value, but such names are
+   * too many to enumerate and so are not returned.  For example, if
+   * there is an environment variable named {@code DB_URL}, the
+   * returned {@link Set} contains {@code DB_URL} but not {@code
+   * db.url}, even though a request for {@code db.url} finds it.</p>
+   *
+   * @return a non-{@code null}, immutable {@link Set} of names
+   */
+  @Override
+  public final Set<String> getNames() {
+    return this.index.names;
+  }
+
+  /**
+   * Returns the {@link ConfigurationValue} for the system property or
+   * environment variable with the supplied {@code name} or, failing
+   * that, with the same normalized name, or {@code null} if there is
+   * no such {@link ConfigurationValue}.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @param configurationCoordinates the configuration coordinates in
+   * effect for the request; ignored
+   *
+   * @param name the name of the configuration property; must not be
+   * {@code null}
+   *
+   * @return a {@link ConfigurationValue}, or {@code null}
+   *
+   * @exception NullPointerException if {@code name} is {@code null}
+   */
+  @Override
+  public final ConfigurationValue getConfigurationValue(final Map<String, String> configurationCoordinates, final String name) {
+    return this.index.get(name);
+  }
+
+  /**
+   * Returns an immutable {@link Collection} containing the {@link
+   * ConfigurationValue} that would be {@linkplain
+   * #getConfigurationValue(Map, String) returned} for the supplied
+   * {@code name}, since no other {@link ConfigurationValue} ever
+   * competes with it.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param configurationCoordinates ignored; may be {@code null}
+   *
+   * @param name the name of the configuration property; must not be
+   * {@code null}
+   *
+   * @return an immutable {@link Collection} of at most one {@link
+   * ConfigurationValue}; never {@code null}
+   *
+   * @exception NullPointerException if {@code name} is {@code null}
+   */
+  @Override
+  final Collection<? extends ConfigurationValue> getCandidates(final Map<String, String> configurationCoordinates, final String name) {
+    final ConfigurationValue value = this.index.get(name);
+    return value == null ? Collections.<ConfigurationValue>emptyList() : Collections.singletonList(value);
+  }
+
+  /**
+   * Reads the environment variables and system properties again,
+   * rebuilds the index over them and {@linkplain
+   * #configurationChanged(Set) reports} the names whose values have
+   * changed.
+   *
+   * <p>Changes to system properties or environment variables are
+   * not seen until this method is called.</p>
+   *
+   * @see ConfigurationValueDiff
+   */
+  public final void refresh() {
+    final Set<String> changedNames;
+    synchronized (this) {
+      final Index oldIndex = this.index;
+      final Index newIndex = this.read();
+      final ConfigurationValueDiff diff = ConfigurationValueDiff.of(oldIndex.values(), newIndex.values());
+      if (diff.isEmpty()) {
+        // Keep the old Index, and with it the outcomes it remembers.
+        return;
+      }
+      this.index = newIndex;
+      if (oldIndex.isForgetful()) {
+        // Some requests were not remembered, so which of them a
+        // change affects cannot be known.
+        changedNames = null;
+      } else {
+        changedNames = this.computeChangedNames(diff, oldIndex, newIndex);
+      }
+    }
+    if (changedNames == null) {
+      this.configurationChanged();
+    } else {
+      this.configurationChanged(changedNames);
+    }
+  }
+
+  /**
+   * Returns the names whose values are reported by the supplied
+   * {@link ConfigurationValueDiff} to have changed, together with
+   * every name remembered by the supplied {@code oldIndex} whose
+   * normalized form is that of a changed name, and arranges for the
+   * supplied {@code newIndex} to go on remembering the outcomes of
+   * requests remembered by the supplied {@code oldIndex}.
+   *
+   * @param diff the {@link ConfigurationValueDiff} describing the
+   * change; must not be {@code null}
+   *
+   * @param oldIndex the {@link Index} being replaced; must not be
+   * {@code null}
+   *
+   * @param newIndex the {@link Index} replacing it; must not be
+   * {@code null}
+   *
+   * @return a non-{@code null} {@link Set} of names
+   */
+  private final Set<String> computeChangedNames(final ConfigurationValueDiff diff, final Index oldIndex, final Index newIndex) {
+    // A change to DB_URL also changes what a request for db.url
+    // finds, so report every remembered request whose name
+    // normalizes to a changed name.
+    final Set<String> changedNames = new HashSet<>(diff.getChangedNames());
+    final Set<String> normalizedChangedNames = new HashSet<>();
+    for (final String changedName : changedNames) {
+      normalizedChangedNames.add(normalize(changedName));
+    }
+    for (final String requestedName : oldIndex.remembered.keySet()) {
+      if (normalizedChangedNames.contains(normalize(requestedName))) {
+        changedNames.add(requestedName);
+      }
+      // Callers may go on relying on the outcome of a request
+      // without repeating it, so keep remembering it; otherwise a
+      // later change to it would go unreported.  There are at most
+      // MAX_REMEMBERED_NAMES of them, so this does not grow.
+      newIndex.get(requestedName);
+    }
+    return changedNames;
+  }
+
+  /**
+   * Returns {@code true}, since the {@link #refresh()} method
+   * reports every change to the environment variables and system
+   * properties it reads.
+   *
+   * @return {@code true}
+   *
+   * @see #refresh()
+   */
+  @Override
+  protected final boolean isChangeReportingEnabled() {
+    return true;
+  }
+
+  /**
+   * Returns a {@link Configurations} that exposes the environment
+   * variables and system properties as they were last {@linkplain
+   * #refresh() read} and that never changes.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return a non-{@code null} {@link Configurations}
+   *
+   * @see Configurations#readConsistently(java.util.function.Function)
+   */
+  @Override
+  protected final Configurations snapshot() {
+    final Index index = this.index;
+    return new PinnedConfigurations(this, index.names, (configurationCoordinates, name) -> index.get(name));
+  }
+
+  /**
+   * Reads the environment variables and system properties and
+   * returns a new {@link Index} over them.
+   *
+   * @return a non-{@code null} {@link Index}
+   */
+  private final Index read() {
+    final Map<String, ConfigurationValue> byName = new HashMap<>();
+    final Map<String, ConfigurationValue> byNormalizedName = new HashMap<>();
+    final Map<String, String> environment = this.environmentSupplier.get();
+    if (environment != null) {
+      for (final Map.Entry<String, String> entry : environment.entrySet()) {
+        final String name = entry.getKey();
+        if (name != null) {
+          final ConfigurationValue value = new ConfigurationValue(ENVIRONMENT_VARIABLES, null, name, entry.getValue(), false);
+          byName.put(name, value);
+          byNormalizedName.putIfAbsent(normalize(name), value);
+        }
+      }
+    }
+    final Properties systemProperties = this.systemPropertiesSupplier.get();
+    if (systemProperties != null) {
+      for (final String name : systemProperties.stringPropertyNames()) {
+        final ConfigurationValue value = new ConfigurationValue(SYSTEM_PROPERTIES, null, name, systemProperties.getProperty(name), false);
+        byName.put(name, value);
+        byNormalizedName.put(normalize(name), value);
+      }
+    }
+    return new Index(byName, byNormalizedName);
+  }
+
+
+  /*
+   * Static methods.
+   */
+
+
+  /**
+   * Returns the normalized form of the supplied {@code name}: its
+   * upper-case form with every character that is not a letter or a
+   * digit replaced by an underscore.
+   *
+   * @param name the name to normalize; must not be {@code null}
+   *
+   * @return the normalized name
+   */
+  static final String normalize(final String name) {
+    final int length = name.length();
+    final char[] chars = new char[length];
+    for (int i = 0; i < length; i++) {
+      final char c = name.charAt(i);
+      chars[i] = Character.isLetterOrDigit(c) ? Character.toUpperCase(c) : '_';
+    }
+    return new String(chars);
+  }
+
+
+  /*
+   * Inner and nested classes.
+   */
+
+
+  /**
+   * An immutable index over the environment variables and system
+   * properties as of a particular read, together with the
+   * remembered outcomes of requests made against it.
+   *
+   * @author <a href="https://about.me/lairdnelson"
+   * target="_parent">Laird Nelson</a>
+   */
+  private static final class Index {
+
+    /**
+     * A {@link ConfigurationValue} standing for the absence of one in
+     * {@link #remembered}, which cannot hold {@code null}s.
+     */
+    private static final ConfigurationValue NONE = new ConfigurationValue(EnvironmentConfigurations.class.getName(), null, "", null, false);
+
+    /**
+     * The {@link ConfigurationValue}s, indexed by exact name.
+     *
+     * <p>This field is never {@code null}.</p>
+     */
+    private final Map<String, ConfigurationValue> byName;
+
+    /**
+     * The {@link ConfigurationValue}s, indexed by normalized name.
+     *
+     * <p>This field is never {@code null}.</p>
+     */
+    private final Map<String, ConfigurationValue> byNormalizedName;
+
+    /**
+     * The names and normalized names of all {@link
+     * ConfigurationValue}s.
+     *
+     * <p>This field is never {@code null}.</p>
+     */
+    private final Set<String> names;
+
+    /**
+     * The outcome of every request made against this {@link Index},
+     * for up to {@link EnvironmentConfigurations#MAX_REMEMBERED_NAMES}
+     * distinct names, indexed by requested name, with {@link #NONE}
+     * standing for no {@link ConfigurationValue}.
+     *
+     * <p>This field is never {@code null}.</p>
+     *
+     * @see #isForgetful()
+     */
+    private final ConcurrentMap<String, ConfigurationValue> remembered;
+
+    /**
+     * Whether the outcome of at least one request made against this
+     * {@link Index} was not {@linkplain #remembered remembered}
+     * because {@link EnvironmentConfigurations#MAX_REMEMBERED_NAMES}
+     * outcomes already were.
+     *
+     * @see #isForgetful()
+     */
+    private volatile boolean forgetful;
+
+    /**
+     * Creates a new {@link Index}.
+     *
+     * @param byName the {@link ConfigurationValue}s, indexed by exact
+     * name; must not be {@code null}
+     *
+     * @param byNormalizedName the {@link ConfigurationValue}s, indexed
+     * by normalized name; must not be {@code null}
+     */
+    private Index(final Map<String, ConfigurationValue> byName, final Map<String, ConfigurationValue> byNormalizedName) {
+      super();
+      this.byName = byName;
+      this.byNormalizedName = byNormalizedName;
+      final Set<String> names = new LinkedHashSet<>(byName.keySet());
+      names.addAll(byNormalizedName.keySet());
+      this.names = Collections.unmodifiableSet(names);
+      this.remembered = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the {@link ConfigurationValue} with the supplied exact
+     * or normalized {@code name}, or {@code null}, remembering the
+     * outcome unless {@link EnvironmentConfigurations#MAX_REMEMBERED_NAMES}
+     * outcomes already are.
+     *
+     * @param name the requested name; must not be {@code null}
+     *
+     * @return a {@link ConfigurationValue}, or {@code null}
+     *
+     * @exception NullPointerException if {@code name} is {@code null}
+     */
+    private final ConfigurationValue get(final String name) {
+      ConfigurationValue value = this.remembered.get(name);
+      if (value == null) {
+        value = this.byName.get(name);
+        if (value == null) {
+          value = this.byNormalizedName.get(normalize(name));
+          if (value == null) {
+            value = NONE;
+          }
+        }
+        if (this.remembered.size() < MAX_REMEMBERED_NAMES) {
+          this.remembered.putIfAbsent(name, value);
+        } else {
+          this.forgetful = true;
+        }
+      }
+      return value == NONE ? null : value;
+    }
+
+    /**
+     * Returns {@code true} if the outcome of at least one request
+     * made against this {@link Index} was not remembered, in which
+     * case the requests that a change affects cannot be known.
+     *
+     * @return {@code true} if this {@link Index} has forgotten the
+     * outcome of a request; {@code false} otherwise
+     */
+    private final boolean isForgetful() {
+      return this.forgetful;
+    }
+
+    /**
+     * Returns the {@link ConfigurationValue}s in this {@link Index}.
+     *
+     * @return a non-{@code null} {@link Collection} of {@link
+     * ConfigurationValue}s
+     */
+    private final Collection<ConfigurationValue> values() {
+      return new ArrayList<>(this.byName.values());
+    }
+
+  }
+
+}
@@ -0,0 +1,410 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2018 microBean.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.microbean.configuration.api;
+
+import java.lang.reflect.Type;
+
+import java.nio.ByteBuffer;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A {@link Configurations} that passes every request through to a
+ * delegate {@link Configurations}, intended to be extended by
+ * {@link Configurations} implementations that decorate another,
+ * such as {@link CachingConfigurations}.
+ *
+ * <p>Subclasses override only the methods whose behavior they
+ * change.  In particular, conversions, {@linkplain
+ * Configurations#configurationChanged() change reporting} and
+ * {@linkplain Configurations#readConsistently(java.util.function.Function)
+ * consistent reads} are passed through to the delegate without any
+ * further work on the part of a subclass, other than the
+ * implementation of the {@link #withDelegate(Configurations)}
+ * method.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson"
+ * target="_parent">Laird Nelson</a>
+ *
+ * @see #withDelegate(Configurations)
+ */
+public abstract class ForwardingConfigurations extends Configurations {
+
+
+  /*
+   * Instance fields.
+   */
+
+
+  /**
+   * The {@link Configurations} to which requests are passed.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final Configurations delegate;
+
+
+  /*
+   * Constructors.
+   */
+
+
+  /**
+   * Creates a new {@link ForwardingConfigurations}.
+   *
+   * @param delegate the {@link Configurations} to which requests will
+   * be passed; must not be {@code null}
+   *
+   * @exception NullPointerException if {@code delegate} is {@code
+   * null}
+   */
+  protected ForwardingConfigurations(final Configurations delegate) {
+    super();
+    this.delegate = Objects.requireNonNull(delegate);
+  }
+
+
+  /*
+   * Instance methods.
+   */
+
+
+  /**
+   * Returns the {@link Configurations} to which requests are passed.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return the non-{@code null} delegate
+   */
+  protected final Configurations getDelegate() {
+    return this.delegate;
+  }
+
+  /**
+   * Returns a new {@link Configurations} that decorates the supplied
+   * {@code delegate} in the same way that this {@link
+   * ForwardingConfigurations} decorates its own.
+   *
+   * <p>Implementations of this method must not return {@code
+   * null}.</p>
+   *
+   * <p>This method is called by the {@link #snapshot()} method with
+   * a snapshot of this {@link ForwardingConfigurations}' delegate.
+   * Implementations must therefore not hold on to state, such as
+   * cached values, that could be inconsistent with the supplied
+   * {@code delegate}.</p>
+   *
+   * @param delegate the {@link Configurations} to decorate; will not
+   * be {@code null}
+   *
+   * @return a new, non-{@code null} {@link Configurations}
+   *
+   * @see #snapshot()
+   */
+  protected abstract Configurations withDelegate(final Configurations delegate);
+
+  /**
+   * Returns the {@link Set} of conversion types supported by the
+   * delegate.
+   *
+   * @return a non-{@code null} {@link Set} of {@link Type}s
+   */
+  @Override
+  public Set<Type> getConversionTypes() {
+    return this.delegate.getConversionTypes();
+  }
+
+  /**
+   * Returns the configuration coordinates of the delegate.
+   *
+   * @return a {@link Map} of configuration coordinates, or {@code
+   * null}
+   */
+  @Override
+  public Map<String, String> getConfigurationCoordinates() {
+    return this.delegate.getConfigurationCoordinates();
+  }
+
+  /**
+   * Returns the names of the delegate.
+   *
+   * @return a non-{@code null} {@link Set} of names
+   */
+  @Override
+  public Set<String> getNames() {
+    return this.delegate.getNames();
+  }
+
+  /**
+   * Returns {@code true} if this {@link ForwardingConfigurations}
+   * overrides the {@link #convert(String, Type)} method itself, or if
+   * the delegate is known to convert the configuration values it
+   * exposes with its {@link #convert(String, Type)} method, to which
+   * that of this {@link ForwardingConfigurations} forwards.
+   *
+   * @return {@code true} if this {@link ForwardingConfigurations} is
+   * known to convert the configuration values it exposes with its
+   * {@link #convert(String, Type)} method
+   */
+  @Override
+  boolean isConvertingWithConvert() {
+    return super.isConvertingWithConvert() || this.delegate.isConvertingWithConvert();
+  }
+
+  /**
+   * Returns {@code true} if the delegate reports every change to its
+   * configuration values.
+   *
+   * @return {@code true} if the delegate reports every change to its
+   * configuration values; {@code false} otherwise
+   */
+  @Override
+  protected final boolean isChangeReportingEnabled() {
+    return this.delegate.isChangeReportingEnabled();
+  }
+
+  /**
+   * Returns the version of the delegate, so that anything derived
+   * from this {@link ForwardingConfigurations} is discarded when the
+   * delegate's configuration changes.
+   *
+   * @return the version of the delegate
+   */
+  @Override
+  final long getVersion() {
+    return this.delegate.getVersion();
+  }
+
+  /**
+   * Returns the names that the delegate reports have changed since
+   * the supplied {@code version}.
+   *
+   * @param version a version previously returned by the {@link
+   * #getVersion()} method
+   *
+   * @return an immutable {@link Set} of names, or {@code null}
+   */
+  @Override
+  Set<String> getChangedNames(final long version) {
+    return this.delegate.getChangedNames(version);
+  }
+
+  /**
+   * Returns the {@link ConfigurationValue}s that the delegate
+   * considers when selecting a {@link ConfigurationValue} for the
+   * supplied {@code configurationCoordinates} and {@code name}, or
+   * {@code null} if they cannot be known.
+   *
+   * @param configurationCoordinates a {@link Map} representing the
+   * configuration coordinates in effect for this request; may be
+   * {@code null}
+   *
+   * @param name the name of the configuration property; must not be
+   * {@code null}
+   *
+   * @return an immutable {@link Collection} of {@link
+   * ConfigurationValue}s, or {@code null}
+   *
+   * @exception NullPointerException if {@code name} is {@code null}
+   */
+  @Override
+  Collection<? extends ConfigurationValue> getCandidates(final Map<String, String> configurationCoordinates, final String name) {
+    return this.delegate.getCandidates(configurationCoordinates, name);
+  }
+
+  /**
+   * Returns the result of calling the {@link
+   * #withDelegate(Configurations)} method with a {@linkplain
+   * Configurations#snapshot() snapshot} of the delegate, or {@code
+   * null} if the delegate cannot take snapshots.
+   *
+   * @return a {@link Configurations} that never changes, or {@code
+   * null}
+   *
+   * @see #withDelegate(Configurations)
+   */
+  @Override
+  protected final Configurations snapshot() {
+    final Configurations snapshot = this.delegate.snapshot();
+    return snapshot == null ? null : this.withDelegate(snapshot);
+  }
+
+  /**
+   * Converts the supplied {@code value} in the same way that the
+   * delegate converts the configuration values it exposes.
+   *
+   * @param <T> the type to which the supplied {@code value} will be
+   * converted
+   *
+   * @param value the value to convert; may be {@code null}
+   *
+   * @param type a {@link Type} representing the type to which the
+   * supplied {@code value} will be converted; must not be {@code
+   * null}
+   *
+   * @return the converted value, or {@code null}
+   *
+   * @exception NullPointerException if {@code type} is {@code null}
+   *
+   * @exception ConversionException if the supplied {@code value}
+   * could not be converted for any reason
+   */
+  @Override
+  protected <T> T convert(final String value, final Type type) {
+    return this.delegate.convert(value, type);
+  }
+
+  /**
+   * Converts the supplied {@code value}, which the delegate selected
+   * for the supplied {@code configurationCoordinates} and {@code
+   * name}, or, if it is {@code null}, the supplied {@code
+   * defaultValue}, exactly as the delegate's {@link
+   * Configurations#getValue(Map, String, Type, String)} method would.
+   *
+   * <p>If the delegate is {@linkplain
+   * Configurations#isConvertingWithConvert() known} to convert the
+   * values it exposes with its {@link Configurations#convert(String,
+   * Type)} method, that method is called directly, without looking
+   * the configuration property up again.  Otherwise the delegate's
+   * {@link Configurations#getValue(Map, String, Type, String)} method
+   * is called.</p>
+   *
+   * @param <T> the type to which the value should be converted
+   *
+   * @param configurationCoordinates a {@link Map} representing the
+   * configuration coordinates in effect for this request; may be
+   * {@code null}
+   *
+   * @param name the name of the configuration property; must not be
+   * {@code null}
+   *
+   * @param value the value of the configuration property as the
+   * delegate exposes it; may be {@code null}
+   *
+   * @param type a {@link Type} representing the type to which the
+   * value will be converted; must not be {@code null}
+   *
+   * @param defaultValue the value that will be converted if {@code
+   * value} is {@code null}; may be {@code null}
+   *
+   * @return the converted value, or {@code null}
+   *
+   * @exception ConversionException if type conversion could not occur
+   * for any reason
+   */
+  final <T> T convertAsDelegate(final Map<String, String> configurationCoordinates,
+                                final String name,
+                                final String value,
+                                final Type type,
+                                final String defaultValue) {
+    final String valueToConvert = value == null ? defaultValue : value;
+    if (valueToConvert == null) {
+      return null;
+    } else if (this.delegate.isConvertingWithConvert()) {
+      return this.delegate.convert(valueToConvert, type);
+    }
+    return this.delegate.getValue(configurationCoordinates, name, type, defaultValue);
+  }
+
+  /**
+   * Returns the result of calling the {@link
+   * Configurations#getConfigurationValue(Map, String)} method on the
+   * delegate.
+   *
+   * @param configurationCoordinates the configuration coordinates in
+   * effect for the request; may be {@code null}
+   *
+   * @param name the name of the configuration property; must not be
+   * {@code null}
+   *
+   * @return the selected {@link ConfigurationValue}, or {@code null}
+   *
+   * @exception NullPointerException if {@code name} is {@code null}
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable
+   */
+  @Override
+  public ConfigurationValue getConfigurationValue(final Map<String, String> configurationCoordinates, final String name) {
+    return this.delegate.getConfigurationValue(configurationCoordinates, name);
+  }
+
+  /**
+   * Returns the result of calling the {@link
+   * Configurations#getByteBuffer(Map, String)} method on the
+   * delegate, so that any storage it can expose without copying is
+   * exposed here as well.
+   *
+   * @param configurationCoordinates the configuration coordinates in
+   * effect for the request; may be {@code null}
+   *
+   * @param name the name of the configuration property; must not be
+   * {@code null}
+   *
+   * @return a read-only {@link ByteBuffer}, or {@code null}
+   *
+   * @exception NullPointerException if {@code name} is {@code null}
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable
+   */
+  @Override
+  public ByteBuffer getByteBuffer(final Map<String, String> configurationCoordinates, final String name) {
+    return this.delegate.getByteBuffer(configurationCoordinates, name);
+  }
+
+  /**
+   * Returns the result of calling the {@link
+   * Configurations#getValue(Map, String, Type, String)} method on the
+   * delegate.
+   *
+   * @param <T> the type to which a {@link String}-typed configuration
+   * value should be converted
+   *
+   * @param configurationCoordinates a {@link Map} representing the
+   * configuration coordinates in effect for this request; may be
+   * {@code null}
+   *
+   * @param name the name of the configuration property for which a
+   * value will be returned; must not be {@code null}
+   *
+   * @param type a {@link Type} representing the type to which the
+   * configuration value will be converted; must not be {@code null}
+   *
+   * @param defaultValue the value that will be converted and returned
+   * if {@code null} would otherwise be returned; may be {@code null}
+   *
+   * @return the configuration value, or {@code null}
+   *
+   * @exception NullPointerException if {@code name} or {@code type}
+   * is {@code null}
+   *
+   * @exception ConversionException if type conversion could not occur
+   * for any reason
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable
+   */
+  @Override
+  public <T> T getValue(final Map<String, String> configurationCoordinates, final String name, final Type type, final String defaultValue) {
+    return this.delegate.getValue(configurationCoordinates, name, type, defaultValue);
+  }
+
+}
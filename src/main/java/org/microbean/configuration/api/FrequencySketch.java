@@ -0,0 +1,201 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2018 microBean.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.microbean.configuration.api;
+
+/**
+ * A count-min sketch of four-bit counters that estimates how
+ * frequently hash values have been recorded, periodically halving
+ * every counter so that old popularity fades.
+ *
+ * <p>Instances of this class are <strong>not</strong> safe for
+ * concurrent use by multiple threads.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson"
+ * target="_parent">Laird Nelson</a>
+ *
+ * @see CachingConfigurations
+ */
+final class FrequencySketch {
+
+
+  /*
+   * Static fields.
+   */
+
+
+  /**
+   * The largest length the {@linkplain #table table} may have.
+   */
+  private static final int MAXIMUM_TABLE_LENGTH = 1 << 12;
+
+  /**
+   * Seeds for the four hash functions applied to each hash value.
+   */
+  private static final long[] SEEDS = {
+    0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+  };
+
+  /**
+   * A mask that clears the high bit of every four-bit counter after a
+   * right shift by one.
+   */
+  private static final long RESET_MASK = 0x7777777777777777L;
+
+
+  /*
+   * Instance fields.
+   */
+
+
+  /**
+   * The counters, sixteen to a {@code long}.
+   *
+   * <p>This field is never {@code null} and its length is always a
+   * power of two.</p>
+   */
+  private final long[] table;
+
+  /**
+   * The number of increments after which every counter is halved.
+   */
+  private final int sampleSize;
+
+  /**
+   * The number of increments since the counters were last halved.
+   */
+  private int size;
+
+
+  /*
+   * Constructors.
+   */
+
+
+  /**
+   * Creates a new {@link FrequencySketch}.
+   *
+   * @param expectedEntries the number of distinct hash values whose
+   * frequencies are expected to matter at any one time; values
+   * outside of a reasonable range are clamped
+   */
+  FrequencySketch(final long expectedEntries) {
+    super();
+    final int length = (int)Math.min(MAXIMUM_TABLE_LENGTH, Long.highestOneBit(Math.max(8L, expectedEntries) - 1L) << 1);
+    this.table = new long[length];
+    this.sampleSize = 10 * length;
+  }
+
+
+  /*
+   * Instance methods.
+   */
+
+
+  /**
+   * Returns the estimated number of times, up to fifteen, that the
+   * supplied hash value has been {@linkplain #increment(int)
+   * recorded}.
+   *
+   * @param hash the hash value
+   *
+   * @return the estimated frequency, between {@code 0} and {@code 15}
+   * inclusive
+   */
+  final int frequency(final int hash) {
+    int frequency = 15;
+    for (int i = 0; i < SEEDS.length; i++) {
+      final long h = this.hash(hash, i);
+      final int shift = offset(h);
+      frequency = Math.min(frequency, (int)((this.table[this.index(h)] >>> shift) & 15L));
+    }
+    return frequency;
+  }
+
+  /**
+   * Records an occurrence of the supplied hash value, halving every
+   * counter if enough occurrences have been recorded since the last
+   * time that happened.
+   *
+   * @param hash the hash value
+   */
+  final void increment(final int hash) {
+    boolean incremented = false;
+    for (int i = 0; i < SEEDS.length; i++) {
+      final long h = this.hash(hash, i);
+      final int index = this.index(h);
+      final int shift = offset(h);
+      if (((this.table[index] >>> shift) & 15L) != 15L) {
+        this.table[index] += 1L << shift;
+        incremented = true;
+      }
+    }
+    if (incremented && ++this.size >= this.sampleSize) {
+      for (int i = 0; i < this.table.length; i++) {
+        this.table[i] = (this.table[i] >>> 1) & RESET_MASK;
+      }
+      this.size >>>= 1;
+    }
+  }
+
+  /**
+   * Applies the hash function with the supplied index to the supplied
+   * hash value.
+   *
+   * @param hash the hash value
+   *
+   * @param i the index of the hash function
+   *
+   * @return a well-distributed {@code long}
+   */
+  private final long hash(final int hash, final int i) {
+    long h = (hash + SEEDS[i]) * SEEDS[i];
+    h ^= h >>> 29;
+    return h;
+  }
+
+  /**
+   * Returns the index within the {@linkplain #table table} selected
+   * by the supplied hash.
+   *
+   * @param h a value returned by the {@link #hash(int, int)} method
+   *
+   * @return an index within the {@linkplain #table table}
+   */
+  private final int index(final long h) {
+    return (int)h & (this.table.length - 1);
+  }
+
+
+  /*
+   * Static methods.
+   */
+
+
+  /**
+   * Returns the bit offset, within a {@code long}, of the four-bit
+   * counter selected by the supplied hash.
+   *
+   * @param h a value returned by the {@link #hash(int, int)} method
+   *
+   * @return a multiple of four between {@code 0} and {@code 60}
+   * inclusive
+   */
+  private static final int offset(final long h) {
+    return ((int)(h >>> 48) & 15) << 2;
+  }
+
+}
@@ -0,0 +1,284 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2018 microBean.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.microbean.configuration.api;
+
+import java.io.Serializable;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A compact, immutable {@link Map} of configuration coordinates,
+ * sorted by key, that caches its {@linkplain #hashCode() hashcode}.
+ *
+ * <p>An {@link ImmutableCoordinates} stores its keys and values in
+ * two arrays, and so occupies a fraction of the memory of a {@link
+ * java.util.HashMap} holding the same configuration coordinates.
+ * Since instances are immutable they may be shared freely, and the
+ * {@link #copyOf(Map)} method returns its argument unchanged if it is
+ * already an {@link ImmutableCoordinates}.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson"
+ * target="_parent">Laird Nelson</a>
+ *
+ * @see ScopedCoordinates#intern(Map)
+ *
+ * @see ConfigurationValue#getCoordinates()
+ */
+final class ImmutableCoordinates extends AbstractMap<String, String> implements Serializable {
+
+
+  /*
+   * Static fields.
+   */
+
+
+  /**
+   * The version of this class for {@linkplain Serializable
+   * serialization} purposes.
+   */
+  private static final long serialVersionUID = 1L;
+
+
+  /*
+   * Instance fields.
+   */
+
+
+  /**
+   * The keys, sorted.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final String[] keys;
+
+  /**
+   * The values, in the same order as their keys.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final String[] values;
+
+  /**
+   * The cached hashcode.
+   */
+  private final int hashCode;
+
+
+  /*
+   * Constructors.
+   */
+
+
+  /**
+   * Creates a new {@link ImmutableCoordinates}.
+   *
+   * @param configurationCoordinates the {@link Map} to copy; must
+   * not be {@code null} and must not contain {@code null} keys
+   *
+   * @exception NullPointerException if {@code
+   * configurationCoordinates} is {@code null} or contains a {@code
+   * null} key
+   */
+  ImmutableCoordinates(final Map<String, String> configurationCoordinates) {
+    super();
+    final int size = configurationCoordinates.size();
+    final String[] keys = configurationCoordinates.keySet().toArray(new String[size]);
+    for (final String key : keys) {
+      Objects.requireNonNull(key);
+    }
+    Arrays.sort(keys);
+    final String[] values = new String[size];
+    int hashCode = 0;
+    for (int i = 0; i < size; i++) {
+      values[i] = configurationCoordinates.get(keys[i]);
+      hashCode += keys[i].hashCode() ^ Objects.hashCode(values[i]);
+    }
+    this.keys = keys;
+    this.values = values;
+    this.hashCode = hashCode;
+  }
+
+
+  /*
+   * Instance methods.
+   */
+
+
+  /**
+   * Returns the number of configuration coordinates in this {@link
+   * ImmutableCoordinates}.
+   *
+   * @return the number of configuration coordinates; always zero or
+   * a positive integer
+   */
+  @Override
+  public final int size() {
+    return this.keys.length;
+  }
+
+  /**
+   * Returns {@code true} if this {@link ImmutableCoordinates}
+   * contains a configuration coordinate with the supplied key.
+   *
+   * @param key the key; may be {@code null}
+   *
+   * @return {@code true} if this {@link ImmutableCoordinates}
+   * contains the supplied key
+   */
+  @Override
+  public final boolean containsKey(final Object key) {
+    return key instanceof String && Arrays.binarySearch(this.keys, key) >= 0;
+  }
+
+  /**
+   * Returns the value of the configuration coordinate with the
+   * supplied key, or {@code null} if there is no such coordinate.
+   *
+   * <p>This method does not allocate.</p>
+   *
+   * @param key the key; may be {@code null}
+   *
+   * @return the value, or {@code null}
+   */
+  @Override
+  public final String get(final Object key) {
+    if (key instanceof String) {
+      final int index = Arrays.binarySearch(this.keys, key);
+      if (index >= 0) {
+        return this.values[index];
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns an immutable {@link Set} view of the configuration
+   * coordinates in this {@link ImmutableCoordinates}, sorted by key.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return a non-{@code null}, immutable {@link Set}
+   */
+  @Override
+  public final Set<Map.Entry<String, String>> entrySet() {
+    return new AbstractSet<Map.Entry<String, String>>() {
+      @Override
+      public final int size() {
+        return keys.length;
+      }
+
+      @Override
+      public final Iterator<Map.Entry<String, String>> iterator() {
+        return new Iterator<Map.Entry<String, String>>() {
+          private int index;
+
+          @Override
+          public final boolean hasNext() {
+            return this.index < keys.length;
+          }
+
+          @Override
+          public final Map.Entry<String, String> next() {
+            if (this.index >= keys.length) {
+              throw new NoSuchElementException();
+            }
+            final int index = this.index++;
+            return new AbstractMap.SimpleImmutableEntry<>(keys[index], values[index]);
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * Returns the cached hashcode of this {@link
+   * ImmutableCoordinates}.
+   *
+   * @return the hashcode
+   */
+  @Override
+  public final int hashCode() {
+    return this.hashCode;
+  }
+
+  /**
+   * Returns {@code true} if the supplied {@link Object} is a {@link
+   * Map} with the same configuration coordinates as this {@link
+   * ImmutableCoordinates}.
+   *
+   * <p>Comparing two {@link ImmutableCoordinates} does not
+   * allocate.</p>
+   *
+   * @param other the {@link Object} to test; may be {@code null}
+   *
+   * @return {@code true} if the supplied {@link Object} is equal to
+   * this {@link ImmutableCoordinates}
+   */
+  @Override
+  public final boolean equals(final Object other) {
+    if (other == this) {
+      return true;
+    } else if (other instanceof ImmutableCoordinates) {
+      final ImmutableCoordinates her = (ImmutableCoordinates)other;
+      return this.hashCode == her.hashCode && Arrays.equals(this.keys, her.keys) && Arrays.equals(this.values, her.values);
+    } else {
+      return super.equals(other);
+    }
+  }
+
+
+  /*
+   * Static methods.
+   */
+
+
+  /**
+   * Returns an {@link ImmutableCoordinates} equal to the supplied
+   * {@code configurationCoordinates}, which is returned unchanged if
+   * it is already an {@link ImmutableCoordinates}, or {@code null}
+   * if {@code configurationCoordinates} is {@code null} or contains
+   * a {@code null} key.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @param configurationCoordinates the configuration coordinates to
+   * copy; may be {@code null}
+   *
+   * @return an {@link ImmutableCoordinates}, or {@code null}
+   */
+  static final ImmutableCoordinates copyOf(final Map<String, String> configurationCoordinates) {
+    if (configurationCoordinates == null) {
+      return null;
+    } else if (configurationCoordinates instanceof ImmutableCoordinates) {
+      return (ImmutableCoordinates)configurationCoordinates;
+    }
+    for (final String key : configurationCoordinates.keySet()) {
+      if (key == null) {
+        return null;
+      }
+    }
+    return new ImmutableCoordinates(configurationCoordinates);
+  }
+
+}
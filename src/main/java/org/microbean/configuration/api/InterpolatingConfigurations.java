@@ -0,0 +1,646 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2018 microBean.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.microbean.configuration.api;
+
+import java.io.Serializable;
+
+import java.lang.reflect.Type;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A {@link Configurations} that passes every request through to a
+ * delegate {@link Configurations} and expands references to the
+ * values of other configuration properties in the configuration
+ * values it returns.
+ *
+ * <p>Each distinct configuration value is {@linkplain
+ * Template#compile(String) compiled} into a {@link Template} only
+ * once.  Expanded values are memoized for each set of configuration
+ * coordinates.  While expanding values, this class records which
+ * configuration properties refer to which others, and uses that
+ * dependency graph to discard only the memoized values of the
+ * {@linkplain Configurations#configurationChanged(Set) configuration
+ * properties that changed} and of those that depend on them,
+ * directly or indirectly, and to report the latter as changed in
+ * turn.  Expanded values are not memoized at all if the delegate
+ * does not {@linkplain Configurations#isChangeReportingEnabled()
+ * report every change}.</p>
+ *
+ * <p>Instances of this class are safe for concurrent use by multiple
+ * threads.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson"
+ * target="_parent">Laird Nelson</a>
+ *
+ * @see Configurations#interpolate()
+ *
+ * @see Template
+ */
+final class InterpolatingConfigurations extends ForwardingConfigurations {
+
+
+  /*
+   * Static fields.
+   */
+
+
+  /**
+   * A sentinel representing a memoized {@code null} value.
+   */
+  private static final String NULL = new String();
+
+  /**
+   * The maximum number of {@link Template}s that will be retained.
+   *
+   * @see #compile(String)
+   */
+  private static final int MAX_TEMPLATES = 4096;
+
+  /**
+   * The maximum number of distinct sets of configuration
+   * coordinates for which expanded values will be memoized.
+   *
+   * @see #getMemo(Map, boolean)
+   */
+  private static final int MAX_MEMOS = 256;
+
+
+  /*
+   * Instance fields.
+   */
+
+
+  /**
+   * {@link Template}s, indexed by the configuration values from
+   * which they were compiled.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final ConcurrentMap<String, Template> templates;
+
+  /**
+   * The names of the configuration properties referred to by the
+   * value of each configuration property, indexed by the name of the
+   * latter.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final ConcurrentMap<String, Set<String>> dependencies;
+
+  /**
+   * The names of the configuration properties whose values refer to
+   * each configuration property, indexed by the name of the latter;
+   * the reverse of {@link #dependencies}.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final ConcurrentMap<String, Set<String>> dependents;
+
+  /**
+   * Memoized expanded values, indexed by configuration coordinates
+   * and then by name.
+   *
+   * <p>This field is never {@code null}.</p>
+   *
+   * @see #getMemo(Map, boolean)
+   */
+  private final ConcurrentMap<Map<String, String>, ConcurrentMap<String, String>> memos;
+
+  /**
+   * Memoized expanded values for requests made with {@code null}
+   * configuration coordinates, indexed by name.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final ConcurrentMap<String, String> nullCoordinatesMemo;
+
+  /**
+   * The version of the delegate with which the memoized values and
+   * the dependency graph are consistent.
+   *
+   * @see #validate()
+   */
+  private volatile long version;
+
+  /**
+   * Whether expanded values are memoized, which they are only if the
+   * delegate {@linkplain Configurations#isChangeReportingEnabled()
+   * reports every change}.
+   *
+   * @see #memoize(Map, String, String, long)
+   */
+  private final boolean memoizing;
+
+
+  /*
+   * Constructors.
+   */
+
+
+  /**
+   * Creates a new {@link InterpolatingConfigurations}.
+   *
+   * @param delegate the {@link Configurations} to which requests will
+   * be passed; must not be {@code null}
+   *
+   * @exception NullPointerException if {@code delegate} is {@code
+   * null}
+   */
+  InterpolatingConfigurations(final Configurations delegate) {
+    super(delegate);
+    this.templates = new ConcurrentHashMap<>();
+    this.dependencies = new ConcurrentHashMap<>();
+    this.dependents = new ConcurrentHashMap<>();
+    this.memos = new ConcurrentHashMap<>();
+    this.nullCoordinatesMemo = new ConcurrentHashMap<>();
+    this.version = delegate.getVersion();
+    this.memoizing = delegate.isChangeReportingEnabled();
+  }
+
+
+  /*
+   * Instance methods.
+   */
+
+
+  /**
+   * Returns the names that the delegate reports have changed since
+   * the supplied {@code version}, together with the names of all
+   * the configuration properties known to depend on them, directly
+   * or indirectly.
+   *
+   * @param version a version previously returned by the {@link
+   * #getVersion()} method
+   *
+   * @return an immutable {@link Set} of names, or {@code null}
+   */
+  @Override
+  final Set<String> getChangedNames(final long version) {
+    final Set<String> changedNames = this.getDelegate().getChangedNames(version);
+    return changedNames == null || changedNames.isEmpty() ? changedNames : Collections.unmodifiableSet(this.withDependents(changedNames));
+  }
+
+  /**
+   * Returns a new {@link InterpolatingConfigurations} that expands
+   * references in the values of the supplied {@code delegate}.
+   *
+   * @param delegate the {@link Configurations} to which requests will
+   * be passed; must not be {@code null}
+   *
+   * @return a new {@link InterpolatingConfigurations}
+   *
+   * @exception NullPointerException if {@code delegate} is {@code
+   * null}
+   */
+  @Override
+  protected final Configurations withDelegate(final Configurations delegate) {
+    return new InterpolatingConfigurations(delegate);
+  }
+
+  /**
+   * Returns the {@link ConfigurationValue} that the delegate selects
+   * for the supplied {@code configurationCoordinates} and {@code
+   * name}, with any references in its value expanded, or {@code
+   * null} if there is no such {@link ConfigurationValue}.
+   *
+   * @param configurationCoordinates the configuration coordinates in
+   * effect for the request; may be {@code null}
+   *
+   * @param name the name of the configuration property; must not be
+   * {@code null}
+   *
+   * @return the selected {@link ConfigurationValue}, or {@code null}
+   *
+   * @exception NullPointerException if {@code name} is {@code null}
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable
+   *
+   * @exception ConfigurationException if a reference could not be
+   * expanded
+   */
+  @Override
+  public final ConfigurationValue getConfigurationValue(final Map<String, String> configurationCoordinates, final String name) {
+    Objects.requireNonNull(name);
+    final long version = this.validate();
+    final ConfigurationValue configurationValue = this.getDelegate().getConfigurationValue(configurationCoordinates, name);
+    final String value = configurationValue == null ? null : configurationValue.getValue();
+    if (value == null) {
+      return configurationValue;
+    }
+    final String expandedValue = this.expand(configurationCoordinates, name, value, version, null);
+    if (expandedValue.equals(value)) {
+      return configurationValue;
+    }
+    return new ConfigurationValue((Serializable)configurationValue.getSource(),
+                                  configurationValue.getCoordinates(),
+                                  name,
+                                  expandedValue,
+                                  configurationValue.isAuthoritative());
+  }
+
+  /**
+   * Returns the value of the configuration property suitable for the
+   * supplied {@code configurationCoordinates} and {@code name}, with
+   * any references in it expanded, or the supplied {@code
+   * defaultValue} if there is no such value, converted to the type
+   * represented by the supplied {@code type}.
+   *
+   * <p>Values that contain no references, and default values, are
+   * converted exactly as the delegate converts them.  Expanded values
+   * are {@linkplain Configurations#convert(String, Type) converted} by
+   * the delegate.</p>
+   *
+   * @param <T> the type to which a {@link String}-typed configuration
+   * value should be converted
+   *
+   * @param configurationCoordinates a {@link Map} representing the
+   * configuration coordinates in effect for this request; may be
+   * {@code null}
+   *
+   * @param name the name of the configuration property for which a
+   * value will be returned; must not be {@code null}
+   *
+   * @param type a {@link Type} representing the type to which the
+   * configuration value will be converted; must not be {@code null}
+   *
+   * @param defaultValue the value that will be converted, without
+   * being expanded, and returned if {@code null} would otherwise be
+   * returned; may be {@code null}
+   *
+   * @return the configuration value, or {@code null}
+   *
+   * @exception NullPointerException if {@code name} or {@code type}
+   * is {@code null}
+   *
+   * @exception ConversionException if type conversion could not occur
+   * for any reason
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable
+   *
+   * @exception ConfigurationException if a reference could not be
+   * expanded
+   */
+  @Override
+  public final <T> T getValue(final Map<String, String> configurationCoordinates, final String name, final Type type, final String defaultValue) {
+    Objects.requireNonNull(name);
+    Objects.requireNonNull(type);
+    final long version = this.validate();
+    final ConcurrentMap<String, String> memo = this.getMemo(configurationCoordinates, false);
+    final String memoizedValue = memo == null ? null : memo.get(name);
+    if (memoizedValue == null) {
+      final ConfigurationValue configurationValue = this.getDelegate().getConfigurationValue(configurationCoordinates, name);
+      final String value = configurationValue == null ? null : configurationValue.getValue();
+      if (value == null) {
+        this.memoize(configurationCoordinates, name, NULL, version);
+      } else if (value.indexOf("${") >= 0) {
+        return this.getDelegate().convert(this.expand(configurationCoordinates, name, value, version, null), type);
+      }
+      return this.convertAsDelegate(configurationCoordinates, name, value, type, defaultValue);
+    } else if (memoizedValue == NULL) {
+      return this.convertAsDelegate(configurationCoordinates, name, null, type, defaultValue);
+    }
+    // Only the results of expanding values that contain references
+    // are memoized.
+    return this.getDelegate().convert(memoizedValue, type);
+  }
+
+
+  /**
+   * Returns the expanded value of the configuration property
+   * suitable for the supplied {@code configurationCoordinates} and
+   * {@code name}, or {@code null} if there is no such value.
+   *
+   * @param configurationCoordinates the configuration coordinates in
+   * effect for the request; may be {@code null}
+   *
+   * @param name the name of the configuration property; must not be
+   * {@code null}
+   *
+   * @param version the version of the delegate returned by the
+   * {@link #validate()} method at the start of the request
+   *
+   * @param path the names of the configuration properties whose
+   * values are being expanded, outermost first; may be {@code null}
+   *
+   * @return the expanded value, or {@code null}
+   *
+   * @exception ConfigurationException if a reference could not be
+   * expanded
+   */
+  private final String resolve(final Map<String, String> configurationCoordinates,
+                               final String name,
+                               final long version,
+                               final Deque<String> path) {
+    final ConcurrentMap<String, String> memo = this.getMemo(configurationCoordinates, false);
+    final String memoizedValue = memo == null ? null : memo.get(name);
+    if (memoizedValue != null) {
+      return memoizedValue == NULL ? null : memoizedValue;
+    }
+    final ConfigurationValue configurationValue = this.getDelegate().getConfigurationValue(configurationCoordinates, name);
+    final String value = configurationValue == null ? null : configurationValue.getValue();
+    if (value == null) {
+      this.memoize(configurationCoordinates, name, NULL, version);
+      return null;
+    }
+    return this.expand(configurationCoordinates, name, value, version, path);
+  }
+
+  /**
+   * Expands any references in the supplied {@code value} of the
+   * configuration property with the supplied {@code name}, memoizing
+   * and returning the result.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param configurationCoordinates the configuration coordinates in
+   * effect for the request; may be {@code null}
+   *
+   * @param name the name of the configuration property; must not be
+   * {@code null}
+   *
+   * @param value the unexpanded value; must not be {@code null}
+   *
+   * @param version the version of the delegate returned by the
+   * {@link #validate()} method at the start of the request
+   *
+   * @param path the names of the configuration properties whose
+   * values are being expanded, outermost first; may be {@code null}
+   *
+   * @return the non-{@code null} expanded value
+   *
+   * @exception ConfigurationException if a reference could not be
+   * expanded, or if references form a cycle
+   */
+  private final String expand(final Map<String, String> configurationCoordinates,
+                              final String name,
+                              final String value,
+                              final long version,
+                              final Deque<String> path) {
+    if (value.indexOf("${") < 0) {
+      // By far the most common case.
+      return value;
+    }
+    final ConcurrentMap<String, String> memo = this.getMemo(configurationCoordinates, false);
+    final String memoizedValue = memo == null ? null : memo.get(name);
+    if (memoizedValue != null && memoizedValue != NULL) {
+      return memoizedValue;
+    }
+    final Template template = this.compile(value);
+    final String returnValue;
+    if (template.isConstant()) {
+      returnValue = template.expand(null, name);
+    } else {
+      this.addDependencies(name, template.getNames());
+      final Deque<String> newPath = path == null ? new ArrayDeque<>() : path;
+      if (newPath.contains(name)) {
+        final List<String> cycle = new ArrayList<>(newPath);
+        cycle.add(name);
+        throw new ConfigurationException("Reference cycle: " + String.join(" -> ", cycle.subList(cycle.indexOf(name), cycle.size())));
+      }
+      newPath.addLast(name);
+      try {
+        returnValue = template.expand(referredName -> this.resolve(configurationCoordinates, referredName, version, newPath), name);
+      } finally {
+        newPath.removeLast();
+      }
+    }
+    this.memoize(configurationCoordinates, name, returnValue, version);
+    return returnValue;
+  }
+
+  /**
+   * Returns a {@link Template} compiled from the supplied {@code
+   * value}, compiling it only if necessary.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param value the value to compile; must not be {@code null}
+   *
+   * @return a non-{@code null} {@link Template}
+   */
+  private final Template compile(final String value) {
+    Template template = this.templates.get(value);
+    if (template == null) {
+      template = Template.compile(value);
+      if (this.templates.size() >= MAX_TEMPLATES) {
+        this.templates.clear();
+      }
+      this.templates.putIfAbsent(value, template);
+    }
+    return template;
+  }
+
+  /**
+   * Records that the value of the configuration property with the
+   * supplied {@code name} refers to the configuration properties with
+   * the supplied {@code referredNames}.
+   *
+   * @param name the name of the referring configuration property;
+   * must not be {@code null}
+   *
+   * @param referredNames the names of the configuration properties
+   * referred to; must not be {@code null}
+   */
+  private final void addDependencies(final String name, final Set<String> referredNames) {
+    if (!referredNames.equals(this.dependencies.get(name))) {
+      this.dependencies.put(name, referredNames);
+      for (final String referredName : referredNames) {
+        Set<String> dependents = this.dependents.get(referredName);
+        if (dependents == null) {
+          dependents = ConcurrentHashMap.newKeySet();
+          final Set<String> old = this.dependents.putIfAbsent(referredName, dependents);
+          if (old != null) {
+            dependents = old;
+          }
+        }
+        dependents.add(name);
+      }
+    }
+  }
+
+  /**
+   * Returns a new, mutable {@link Set} containing the supplied
+   * {@code names} and the names of all the configuration properties
+   * known to depend on them, directly or indirectly.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param names the names; must not be {@code null}
+   *
+   * @return a new, non-{@code null}, mutable {@link Set} of names
+   */
+  private final Set<String> withDependents(final Set<String> names) {
+    final Set<String> returnValue = new HashSet<>(names);
+    final Deque<String> work = new ArrayDeque<>(names);
+    while (!work.isEmpty()) {
+      final Set<String> dependents = this.dependents.get(work.removeFirst());
+      if (dependents != null) {
+        for (final String dependent : dependents) {
+          if (returnValue.add(dependent)) {
+            work.addLast(dependent);
+          }
+        }
+      }
+    }
+    return returnValue;
+  }
+
+  /**
+   * Returns the memo of expanded values for the supplied {@code
+   * configurationCoordinates}, creating it if {@code create} is
+   * {@code true}.
+   *
+   * <p>If {@link #MAX_MEMOS} memos already exist, one of them is
+   * discarded to make room for a new one.</p>
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @param configurationCoordinates the configuration coordinates;
+   * may be {@code null}
+   *
+   * @param create whether to create the memo if it does not exist
+   *
+   * @return a memo, or {@code null}
+   */
+  private final ConcurrentMap<String, String> getMemo(final Map<String, String> configurationCoordinates, final boolean create) {
+    if (configurationCoordinates == null) {
+      return this.nullCoordinatesMemo;
+    }
+    ConcurrentMap<String, String> memo = this.memos.get(configurationCoordinates);
+    if (memo == null && create) {
+      final Map<String, String> key = ImmutableCoordinates.copyOf(configurationCoordinates);
+      if (key != null) {
+        if (this.memos.size() >= MAX_MEMOS) {
+          final Iterator<Map<String, String>> iterator = this.memos.keySet().iterator();
+          if (iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+          }
+        }
+        memo = new ConcurrentHashMap<>();
+        final ConcurrentMap<String, String> old = this.memos.putIfAbsent(key, memo);
+        if (old != null) {
+          memo = old;
+        }
+      }
+    }
+    return memo;
+  }
+
+  /**
+   * Memoizes the supplied expanded {@code value} of the configuration
+   * property with the supplied {@code name} for the supplied {@code
+   * configurationCoordinates}, unless the delegate has changed since
+   * it was at the supplied {@code version} or does not {@linkplain
+   * Configurations#isChangeReportingEnabled() report every change}.
+   *
+   * <p>The check and the memoization are performed while holding the
+   * same lock that the {@link #validate()} method holds while it
+   * discards stale memoized values, so that a value expanded at an
+   * earlier version cannot be memoized after they have been
+   * discarded.</p>
+   *
+   * @param configurationCoordinates the configuration coordinates;
+   * may be {@code null}
+   *
+   * @param name the name; must not be {@code null}
+   *
+   * @param value the expanded value, or {@link #NULL}; must not be
+   * {@code null}
+   *
+   * @param version the version of the delegate at which the value
+   * was expanded
+   */
+  private final void memoize(final Map<String, String> configurationCoordinates, final String name, final String value, final long version) {
+    if (this.memoizing) {
+      synchronized (this) {
+        if (this.version == version) {
+          final ConcurrentMap<String, String> memo = this.getMemo(configurationCoordinates, true);
+          if (memo != null) {
+            memo.put(name, value);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Brings the memoized values and the dependency graph up to date
+   * with the delegate, if it has changed, and returns the version of
+   * the delegate.
+   *
+   * <p>If the delegate reports which configuration properties
+   * changed, only their memoized values and those of the
+   * configuration properties that depend on them are discarded, and
+   * the dependencies of the changed configuration properties are
+   * forgotten, since their values may now refer to others.
+   * Otherwise everything is discarded.</p>
+   *
+   * @return the version of the delegate
+   */
+  private final long validate() {
+    final long version = this.getDelegate().getVersion();
+    if (version != this.version) {
+      synchronized (this) {
+        if (version > this.version) {
+          final Set<String> changedNames = this.getDelegate().getChangedNames(this.version);
+          if (changedNames == null) {
+            this.memos.clear();
+            this.nullCoordinatesMemo.clear();
+            this.dependencies.clear();
+            this.dependents.clear();
+          } else if (!changedNames.isEmpty()) {
+            final Set<String> staleNames = this.withDependents(changedNames);
+            this.nullCoordinatesMemo.keySet().removeAll(staleNames);
+            for (final ConcurrentMap<String, String> memo : this.memos.values()) {
+              memo.keySet().removeAll(staleNames);
+            }
+            for (final String changedName : changedNames) {
+              final Set<String> referredNames = this.dependencies.remove(changedName);
+              if (referredNames != null) {
+                for (final String referredName : referredNames) {
+                  final Set<String> dependents = this.dependents.get(referredName);
+                  if (dependents != null) {
+                    dependents.remove(changedName);
+                  }
+                }
+              }
+            }
+          }
+          this.version = version;
+        }
+      }
+    }
+    return version;
+  }
+
+}
@@ -0,0 +1,633 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2018 microBean.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.microbean.configuration.api;
+
+import java.io.IOException;
+
+import java.lang.reflect.Type;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A sampling tracer that records, for a configurable fraction of the
+ * requests made of the {@link Configurations} it {@linkplain
+ * #trace(Configurations) traces}, which {@link ConfigurationValue}
+ * won, which {@link ConfigurationValue}s were considered and how long
+ * selection and conversion took.
+ *
+ * <p>{@link Trace}s are kept in a fixed-size ring buffer that is
+ * written without locking; once it is full, the oldest {@link Trace}s
+ * are overwritten.  They can be retrieved at any time with the {@link
+ * #getTraces()} and {@link #dump(Appendable)} methods.  Requests that
+ * are not sampled cost one random number and one comparison.</p>
+ *
+ * <p>A typical use looks like this:</p>
+ *
+ * <blockquote><pre>final LookupTracer tracer = new LookupTracer(0.01, 1024);
+ * final Configurations traced = tracer.trace(configurations);
+ * // ...use traced...
+ * tracer.dump(System.err);</pre></blockquote>
+ *
+ * <p>Instances of this class are safe for concurrent use by multiple
+ * threads.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson"
+ * target="_parent">Laird Nelson</a>
+ *
+ * @see #trace(Configurations)
+ *
+ * @see Trace
+ */
+public final class LookupTracer {
+
+
+  /*
+   * Instance fields.
+   */
+
+
+  /**
+   * The fraction, between {@code 0.0} and {@code 1.0} inclusive, of
+   * requests that are traced.
+   *
+   * @see #setSamplingFraction(double)
+   */
+  private volatile double samplingFraction;
+
+  /**
+   * The sequence number that will be assigned to the next {@link
+   * Trace}.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final AtomicLong sequence;
+
+  /**
+   * The ring buffer of {@link Trace}s, whose length is a power of
+   * two.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final AtomicReferenceArray<Trace> slots;
+
+  /**
+   * The mask that, applied to a sequence number, yields an index
+   * into {@link #slots}.
+   */
+  private final int mask;
+
+
+  /*
+   * Constructors.
+   */
+
+
+  /**
+   * Creates a new {@link LookupTracer}.
+   *
+   * @param samplingFraction the fraction, between {@code 0.0} and
+   * {@code 1.0} inclusive, of requests that will be traced
+   *
+   * @param capacity the minimum number of {@link Trace}s that will be
+   * retained; must be greater than {@code 0}; will be rounded up to a
+   * power of two
+   *
+   * @exception IllegalArgumentException if {@code samplingFraction}
+   * is not between {@code 0.0} and {@code 1.0} inclusive, or if
+   * {@code capacity} is less than {@code 1} or greater than {@code
+   * 2^30}
+   */
+  public LookupTracer(final double samplingFraction, final int capacity) {
+    super();
+    this.setSamplingFraction(samplingFraction);
+    if (capacity < 1 || capacity > (1 << 30)) {
+      throw new IllegalArgumentException("capacity: " + capacity);
+    }
+    final int length = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+    this.slots = new AtomicReferenceArray<>(length);
+    this.mask = length - 1;
+    this.sequence = new AtomicLong();
+  }
+
+
+  /*
+   * Instance methods.
+   */
+
+
+  /**
+   * Returns a {@link Configurations} that passes every request
+   * through to the supplied {@link Configurations} and records a
+   * {@link Trace} in this {@link LookupTracer} for a {@linkplain
+   * #getSamplingFraction() fraction} of requests for converted
+   * values.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param configurations the {@link Configurations} whose requests
+   * should be traced; must not be {@code null}
+   *
+   * @return a non-{@code null} {@link Configurations}
+   *
+   * @exception NullPointerException if {@code configurations} is
+   * {@code null}
+   */
+  public final Configurations trace(final Configurations configurations) {
+    return new TracingConfigurations(configurations, this);
+  }
+
+  /**
+   * Returns the fraction, between {@code 0.0} and {@code 1.0}
+   * inclusive, of requests that are traced.
+   *
+   * @return the sampling fraction
+   *
+   * @see #setSamplingFraction(double)
+   */
+  public final double getSamplingFraction() {
+    return this.samplingFraction;
+  }
+
+  /**
+   * Sets the fraction, between {@code 0.0} and {@code 1.0}
+   * inclusive, of requests that are traced.
+   *
+   * <p>Tracing can be turned off by setting the sampling fraction to
+   * {@code 0.0}, and turned on for every request by setting it to
+   * {@code 1.0}.</p>
+   *
+   * @param samplingFraction the new sampling fraction
+   *
+   * @exception IllegalArgumentException if {@code samplingFraction}
+   * is not between {@code 0.0} and {@code 1.0} inclusive
+   */
+  public final void setSamplingFraction(final double samplingFraction) {
+    if (!(samplingFraction >= 0.0 && samplingFraction <= 1.0)) {
+      throw new IllegalArgumentException("samplingFraction: " + samplingFraction);
+    }
+    this.samplingFraction = samplingFraction;
+  }
+
+  /**
+   * Returns the number of {@link Trace}s that this {@link
+   * LookupTracer} retains.
+   *
+   * @return the capacity of this {@link LookupTracer}
+   */
+  public final int getCapacity() {
+    return this.slots.length();
+  }
+
+  /**
+   * Returns {@code true} if the current request should be traced.
+   *
+   * @return {@code true} if the current request should be traced
+   */
+  final boolean sample() {
+    final double samplingFraction = this.samplingFraction;
+    return samplingFraction > 0.0 && (samplingFraction >= 1.0 || ThreadLocalRandom.current().nextDouble() < samplingFraction);
+  }
+
+  /**
+   * Creates a new {@link Trace} and stores it in the ring buffer,
+   * overwriting the oldest {@link Trace} if the ring buffer is full.
+   *
+   * @param configurationCoordinates the configuration coordinates of
+   * the request; may be {@code null}
+   *
+   * @param name the name of the request; must not be {@code null}
+   *
+   * @param type the {@link Type} of the request; must not be {@code
+   * null}
+   *
+   * @param status the outcome of the request; may be {@code null}
+   *
+   * @param winner the {@link ConfigurationValue} that was selected;
+   * may be {@code null}
+   *
+   * @param candidates the {@link ConfigurationValue}s that were
+   * considered; may be {@code null}
+   *
+   * @param selectionNanos the time taken to select the {@link
+   * ConfigurationValue}, in nanoseconds
+   *
+   * @param conversionNanos the time taken to produce the converted
+   * value, in nanoseconds
+   */
+  final void add(final Map<String, String> configurationCoordinates,
+                 final String name,
+                 final Type type,
+                 final Resolution.Status status,
+                 final ConfigurationValue winner,
+                 final Collection<? extends ConfigurationValue> candidates,
+                 final long selectionNanos,
+                 final long conversionNanos) {
+    final long sequence = this.sequence.getAndIncrement();
+    this.slots.set((int)(sequence & this.mask),
+                   new Trace(sequence,
+                             System.currentTimeMillis(),
+                             Thread.currentThread().getName(),
+                             configurationCoordinates,
+                             name,
+                             type,
+                             status,
+                             winner,
+                             candidates,
+                             selectionNanos,
+                             conversionNanos));
+  }
+
+  /**
+   * Returns an immutable {@link List} of the {@link Trace}s currently
+   * retained by this {@link LookupTracer}, oldest first.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * <p>{@link Trace}s that are being written or overwritten
+   * concurrently with an invocation of this method may be
+   * omitted.</p>
+   *
+   * @return a non-{@code null}, immutable {@link List} of {@link
+   * Trace}s
+   */
+  public final List<Trace> getTraces() {
+    final long next = this.sequence.get();
+    final List<Trace> traces = new ArrayList<>();
+    for (long i = Math.max(0L, next - this.slots.length()); i < next; i++) {
+      final Trace trace = this.slots.get((int)(i & this.mask));
+      if (trace != null && trace.getSequence() == i) {
+        traces.add(trace);
+      }
+    }
+    return Collections.unmodifiableList(traces);
+  }
+
+  /**
+   * Appends a line for each of the {@link Trace}s currently retained
+   * by this {@link LookupTracer}, oldest first, to the supplied
+   * {@link Appendable}.
+   *
+   * @param appendable the {@link Appendable} to which {@link Trace}s
+   * should be appended; must not be {@code null}
+   *
+   * @exception NullPointerException if {@code appendable} is {@code
+   * null}
+   *
+   * @exception IOException if an error occurs while appending
+   *
+   * @see #getTraces()
+   */
+  public final void dump(final Appendable appendable) throws IOException {
+    final String lineSeparator = System.lineSeparator();
+    for (final Trace trace : this.getTraces()) {
+      appendable.append(trace.toString()).append(lineSeparator);
+    }
+  }
+
+
+  /*
+   * Inner and nested classes.
+   */
+
+
+  /**
+   * An immutable record of a single traced request for a converted
+   * configuration value.
+   *
+   * @author <a href="https://about.me/lairdnelson"
+   * target="_parent">Laird Nelson</a>
+   *
+   * @see LookupTracer#getTraces()
+   */
+  public static final class Trace {
+
+    /**
+     * The sequence number of this {@link Trace}.
+     */
+    private final long sequence;
+
+    /**
+     * The time at which this {@link Trace} was recorded, in
+     * milliseconds since the epoch.
+     */
+    private final long timeMillis;
+
+    /**
+     * The name of the {@link Thread} that made the request.
+     *
+     * <p>This field is never {@code null}.</p>
+     */
+    private final String threadName;
+
+    /**
+     * The configuration coordinates of the request.
+     *
+     * <p>This field may be {@code null}.</p>
+     */
+    private final Map<String, String> configurationCoordinates;
+
+    /**
+     * The name of the request.
+     *
+     * <p>This field is never {@code null}.</p>
+     */
+    private final String name;
+
+    /**
+     * The {@link Type} of the request.
+     *
+     * <p>This field is never {@code null}.</p>
+     */
+    private final Type type;
+
+    /**
+     * The outcome of the request.
+     *
+     * <p>This field may be {@code null}.</p>
+     */
+    private final Resolution.Status status;
+
+    /**
+     * The {@link ConfigurationValue} that was selected.
+     *
+     * <p>This field may be {@code null}.</p>
+     */
+    private final ConfigurationValue winner;
+
+    /**
+     * The {@link ConfigurationValue}s that were considered.
+     *
+     * <p>This field is never {@code null}.</p>
+     */
+    private final List<ConfigurationValue> candidates;
+
+    /**
+     * The time taken to select the {@link ConfigurationValue}, in
+     * nanoseconds.
+     */
+    private final long selectionNanos;
+
+    /**
+     * The time taken to produce the converted value, in nanoseconds.
+     */
+    private final long conversionNanos;
+
+    /**
+     * Creates a new {@link Trace}.
+     *
+     * @param sequence the sequence number of the new {@link Trace}
+     *
+     * @param timeMillis the time at which the new {@link Trace} was
+     * recorded, in milliseconds since the epoch
+     *
+     * @param threadName the name of the {@link Thread} that made the
+     * request; must not be {@code null}
+     *
+     * @param configurationCoordinates the configuration coordinates
+     * of the request; may be {@code null}
+     *
+     * @param name the name of the request; must not be {@code null}
+     *
+     * @param type the {@link Type} of the request; must not be {@code
+     * null}
+     *
+     * @param status the outcome of the request; may be {@code null}
+     *
+     * @param winner the {@link ConfigurationValue} that was selected;
+     * may be {@code null}
+     *
+     * @param candidates the {@link ConfigurationValue}s that were
+     * considered; may be {@code null}
+     *
+     * @param selectionNanos the time taken to select the {@link
+     * ConfigurationValue}, in nanoseconds
+     *
+     * @param conversionNanos the time taken to produce the converted
+     * value, in nanoseconds
+     */
+    private Trace(final long sequence,
+                  final long timeMillis,
+                  final String threadName,
+                  final Map<String, String> configurationCoordinates,
+                  final String name,
+                  final Type type,
+                  final Resolution.Status status,
+                  final ConfigurationValue winner,
+                  final Collection<? extends ConfigurationValue> candidates,
+                  final long selectionNanos,
+                  final long conversionNanos) {
+      super();
+      this.sequence = sequence;
+      this.timeMillis = timeMillis;
+      this.threadName = threadName;
+      if (configurationCoordinates == null) {
+        this.configurationCoordinates = null;
+      } else {
+        this.configurationCoordinates = Collections.unmodifiableMap(new HashMap<>(configurationCoordinates));
+      }
+      this.name = name;
+      this.type = type;
+      this.status = status;
+      this.winner = winner;
+      if (candidates == null || candidates.isEmpty()) {
+        this.candidates = Collections.emptyList();
+      } else {
+        this.candidates = Collections.unmodifiableList(new ArrayList<>(candidates));
+      }
+      this.selectionNanos = selectionNanos;
+      this.conversionNanos = conversionNanos;
+    }
+
+    /**
+     * Returns the sequence number of this {@link Trace}, which is
+     * unique within the {@link LookupTracer} that recorded it.
+     *
+     * @return the sequence number of this {@link Trace}
+     */
+    public final long getSequence() {
+      return this.sequence;
+    }
+
+    /**
+     * Returns the time at which this {@link Trace} was recorded, in
+     * milliseconds since the epoch.
+     *
+     * @return the time at which this {@link Trace} was recorded
+     */
+    public final long getTimeMillis() {
+      return this.timeMillis;
+    }
+
+    /**
+     * Returns the name of the {@link Thread} that made the request.
+     *
+     * <p>This method never returns {@code null}.</p>
+     *
+     * @return the non-{@code null} name of a {@link Thread}
+     */
+    public final String getThreadName() {
+      return this.threadName;
+    }
+
+    /**
+     * Returns the configuration coordinates of the request.
+     *
+     * <p>This method may return {@code null}.</p>
+     *
+     * @return an immutable {@link Map} of configuration coordinates,
+     * or {@code null}
+     */
+    public final Map<String, String> getConfigurationCoordinates() {
+      return this.configurationCoordinates;
+    }
+
+    /**
+     * Returns the name of the request.
+     *
+     * <p>This method never returns {@code null}.</p>
+     *
+     * @return the non-{@code null} name of the request
+     */
+    public final String getName() {
+      return this.name;
+    }
+
+    /**
+     * Returns the {@link Type} of the request.
+     *
+     * <p>This method never returns {@code null}.</p>
+     *
+     * @return the non-{@code null} {@link Type} of the request
+     */
+    public final Type getType() {
+      return this.type;
+    }
+
+    /**
+     * Returns the outcome of the request.
+     *
+     * <p>This method may return {@code null} if the request failed
+     * with an exception other than an {@link
+     * AmbiguousConfigurationValuesException} or a {@link
+     * ConversionException}.</p>
+     *
+     * @return the outcome of the request, or {@code null}
+     */
+    public final Resolution.Status getStatus() {
+      return this.status;
+    }
+
+    /**
+     * Returns the {@link ConfigurationValue} that was selected, whose
+     * {@linkplain ConfigurationValue#getSource() source}, {@linkplain
+     * ConfigurationValue#getCoordinates() coordinates} and {@linkplain
+     * ConfigurationValue#isAuthoritative() authoritative flag} record
+     * where the value came from.
+     *
+     * <p>This method may return {@code null}.</p>
+     *
+     * @return the selected {@link ConfigurationValue}, or {@code
+     * null}
+     *
+     * @see Configurations#getConfigurationValue(Map, String)
+     */
+    public final ConfigurationValue getWinner() {
+      return this.winner;
+    }
+
+    /**
+     * Returns an immutable {@link List} of the {@link
+     * ConfigurationValue}s that were considered.
+     *
+     * <p>This method never returns {@code null}.</p>
+     *
+     * <p>A {@link Configurations} only reveals the {@link
+     * ConfigurationValue}s it considered when they are ambiguous, so
+     * the returned {@link List} contains either the conflicting
+     * {@link ConfigurationValue}s or the {@linkplain #getWinner()
+     * winner} alone.</p>
+     *
+     * @return a non-{@code null}, immutable {@link List} of {@link
+     * ConfigurationValue}s
+     */
+    public final List<ConfigurationValue> getCandidates() {
+      return this.candidates;
+    }
+
+    /**
+     * Returns the time taken to select the {@link
+     * ConfigurationValue}, in nanoseconds.
+     *
+     * @return the time taken to select the {@link
+     * ConfigurationValue}, in nanoseconds
+     */
+    public final long getSelectionNanos() {
+      return this.selectionNanos;
+    }
+
+    /**
+     * Returns the time taken to produce the converted value, in
+     * nanoseconds.
+     *
+     * @return the time taken to produce the converted value, in
+     * nanoseconds
+     */
+    public final long getConversionNanos() {
+      return this.conversionNanos;
+    }
+
+    /**
+     * Returns a non-{@code null}, single-line {@link String}
+     * representation of this {@link Trace}.
+     *
+     * @return a non-{@code null} {@link String}
+     */
+    @Override
+    public final String toString() {
+      final StringBuilder sb = new StringBuilder();
+      sb.append("#").append(this.sequence)
+        .append(" ").append(this.timeMillis)
+        .append(" [").append(this.threadName).append("] ")
+        .append(this.configurationCoordinates)
+        .append(" ").append(this.name)
+        .append(" (").append(this.type.getTypeName()).append("): ")
+        .append(this.status)
+        .append(" winner=").append(this.winner);
+      if (this.winner != null) {
+        sb.append(" source=").append(this.winner.getSource())
+          .append(" coordinates=").append(this.winner.getCoordinates())
+          .append(" authoritative=").append(this.winner.isAuthoritative());
+      }
+      sb.append(" candidates=").append(this.candidates)
+        .append(" selectionNanos=").append(this.selectionNanos)
+        .append(" conversionNanos=").append(this.conversionNanos);
+      return sb.toString();
+    }
+
+  }
+
+}
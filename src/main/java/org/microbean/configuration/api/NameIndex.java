@@ -0,0 +1,296 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2018 microBean.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.microbean.configuration.api;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable index over a fixed set of configuration property
+ * names that answers prefix queries in time proportional to the
+ * logarithm of the number of names plus the number of matching
+ * names.
+ *
+ * <p>The names are held in a single sorted array.  All names sharing
+ * a given prefix therefore occupy one contiguous range of that array,
+ * whose bounds are located by binary search.  This offers the same
+ * asymptotic behavior as a trie for subtree queries with
+ * considerably less memory overhead.</p>
+ *
+ * <p>Instances of this class are safe for concurrent use by multiple
+ * threads.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson"
+ * target="_parent">Laird Nelson</a>
+ *
+ * @see Configurations#getNames(String)
+ */
+final class NameIndex {
+
+
+  /*
+   * Instance fields.
+   */
+
+
+  /**
+   * The names indexed by this {@link NameIndex}, sorted in their
+   * {@linkplain String#compareTo(String) natural order} and free of
+   * duplicates and {@code null} elements.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final String[] names;
+
+  /**
+   * The version of the {@link Configurations} whose {@linkplain
+   * Configurations#getNames() names} were used to build this {@link
+   * NameIndex}.
+   */
+  private final long version;
+
+
+  /*
+   * Constructors.
+   */
+
+
+  /**
+   * Creates a new {@link NameIndex}.
+   *
+   * @param names the names to index; may be {@code null}; {@code
+   * null} elements are ignored
+   *
+   * @param version the version of the {@link Configurations} from
+   * which the supplied {@code names} were acquired
+   */
+  NameIndex(final Collection<? extends String> names, final long version) {
+    super();
+    this.version = version;
+    if (names == null || names.isEmpty()) {
+      this.names = new String[0];
+    } else {
+      final String[] array = new String[names.size()];
+      int size = 0;
+      for (final String name : names) {
+        if (name != null) {
+          array[size++] = name;
+        }
+      }
+      Arrays.sort(array, 0, size);
+      // Remove duplicates in place, in case the supplied Collection
+      // was not a Set.
+      int unique = 0;
+      for (int i = 0; i < size; i++) {
+        if (unique == 0 || !array[i].equals(array[unique - 1])) {
+          array[unique++] = array[i];
+        }
+      }
+      this.names = unique == array.length ? array : Arrays.copyOf(array, unique);
+    }
+  }
+
+
+  /*
+   * Instance methods.
+   */
+
+
+  /**
+   * Returns the version of the {@link Configurations} whose
+   * {@linkplain Configurations#getNames() names} were used to build
+   * this {@link NameIndex}.
+   *
+   * @return the version of the {@link Configurations} whose names
+   * were used to build this {@link NameIndex}
+   */
+  final long getVersion() {
+    return this.version;
+  }
+
+  /**
+   * Returns an immutable {@link Set} of the names indexed by this
+   * {@link NameIndex} that {@linkplain String#startsWith(String) start
+   * with} the supplied {@code prefix}.
+   *
+   * <p>This method never returns {@code null}.  The returned {@link
+   * Set} iterates over its elements in their {@linkplain
+   * String#compareTo(String) natural order}.</p>
+   *
+   * @param prefix the prefix; must not be {@code null}
+   *
+   * @return a non-{@code null}, immutable {@link Set} of names
+   *
+   * @exception NullPointerException if {@code prefix} is {@code
+   * null}
+   */
+  final Set<String> getNames(final String prefix) {
+    final int from = lowerBound(this.names, prefix);
+    // Every name at or after from that starts with prefix precedes
+    // every name at or after from that does not, so the end of the
+    // range can also be found by binary search.
+    int low = from;
+    int high = this.names.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (this.names[mid].startsWith(prefix)) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return new Range(this.names, from, low);
+  }
+
+
+  /*
+   * Static methods.
+   */
+
+
+  /**
+   * Returns the index of the first element in the supplied sorted
+   * array that is greater than or equal to the supplied {@code key}.
+   *
+   * @param names a sorted array; must not be {@code null}
+   *
+   * @param key the key; must not be {@code null}
+   *
+   * @return the index of the first element that is greater than or
+   * equal to {@code key}, or the length of the array if there is no
+   * such element
+   */
+  private static final int lowerBound(final String[] names, final String key) {
+    int low = 0;
+    int high = names.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (names[mid].compareTo(key) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+
+  /*
+   * Inner and nested classes.
+   */
+
+
+  /**
+   * An immutable {@link Set} view of a contiguous range of a sorted
+   * array of names.
+   *
+   * @author <a href="https://about.me/lairdnelson"
+   * target="_parent">Laird Nelson</a>
+   */
+  private static final class Range extends AbstractSet<String> {
+
+    /**
+     * The sorted array of names; never {@code null}.
+     */
+    private final String[] names;
+
+    /**
+     * The index of the first name in this {@link Range}, inclusive.
+     */
+    private final int from;
+
+    /**
+     * The index of the last name in this {@link Range}, exclusive.
+     */
+    private final int to;
+
+    /**
+     * Creates a new {@link Range}.
+     *
+     * @param names the sorted array of names; must not be {@code
+     * null}
+     *
+     * @param from the index of the first name in the new {@link
+     * Range}, inclusive
+     *
+     * @param to the index of the last name in the new {@link Range},
+     * exclusive
+     */
+    private Range(final String[] names, final int from, final int to) {
+      super();
+      this.names = names;
+      this.from = from;
+      this.to = to;
+    }
+
+    /**
+     * Returns the number of names in this {@link Range}.
+     *
+     * @return the number of names in this {@link Range}
+     */
+    @Override
+    public final int size() {
+      return this.to - this.from;
+    }
+
+    /**
+     * Returns {@code true} if the supplied {@link Object} is a name
+     * in this {@link Range}.
+     *
+     * @param other the {@link Object} to test; may be {@code null}
+     *
+     * @return {@code true} if the supplied {@link Object} is a name
+     * in this {@link Range}; {@code false} otherwise
+     */
+    @Override
+    public final boolean contains(final Object other) {
+      return other instanceof String && Arrays.binarySearch(this.names, this.from, this.to, other) >= 0;
+    }
+
+    /**
+     * Returns an {@link Iterator} over the names in this {@link
+     * Range} in their natural order.
+     *
+     * @return a non-{@code null} {@link Iterator}
+     */
+    @Override
+    public final Iterator<String> iterator() {
+      return new Iterator<String>() {
+        private int index = from;
+
+        @Override
+        public final boolean hasNext() {
+          return this.index < to;
+        }
+
+        @Override
+        public final String next() {
+          if (this.index >= to) {
+            throw new NoSuchElementException();
+          }
+          return names[this.index++];
+        }
+      };
+    }
+
+  }
+
+}
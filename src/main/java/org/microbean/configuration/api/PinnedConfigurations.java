@@ -0,0 +1,241 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2018 microBean.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.microbean.configuration.api;
+
+import java.lang.reflect.Type;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import java.util.function.BiFunction;
+
+import java.util.logging.Logger;
+
+/**
+ * An {@link AbstractConfigurations} that answers requests from an
+ * immutable structure captured from another {@link
+ * AbstractConfigurations} and therefore never changes.
+ *
+ * <p>Selected values are {@linkplain
+ * AbstractConfigurations#convert(String, Type) converted} by the
+ * {@link AbstractConfigurations} from which the structure was
+ * captured, so that any customized conversion it performs also
+ * applies to its snapshots.</p>
+ *
+ * <p>Instances of this class are safe for concurrent use by multiple
+ * threads.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson"
+ * target="_parent">Laird Nelson</a>
+ *
+ * @see Configurations#snapshot()
+ *
+ * @see Configurations#readConsistently(java.util.function.Function)
+ */
+final class PinnedConfigurations extends AbstractConfigurations {
+
+
+  /*
+   * Static fields.
+   */
+
+
+  /**
+   * The {@link Logger} shared by all {@link PinnedConfigurations}
+   * instances, which are created frequently.
+   *
+   * <p>This field is never {@code null}.</p>
+   *
+   * @see #createLogger()
+   */
+  private static final Logger logger = Logger.getLogger(PinnedConfigurations.class.getName());
+
+
+  /*
+   * Instance fields.
+   */
+
+
+  /**
+   * The {@link AbstractConfigurations} from which the structure
+   * answering requests was captured.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final AbstractConfigurations source;
+
+  /**
+   * The names of the configuration properties in the captured
+   * structure.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final Set<String> names;
+
+  /**
+   * A {@link BiFunction} that selects a {@link ConfigurationValue}
+   * from the captured structure given configuration coordinates and
+   * a name.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final BiFunction<? super Map<String, String>, ? super String, ? extends ConfigurationValue> selector;
+
+
+  /*
+   * Constructors.
+   */
+
+
+  /**
+   * Creates a new {@link PinnedConfigurations}.
+   *
+   * @param source the {@link AbstractConfigurations} from which the
+   * structure answering requests was captured; must not be {@code
+   * null}
+   *
+   * @param names the names of the configuration properties in the
+   * captured structure; must not be {@code null} and must not change
+   *
+   * @param selector a {@link BiFunction} that selects a {@link
+   * ConfigurationValue} from the captured structure given
+   * configuration coordinates and a name, returning {@code null} if
+   * there is none; must not be {@code null} and must always return
+   * the same result for the same arguments
+   *
+   * @exception NullPointerException if any parameter is {@code null}
+   */
+  PinnedConfigurations(final AbstractConfigurations source,
+                       final Set<String> names,
+                       final BiFunction<? super Map<String, String>, ? super String, ? extends ConfigurationValue> selector) {
+    super(source.getConfigurationCoordinates());
+    this.source = source;
+    this.names = Objects.requireNonNull(names);
+    this.selector = Objects.requireNonNull(selector);
+  }
+
+
+  /*
+   * Instance methods.
+   */
+
+
+  /**
+   * Returns a {@link Logger} shared by all {@link
+   * PinnedConfigurations} instances.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return a non-{@code null} {@link Logger}
+   */
+  @Override
+  protected final Logger createLogger() {
+    return logger;
+  }
+
+  /**
+   * Returns the {@link Set} of conversion types supported by the
+   * {@link AbstractConfigurations} from which the structure
+   * answering requests was captured.
+   *
+   * @return a non-{@code null} {@link Set} of {@link Type}s
+   */
+  @Override
+  public final Set<Type> getConversionTypes() {
+    return this.source.getConversionTypes();
+  }
+
+  /**
+   * Returns the names of the configuration properties in the
+   * captured structure.
+   *
+   * @return a non-{@code null} {@link Set} of names
+   */
+  @Override
+  public final Set<String> getNames() {
+    return this.names;
+  }
+
+  /**
+   * Returns the {@link ConfigurationValue} that the captured
+   * structure holds for the supplied {@code
+   * configurationCoordinates} and {@code name}, or {@code null} if
+   * there is no such {@link ConfigurationValue}.
+   *
+   * @param configurationCoordinates the configuration coordinates in
+   * effect for the request; may be {@code null}
+   *
+   * @param name the name of the configuration property; must not be
+   * {@code null}
+   *
+   * @return the selected {@link ConfigurationValue}, or {@code null}
+   *
+   * @exception NullPointerException if {@code name} is {@code null}
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable
+   */
+  @Override
+  public final ConfigurationValue getConfigurationValue(final Map<String, String> configurationCoordinates, final String name) {
+    return this.selector.apply(configurationCoordinates, Objects.requireNonNull(name));
+  }
+
+  /**
+   * Converts the supplied {@code value} using the {@link
+   * AbstractConfigurations} from which the structure answering
+   * requests was captured.
+   *
+   * @param <T> the type to which the value will be converted
+   *
+   * @param value the value to convert; may be {@code null}
+   *
+   * @param type the {@link Type} to which the value will be
+   * converted; must not be {@code null}
+   *
+   * @return the converted value, or {@code null}
+   *
+   * @exception ConversionException if type conversion could not occur
+   * for any reason
+   */
+  @Override
+  protected final <T> T convert(final String value, final Type type) {
+    return this.source.convert(value, type);
+  }
+
+  /**
+   * Returns {@code true}, since this {@link PinnedConfigurations}
+   * never changes.
+   *
+   * @return {@code true}
+   */
+  @Override
+  protected final boolean isChangeReportingEnabled() {
+    return true;
+  }
+
+  /**
+   * Returns this {@link PinnedConfigurations}, which never changes.
+   *
+   * @return this {@link PinnedConfigurations}
+   */
+  @Override
+  protected final Configurations snapshot() {
+    return this;
+  }
+
+}
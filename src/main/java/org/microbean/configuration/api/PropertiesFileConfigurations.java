@@ -0,0 +1,1061 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2018 microBean.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.microbean.configuration.api;
+
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+
+import java.nio.channels.FileChannel;
+
+import java.nio.charset.StandardCharsets;
+
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * An {@link AbstractConfigurations} backed by a memory-mapped
+ * properties file that is indexed, but not parsed, when it is
+ * opened.
+ *
+ * <h2>Format</h2>
+ *
+ * <p>The file is a UTF-8 encoded {@linkplain java.util.Properties
+ * properties file}: keys are separated from values by {@code =},
+ * {@code :} or whitespace, lines beginning with {@code #} or {@code
+ * !} are comments, a trailing backslash continues a line, and the
+ * usual backslash escapes, including {@code \}{@code uXXXX}, are
+ * recognized.  A key may be qualified with configuration coordinates
+ * in square brackets, so that the file</p>
+ *
+ * <blockquote><pre>db.url = jdbc:h2:mem:test
+ *db.url[env=prod] = jdbc:postgresql://db/prod
+ *db.url[env=prod,region=eu] = jdbc:postgresql://db-eu/prod</pre></blockquote>
+ *
+ * <p>yields three {@link ConfigurationValue}s for the configuration
+ * property named {@code db.url}, selected according to the
+ * {@linkplain ConfigurationValueIndex rules} of the {@link
+ * ConfigurationValueIndex} class.  If the same key appears more than
+ * once, the last occurrence wins, as it does for {@link
+ * java.util.Properties}.</p>
+ *
+ * <h2>Laziness</h2>
+ *
+ * <p>Opening a file makes a single pass over its bytes, split into
+ * ranges scanned in parallel if the file is large, that records, for
+ * each entry, the offsets of its key and value and a hash of its
+ * unqualified name; nothing is decoded.  An entry is decoded into a
+ * {@link ConfigurationValue} the first time a request for its name
+ * is made, and is retained thereafter.  The {@link
+ * #getByteBuffer(Map, String)} method returns a view of the mapped
+ * file itself for values that contain no escapes.</p>
+ *
+ * <p>Instances of this class are safe for concurrent use by multiple
+ * threads.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson"
+ * target="_parent">Laird Nelson</a>
+ *
+ * @see ConfigurationValueIndex
+ */
+public final class PropertiesFileConfigurations extends AbstractConfigurations {
+
+
+  /*
+   * Instance fields.
+   */
+
+
+  /**
+   * The {@link Path} of the properties file, used as the {@linkplain
+   * ConfigurationValue#getSource() source} of every {@link
+   * ConfigurationValue}.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final String source;
+
+  /**
+   * The read-only mapping of the properties file.
+   *
+   * <p>Only absolute accessors are used, so this field may be shared
+   * by multiple threads.</p>
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final MappedByteBuffer buffer;
+
+  /**
+   * The offsets of the entries in the properties file.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final Entries entries;
+
+  /**
+   * The heads of the hash chains of entry identifiers, indexed by the
+   * hash of an unqualified name masked by the length of this array
+   * less one; each element is an entry identifier plus one, or {@code
+   * 0} if the chain is empty.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final int[] heads;
+
+  /**
+   * The next entry identifier plus one in the hash chain of each
+   * entry, or {@code 0} at the end of a chain.  Chains are in file
+   * order.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final int[] next;
+
+  /**
+   * The decoded {@link ConfigurationValue}s, indexed by entry
+   * identifier, each of which is {@code null} until the entry is
+   * first decoded.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final AtomicReferenceArray<ConfigurationValue> decoded;
+
+  /**
+   * The names of the configuration properties in the properties
+   * file, or {@code null} if they have not yet been decoded.
+   *
+   * @see #getNames()
+   */
+  private volatile Set<String> names;
+
+
+  /*
+   * Constructors.
+   */
+
+
+  /**
+   * Creates a new {@link PropertiesFileConfigurations} by mapping and
+   * indexing the properties file at the supplied {@link Path}.
+   *
+   * @param configurationCoordinates the configuration coordinates of
+   * the new {@link PropertiesFileConfigurations}; may be {@code null}
+   *
+   * @param path the {@link Path} of the properties file; must not be
+   * {@code null}
+   *
+   * @exception NullPointerException if {@code path} is {@code null}
+   *
+   * @exception IOException if the file could not be mapped or is
+   * larger than 2 GiB
+   */
+  public PropertiesFileConfigurations(final Map<? extends String, ? extends String> configurationCoordinates, final Path path) throws IOException {
+    super(configurationCoordinates);
+    final Path absolutePath = path.toAbsolutePath();
+    this.source = absolutePath.toString();
+    try (final FileChannel channel = FileChannel.open(absolutePath, StandardOpenOption.READ)) {
+      final long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException(absolutePath + ": too large: " + size);
+      }
+      this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0L, size);
+    }
+    this.entries = ForkJoinPool.commonPool().invoke(new ScanTask(this.buffer, 0, this.buffer.limit()));
+    final int count = this.entries.size;
+    this.heads = new int[Integer.highestOneBit(Math.max(1, count)) << 1];
+    this.next = new int[count];
+    final int mask = this.heads.length - 1;
+    for (int id = count - 1; id >= 0; id--) {
+      final int bucket = this.entries.hashes[id] & mask;
+      this.next[id] = this.heads[bucket];
+      this.heads[bucket] = id + 1;
+    }
+    this.decoded = new AtomicReferenceArray<>(count);
+  }
+
+
+  /*
+   * Instance methods.
+   */
+
+
+  /**
+   * Returns the names of all configuration properties in the
+   * properties file, decoding every key the first time it is called.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return a non-{@code null}, immutable {@link Set} of names
+   */
+  @Override
+  public final Set<String> getNames() {
+    Set<String> names = this.names;
+    if (names == null) {
+      final Set<String> newNames = new LinkedHashSet<>();
+      for (int id = 0; id < this.entries.size; id++) {
+        newNames.add(this.decode(id).getName());
+      }
+      names = Collections.unmodifiableSet(newNames);
+      this.names = names;
+    }
+    return names;
+  }
+
+  /**
+   * Returns the {@link ConfigurationValue} in the properties file
+   * most suitable for the supplied {@code configurationCoordinates}
+   * and {@code name}, or {@code null} if there is no such {@link
+   * ConfigurationValue}.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @param configurationCoordinates the configuration coordinates in
+   * effect for the request; may be {@code null}
+   *
+   * @param name the name of the configuration property; must not be
+   * {@code null}
+   *
+   * @return the selected {@link ConfigurationValue}, or {@code null}
+   *
+   * @exception NullPointerException if {@code name} is {@code null}
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable
+   */
+  @Override
+  public final ConfigurationValue getConfigurationValue(final Map<String, String> configurationCoordinates, final String name) {
+    final int id = this.select(configurationCoordinates, name);
+    return id < 0 ? null : this.decode(id);
+  }
+
+  /**
+   * Returns a read-only {@link ByteBuffer} containing the UTF-8
+   * encoding of the configuration value suitable for the supplied
+   * {@code configurationCoordinates} and {@code name}, or {@code null}
+   * if there is no such value.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * <p>If the value contains no escapes, the returned {@link
+   * ByteBuffer} is a view of the mapped properties file and no
+   * copying occurs.</p>
+   *
+   * @param configurationCoordinates the configuration coordinates in
+   * effect for the request; may be {@code null}
+   *
+   * @param name the name of the configuration property; must not be
+   * {@code null}
+   *
+   * @return a read-only {@link ByteBuffer}, or {@code null}
+   *
+   * @exception NullPointerException if {@code name} is {@code null}
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable
+   */
+  @Override
+  public final ByteBuffer getByteBuffer(final Map<String, String> configurationCoordinates, final String name) {
+    final int id = this.select(configurationCoordinates, name);
+    if (id < 0) {
+      return null;
+    } else if (this.entries.escaped.get(id)) {
+      return StandardCharsets.UTF_8.encode(this.decode(id).getValue()).asReadOnlyBuffer();
+    }
+    final ByteBuffer view = this.buffer.duplicate();
+    view.limit(this.entries.valueEnds[id]).position(this.entries.valueStarts[id]);
+    return view.slice().asReadOnlyBuffer();
+  }
+
+  /**
+   * Returns {@code true}, since this {@link
+   * PropertiesFileConfigurations} never changes.
+   *
+   * @return {@code true}
+   */
+  @Override
+  protected final boolean isChangeReportingEnabled() {
+    return true;
+  }
+
+  /**
+   * Returns this {@link PropertiesFileConfigurations}, which never
+   * changes.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return this {@link PropertiesFileConfigurations}
+   *
+   * @see Configurations#readConsistently(java.util.function.Function)
+   */
+  @Override
+  protected final Configurations snapshot() {
+    return this;
+  }
+
+  /**
+   * Returns the {@link ConfigurationValue}s, in file order, that
+   * compete when a {@link ConfigurationValue} is {@linkplain
+   * #getConfigurationValue(Map, String) selected} for the supplied
+   * {@code configurationCoordinates} and {@code name}.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param configurationCoordinates the configuration coordinates in
+   * effect for the request; may be {@code null}
+   *
+   * @param name the name of the configuration property; must not be
+   * {@code null}
+   *
+   * @return an immutable {@link Collection} of {@link
+   * ConfigurationValue}s; never {@code null}
+   *
+   * @exception NullPointerException if {@code name} is {@code null}
+   */
+  @Override
+  final Collection<? extends ConfigurationValue> getCandidates(final Map<String, String> configurationCoordinates, final String name) {
+    final Map<Map<String, String>, Integer> candidates = this.gather(configurationCoordinates, name);
+    if (candidates == null) {
+      return Collections.emptyList();
+    }
+    final List<ConfigurationValue> values = new ArrayList<>(candidates.size());
+    for (final Integer id : candidates.values()) {
+      values.add(this.decode(id.intValue()));
+    }
+    return Collections.unmodifiableList(values);
+  }
+
+  /**
+   * Returns the identifier of the entry most suitable for the
+   * supplied {@code configurationCoordinates} and {@code name}, or
+   * {@code -1} if there is no such entry.
+   *
+   * @param configurationCoordinates the configuration coordinates in
+   * effect for the request; may be {@code null}
+   *
+   * @param name the name of the configuration property; must not be
+   * {@code null}
+   *
+   * @return an entry identifier, or {@code -1}
+   *
+   * @exception NullPointerException if {@code name} is {@code null}
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable
+   */
+  private final int select(final Map<String, String> configurationCoordinates, final String name) {
+    final Map<Map<String, String>, Integer> candidates = this.gather(configurationCoordinates, name);
+    if (candidates == null) {
+      return -1;
+    }
+    final ConfigurationValue[] values = new ConfigurationValue[candidates.size()];
+    final int[] ids = new int[values.length];
+    final int[] candidateIds = new int[values.length];
+    int i = 0;
+    for (final Integer id : candidates.values()) {
+      ids[i] = id.intValue();
+      values[i] = this.decode(ids[i]);
+      candidateIds[i] = i;
+      i++;
+    }
+    final ConfigurationValue selected = ConfigurationValueIndex.select(configurationCoordinates, name, values, candidateIds);
+    for (i = 0; i < values.length; i++) {
+      if (values[i] == selected) {
+        return ids[i];
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the identifiers of the entries named by the supplied
+   * {@code name} whose coordinates make them candidates for the
+   * supplied {@code configurationCoordinates}, indexed by those
+   * coordinates, or {@code null} if there are none.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @param configurationCoordinates the configuration coordinates in
+   * effect for the request; may be {@code null}
+   *
+   * @param name the name of the configuration property; must not be
+   * {@code null}
+   *
+   * @return a {@link Map} of entry identifiers in file order, or
+   * {@code null}
+   *
+   * @exception NullPointerException if {@code name} is {@code null}
+   */
+  private final Map<Map<String, String>, Integer> gather(final Map<String, String> configurationCoordinates, final String name) {
+    final int hash = hash(name);
+
+    // Gather the candidates in file order; a later entry with the
+    // same coordinates replaces an earlier one.
+    Map<Map<String, String>, Integer> candidates = null;
+    for (int link = this.heads[hash & (this.heads.length - 1)]; link != 0; link = this.next[link - 1]) {
+      final int id = link - 1;
+      if (this.entries.hashes[id] != hash) {
+        continue;
+      }
+      final ConfigurationValue value = this.decode(id);
+      if (value.getName().equals(name) && isCandidate(value.getCoordinates(), configurationCoordinates)) {
+        if (candidates == null) {
+          candidates = new LinkedHashMap<>();
+        }
+        candidates.put(value.getCoordinates(), Integer.valueOf(id));
+      }
+    }
+    return candidates;
+  }
+
+
+  /**
+   * Returns the {@link ConfigurationValue} for the entry with the
+   * supplied identifier, decoding it if this is the first time it has
+   * been requested.
+   *
+   * @param id the entry identifier
+   *
+   * @return a non-{@code null} {@link ConfigurationValue}
+   */
+  private final ConfigurationValue decode(final int id) {
+    ConfigurationValue value = this.decoded.get(id);
+    if (value == null) {
+      final boolean escaped = this.entries.escaped.get(id);
+      final String key = this.getString(this.entries.keyStarts[id], this.entries.keyEnds[id]);
+      String rawValue = this.getString(this.entries.valueStarts[id], this.entries.valueEnds[id]);
+      String name = key;
+      String qualifier = null;
+      if (this.entries.qualified.get(id)) {
+        // Split the key before unescaping it, so that an escaped '['
+        // is part of the name rather than the start of a qualifier.
+        final int open = indexOfUnescaped(key, '[');
+        name = key.substring(0, open);
+        qualifier = key.substring(open + 1, key.length() - 1);
+      }
+      if (escaped) {
+        name = unescape(name);
+        qualifier = qualifier == null ? null : unescape(qualifier);
+        rawValue = unescape(rawValue);
+      }
+      final Map<String, String> coordinates = qualifier == null ? null : parseCoordinates(qualifier);
+      value = new ConfigurationValue(this.source, coordinates, name, rawValue, false);
+      if (!this.decoded.compareAndSet(id, null, value)) {
+        value = this.decoded.get(id);
+      }
+    }
+    return value;
+  }
+
+  /**
+   * Decodes the UTF-8 bytes of the mapped properties file between the
+   * supplied offsets.
+   *
+   * @param start the offset of the first byte
+   *
+   * @param end the offset after the last byte
+   *
+   * @return a non-{@code null} {@link String}
+   */
+  private final String getString(final int start, final int end) {
+    final ByteBuffer view = this.buffer.duplicate();
+    view.limit(end).position(start);
+    return StandardCharsets.UTF_8.decode(view).toString();
+  }
+
+
+  /*
+   * Static methods.
+   */
+
+
+  /**
+   * Makes a single pass over the entries of the supplied {@link
+   * ByteBuffer} that begin between the supplied offsets, recording
+   * the offsets of each without decoding anything.
+   *
+   * @param buffer the contents of a properties file; must not be
+   * {@code null}
+   *
+   * @param start the offset at which to begin, which must be the
+   * start of a logical line
+   *
+   * @param end the offset at which to end, which must be the end of a
+   * logical line
+   *
+   * @return a non-{@code null} {@link Entries}
+   */
+  private static final Entries scan(final ByteBuffer buffer, final int start, final int end) {
+    final Entries entries = new Entries();
+    final BitSet rehash = new BitSet();
+    int i = start;
+    while (i < end) {
+      byte b = buffer.get(i);
+      if (b == ' ' || b == '\t' || b == '\f' || b == '\r' || b == '\n') {
+        i++;
+        continue;
+      }
+      if (b == '#' || b == '!') {
+        while (i < end && (b = buffer.get(i)) != '\r' && b != '\n') {
+          i++;
+        }
+        continue;
+      }
+
+      // The key runs to the first unescaped separator, except that
+      // separators between square brackets qualifying it do not
+      // count.  The hash covers the unqualified name, which ends at
+      // the first '['.  If the brackets are not closed on the same
+      // line, the key is scanned again as though they were ordinary
+      // characters.  Escaped brackets are always ordinary characters.
+      final int keyStart = i;
+      boolean escaped = false;
+      boolean bracketsAllowed = true;
+      int open;
+      boolean closed;
+      boolean endsWithEscape;
+      int hash;
+      while (true) {
+        open = -1;
+        closed = false;
+        endsWithEscape = false;
+        hash = 0;
+        i = keyStart;
+        while (i < end) {
+          b = buffer.get(i);
+          if (b == '\\') {
+            escaped = true;
+            endsWithEscape = true;
+            i = skipEscape(buffer, i, end);
+            continue;
+          } else if (b == '\r' || b == '\n') {
+            break;
+          } else if (open >= 0 && !closed) {
+            closed = b == ']';
+          } else if (b == '=' || b == ':' || b == ' ' || b == '\t' || b == '\f') {
+            break;
+          } else if (b == '[' && open < 0 && bracketsAllowed) {
+            open = i;
+          } else if (open < 0) {
+            hash = 31 * hash + (b & 0xFF);
+          }
+          endsWithEscape = false;
+          i++;
+        }
+        if (open < 0 || closed) {
+          break;
+        }
+        bracketsAllowed = false;
+      }
+      final int keyEnd = i;
+      final boolean qualified = open > keyStart && !endsWithEscape && buffer.get(keyEnd - 1) == ']';
+
+      // The separator is optional whitespace, at most one '=' or ':',
+      // and more optional whitespace.
+      while (i < end && ((b = buffer.get(i)) == ' ' || b == '\t' || b == '\f')) {
+        i++;
+      }
+      if (i < end && ((b = buffer.get(i)) == '=' || b == ':')) {
+        i++;
+      }
+      while (i < end && ((b = buffer.get(i)) == ' ' || b == '\t' || b == '\f')) {
+        i++;
+      }
+
+      // The value runs to the end of the logical line.
+      final int valueStart = i;
+      while (i < end) {
+        b = buffer.get(i);
+        if (b == '\\') {
+          escaped = true;
+          i = skipEscape(buffer, i, end);
+        } else if (b == '\r' || b == '\n') {
+          break;
+        } else {
+          i++;
+        }
+      }
+      if (escaped || (open >= 0 && !qualified)) {
+        rehash.set(entries.size);
+      }
+      entries.add(keyStart, keyEnd, valueStart, Math.min(i, end), hash, escaped, qualified);
+    }
+
+    // The hashes of keys with escapes, or with square brackets that
+    // do not qualify them, were computed over the wrong bytes;
+    // recompute them over their unqualified, unescaped names.
+    for (int id = rehash.nextSetBit(0); id >= 0; id = rehash.nextSetBit(id + 1)) {
+      final ByteBuffer view = buffer.duplicate();
+      view.limit(entries.keyEnds[id]).position(entries.keyStarts[id]);
+      final String key = StandardCharsets.UTF_8.decode(view).toString();
+      entries.hashes[id] = hash(unescape(entries.qualified.get(id) ? key.substring(0, indexOfUnescaped(key, '[')) : key));
+    }
+    return entries;
+  }
+
+  /**
+   * Returns the offset of the start of the first logical line
+   * beginning at or after the supplied offset, erring towards later
+   * offsets.
+   *
+   * <p>A line terminator that does not follow a backslash always
+   * ends a logical line, so this method looks for the first such
+   * terminator.</p>
+   *
+   * @param buffer the contents of a properties file; must not be
+   * {@code null}
+   *
+   * @param i an offset
+   *
+   * @param end the offset at which to stop looking
+   *
+   * @return the offset of the start of a logical line, or {@code
+   * end}
+   */
+  private static final int nextLine(final ByteBuffer buffer, int i, final int end) {
+    for (; i < end; i++) {
+      if (buffer.get(i) == '\n') {
+        int j = i - 1;
+        if (j >= 0 && buffer.get(j) == '\r') {
+          j--;
+        }
+        if (j < 0 || buffer.get(j) != '\\') {
+          return i + 1;
+        }
+      }
+    }
+    return end;
+  }
+
+  /**
+   * Returns the offset after the escape sequence beginning with the
+   * backslash at the supplied offset, treating a backslash followed
+   * by a line terminator as a line continuation.
+   *
+   * @param buffer the contents of a properties file; must not be
+   * {@code null}
+   *
+   * @param i the offset of a backslash
+   *
+   * @param size the size of the contents
+   *
+   * @return the offset after the escape sequence
+   */
+  private static final int skipEscape(final ByteBuffer buffer, int i, final int size) {
+    i++;
+    if (i < size) {
+      final byte b = buffer.get(i++);
+      if (b == '\r' && i < size && buffer.get(i) == '\n') {
+        i++;
+      }
+    }
+    return i;
+  }
+
+  /**
+   * Returns the index of the first occurrence of the supplied
+   * character in the supplied key that is not part of an escape
+   * sequence, or {@code -1} if there is none.
+   *
+   * @param key a key as it appears in a properties file, before
+   * escapes have been processed; must not be {@code null}
+   *
+   * @param c the character to find
+   *
+   * @return the index of the first unescaped {@code c}, or {@code -1}
+   */
+  private static final int indexOfUnescaped(final String key, final char c) {
+    final int length = key.length();
+    for (int i = 0; i < length; i++) {
+      final char k = key.charAt(i);
+      if (k == '\\') {
+        i++;
+      } else if (k == c) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the hash used to index the supplied unqualified name,
+   * computed over its UTF-8 encoding.
+   *
+   * @param name the name; must not be {@code null}
+   *
+   * @return the hash of {@code name}
+   */
+  private static final int hash(final String name) {
+    int hash = 0;
+    for (final byte b : name.getBytes(StandardCharsets.UTF_8)) {
+      hash = 31 * hash + (b & 0xFF);
+    }
+    return hash;
+  }
+
+  /**
+   * Returns {@code true} if the supplied {@code coordinates} of a
+   * {@link ConfigurationValue} are a subset of the supplied {@code
+   * configurationCoordinates} of a request.
+   *
+   * @param coordinates the coordinates of a {@link
+   * ConfigurationValue}; must not be {@code null}
+   *
+   * @param configurationCoordinates the configuration coordinates of
+   * a request; may be {@code null}
+   *
+   * @return {@code true} if the {@link ConfigurationValue} is a
+   * candidate for the request
+   */
+  private static final boolean isCandidate(final Map<String, String> coordinates, final Map<String, String> configurationCoordinates) {
+    if (coordinates.isEmpty()) {
+      return true;
+    } else if (configurationCoordinates == null || configurationCoordinates.size() < coordinates.size()) {
+      return false;
+    }
+    for (final Map.Entry<String, String> coordinate : coordinates.entrySet()) {
+      if (!Objects.equals(coordinate.getValue(), configurationCoordinates.get(coordinate.getKey()))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Parses the comma-separated <em>dimension</em>=<em>value</em>
+   * pairs qualifying a key.
+   *
+   * @param qualifier the text between the square brackets of a
+   * qualified key; must not be {@code null}
+   *
+   * @return a non-{@code null} {@link Map} of coordinates
+   */
+  private static final Map<String, String> parseCoordinates(final String qualifier) {
+    final Map<String, String> coordinates = new HashMap<>();
+    for (final String pair : qualifier.split(",")) {
+      final int equals = pair.indexOf('=');
+      if (equals > 0) {
+        coordinates.put(pair.substring(0, equals).trim(), pair.substring(equals + 1).trim());
+      }
+    }
+    return coordinates;
+  }
+
+  /**
+   * Processes the escape sequences and line continuations in the
+   * supplied key or value the way {@link java.util.Properties} does.
+   *
+   * @param s the key or value; must not be {@code null}
+   *
+   * @return the unescaped key or value
+   */
+  private static final String unescape(final String s) {
+    final int length = s.length();
+    final StringBuilder sb = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      char c = s.charAt(i);
+      if (c != '\\' || i + 1 >= length) {
+        sb.append(c);
+        continue;
+      }
+      c = s.charAt(++i);
+      switch (c) {
+      case 't':
+        sb.append('\t');
+        break;
+      case 'n':
+        sb.append('\n');
+        break;
+      case 'r':
+        sb.append('\r');
+        break;
+      case 'f':
+        sb.append('\f');
+        break;
+      case 'u':
+        if (i + 4 < length) {
+          try {
+            sb.append((char)Integer.parseInt(s.substring(i + 1, i + 5), 16));
+            i += 4;
+            break;
+          } catch (final NumberFormatException malformed) {
+            // fall through and keep the 'u'
+          }
+        }
+        sb.append(c);
+        break;
+      case '\r':
+      case '\n':
+        // A line continuation: skip the terminator and the leading
+        // whitespace of the next line.
+        if (c == '\r' && i + 1 < length && s.charAt(i + 1) == '\n') {
+          i++;
+        }
+        while (i + 1 < length && ((c = s.charAt(i + 1)) == ' ' || c == '\t' || c == '\f')) {
+          i++;
+        }
+        break;
+      default:
+        sb.append(c);
+        break;
+      }
+    }
+    return sb.toString();
+  }
+
+
+  /*
+   * Inner and nested classes.
+   */
+
+
+  /**
+   * A {@link RecursiveTask} that {@linkplain #scan(ByteBuffer, int,
+   * int) scans} a range of a properties file, splitting it at a
+   * logical line boundary and scanning the halves in parallel if it
+   * is large.
+   *
+   * @author <a href="https://about.me/lairdnelson"
+   * target="_parent">Laird Nelson</a>
+   */
+  private static final class ScanTask extends RecursiveTask<Entries> {
+
+    /**
+     * The version of this class for {@linkplain
+     * java.io.Serializable serialization} purposes.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The number of bytes at or below which a range is scanned
+     * without being split.
+     */
+    private static final int THRESHOLD = 1 << 22;
+
+    /**
+     * The contents of the properties file; never {@code null}.
+     */
+    private final transient ByteBuffer buffer;
+
+    /**
+     * The offset of the start of the range, which is the start of a
+     * logical line.
+     */
+    private final int start;
+
+    /**
+     * The offset of the end of the range, which is the end of a
+     * logical line.
+     */
+    private final int end;
+
+    /**
+     * Creates a new {@link ScanTask}.
+     *
+     * @param buffer the contents of the properties file; must not be
+     * {@code null}
+     *
+     * @param start the offset of the start of the range
+     *
+     * @param end the offset of the end of the range
+     */
+    private ScanTask(final ByteBuffer buffer, final int start, final int end) {
+      super();
+      this.buffer = buffer;
+      this.start = start;
+      this.end = end;
+    }
+
+    /**
+     * Scans this {@link ScanTask}'s range, forking a subtask if the
+     * range is large.
+     *
+     * @return a non-{@code null} {@link Entries}
+     */
+    @Override
+    protected final Entries compute() {
+      if (this.end - this.start > THRESHOLD) {
+        final int middle = nextLine(this.buffer, this.start + (this.end - this.start) / 2, this.end);
+        if (middle < this.end) {
+          final ScanTask right = new ScanTask(this.buffer, middle, this.end);
+          right.fork();
+          final Entries entries = new ScanTask(this.buffer, this.start, middle).compute();
+          entries.append(right.join());
+          return entries;
+        }
+      }
+      return scan(this.buffer, this.start, this.end);
+    }
+
+  }
+
+  /**
+   * The offsets of the entries in a properties file, stored in
+   * parallel arrays indexed by entry identifier.
+   *
+   * @author <a href="https://about.me/lairdnelson"
+   * target="_parent">Laird Nelson</a>
+   */
+  private static final class Entries {
+
+    /**
+     * The number of entries.
+     */
+    private int size;
+
+    /**
+     * The offsets of the first bytes of the keys.
+     */
+    private int[] keyStarts;
+
+    /**
+     * The offsets after the last bytes of the keys.
+     */
+    private int[] keyEnds;
+
+    /**
+     * The offsets of the first bytes of the values.
+     */
+    private int[] valueStarts;
+
+    /**
+     * The offsets after the last bytes of the values.
+     */
+    private int[] valueEnds;
+
+    /**
+     * The hashes of the unqualified names.
+     */
+    private int[] hashes;
+
+    /**
+     * The identifiers of the entries whose keys or values contain
+     * escapes.
+     */
+    private final BitSet escaped;
+
+    /**
+     * The identifiers of the entries whose keys are qualified by
+     * configuration coordinates between an unescaped {@code [} and a
+     * final, unescaped {@code ]}.
+     */
+    private final BitSet qualified;
+
+    /**
+     * Creates a new, empty {@link Entries}.
+     */
+    private Entries() {
+      super();
+      this.keyStarts = new int[64];
+      this.keyEnds = new int[64];
+      this.valueStarts = new int[64];
+      this.valueEnds = new int[64];
+      this.hashes = new int[64];
+      this.escaped = new BitSet();
+      this.qualified = new BitSet();
+    }
+
+    /**
+     * Records an entry.
+     *
+     * @param keyStart the offset of the first byte of the key
+     *
+     * @param keyEnd the offset after the last byte of the key
+     *
+     * @param valueStart the offset of the first byte of the value
+     *
+     * @param valueEnd the offset after the last byte of the value
+     *
+     * @param hash the hash of the unqualified name
+     *
+     * @param escaped whether the key or value contains escapes
+     *
+     * @param qualified whether the key is qualified by configuration
+     * coordinates
+     */
+    private final void add(final int keyStart, final int keyEnd, final int valueStart, final int valueEnd, final int hash, final boolean escaped, final boolean qualified) {
+      if (this.size == this.keyStarts.length) {
+        final int capacity = this.size * 2;
+        this.keyStarts = Arrays.copyOf(this.keyStarts, capacity);
+        this.keyEnds = Arrays.copyOf(this.keyEnds, capacity);
+        this.valueStarts = Arrays.copyOf(this.valueStarts, capacity);
+        this.valueEnds = Arrays.copyOf(this.valueEnds, capacity);
+        this.hashes = Arrays.copyOf(this.hashes, capacity);
+      }
+      this.keyStarts[this.size] = keyStart;
+      this.keyEnds[this.size] = keyEnd;
+      this.valueStarts[this.size] = valueStart;
+      this.valueEnds[this.size] = valueEnd;
+      this.hashes[this.size] = hash;
+      if (escaped) {
+        this.escaped.set(this.size);
+      }
+      if (qualified) {
+        this.qualified.set(this.size);
+      }
+      this.size++;
+    }
+
+    /**
+     * Appends the supplied {@link Entries}, which must follow this
+     * {@link Entries} in the properties file.
+     *
+     * @param other the {@link Entries} to append; must not be {@code
+     * null}
+     */
+    private final void append(final Entries other) {
+      final int capacity = Math.max(this.keyStarts.length, this.size + other.size);
+      this.keyStarts = Arrays.copyOf(this.keyStarts, capacity);
+      this.keyEnds = Arrays.copyOf(this.keyEnds, capacity);
+      this.valueStarts = Arrays.copyOf(this.valueStarts, capacity);
+      this.valueEnds = Arrays.copyOf(this.valueEnds, capacity);
+      this.hashes = Arrays.copyOf(this.hashes, capacity);
+      System.arraycopy(other.keyStarts, 0, this.keyStarts, this.size, other.size);
+      System.arraycopy(other.keyEnds, 0, this.keyEnds, this.size, other.size);
+      System.arraycopy(other.valueStarts, 0, this.valueStarts, this.size, other.size);
+      System.arraycopy(other.valueEnds, 0, this.valueEnds, this.size, other.size);
+      System.arraycopy(other.hashes, 0, this.hashes, this.size, other.size);
+      for (int id = other.escaped.nextSetBit(0); id >= 0; id = other.escaped.nextSetBit(id + 1)) {
+        this.escaped.set(this.size + id);
+      }
+      for (int id = other.qualified.nextSetBit(0); id >= 0; id = other.qualified.nextSetBit(id + 1)) {
+        this.qualified.set(this.size + id);
+      }
+      this.size += other.size;
+    }
+
+  }
+
+}
@@ -0,0 +1,139 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2018 microBean.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.microbean.configuration.api;
+
+import java.lang.reflect.Type;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A {@link Configurations} that passes every request through to a
+ * delegate {@link Configurations} and records the configuration
+ * coordinates, name and {@link Type} of each conversion request in
+ * an {@link AccessProfile}.
+ *
+ * <p>Instances of this class are safe for concurrent use by multiple
+ * threads.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson"
+ * target="_parent">Laird Nelson</a>
+ *
+ * @see AccessProfile#record(Configurations)
+ */
+final class RecordingConfigurations extends ForwardingConfigurations {
+
+
+  /*
+   * Instance fields.
+   */
+
+
+  /**
+   * The {@link AccessProfile} in which requests are recorded.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final AccessProfile profile;
+
+
+  /*
+   * Constructors.
+   */
+
+
+  /**
+   * Creates a new {@link RecordingConfigurations}.
+   *
+   * @param delegate the {@link Configurations} to which requests will
+   * be passed; must not be {@code null}
+   *
+   * @param profile the {@link AccessProfile} in which requests will
+   * be recorded; must not be {@code null}
+   *
+   * @exception NullPointerException if either parameter is {@code
+   * null}
+   */
+  RecordingConfigurations(final Configurations delegate, final AccessProfile profile) {
+    super(delegate);
+    this.profile = Objects.requireNonNull(profile);
+  }
+
+
+  /*
+   * Instance methods.
+   */
+
+
+  /**
+   * Returns a new {@link RecordingConfigurations} that records requests in the same {@link AccessProfile}
+   * and passes them through to the supplied {@code delegate}.
+   *
+   * @param delegate the {@link Configurations} to which requests will
+   * be passed; must not be {@code null}
+   *
+   * @return a new {@link RecordingConfigurations}
+   *
+   * @exception NullPointerException if {@code delegate} is {@code
+   * null}
+   */
+  @Override
+  protected final Configurations withDelegate(final Configurations delegate) {
+    return new RecordingConfigurations(delegate, this.profile);
+  }
+
+  /**
+   * Records the request in the {@link AccessProfile} and returns the
+   * result of calling the {@link Configurations#getValue(Map, String,
+   * Type, String)} method on the delegate.
+   *
+   * @param <T> the type to which a {@link String}-typed configuration
+   * value should be converted
+   *
+   * @param configurationCoordinates a {@link Map} representing the
+   * configuration coordinates in effect for this request; may be
+   * {@code null}
+   *
+   * @param name the name of the configuration property for which a
+   * value will be returned; must not be {@code null}
+   *
+   * @param type a {@link Type} representing the type to which the
+   * configuration value will be converted; must not be {@code null}
+   *
+   * @param defaultValue the value that will be converted and returned
+   * if {@code null} would otherwise be returned; may be {@code null}
+   *
+   * @return the configuration value, or {@code null}
+   *
+   * @exception NullPointerException if {@code name} or {@code type}
+   * is {@code null}
+   *
+   * @exception ConversionException if type conversion could not occur
+   * for any reason
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable
+   */
+  @Override
+  public final <T> T getValue(final Map<String, String> configurationCoordinates, final String name, final Type type, final String defaultValue) {
+    if (name != null && type != null) {
+      this.profile.add(configurationCoordinates, name, type);
+    }
+    return this.getDelegate().getValue(configurationCoordinates, name, type, defaultValue);
+  }
+
+}
@@ -0,0 +1,674 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2018 microBean.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.microbean.configuration.api;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+
+import java.net.Socket;
+import java.net.SocketAddress;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An {@link AbstractConfigurations} that requests {@link
+ * ConfigurationValue}s from a remote configuration store over a
+ * single connection.
+ *
+ * <p>Requests made concurrently by many threads are batched and
+ * pipelined: a writer thread drains every request that is waiting,
+ * writes them all and flushes once, without waiting for responses;
+ * a reader thread completes each request as its response arrives, in
+ * whatever order the store sends them.  Concurrent requests for the
+ * same configuration coordinates and name are deduplicated so that
+ * only one of them is sent.</p>
+ *
+ * <p>A typical use looks like this:</p>
+ *
+ * <blockquote><pre>try (final RemoteConfigurations configurations = new RemoteConfigurations(null, new InetSocketAddress("config", 7070))) {
+ *   final Integer port = configurations.getValue("port", Integer.class);
+ * }</pre></blockquote>
+ *
+ * <p>Instances of this class are safe for concurrent use by multiple
+ * threads.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson"
+ * target="_parent">Laird Nelson</a>
+ */
+public final class RemoteConfigurations extends AbstractConfigurations implements Closeable {
+
+
+  /*
+   * Static fields.
+   */
+
+
+  /**
+   * The default number of milliseconds to wait for a response.
+   */
+  private static final long DEFAULT_TIMEOUT_MILLIS = 30000L;
+
+  /**
+   * The maximum number of requests written before the output is
+   * flushed.
+   */
+  private static final int MAXIMUM_BATCH_SIZE = 256;
+
+
+  /*
+   * Instance fields.
+   */
+
+
+  /**
+   * The {@link Socket} connected to the remote store.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final Socket socket;
+
+  /**
+   * The {@link DataInputStream} from which responses are read by the
+   * reader thread.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final DataInputStream in;
+
+  /**
+   * The {@link DataOutputStream} to which requests are written by the
+   * writer thread.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final DataOutputStream out;
+
+  /**
+   * The number of milliseconds to wait for a response.
+   */
+  private final long timeoutMillis;
+
+  /**
+   * The {@link Call}s waiting to be written.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final BlockingQueue<Call> queue;
+
+  /**
+   * The {@link Call}s that have not yet been answered, indexed by
+   * request identifier.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final ConcurrentMap<Integer, Call> pending;
+
+  /**
+   * The {@link Call}s that have not yet been answered, indexed by
+   * {@link Key}, so that concurrent identical requests can share a
+   * single {@link Call}.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final ConcurrentMap<Key, Call> inFlight;
+
+  /**
+   * The source of request identifiers.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final AtomicInteger nextId;
+
+  /**
+   * The thread that writes requests.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final Thread writer;
+
+  /**
+   * The thread that reads responses.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final Thread reader;
+
+  /**
+   * The reason this {@link RemoteConfigurations} can no longer be
+   * used, or {@code null} if it can.
+   *
+   * @see #close()
+   */
+  private volatile ConfigurationException failure;
+
+
+  /*
+   * Constructors.
+   */
+
+
+  /**
+   * Creates a new {@link RemoteConfigurations} connected to the store
+   * at the supplied {@code address} that waits thirty seconds for
+   * each response.
+   *
+   * @param configurationCoordinates the configuration coordinates of
+   * the new {@link RemoteConfigurations}; may be {@code null}
+   *
+   * @param address the address of the store; must not be {@code
+   * null}
+   *
+   * @exception NullPointerException if {@code address} is {@code
+   * null}
+   *
+   * @exception IOException if a connection could not be established
+   *
+   * @see #RemoteConfigurations(Map, SocketAddress, long)
+   */
+  public RemoteConfigurations(final Map<? extends String, ? extends String> configurationCoordinates, final SocketAddress address) throws IOException {
+    this(configurationCoordinates, address, DEFAULT_TIMEOUT_MILLIS);
+  }
+
+  /**
+   * Creates a new {@link RemoteConfigurations} connected to the store
+   * at the supplied {@code address}.
+   *
+   * @param configurationCoordinates the configuration coordinates of
+   * the new {@link RemoteConfigurations}; may be {@code null}
+   *
+   * @param address the address of the store; must not be {@code
+   * null}
+   *
+   * @param timeoutMillis the number of milliseconds to wait for each
+   * response; must be greater than {@code 0}
+   *
+   * @exception NullPointerException if {@code address} is {@code
+   * null}
+   *
+   * @exception IllegalArgumentException if {@code timeoutMillis} is
+   * less than or equal to {@code 0}
+   *
+   * @exception IOException if a connection could not be established
+   */
+  public RemoteConfigurations(final Map<? extends String, ? extends String> configurationCoordinates, final SocketAddress address, final long timeoutMillis) throws IOException {
+    super(configurationCoordinates);
+    Objects.requireNonNull(address);
+    if (timeoutMillis <= 0L) {
+      throw new IllegalArgumentException("timeoutMillis: " + timeoutMillis);
+    }
+    this.timeoutMillis = timeoutMillis;
+    this.socket = new Socket();
+    try {
+      this.socket.setTcpNoDelay(true);
+      this.socket.connect(address, (int)Math.min(Integer.MAX_VALUE, timeoutMillis));
+      this.in = new DataInputStream(new BufferedInputStream(this.socket.getInputStream()));
+      this.out = new DataOutputStream(new BufferedOutputStream(this.socket.getOutputStream()));
+    } catch (final IOException | RuntimeException e) {
+      try {
+        this.socket.close();
+      } catch (final IOException suppressMe) {
+        e.addSuppressed(suppressMe);
+      }
+      throw e;
+    }
+    this.queue = new LinkedBlockingQueue<>();
+    this.pending = new ConcurrentHashMap<>();
+    this.inFlight = new ConcurrentHashMap<>();
+    this.nextId = new AtomicInteger();
+    this.writer = new Thread(this::write, "RemoteConfigurations writer (" + address + ")");
+    this.writer.setDaemon(true);
+    this.reader = new Thread(this::read, "RemoteConfigurations reader (" + address + ")");
+    this.reader.setDaemon(true);
+    this.writer.start();
+    this.reader.start();
+  }
+
+
+  /*
+   * Instance methods.
+   */
+
+
+  /**
+   * Returns the names of all configuration properties known to the
+   * remote store.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return a non-{@code null}, immutable {@link Set} of names
+   *
+   * @exception ConfigurationException if the remote store could not
+   * be reached or did not respond in time
+   */
+  @Override
+  public final Set<String> getNames() {
+    @SuppressWarnings("unchecked")
+    final List<String> names = (List<String>)this.call(RemoteProtocol.NAMES, null, null);
+    return Collections.unmodifiableSet(new LinkedHashSet<>(names));
+  }
+
+  /**
+   * Returns the {@link ConfigurationValue} that the remote store
+   * selects for the supplied {@code configurationCoordinates} and
+   * {@code name}, or {@code null} if there is no such {@link
+   * ConfigurationValue}.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * <p>If another thread is already waiting for the same {@link
+   * ConfigurationValue}, this method waits for the same response
+   * rather than sending another request.</p>
+   *
+   * @param configurationCoordinates the configuration coordinates in
+   * effect for the request; may be {@code null}
+   *
+   * @param name the name of the configuration property; must not be
+   * {@code null}
+   *
+   * @return the selected {@link ConfigurationValue}, or {@code null}
+   *
+   * @exception NullPointerException if {@code name} is {@code null}
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable
+   *
+   * @exception ConfigurationException if the remote store could not
+   * be reached or did not respond in time
+   */
+  @Override
+  public final ConfigurationValue getConfigurationValue(final Map<String, String> configurationCoordinates, final String name) {
+    Objects.requireNonNull(name);
+    final Object result = this.call(RemoteProtocol.GET, configurationCoordinates, name);
+    if (result instanceof List) {
+      @SuppressWarnings("unchecked")
+      final List<ConfigurationValue> values = (List<ConfigurationValue>)result;
+      throw new AmbiguousConfigurationValuesException(null, null, configurationCoordinates, name, values);
+    }
+    return (ConfigurationValue)result;
+  }
+
+  /**
+   * Closes the connection to the remote store, causing any requests
+   * that have not been answered to fail with a {@link
+   * ConfigurationException}.
+   *
+   * <p>Closing an already closed {@link RemoteConfigurations} has no
+   * effect.</p>
+   *
+   * @exception IOException if an error occurs while closing the
+   * connection
+   */
+  @Override
+  public final void close() throws IOException {
+    if (this.failure == null) {
+      this.failure = new ConfigurationException("Connection to " + this.socket.getRemoteSocketAddress() + " closed");
+    }
+    this.writer.interrupt();
+    try {
+      this.socket.close();
+    } finally {
+      this.failPending();
+    }
+  }
+
+  /**
+   * Sends a request, or joins an identical request that has not yet
+   * been answered, and waits for its response.
+   *
+   * @param op the operation; either {@link RemoteProtocol#GET} or
+   * {@link RemoteProtocol#NAMES}
+   *
+   * @param configurationCoordinates the configuration coordinates of
+   * the request; may be {@code null}
+   *
+   * @param name the name of the request; may be {@code null} only if
+   * {@code op} is {@link RemoteProtocol#NAMES}
+   *
+   * @return the result of the request, which is a {@link
+   * ConfigurationValue}, a {@link List} of conflicting {@link
+   * ConfigurationValue}s, a {@link List} of names, or {@code null}
+   *
+   * @exception ConfigurationException if the request failed or did
+   * not complete in time
+   */
+  private final Object call(final byte op, final Map<String, String> configurationCoordinates, final String name) {
+    final ConfigurationException failure = this.failure;
+    if (failure != null) {
+      throw new ConfigurationException(failure.getMessage(), failure);
+    }
+    final Key key = new Key(op, configurationCoordinates, name);
+    Call call = this.inFlight.get(key);
+    if (call == null) {
+      final Call newCall = new Call(this.nextId.getAndIncrement(), key);
+      call = this.inFlight.putIfAbsent(key, newCall);
+      if (call == null) {
+        call = newCall;
+        this.pending.put(Integer.valueOf(call.id), call);
+        this.queue.add(call);
+        if (this.failure != null) {
+          // close() or a connection failure may have swept the
+          // pending Calls before this one was added.
+          this.failPending();
+        }
+      }
+    }
+    try {
+      return call.future.get(this.timeoutMillis, TimeUnit.MILLISECONDS);
+    } catch (final InterruptedException interruptedException) {
+      Thread.currentThread().interrupt();
+      throw new ConfigurationException(interruptedException.getMessage(), interruptedException);
+    } catch (final ExecutionException executionException) {
+      final Throwable cause = executionException.getCause();
+      if (cause instanceof ConfigurationException) {
+        throw (ConfigurationException)cause;
+      }
+      throw new ConfigurationException(cause == null ? null : cause.getMessage(), cause);
+    } catch (final TimeoutException timeoutException) {
+      final ConfigurationException timedOut =
+        new ConfigurationException("No response for " + name + " within " + this.timeoutMillis + " ms", timeoutException);
+      // Forget the Call so that later requests are sent afresh rather
+      // than joining one whose response may never arrive, and fail
+      // any other threads still waiting for it.  A late response for
+      // it is ignored.
+      this.pending.remove(Integer.valueOf(call.id), call);
+      this.inFlight.remove(call.key, call);
+      call.future.completeExceptionally(timedOut);
+      throw timedOut;
+    }
+  }
+
+  /**
+   * Writes batches of {@link Call}s until this {@link
+   * RemoteConfigurations} is closed or the connection fails.
+   *
+   * <p>This method is run by the writer thread.</p>
+   */
+  private final void write() {
+    final List<Call> batch = new ArrayList<>();
+    try {
+      while (this.failure == null) {
+        batch.add(this.queue.take());
+        this.queue.drainTo(batch, MAXIMUM_BATCH_SIZE - 1);
+        for (final Call call : batch) {
+          this.out.writeInt(call.id);
+          this.out.writeByte(call.key.op);
+          if (call.key.op == RemoteProtocol.GET) {
+            RemoteProtocol.writeCoordinates(this.out, call.key.configurationCoordinates);
+            RemoteProtocol.writeString(this.out, call.key.name);
+          }
+        }
+        this.out.flush();
+        batch.clear();
+      }
+    } catch (final InterruptedException interruptedException) {
+      // close() was called
+    } catch (final IOException | RuntimeException e) {
+      this.fail(e);
+    }
+  }
+
+  /**
+   * Reads responses and completes the {@link Call}s they answer until
+   * this {@link RemoteConfigurations} is closed or the connection
+   * fails.
+   *
+   * <p>This method is run by the reader thread.</p>
+   */
+  private final void read() {
+    try {
+      while (true) {
+        final int id = this.in.readInt();
+        final byte status = this.in.readByte();
+        final Object result;
+        ConfigurationException error = null;
+        switch (status) {
+        case RemoteProtocol.FOUND:
+          result = RemoteProtocol.readConfigurationValue(this.in);
+          break;
+        case RemoteProtocol.NOT_FOUND:
+          result = null;
+          break;
+        case RemoteProtocol.AMBIGUOUS:
+          result = RemoteProtocol.readConfigurationValues(this.in);
+          break;
+        case RemoteProtocol.NAMES:
+          result = RemoteProtocol.readStrings(this.in);
+          break;
+        case RemoteProtocol.ERROR:
+          result = null;
+          error = new ConfigurationException(RemoteProtocol.readString(this.in));
+          break;
+        default:
+          throw new StreamCorruptedException("status: " + status);
+        }
+        final Call call = this.pending.remove(Integer.valueOf(id));
+        if (call != null) {
+          // Remove the Call before completing it so that later
+          // requests are sent afresh rather than joining one whose
+          // response has already been read.
+          this.inFlight.remove(call.key, call);
+          if (error == null) {
+            call.future.complete(result);
+          } else {
+            call.future.completeExceptionally(error);
+          }
+        }
+      }
+    } catch (final IOException | RuntimeException e) {
+      this.fail(e);
+    }
+  }
+
+  /**
+   * Records the supplied {@link Throwable} as the reason this {@link
+   * RemoteConfigurations} can no longer be used, closes the
+   * connection and fails every pending {@link Call}.
+   *
+   * @param cause the reason; must not be {@code null}
+   */
+  private final void fail(final Throwable cause) {
+    if (this.failure == null) {
+      this.failure = new ConfigurationException("Connection to " + this.socket.getRemoteSocketAddress() + " failed: " + cause, cause);
+    }
+    this.writer.interrupt();
+    try {
+      this.socket.close();
+    } catch (final IOException suppressMe) {
+      cause.addSuppressed(suppressMe);
+    }
+    this.failPending();
+  }
+
+  /**
+   * Fails every {@link Call} that has not yet been answered with the
+   * {@link ConfigurationException} recording the {@linkplain #failure
+   * reason} this {@link RemoteConfigurations} can no longer be used.
+   */
+  private final void failPending() {
+    final ConfigurationException failure = this.failure;
+    for (final Call call : this.pending.values()) {
+      if (this.pending.remove(Integer.valueOf(call.id), call)) {
+        this.inFlight.remove(call.key, call);
+        call.future.completeExceptionally(failure);
+      }
+    }
+    this.queue.clear();
+  }
+
+
+  /*
+   * Inner and nested classes.
+   */
+
+
+  /**
+   * The identity of a request, used to deduplicate concurrent
+   * identical requests.
+   *
+   * @author <a href="https://about.me/lairdnelson"
+   * target="_parent">Laird Nelson</a>
+   */
+  private static final class Key {
+
+    /**
+     * The operation of the request.
+     */
+    private final byte op;
+
+    /**
+     * A copy of the configuration coordinates of the request.
+     *
+     * <p>This field may be {@code null}.</p>
+     */
+    private final Map<String, String> configurationCoordinates;
+
+    /**
+     * The name of the request.
+     *
+     * <p>This field may be {@code null}.</p>
+     */
+    private final String name;
+
+    /**
+     * The hash code of this {@link Key}.
+     */
+    private final int hashCode;
+
+    /**
+     * Creates a new {@link Key}.
+     *
+     * @param op the operation of the request
+     *
+     * @param configurationCoordinates the configuration coordinates of
+     * the request; may be {@code null}; will be copied
+     *
+     * @param name the name of the request; may be {@code null}
+     */
+    private Key(final byte op, final Map<String, String> configurationCoordinates, final String name) {
+      super();
+      this.op = op;
+      this.configurationCoordinates = configurationCoordinates == null ? null : new HashMap<>(configurationCoordinates);
+      this.name = name;
+      this.hashCode = Objects.hash(Byte.valueOf(op), this.configurationCoordinates, name);
+    }
+
+    /**
+     * Returns a hash code for this {@link Key}.
+     *
+     * @return a hash code for this {@link Key}
+     */
+    @Override
+    public final int hashCode() {
+      return this.hashCode;
+    }
+
+    /**
+     * Returns {@code true} if the supplied {@link Object} is a {@link
+     * Key} identifying the same request as this {@link Key}.
+     *
+     * @param other the {@link Object} to test; may be {@code null}
+     *
+     * @return {@code true} if the supplied {@link Object} is equal to
+     * this {@link Key}
+     */
+    @Override
+    public final boolean equals(final Object other) {
+      if (other == this) {
+        return true;
+      } else if (other instanceof Key) {
+        final Key her = (Key)other;
+        return this.hashCode == her.hashCode &&
+          this.op == her.op &&
+          Objects.equals(this.name, her.name) &&
+          Objects.equals(this.configurationCoordinates, her.configurationCoordinates);
+      } else {
+        return false;
+      }
+    }
+
+  }
+
+  /**
+   * A request that has been sent, or is waiting to be sent, together
+   * with the {@link CompletableFuture} its response will complete.
+   *
+   * @author <a href="https://about.me/lairdnelson"
+   * target="_parent">Laird Nelson</a>
+   */
+  private static final class Call {
+
+    /**
+     * The identifier of the request.
+     */
+    private final int id;
+
+    /**
+     * The {@link Key} of the request.
+     *
+     * <p>This field is never {@code null}.</p>
+     */
+    private final Key key;
+
+    /**
+     * The {@link CompletableFuture} completed with the result of the
+     * request.
+     *
+     * <p>This field is never {@code null}.</p>
+     */
+    private final CompletableFuture<Object> future;
+
+    /**
+     * Creates a new {@link Call}.
+     *
+     * @param id the identifier of the request
+     *
+     * @param key the {@link Key} of the request; must not be {@code
+     * null}
+     */
+    private Call(final int id, final Key key) {
+      super();
+      this.id = id;
+      this.key = key;
+      this.future = new CompletableFuture<>();
+    }
+
+  }
+
+}
@@ -0,0 +1,360 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2018 microBean.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.microbean.configuration.api;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+
+import java.nio.charset.StandardCharsets;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The binary wire format spoken between a {@link
+ * RemoteConfigurations} and a remote configuration store.
+ *
+ * <p>Every request frame begins with an {@code int} request
+ * identifier and a {@code byte} operation.  A {@link #GET} request is
+ * followed by {@linkplain #writeCoordinates(DataOutput, Map)
+ * configuration coordinates} and a {@linkplain #writeString(DataOutput,
+ * String) name}; a {@link #NAMES} request is followed by
+ * nothing.</p>
+ *
+ * <p>Every response frame begins with the {@code int} identifier of
+ * the request it answers and a {@code byte} status.  A {@link #FOUND}
+ * response is followed by a {@linkplain
+ * #writeConfigurationValue(DataOutput, ConfigurationValue)
+ * <code>ConfigurationValue</code>}; an {@link #AMBIGUOUS} response by
+ * an {@code int} count and that many {@link ConfigurationValue}s; a
+ * {@link #NAMES} response by {@linkplain #writeStrings(DataOutput,
+ * Collection) names}; an {@link #ERROR} response by a message; and a {@link
+ * #NOT_FOUND} response by nothing.</p>
+ *
+ * <p>Responses may be sent in any order.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson"
+ * target="_parent">Laird Nelson</a>
+ */
+final class RemoteProtocol {
+
+
+  /*
+   * Static fields.
+   */
+
+
+  /**
+   * The operation requesting a {@link ConfigurationValue}.
+   */
+  static final byte GET = 1;
+
+  /**
+   * The operation requesting, and the status answering with, the
+   * names of all configuration properties.
+   */
+  static final byte NAMES = 2;
+
+  /**
+   * The status indicating that a {@link ConfigurationValue} was
+   * found.
+   */
+  static final byte FOUND = 3;
+
+  /**
+   * The status indicating that no {@link ConfigurationValue} was
+   * found.
+   */
+  static final byte NOT_FOUND = 4;
+
+  /**
+   * The status indicating that two or more {@link
+   * ConfigurationValue}s conflicted.
+   */
+  static final byte AMBIGUOUS = 5;
+
+  /**
+   * The status indicating that the request failed.
+   */
+  static final byte ERROR = 6;
+
+  /**
+   * The maximum number of elements in any counted sequence, guarding
+   * against corrupt frames.
+   */
+  private static final int MAXIMUM_COUNT = 1 << 24;
+
+
+  /*
+   * Constructors.
+   */
+
+
+  /**
+   * Creates a new {@link RemoteProtocol}.
+   */
+  private RemoteProtocol() {
+    super();
+  }
+
+
+  /*
+   * Static methods.
+   */
+
+
+  /**
+   * Writes the supplied {@link String}, which may be {@code null}, as
+   * an {@code int} length followed by its UTF-8 encoding.
+   *
+   * @param out the {@link DataOutput} to write to; must not be {@code
+   * null}
+   *
+   * @param s the {@link String} to write; may be {@code null}
+   *
+   * @exception IOException if an error occurs while writing
+   */
+  static final void writeString(final DataOutput out, final String s) throws IOException {
+    if (s == null) {
+      out.writeInt(-1);
+    } else {
+      final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  /**
+   * Reads a {@link String} written by the {@link
+   * #writeString(DataOutput, String)} method.
+   *
+   * @param in the {@link DataInput} to read from; must not be {@code
+   * null}
+   *
+   * @return the {@link String}, or {@code null}
+   *
+   * @exception IOException if an error occurs while reading
+   */
+  static final String readString(final DataInput in) throws IOException {
+    final int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    final byte[] bytes = new byte[checkCount(length)];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Writes the supplied configuration coordinates, which may be
+   * {@code null}, as an {@code int} size followed by alternating keys
+   * and values.
+   *
+   * @param out the {@link DataOutput} to write to; must not be {@code
+   * null}
+   *
+   * @param configurationCoordinates the configuration coordinates to
+   * write; may be {@code null}
+   *
+   * @exception IOException if an error occurs while writing
+   */
+  static final void writeCoordinates(final DataOutput out, final Map<? extends String, ? extends String> configurationCoordinates) throws IOException {
+    if (configurationCoordinates == null) {
+      out.writeInt(-1);
+    } else {
+      out.writeInt(configurationCoordinates.size());
+      for (final Map.Entry<? extends String, ? extends String> entry : configurationCoordinates.entrySet()) {
+        writeString(out, entry.getKey());
+        writeString(out, entry.getValue());
+      }
+    }
+  }
+
+  /**
+   * Reads configuration coordinates written by the {@link
+   * #writeCoordinates(DataOutput, Map)} method.
+   *
+   * @param in the {@link DataInput} to read from; must not be {@code
+   * null}
+   *
+   * @return a mutable {@link Map} of configuration coordinates, or
+   * {@code null}
+   *
+   * @exception IOException if an error occurs while reading
+   */
+  static final Map<String, String> readCoordinates(final DataInput in) throws IOException {
+    final int size = in.readInt();
+    if (size < 0) {
+      return null;
+    }
+    checkCount(size);
+    final Map<String, String> configurationCoordinates = new HashMap<>();
+    for (int i = 0; i < size; i++) {
+      configurationCoordinates.put(readString(in), readString(in));
+    }
+    return configurationCoordinates;
+  }
+
+  /**
+   * Writes the supplied {@link ConfigurationValue}.
+   *
+   * <p>The {@linkplain ConfigurationValue#getSource() source} of the
+   * supplied {@link ConfigurationValue} is written as its {@link
+   * String} representation.</p>
+   *
+   * @param out the {@link DataOutput} to write to; must not be {@code
+   * null}
+   *
+   * @param configurationValue the {@link ConfigurationValue} to
+   * write; must not be {@code null}
+   *
+   * @exception IOException if an error occurs while writing
+   */
+  static final void writeConfigurationValue(final DataOutput out, final ConfigurationValue configurationValue) throws IOException {
+    writeString(out, String.valueOf(configurationValue.getSource()));
+    writeCoordinates(out, configurationValue.getCoordinates());
+    writeString(out, configurationValue.getName());
+    writeString(out, configurationValue.getValue());
+    out.writeBoolean(configurationValue.isAuthoritative());
+  }
+
+  /**
+   * Reads a {@link ConfigurationValue} written by the {@link
+   * #writeConfigurationValue(DataOutput, ConfigurationValue)} method.
+   *
+   * @param in the {@link DataInput} to read from; must not be {@code
+   * null}
+   *
+   * @return a non-{@code null} {@link ConfigurationValue}
+   *
+   * @exception IOException if an error occurs while reading
+   */
+  static final ConfigurationValue readConfigurationValue(final DataInput in) throws IOException {
+    final String source = readString(in);
+    final Map<String, String> coordinates = readCoordinates(in);
+    final String name = readString(in);
+    final String value = readString(in);
+    final boolean authoritative = in.readBoolean();
+    if (source == null || name == null) {
+      throw new StreamCorruptedException("source: " + source + "; name: " + name);
+    }
+    return new ConfigurationValue(source, coordinates, name, value, authoritative);
+  }
+
+  /**
+   * Writes the supplied {@link ConfigurationValue}s as an {@code int}
+   * count followed by each {@link ConfigurationValue}.
+   *
+   * @param out the {@link DataOutput} to write to; must not be {@code
+   * null}
+   *
+   * @param configurationValues the {@link ConfigurationValue}s to
+   * write; must not be {@code null}
+   *
+   * @exception IOException if an error occurs while writing
+   */
+  static final void writeConfigurationValues(final DataOutput out, final Collection<? extends ConfigurationValue> configurationValues) throws IOException {
+    out.writeInt(configurationValues.size());
+    for (final ConfigurationValue configurationValue : configurationValues) {
+      writeConfigurationValue(out, configurationValue);
+    }
+  }
+
+  /**
+   * Reads {@link ConfigurationValue}s written by the {@link
+   * #writeConfigurationValues(DataOutput, Collection)} method.
+   *
+   * @param in the {@link DataInput} to read from; must not be {@code
+   * null}
+   *
+   * @return a non-{@code null} {@link List} of {@link
+   * ConfigurationValue}s
+   *
+   * @exception IOException if an error occurs while reading
+   */
+  static final List<ConfigurationValue> readConfigurationValues(final DataInput in) throws IOException {
+    final int count = checkCount(in.readInt());
+    final List<ConfigurationValue> configurationValues = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      configurationValues.add(readConfigurationValue(in));
+    }
+    return configurationValues;
+  }
+
+  /**
+   * Writes the supplied {@link String}s as an {@code int} count
+   * followed by each {@link String}.
+   *
+   * @param out the {@link DataOutput} to write to; must not be {@code
+   * null}
+   *
+   * @param strings the {@link String}s to write; must not be {@code
+   * null}
+   *
+   * @exception IOException if an error occurs while writing
+   */
+  static final void writeStrings(final DataOutput out, final Collection<? extends String> strings) throws IOException {
+    out.writeInt(strings.size());
+    for (final String s : strings) {
+      writeString(out, s);
+    }
+  }
+
+  /**
+   * Reads {@link String}s written by the {@link
+   * #writeStrings(DataOutput, Collection)} method.
+   *
+   * @param in the {@link DataInput} to read from; must not be {@code
+   * null}
+   *
+   * @return a non-{@code null} {@link List} of {@link String}s
+   *
+   * @exception IOException if an error occurs while reading
+   */
+  static final List<String> readStrings(final DataInput in) throws IOException {
+    final int count = checkCount(in.readInt());
+    final List<String> strings = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      strings.add(readString(in));
+    }
+    return strings;
+  }
+
+  /**
+   * Returns the supplied {@code count} if it is a plausible number of
+   * elements.
+   *
+   * @param count the count to check
+   *
+   * @return {@code count}
+   *
+   * @exception StreamCorruptedException if {@code count} is negative
+   * or implausibly large
+   */
+  private static final int checkCount(final int count) throws StreamCorruptedException {
+    if (count < 0 || count > MAXIMUM_COUNT) {
+      throw new StreamCorruptedException("count: " + count);
+    }
+    return count;
+  }
+
+}
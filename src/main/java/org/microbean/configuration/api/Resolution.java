@@ -0,0 +1,386 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2018 microBean.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.microbean.configuration.api;
+
+import java.lang.reflect.Type; // for javadoc only
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * An immutable description of the outcome of a request for a
+ * configuration value, reporting misses, ambiguities and conversion
+ * failures without throwing exceptions.
+ *
+ * @param <T> the type of the resolved value
+ *
+ * @author <a href="https://about.me/lairdnelson"
+ * target="_parent">Laird Nelson</a>
+ *
+ * @see Configurations#resolve(Map, String, Type, String)
+ *
+ * @see ConfigurationValueIndex#resolve(Map, String)
+ */
+public final class Resolution<T> {
+
+
+  /*
+   * Instance fields.
+   */
+
+
+  /**
+   * The {@link Status} of this {@link Resolution}.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final Status status;
+
+  /**
+   * The configuration coordinates in effect for the request.
+   *
+   * <p>This field may be {@code null}.</p>
+   */
+  private final Map<String, String> configurationCoordinates;
+
+  /**
+   * The name of the requested configuration property.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final String name;
+
+  /**
+   * The resolved value.
+   *
+   * <p>This field may be {@code null}.</p>
+   */
+  private final T value;
+
+  /**
+   * The {@link ConfigurationValue} that was selected.
+   *
+   * <p>This field may be {@code null}.</p>
+   */
+  private final ConfigurationValue configurationValue;
+
+  /**
+   * The {@link ConfigurationValue}s that were considered.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final List<ConfigurationValue> competingValues;
+
+  /**
+   * The {@link ConfigurationException} that was caught while
+   * resolving the value, if any.
+   *
+   * <p>This field may be {@code null}.</p>
+   */
+  private final ConfigurationException cause;
+
+
+  /*
+   * Constructors.
+   */
+
+
+  /**
+   * Creates a new {@link Resolution}.
+   *
+   * @param status the {@link Status} of the new {@link Resolution};
+   * must not be {@code null}
+   *
+   * @param configurationCoordinates the configuration coordinates in
+   * effect for the request; may be {@code null}
+   *
+   * @param name the name of the requested configuration property;
+   * must not be {@code null}
+   *
+   * @param value the resolved value; may be {@code null}; ignored
+   * unless {@code status} is {@link Status#FOUND} or {@link
+   * Status#DEFAULTED}
+   *
+   * @param configurationValue the {@link ConfigurationValue} that was
+   * selected; may be {@code null}
+   *
+   * @param competingValues the {@link ConfigurationValue}s that were
+   * considered, which, if {@code status} is {@link
+   * Status#AMBIGUOUS}, should be the conflicting ones; may be {@code
+   * null}
+   *
+   * @param cause the {@link ConfigurationException} that was caught
+   * while resolving the value, if any; may be {@code null}
+   *
+   * @exception NullPointerException if {@code status} or {@code
+   * name} is {@code null}
+   */
+  public Resolution(final Status status,
+                    final Map<String, String> configurationCoordinates,
+                    final String name,
+                    final T value,
+                    final ConfigurationValue configurationValue,
+                    final Collection<? extends ConfigurationValue> competingValues,
+                    final ConfigurationException cause) {
+    super();
+    this.status = Objects.requireNonNull(status);
+    this.configurationCoordinates = configurationCoordinates;
+    this.name = Objects.requireNonNull(name);
+    this.value = status == Status.FOUND || status == Status.DEFAULTED ? value : null;
+    this.configurationValue = configurationValue;
+    if (competingValues == null || competingValues.isEmpty()) {
+      this.competingValues = Collections.emptyList();
+    } else {
+      this.competingValues = Collections.unmodifiableList(new ArrayList<>(competingValues));
+    }
+    this.cause = cause;
+  }
+
+
+  /*
+   * Instance methods.
+   */
+
+
+  /**
+   * Returns the {@link Status} of this {@link Resolution}.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return the non-{@code null} {@link Status} of this {@link
+   * Resolution}
+   */
+  public final Status getStatus() {
+    return this.status;
+  }
+
+  /**
+   * Returns {@code true} if this {@link Resolution} has a {@linkplain
+   * #getValue() value}, i.e. if its {@linkplain #getStatus() status}
+   * is {@link Status#FOUND} or {@link Status#DEFAULTED}.
+   *
+   * @return {@code true} if this {@link Resolution} has a value
+   */
+  public final boolean isPresent() {
+    return this.status == Status.FOUND || this.status == Status.DEFAULTED;
+  }
+
+  /**
+   * Returns the configuration coordinates in effect for the request.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @return the configuration coordinates, or {@code null}
+   */
+  public final Map<String, String> getConfigurationCoordinates() {
+    return this.configurationCoordinates;
+  }
+
+  /**
+   * Returns the name of the requested configuration property.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return the non-{@code null} name
+   */
+  public final String getName() {
+    return this.name;
+  }
+
+  /**
+   * Returns the resolved value, which is {@code null} unless this
+   * {@link Resolution} {@linkplain #isPresent() is present}.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @return the resolved value, or {@code null}
+   *
+   * @see #orElseThrow()
+   */
+  public final T getValue() {
+    return this.value;
+  }
+
+  /**
+   * Returns the resolved value if this {@link Resolution} {@linkplain
+   * #isPresent() is present}, or the supplied {@code other} value if
+   * it is not.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @param other the value to return if this {@link Resolution} is
+   * not present; may be {@code null}
+   *
+   * @return the resolved value, or {@code other}
+   */
+  public final T orElse(final T other) {
+    return this.isPresent() ? this.value : other;
+  }
+
+  /**
+   * Returns the resolved value, or {@code null} if no value was
+   * found, or throws the {@link ConfigurationException} that the
+   * equivalent {@code getValue} call would have thrown.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * <p>If a {@linkplain #getCause() cause} was recorded, it is
+   * thrown.  Otherwise a {@linkplain
+   * ConfigurationException#ConfigurationException(String, Throwable,
+   * boolean) stackless} {@link AmbiguousConfigurationValuesException}
+   * or {@link ConversionException} is created and thrown.</p>
+   *
+   * @return the resolved value, or {@code null}
+   *
+   * @exception AmbiguousConfigurationValuesException if the
+   * {@linkplain #getStatus() status} of this {@link Resolution} is
+   * {@link Status#AMBIGUOUS}
+   *
+   * @exception ConversionException if the {@linkplain #getStatus()
+   * status} of this {@link Resolution} is {@link
+   * Status#CONVERSION_FAILED}
+   */
+  public final T orElseThrow() {
+    switch (this.status) {
+    case AMBIGUOUS:
+      if (this.cause != null) {
+        throw this.cause;
+      }
+      throw new AmbiguousConfigurationValuesException(null, null, this.configurationCoordinates, this.name, this.competingValues, false);
+    case CONVERSION_FAILED:
+      if (this.cause != null) {
+        throw this.cause;
+      }
+      throw new ConversionException("Could not convert value of " + this.name + ": " + this.configurationValue, null, false);
+    default:
+      return this.value;
+    }
+  }
+
+  /**
+   * Returns the {@link ConfigurationValue} that was selected, if
+   * any.
+   *
+   * <p>This method may return {@code null}, and always does if no
+   * {@link ConfigurationValue} was found or if the value was
+   * resolved by an implementation that does not expose {@link
+   * ConfigurationValue}s.</p>
+   *
+   * @return the selected {@link ConfigurationValue}, or {@code null}
+   */
+  public final ConfigurationValue getConfigurationValue() {
+    return this.configurationValue;
+  }
+
+  /**
+   * Returns an immutable {@link List} of the {@link
+   * ConfigurationValue}s that were considered, or, if the {@linkplain
+   * #getStatus() status} of this {@link Resolution} is {@link
+   * Status#AMBIGUOUS}, of the conflicting {@link
+   * ConfigurationValue}s.
+   *
+   * <p>This method never returns {@code null}.  The returned {@link
+   * List} may be empty if the implementation that resolved the value
+   * does not expose the {@link ConfigurationValue}s it
+   * considered.</p>
+   *
+   * @return a non-{@code null}, immutable {@link List} of {@link
+   * ConfigurationValue}s
+   */
+  public final List<ConfigurationValue> getCompetingValues() {
+    return this.competingValues;
+  }
+
+  /**
+   * Returns the {@link ConfigurationException} that was caught while
+   * resolving the value, if any.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @return the {@link ConfigurationException}, or {@code null}
+   */
+  public final ConfigurationException getCause() {
+    return this.cause;
+  }
+
+  /**
+   * Returns a non-{@code null} {@link String} representation of this
+   * {@link Resolution}.
+   *
+   * @return a non-{@code null} {@link String}
+   */
+  @Override
+  public final String toString() {
+    final StringBuilder sb = new StringBuilder(this.name).append(": ").append(this.status);
+    if (this.isPresent()) {
+      sb.append(" ").append(this.value);
+    }
+    if (this.configurationValue != null) {
+      sb.append(" (").append(this.configurationValue).append(")");
+    }
+    return sb.toString();
+  }
+
+
+  /*
+   * Inner and nested classes.
+   */
+
+
+  /**
+   * The possible outcomes of a request for a configuration value.
+   *
+   * @author <a href="https://about.me/lairdnelson"
+   * target="_parent">Laird Nelson</a>
+   */
+  public static enum Status {
+
+    /**
+     * A configuration value was found and converted.
+     */
+    FOUND,
+
+    /**
+     * No configuration value was found, and the default value was
+     * converted instead.
+     */
+    DEFAULTED,
+
+    /**
+     * No configuration value was found and there was no default
+     * value.
+     */
+    NOT_FOUND,
+
+    /**
+     * Two or more equally suitable configuration values conflicted.
+     */
+    AMBIGUOUS,
+
+    /**
+     * A configuration value, or the default value, was found but
+     * could not be converted.
+     */
+    CONVERSION_FAILED;
+
+  }
+
+}
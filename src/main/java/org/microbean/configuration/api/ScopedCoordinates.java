@@ -0,0 +1,626 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2018 microBean.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.microbean.configuration.api;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+
+/**
+ * A utility class that associates configuration coordinates with
+ * the current thread for the duration of a scope, such as the
+ * handling of a single request in a multi-tenant server.
+ *
+ * <p>While a scope is in effect on a thread, the {@code getValue}
+ * overloads (and similar methods) of {@link Configurations} that do
+ * not accept configuration coordinates use the {@linkplain
+ * #current() scoped configuration coordinates} instead of those
+ * returned by the {@link Configurations#getConfigurationCoordinates()}
+ * method.</p>
+ *
+ * <p>Entering a scope allocates only a small {@link Scope}, which
+ * is distinct for every scope entered so that a {@link Scope} that
+ * has already been closed can never close another.  To avoid
+ * allocating a {@link Map} of configuration coordinates per request
+ * as well, callers are encouraged to {@linkplain #intern(Map)
+ * intern} the distinct {@link Map}s they use (one per tenant, for
+ * example), to retain the interned {@link Map}s, and to enter scopes
+ * with them:</p>
+ *
+ * <blockquote><pre>try (final ScopedCoordinates.Scope scope = ScopedCoordinates.enter(tenantCoordinates)) {
+ *   final String url = configurations.getValue("databaseUrl");
+ * }</pre></blockquote>
+ *
+ * <p>Scoped configuration coordinates are not inherited by other
+ * threads.  Use the {@link #wrap(Executor)}, {@link
+ * #wrap(Runnable)} and {@link #wrap(Callable)} methods to propagate
+ * them to tasks that run elsewhere.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson"
+ * target="_parent">Laird Nelson</a>
+ *
+ * @see #enter(Map)
+ *
+ * @see Configurations#getConfigurationCoordinates()
+ */
+public final class ScopedCoordinates {
+
+
+  /*
+   * Static fields.
+   */
+
+
+  /**
+   * The per-thread stack of scoped configuration coordinates.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private static final ThreadLocal<Frame> frames = ThreadLocal.withInitial(Frame::new);
+
+  /**
+   * Weak references to interned configuration coordinates, each
+   * mapped to itself.
+   *
+   * <p>This field is never {@code null}.</p>
+   *
+   * @see #intern(Map)
+   */
+  private static final ConcurrentMap<Object, Interned> interned = new ConcurrentHashMap<>();
+
+  /**
+   * The {@link ReferenceQueue} on which {@link Interned} references
+   * are enqueued once the configuration coordinates to which they
+   * refer have been garbage collected.
+   *
+   * <p>This field is never {@code null}.</p>
+   *
+   * @see #intern(Map)
+   */
+  private static final ReferenceQueue<Map<String, String>> collected = new ReferenceQueue<>();
+
+
+  /*
+   * Constructors.
+   */
+
+
+  /**
+   * Creates a new {@link ScopedCoordinates}.
+   */
+  private ScopedCoordinates() {
+    super();
+  }
+
+
+  /*
+   * Static methods.
+   */
+
+
+  /**
+   * Returns the configuration coordinates of the innermost scope in
+   * effect on the current thread, or {@code null} if there is no such
+   * scope or if it was entered with {@code null}.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * <p>This method does not allocate.</p>
+   *
+   * @return the scoped configuration coordinates, or {@code null}
+   */
+  public static final Map<String, String> current() {
+    return frames.get().peek();
+  }
+
+  /**
+   * Enters a new scope on the current thread in which the supplied
+   * {@code configurationCoordinates} are in effect, and returns a
+   * {@link Scope} that must be {@linkplain Scope#close() closed} to
+   * exit it.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * <p>Scopes nest and must be closed in the reverse of the order in
+   * which they were entered, ideally by a {@code try}-with-resources
+   * statement.  Each call returns a distinct {@link Scope}, which may
+   * be closed only once.  The returned {@link Scope} is not safe for
+   * use by any thread other than the current thread.</p>
+   *
+   * @param configurationCoordinates the configuration coordinates to
+   * put into effect; may be {@code null} in which case {@link
+   * Configurations#getConfigurationCoordinates()} will be in effect
+   * for the new scope; callers are encouraged to supply {@linkplain
+   * #intern(Map) interned} {@link Map}s
+   *
+   * @return a non-{@code null} {@link Scope}
+   *
+   * @see #intern(Map)
+   */
+  public static final Scope enter(final Map<String, String> configurationCoordinates) {
+    return frames.get().push(configurationCoordinates);
+  }
+
+  /**
+   * Returns a canonical, immutable {@link Map} equal to the supplied
+   * {@code configurationCoordinates}.
+   *
+   * <p>This method may return {@code null} if and only if {@code
+   * configurationCoordinates} is {@code null}.</p>
+   *
+   * <p>For any two {@link Map}s {@code a} and {@code b}, {@code
+   * intern(a) == intern(b)} if and only if {@code a.equals(b)}.
+   * Interned {@link Map}s cache their {@linkplain Map#hashCode()
+   * hashcodes} and compare by identity first, so using them as
+   * configuration coordinates makes them cheap to use as, or as part
+   * of, cache keys.  Interned {@link Map}s are retained only for as
+   * long as they are otherwise reachable, so the configuration
+   * coordinates of any number of tenants that come and go may be
+   * interned; callers should retain the interned {@link Map}s they
+   * intend to reuse.</p>
+   *
+   * @param configurationCoordinates the configuration coordinates to
+   * intern; may be {@code null}; must not contain {@code null} keys
+   *
+   * @return a canonical, immutable {@link Map}, or {@code null}
+   *
+   * @exception NullPointerException if {@code
+   * configurationCoordinates} contains a {@code null} key
+   */
+  public static final Map<String, String> intern(final Map<String, String> configurationCoordinates) {
+    if (configurationCoordinates == null) {
+      return null;
+    }
+    Reference<? extends Map<String, String>> reference;
+    while ((reference = collected.poll()) != null) {
+      interned.remove(reference, reference);
+    }
+    final Interned existing = interned.get(new Probe(configurationCoordinates));
+    Map<String, String> returnValue = existing == null ? null : existing.get();
+    if (returnValue == null) {
+      final Map<String, String> candidate = new ImmutableCoordinates(configurationCoordinates);
+      final Interned newInterned = new Interned(candidate, collected);
+      while (returnValue == null) {
+        final Interned old = interned.putIfAbsent(newInterned, newInterned);
+        if (old == null) {
+          returnValue = candidate;
+        } else {
+          returnValue = old.get();
+          if (returnValue == null) {
+            // The prior canonical Map was collected after the lookup
+            // above; replace it.
+            interned.remove(old, old);
+          }
+        }
+      }
+    }
+    return returnValue;
+  }
+
+  /**
+   * Returns an {@link Executor} that runs tasks submitted to it on
+   * the supplied {@code executor} within a scope whose configuration
+   * coordinates are those in effect on the submitting thread at the
+   * time of submission.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param executor the {@link Executor} to wrap; must not be {@code
+   * null}
+   *
+   * @return a non-{@code null} {@link Executor}
+   *
+   * @exception NullPointerException if {@code executor} is {@code
+   * null}
+   */
+  public static final Executor wrap(final Executor executor) {
+    Objects.requireNonNull(executor);
+    return task -> executor.execute(wrap(task));
+  }
+
+  /**
+   * Returns a {@link Runnable} that runs the supplied {@code task}
+   * within a scope whose configuration coordinates are those in
+   * effect on the current thread at the time of this call.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param task the {@link Runnable} to wrap; must not be {@code
+   * null}
+   *
+   * @return a non-{@code null} {@link Runnable}
+   *
+   * @exception NullPointerException if {@code task} is {@code null}
+   */
+  public static final Runnable wrap(final Runnable task) {
+    Objects.requireNonNull(task);
+    final Map<String, String> configurationCoordinates = current();
+    return () -> {
+      final Scope scope = enter(configurationCoordinates);
+      try {
+        task.run();
+      } finally {
+        scope.close();
+      }
+    };
+  }
+
+  /**
+   * Returns a {@link Callable} that calls the supplied {@code task}
+   * within a scope whose configuration coordinates are those in
+   * effect on the current thread at the time of this call.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param <V> the type of the result of the supplied {@code task}
+   *
+   * @param task the {@link Callable} to wrap; must not be {@code
+   * null}
+   *
+   * @return a non-{@code null} {@link Callable}
+   *
+   * @exception NullPointerException if {@code task} is {@code null}
+   */
+  public static final <V> Callable<V> wrap(final Callable<V> task) {
+    Objects.requireNonNull(task);
+    final Map<String, String> configurationCoordinates = current();
+    return () -> {
+      final Scope scope = enter(configurationCoordinates);
+      try {
+        return task.call();
+      } finally {
+        scope.close();
+      }
+    };
+  }
+
+
+  /*
+   * Inner and nested classes.
+   */
+
+
+  /**
+   * An {@link AutoCloseable} representing a scope {@linkplain
+   * ScopedCoordinates#enter(Map) entered} on the current thread.
+   *
+   * @author <a href="https://about.me/lairdnelson"
+   * target="_parent">Laird Nelson</a>
+   *
+   * @see ScopedCoordinates#enter(Map)
+   */
+  public static interface Scope extends AutoCloseable {
+
+    /**
+     * Exits this scope, which must be the innermost scope in effect
+     * on the current thread.
+     *
+     * @exception IllegalStateException if this scope is not the
+     * innermost scope in effect on the current thread
+     */
+    @Override
+    public void close();
+
+  }
+
+  /**
+   * A {@link WeakReference} to interned configuration coordinates
+   * that is equal to another if the configuration coordinates to
+   * which they refer are equal.
+   *
+   * @author <a href="https://about.me/lairdnelson"
+   * target="_parent">Laird Nelson</a>
+   *
+   * @see ScopedCoordinates#intern(Map)
+   */
+  private static final class Interned extends WeakReference<Map<String, String>> {
+
+    /**
+     * The hashcode of the configuration coordinates, which remains
+     * available after they have been collected.
+     */
+    private final int hashCode;
+
+    /**
+     * Creates a new {@link Interned}.
+     *
+     * @param configurationCoordinates the interned configuration
+     * coordinates; must not be {@code null}
+     *
+     * @param queue the {@link ReferenceQueue} on which the new {@link
+     * Interned} will be enqueued once the configuration coordinates
+     * have been collected; must not be {@code null}
+     */
+    private Interned(final Map<String, String> configurationCoordinates, final ReferenceQueue<Map<String, String>> queue) {
+      super(configurationCoordinates, queue);
+      this.hashCode = configurationCoordinates.hashCode();
+    }
+
+    /**
+     * Returns the hashcode of the configuration coordinates.
+     *
+     * @return the hashcode of the configuration coordinates
+     */
+    @Override
+    public final int hashCode() {
+      return this.hashCode;
+    }
+
+    /**
+     * Returns {@code true} if the supplied {@link Object} is this
+     * {@link Interned}, or is an {@link Interned} referring to equal
+     * configuration coordinates that have not been collected.
+     *
+     * @param other the {@link Object} to test; may be {@code null}
+     *
+     * @return {@code true} if the supplied {@link Object} is equal to
+     * this {@link Interned}
+     */
+    @Override
+    public final boolean equals(final Object other) {
+      if (other == this) {
+        return true;
+      } else if (other instanceof Interned) {
+        final Map<?, ?> configurationCoordinates = this.get();
+        return configurationCoordinates != null && configurationCoordinates.equals(((Interned)other).get());
+      } else {
+        return false;
+      }
+    }
+
+  }
+
+  /**
+   * A key used to look up an {@link Interned} by the configuration
+   * coordinates to which it refers.
+   *
+   * @author <a href="https://about.me/lairdnelson"
+   * target="_parent">Laird Nelson</a>
+   *
+   * @see ScopedCoordinates#intern(Map)
+   */
+  private static final class Probe {
+
+    /**
+     * The configuration coordinates being looked up; never {@code
+     * null}.
+     */
+    private final Map<String, String> configurationCoordinates;
+
+    /**
+     * Creates a new {@link Probe}.
+     *
+     * @param configurationCoordinates the configuration coordinates
+     * to look up; must not be {@code null}
+     */
+    private Probe(final Map<String, String> configurationCoordinates) {
+      super();
+      this.configurationCoordinates = configurationCoordinates;
+    }
+
+    /**
+     * Returns the hashcode of the configuration coordinates.
+     *
+     * @return the hashcode of the configuration coordinates
+     */
+    @Override
+    public final int hashCode() {
+      return this.configurationCoordinates.hashCode();
+    }
+
+    /**
+     * Returns {@code true} if the supplied {@link Object} is an
+     * {@link Interned} referring to configuration coordinates equal
+     * to those being looked up.
+     *
+     * @param other the {@link Object} to test; may be {@code null}
+     *
+     * @return {@code true} if the supplied {@link Object} is equal to
+     * this {@link Probe}
+     */
+    @Override
+    public final boolean equals(final Object other) {
+      return other instanceof Interned && this.configurationCoordinates.equals(((Interned)other).get());
+    }
+
+  }
+
+  /**
+   * A per-thread stack of scoped configuration coordinates, together
+   * with the generation of the scope entered at each depth, so that a
+   * {@link Handle} for a scope that has already been closed cannot
+   * close a scope entered later at the same depth.
+   *
+   * @author <a href="https://about.me/lairdnelson"
+   * target="_parent">Laird Nelson</a>
+   */
+  private static final class Frame {
+
+    /**
+     * The stack; never {@code null}.
+     */
+    private Map<?, ?>[] stack;
+
+    /**
+     * The generations of the scopes on the stack, indexed by depth;
+     * never {@code null}.
+     *
+     * <p>An element is zero if no scope is in effect at its
+     * depth.</p>
+     */
+    private long[] generations;
+
+    /**
+     * The generation of the scope most recently entered.
+     */
+    private long generation;
+
+    /**
+     * The number of elements in the stack.
+     */
+    private int depth;
+
+    /**
+     * Creates a new {@link Frame}.
+     */
+    private Frame() {
+      super();
+      this.stack = new Map<?, ?>[4];
+      this.generations = new long[4];
+    }
+
+    /**
+     * Returns the configuration coordinates at the top of this {@link
+     * Frame}'s stack, or {@code null}.
+     *
+     * @return the configuration coordinates at the top of this {@link
+     * Frame}'s stack, or {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    private final Map<String, String> peek() {
+      return this.depth == 0 ? null : (Map<String, String>)this.stack[this.depth - 1];
+    }
+
+    /**
+     * Pushes the supplied configuration coordinates onto this {@link
+     * Frame}'s stack, in a new generation, and returns a new {@link
+     * Handle} that will pop them.
+     *
+     * <p>This method never returns {@code null}.</p>
+     *
+     * @param configurationCoordinates the configuration coordinates;
+     * may be {@code null}
+     *
+     * @return a new, non-{@code null} {@link Handle}
+     */
+    private final Handle push(final Map<String, String> configurationCoordinates) {
+      if (this.depth == this.stack.length) {
+        this.stack = Arrays.copyOf(this.stack, this.depth * 2);
+        this.generations = Arrays.copyOf(this.generations, this.depth * 2);
+      }
+      final long generation = ++this.generation;
+      final int depth = this.depth++;
+      this.stack[depth] = configurationCoordinates;
+      this.generations[depth] = generation;
+      return new Handle(this, depth, generation);
+    }
+
+    /**
+     * Pops the configuration coordinates at the top of this {@link
+     * Frame}'s stack, provided that they were pushed at the supplied
+     * {@code depth} in the supplied {@code generation}.
+     *
+     * @param depth the depth at which the configuration coordinates
+     * to pop were pushed
+     *
+     * @param generation the generation in which the configuration
+     * coordinates to pop were pushed
+     *
+     * @exception IllegalStateException if the configuration
+     * coordinates pushed at the supplied {@code depth} in the supplied
+     * {@code generation} have already been popped, or if they are not
+     * at the top of the stack
+     */
+    private final void pop(final int depth, final long generation) {
+      if (depth >= this.depth || this.generations[depth] != generation) {
+        throw new IllegalStateException("This scope has already been closed");
+      } else if (this.depth != depth + 1) {
+        throw new IllegalStateException("Scopes must be closed in the reverse of the order in which they were entered; closing scope at depth " + depth + " but innermost scope is at depth " + (this.depth - 1));
+      }
+      this.depth--;
+      this.stack[depth] = null;
+      this.generations[depth] = 0L;
+    }
+
+  }
+
+  /**
+   * The {@link Scope} for a scope entered at a particular depth, in a
+   * particular generation, on a particular thread.
+   *
+   * @author <a href="https://about.me/lairdnelson"
+   * target="_parent">Laird Nelson</a>
+   */
+  private static final class Handle implements Scope {
+
+    /**
+     * The {@link Frame} of the thread on which the scope represented
+     * by this {@link Handle} was entered; never {@code null}.
+     */
+    private final Frame frame;
+
+    /**
+     * The depth at which the scope represented by this {@link Handle}
+     * was entered.
+     */
+    private final int depth;
+
+    /**
+     * The generation of the scope represented by this {@link
+     * Handle}.
+     */
+    private final long generation;
+
+    /**
+     * Creates a new {@link Handle}.
+     *
+     * @param frame the {@link Frame} of the current thread; must not
+     * be {@code null}
+     *
+     * @param depth the depth at which the scope represented by the
+     * new {@link Handle} was entered
+     *
+     * @param generation the generation of the scope represented by
+     * the new {@link Handle}
+     */
+    private Handle(final Frame frame, final int depth, final long generation) {
+      super();
+      this.frame = frame;
+      this.depth = depth;
+      this.generation = generation;
+    }
+
+    /**
+     * Exits the scope represented by this {@link Handle}, which must
+     * be the innermost scope in effect on the current thread.
+     *
+     * @exception IllegalStateException if the scope represented by
+     * this {@link Handle} is not the innermost scope in effect on the
+     * current thread, for example because it has already been closed,
+     * because a scope entered within it has not been closed, or
+     * because it was entered on a different thread
+     */
+    @Override
+    public final void close() {
+      if (frames.get() != this.frame) {
+        throw new IllegalStateException("Scopes must be closed on the thread on which they were entered");
+      }
+      this.frame.pop(this.depth, this.generation);
+    }
+
+  }
+
+}
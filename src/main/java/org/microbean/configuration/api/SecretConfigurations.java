@@ -0,0 +1,842 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2018 microBean.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.microbean.configuration.api;
+
+import java.io.Serializable;
+
+import java.lang.reflect.Type;
+
+import java.nio.ByteBuffer;
+
+import java.lang.ref.WeakReference;
+
+import java.nio.charset.StandardCharsets;
+
+import java.security.GeneralSecurityException;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link Configurations} that passes every request through to a
+ * delegate {@link Configurations} and decrypts the configuration
+ * values it returns that are {@linkplain #isEncrypted(String)
+ * marked as encrypted}, using a pluggable {@link Decryptor}.
+ *
+ * <p>An encrypted configuration value takes the form {@code
+ * ENC(}<em>ciphertext</em>{@code )}.  It is decrypted the first time
+ * it is requested, and its plaintext is then cached, indexed by its
+ * ciphertext, until a fixed time to live has elapsed, so that
+ * requests for it cost about as much as requests for a configuration
+ * value that is not encrypted.  Because the cache is indexed by
+ * ciphertext, a configuration value that changes is decrypted anew
+ * on its next request, and the plaintext is shared among all the
+ * configuration coordinates and names that refer to the same
+ * ciphertext.  Concurrent first requests for the same ciphertext
+ * decrypt it only once.</p>
+ *
+ * <p>Plaintext may optionally be held outside the Java heap, in
+ * which case it is overwritten with zeros when it expires or is
+ * {@linkplain #invalidateAll() invalidated}.  A {@link String}
+ * decoded from it on {@linkplain #getValue(Map, String, Type,
+ * String) request} is then only weakly referenced, so it is shared
+ * by subsequent requests but is not retained once they no longer
+ * refer to it.</p>
+ *
+ * <p>The {@link #getConfigurationValue(Map, String)} method returns
+ * {@link ConfigurationValue}s carrying plaintext, so that, for
+ * example, {@linkplain Configurations#interpolate() interpolation}
+ * and {@linkplain Configurations#bind() binding} see decrypted
+ * values.  Such {@link ConfigurationValue}s should therefore not be
+ * logged.  A {@link CachingConfigurations} that caches the values of
+ * an instance of this class retains their plaintext without regard
+ * to its time to live, and so should be placed beneath it
+ * instead.</p>
+ *
+ * <p>Instances of this class are safe for concurrent use by multiple
+ * threads.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson"
+ * target="_parent">Laird Nelson</a>
+ *
+ * @see Decryptor
+ *
+ * @see #isEncrypted(String)
+ */
+public final class SecretConfigurations extends ForwardingConfigurations {
+
+
+  /*
+   * Static fields.
+   */
+
+
+  /**
+   * The prefix marking an encrypted configuration value.
+   */
+  private static final String PREFIX = "ENC(";
+
+  /**
+   * The suffix marking an encrypted configuration value.
+   */
+  private static final String SUFFIX = ")";
+
+
+  /*
+   * Instance fields.
+   */
+
+
+  /**
+   * The {@link Decryptor} used to decrypt ciphertext.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final Decryptor decryptor;
+
+  /**
+   * The time, in nanoseconds, for which plaintext is cached after it
+   * is decrypted.
+   */
+  private final long timeToLiveNanos;
+
+  /**
+   * Whether plaintext is held outside the Java heap.
+   */
+  private final boolean offHeap;
+
+  /**
+   * The cached {@link Secret}s, indexed by ciphertext.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final ConcurrentMap<String, Secret> secrets;
+
+  /**
+   * The value of {@link System#nanoTime()} at or after which expired
+   * {@link Secret}s will next be {@linkplain #purge(long) purged}.
+   */
+  private volatile long nextPurge;
+
+
+  /*
+   * Constructors.
+   */
+
+
+  /**
+   * Creates a new {@link SecretConfigurations} that holds plaintext
+   * on the Java heap.
+   *
+   * @param delegate the {@link Configurations} to which requests will
+   * be passed; must not be {@code null}
+   *
+   * @param decryptor the {@link Decryptor} that will decrypt
+   * ciphertext; must not be {@code null}
+   *
+   * @param timeToLive the time for which plaintext will be cached
+   * after it is decrypted; must be positive
+   *
+   * @param unit the {@link TimeUnit} of {@code timeToLive}; must not
+   * be {@code null}
+   *
+   * @exception NullPointerException if {@code delegate}, {@code
+   * decryptor} or {@code unit} is {@code null}
+   *
+   * @exception IllegalArgumentException if {@code timeToLive} is not
+   * positive
+   *
+   * @see #SecretConfigurations(Configurations, Decryptor, long,
+   * TimeUnit, boolean)
+   */
+  public SecretConfigurations(final Configurations delegate, final Decryptor decryptor, final long timeToLive, final TimeUnit unit) {
+    this(delegate, decryptor, timeToLive, unit, false);
+  }
+
+  /**
+   * Creates a new {@link SecretConfigurations}.
+   *
+   * @param delegate the {@link Configurations} to which requests will
+   * be passed; must not be {@code null}
+   *
+   * @param decryptor the {@link Decryptor} that will decrypt
+   * ciphertext; must not be {@code null}
+   *
+   * @param timeToLive the time for which plaintext will be cached
+   * after it is decrypted; must be positive
+   *
+   * @param unit the {@link TimeUnit} of {@code timeToLive}; must not
+   * be {@code null}
+   *
+   * @param offHeap whether plaintext will be held outside the Java
+   * heap and overwritten with zeros when it is discarded
+   *
+   * @exception NullPointerException if {@code delegate}, {@code
+   * decryptor} or {@code unit} is {@code null}
+   *
+   * @exception IllegalArgumentException if {@code timeToLive} is not
+   * positive
+   */
+  public SecretConfigurations(final Configurations delegate,
+                              final Decryptor decryptor,
+                              final long timeToLive,
+                              final TimeUnit unit,
+                              final boolean offHeap) {
+    this(delegate, decryptor, toNanos(timeToLive, unit), offHeap, new ConcurrentHashMap<>());
+  }
+
+  /**
+   * Creates a new {@link SecretConfigurations}.
+   *
+   * @param delegate the {@link Configurations} to which requests will
+   * be passed; must not be {@code null}
+   *
+   * @param decryptor the {@link Decryptor} that will decrypt
+   * ciphertext; must not be {@code null}
+   *
+   * @param timeToLiveNanos the positive time, in nanoseconds, for
+   * which plaintext will be cached after it is decrypted
+   *
+   * @param offHeap whether plaintext will be held outside the Java
+   * heap
+   *
+   * @param secrets the cached {@link Secret}s, indexed by
+   * ciphertext, which may be shared with another {@link
+   * SecretConfigurations}; must not be {@code null}
+   *
+   * @exception NullPointerException if {@code delegate}, {@code
+   * decryptor} or {@code secrets} is {@code null}
+   */
+  private SecretConfigurations(final Configurations delegate,
+                               final Decryptor decryptor,
+                               final long timeToLiveNanos,
+                               final boolean offHeap,
+                               final ConcurrentMap<String, Secret> secrets) {
+    super(delegate);
+    this.decryptor = Objects.requireNonNull(decryptor);
+    this.secrets = Objects.requireNonNull(secrets);
+    this.timeToLiveNanos = timeToLiveNanos;
+    this.offHeap = offHeap;
+    this.nextPurge = System.nanoTime() + timeToLiveNanos;
+  }
+
+
+  /*
+   * Instance methods.
+   */
+
+
+  /**
+   * Returns a new {@link SecretConfigurations} that decrypts the
+   * values of the supplied {@code delegate}, sharing this {@link
+   * SecretConfigurations}' cached plaintext.
+   *
+   * @param delegate the {@link Configurations} to which requests will
+   * be passed; must not be {@code null}
+   *
+   * @return a new {@link SecretConfigurations}
+   *
+   * @exception NullPointerException if {@code delegate} is {@code
+   * null}
+   */
+  @Override
+  protected final Configurations withDelegate(final Configurations delegate) {
+    return new SecretConfigurations(delegate, this.decryptor, this.timeToLiveNanos, this.offHeap, this.secrets);
+  }
+
+  /**
+   * Returns the {@link ConfigurationValue} that the delegate selects
+   * for the supplied {@code configurationCoordinates} and {@code
+   * name}, with its value decrypted if it is encrypted, or {@code
+   * null} if there is no such {@link ConfigurationValue}.
+   *
+   * @param configurationCoordinates the configuration coordinates in
+   * effect for the request; may be {@code null}
+   *
+   * @param name the name of the configuration property; must not be
+   * {@code null}
+   *
+   * @return the selected {@link ConfigurationValue}, or {@code null}
+   *
+   * @exception NullPointerException if {@code name} is {@code null}
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable
+   *
+   * @exception ConfigurationException if an encrypted value could not
+   * be decrypted
+   */
+  @Override
+  public final ConfigurationValue getConfigurationValue(final Map<String, String> configurationCoordinates, final String name) {
+    Objects.requireNonNull(name);
+    final ConfigurationValue configurationValue = this.getDelegate().getConfigurationValue(configurationCoordinates, name);
+    final String value = configurationValue == null ? null : configurationValue.getValue();
+    if (!isEncrypted(value)) {
+      return configurationValue;
+    }
+    return new ConfigurationValue((Serializable)configurationValue.getSource(),
+                                  configurationValue.getCoordinates(),
+                                  configurationValue.getName(),
+                                  this.getPlaintext(value, name),
+                                  configurationValue.isAuthoritative());
+  }
+
+  /**
+   * Returns a read-only {@link ByteBuffer} containing the UTF-8
+   * encoding of the configuration value corresponding to the
+   * configuration property suitable for the supplied {@code
+   * configurationCoordinates} and {@code name}, decrypted if
+   * necessary, or {@code null} if there is no such value.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * <p>The delegate is asked for its {@link ByteBuffer} only once,
+   * and it is returned unchanged if it is not encrypted.  The
+   * plaintext of an encrypted configuration value is copied into the
+   * returned {@link ByteBuffer}, which is therefore unaffected when
+   * the cached plaintext is discarded.</p>
+   *
+   * @param configurationCoordinates the configuration coordinates in
+   * effect for the request; may be {@code null}
+   *
+   * @param name the name of the configuration property; must not be
+   * {@code null}
+   *
+   * @return a read-only {@link ByteBuffer}, or {@code null}
+   *
+   * @exception NullPointerException if {@code name} is {@code null}
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable
+   *
+   * @exception ConfigurationException if an encrypted value could not
+   * be decrypted
+   */
+  @Override
+  public final ByteBuffer getByteBuffer(final Map<String, String> configurationCoordinates, final String name) {
+    Objects.requireNonNull(name);
+    final ByteBuffer bytes = this.getDelegate().getByteBuffer(configurationCoordinates, name);
+    if (!isEncrypted(bytes)) {
+      return bytes;
+    }
+    final String value = StandardCharsets.UTF_8.decode(bytes).toString();
+    final long now = System.nanoTime();
+    final ByteBuffer returnValue = this.getSecret(value, name, now).copyBytes();
+    if (returnValue != null) {
+      return returnValue;
+    }
+    // The cached Secret was destroyed by another thread after it was
+    // retrieved; decrypt a private one instead of retrying.
+    final Secret secret = this.decrypt(value, name, now);
+    try {
+      return secret.copyBytes();
+    } finally {
+      secret.destroy();
+    }
+  }
+
+  /**
+   * Returns the configuration value corresponding to the
+   * configuration property suitable for the supplied {@code
+   * configurationCoordinates} and {@code name}, decrypted if
+   * necessary, or the supplied {@code defaultValue} if there is no
+   * such value, converted to the type represented by the supplied
+   * {@code type}.
+   *
+   * <p>The delegate is asked for the {@linkplain
+   * Configurations#getConfigurationValue(Map, String) selected
+   * <code>ConfigurationValue</code>} once.  If its value is not
+   * encrypted, it, or the supplied {@code defaultValue}, is converted
+   * exactly as the delegate would convert it, so that plaintext
+   * values cost about as much as they do when requested of the
+   * delegate directly.  Decrypted values are {@linkplain
+   * Configurations#convert(String, Type) converted} by the
+   * delegate.</p>
+   *
+   * @param <T> the type to which a {@link String}-typed configuration
+   * value should be converted
+   *
+   * @param configurationCoordinates a {@link Map} representing the
+   * configuration coordinates in effect for this request; may be
+   * {@code null}
+   *
+   * @param name the name of the configuration property for which a
+   * value will be returned; must not be {@code null}
+   *
+   * @param type a {@link Type} representing the type to which the
+   * configuration value will be converted; must not be {@code null}
+   *
+   * @param defaultValue the value that will be converted, without
+   * being decrypted, and returned if {@code null} would otherwise be
+   * returned; may be {@code null}
+   *
+   * @return the configuration value, or {@code null}
+   *
+   * @exception NullPointerException if {@code name} or {@code type}
+   * is {@code null}
+   *
+   * @exception ConversionException if type conversion could not occur
+   * for any reason
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable
+   *
+   * @exception ConfigurationException if an encrypted value could not
+   * be decrypted
+   */
+  @Override
+  public final <T> T getValue(final Map<String, String> configurationCoordinates, final String name, final Type type, final String defaultValue) {
+    Objects.requireNonNull(name);
+    Objects.requireNonNull(type);
+    final ConfigurationValue configurationValue = this.getDelegate().getConfigurationValue(configurationCoordinates, name);
+    final String value = configurationValue == null ? null : configurationValue.getValue();
+    if (!isEncrypted(value)) {
+      return this.convertAsDelegate(configurationCoordinates, name, value, type, defaultValue);
+    }
+    return this.getDelegate().convert(this.getPlaintext(value, name), type);
+  }
+
+  /**
+   * Discards all cached plaintext, overwriting it with zeros if it is
+   * held outside the Java heap.
+   *
+   * <p>Any {@link SecretConfigurations} obtained from this one by way
+   * of the {@link Configurations#readConsistently(java.util.function.Function)}
+   * method is also affected.</p>
+   *
+   * <p>This method is safe for concurrent use by multiple
+   * threads.</p>
+   */
+  public final void invalidateAll() {
+    final Iterator<Secret> iterator = this.secrets.values().iterator();
+    while (iterator.hasNext()) {
+      final Secret secret = iterator.next();
+      iterator.remove();
+      secret.destroy();
+    }
+  }
+
+  /**
+   * Returns the plaintext of the supplied encrypted {@code value},
+   * decrypting it only if its cached {@link Secret} does not exist or
+   * has expired.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * <p>If the cached {@link Secret} is destroyed by another thread
+   * before its plaintext can be read, the plaintext is read from a
+   * {@link Secret} decrypted for this request alone, so that this
+   * method never has to retry.</p>
+   *
+   * @param value an {@linkplain #isEncrypted(String) encrypted}
+   * configuration value; must not be {@code null}
+   *
+   * @param name the name of the configuration property whose value
+   * {@code value} is, for use in error messages; must not be {@code
+   * null}
+   *
+   * @return the non-{@code null} plaintext
+   *
+   * @exception ConfigurationException if {@code value} could not be
+   * decrypted
+   */
+  private final String getPlaintext(final String value, final String name) {
+    final long now = System.nanoTime();
+    final String plaintext = this.getSecret(value, name, now).getValue();
+    if (plaintext != null) {
+      return plaintext;
+    }
+    final Secret secret = this.decrypt(value, name, now);
+    try {
+      return secret.getValue();
+    } finally {
+      secret.destroy();
+    }
+  }
+
+  /**
+   * Returns the cached {@link Secret} for the supplied {@code
+   * value}, decrypting it only if there is no such {@link Secret} or
+   * if it has expired.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param value an {@linkplain #isEncrypted(String) encrypted}
+   * configuration value; must not be {@code null}
+   *
+   * @param name the name of the configuration property whose value
+   * {@code value} is, for use in error messages; must not be {@code
+   * null}
+   *
+   * @param now the current value of {@link System#nanoTime()}
+   *
+   * @return a non-{@code null} {@link Secret}
+   *
+   * @exception ConfigurationException if {@code value} could not be
+   * decrypted
+   */
+  private final Secret getSecret(final String value, final String name, final long now) {
+    if (now - this.nextPurge >= 0L) {
+      this.purge(now);
+    }
+    Secret secret = this.secrets.get(value);
+    if (secret == null || secret.isExpired(now)) {
+      secret = this.secrets.compute(value, (ciphertext, old) -> {
+          if (old != null) {
+            if (!old.isExpired(now)) {
+              return old;
+            }
+            old.destroy();
+          }
+          return this.decrypt(ciphertext, name, now);
+        });
+    }
+    return secret;
+  }
+
+  /**
+   * Decrypts the supplied {@code value} and returns a new {@link
+   * Secret} holding its plaintext.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param value an {@linkplain #isEncrypted(String) encrypted}
+   * configuration value; must not be {@code null}
+   *
+   * @param name the name of the configuration property whose value
+   * {@code value} is, for use in error messages; must not be {@code
+   * null}
+   *
+   * @param now the current value of {@link System#nanoTime()}
+   *
+   * @return a new, non-{@code null} {@link Secret}
+   *
+   * @exception ConfigurationException if {@code value} could not be
+   * decrypted
+   */
+  private final Secret decrypt(final String value, final String name, final long now) {
+    final byte[] plaintext;
+    try {
+      plaintext = this.decryptor.decrypt(value.substring(PREFIX.length(), value.length() - SUFFIX.length()));
+    } catch (final GeneralSecurityException | RuntimeException exception) {
+      throw new ConfigurationException("Could not decrypt value of " + name, exception);
+    }
+    if (plaintext == null) {
+      throw new ConfigurationException("Could not decrypt value of " + name + ": no plaintext");
+    }
+    try {
+      return new Secret(plaintext, this.offHeap, now + this.timeToLiveNanos);
+    } finally {
+      Arrays.fill(plaintext, (byte)0);
+    }
+  }
+
+  /**
+   * Discards every cached {@link Secret} that has expired, so that
+   * plaintext whose ciphertext is no longer requested does not
+   * linger.
+   *
+   * @param now the current value of {@link System#nanoTime()}
+   */
+  private final void purge(final long now) {
+    this.nextPurge = now + this.timeToLiveNanos;
+    for (final Map.Entry<String, Secret> entry : this.secrets.entrySet()) {
+      final Secret secret = entry.getValue();
+      if (secret.isExpired(now) && this.secrets.remove(entry.getKey(), secret)) {
+        secret.destroy();
+      }
+    }
+  }
+
+
+  /*
+   * Static methods.
+   */
+
+
+  /**
+   * Returns {@code true} if the supplied configuration {@code value}
+   * is marked as encrypted, i.e. if it takes the form {@code
+   * ENC(}<em>ciphertext</em>{@code )}.
+   *
+   * @param value the configuration value to test; may be {@code
+   * null} in which case {@code false} will be returned
+   *
+   * @return {@code true} if {@code value} is marked as encrypted
+   */
+  public static final boolean isEncrypted(final String value) {
+    return value != null && value.length() > PREFIX.length() + SUFFIX.length() && value.startsWith(PREFIX) && value.endsWith(SUFFIX);
+  }
+
+  /**
+   * Returns {@code true} if the supplied {@link ByteBuffer} contains
+   * the UTF-8 encoding of a configuration value that is {@linkplain
+   * #isEncrypted(String) marked as encrypted}, without changing its
+   * position or limit.
+   *
+   * @param bytes the {@link ByteBuffer} to test; may be {@code null}
+   * in which case {@code false} will be returned
+   *
+   * @return {@code true} if {@code bytes} contains an encrypted
+   * configuration value
+   */
+  private static final boolean isEncrypted(final ByteBuffer bytes) {
+    if (bytes == null) {
+      return false;
+    }
+    final int position = bytes.position();
+    final int limit = bytes.limit();
+    if (limit - position <= PREFIX.length() + SUFFIX.length() || bytes.get(limit - 1) != SUFFIX.charAt(0)) {
+      return false;
+    }
+    for (int i = 0; i < PREFIX.length(); i++) {
+      if (bytes.get(position + i) != PREFIX.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Converts the supplied {@code timeToLive} to nanoseconds,
+   * validating it.
+   *
+   * @param timeToLive the time to live; must be positive
+   *
+   * @param unit the {@link TimeUnit} of {@code timeToLive}; must not
+   * be {@code null}
+   *
+   * @return the positive time to live, in nanoseconds
+   *
+   * @exception NullPointerException if {@code unit} is {@code null}
+   *
+   * @exception IllegalArgumentException if {@code timeToLive} is not
+   * positive
+   */
+  private static final long toNanos(final long timeToLive, final TimeUnit unit) {
+    if (timeToLive <= 0L) {
+      throw new IllegalArgumentException("timeToLive <= 0: " + timeToLive);
+    }
+    return unit.toNanos(timeToLive);
+  }
+
+
+  /*
+   * Inner and nested classes.
+   */
+
+
+  /**
+   * A functional interface whose implementations decrypt the
+   * ciphertext of {@linkplain SecretConfigurations#isEncrypted(String)
+   * encrypted} configuration values.
+   *
+   * <p>Implementations must be safe for concurrent use by multiple
+   * threads.</p>
+   *
+   * @author <a href="https://about.me/lairdnelson"
+   * target="_parent">Laird Nelson</a>
+   *
+   * @see SecretConfigurations
+   */
+  @FunctionalInterface
+  public static interface Decryptor {
+
+    /**
+     * Decrypts the supplied {@code ciphertext} and returns the UTF-8
+     * encoding of its plaintext in a new array, which the caller
+     * will overwrite with zeros once it has copied it.
+     *
+     * <p>Implementations of this method must not return {@code
+     * null}.</p>
+     *
+     * @param ciphertext the ciphertext, without the {@code ENC(} and
+     * {@code )} that mark it; will not be {@code null}
+     *
+     * @return a new, non-{@code null} array containing the UTF-8
+     * encoding of the plaintext
+     *
+     * @exception GeneralSecurityException if {@code ciphertext} could
+     * not be decrypted
+     */
+    public byte[] decrypt(final String ciphertext) throws GeneralSecurityException;
+
+  }
+
+  /**
+   * The cached plaintext of an encrypted configuration value.
+   *
+   * @author <a href="https://about.me/lairdnelson"
+   * target="_parent">Laird Nelson</a>
+   */
+  private static final class Secret {
+
+    /**
+     * The value of {@link System#nanoTime()} at or after which this
+     * {@link Secret} expires.
+     */
+    private final long expiry;
+
+    /**
+     * The plaintext, if it is held on the Java heap.
+     *
+     * <p>This field is {@code null} if the plaintext is held outside
+     * the Java heap or if this {@link Secret} has been {@linkplain
+     * #destroy() destroyed}.</p>
+     */
+    private volatile String value;
+
+    /**
+     * The UTF-8 encoding of the plaintext, if it is held outside the
+     * Java heap.
+     *
+     * <p>This field is {@code null} if the plaintext is held on the
+     * Java heap or if this {@link Secret} has been {@linkplain
+     * #destroy() destroyed}.</p>
+     *
+     * @see #destroy()
+     */
+    private ByteBuffer bytes;
+
+    /**
+     * A weak reference to the plaintext most recently decoded from
+     * {@link #bytes}, if the plaintext is held outside the Java heap,
+     * so that it is decoded again only once no request refers to it
+     * any longer.
+     *
+     * <p>This field is {@code null} if the plaintext is held on the
+     * Java heap, if it has not yet been decoded, or if this {@link
+     * Secret} has been {@linkplain #destroy() destroyed}.</p>
+     *
+     * @see #getValue()
+     */
+    private volatile WeakReference<String> decodedValue;
+
+    /**
+     * Creates a new {@link Secret}.
+     *
+     * @param plaintext the UTF-8 encoding of the plaintext, which
+     * will be copied; must not be {@code null}
+     *
+     * @param offHeap whether the plaintext will be held outside the
+     * Java heap
+     *
+     * @param expiry the value of {@link System#nanoTime()} at or
+     * after which the new {@link Secret} expires
+     *
+     * @exception NullPointerException if {@code plaintext} is {@code
+     * null}
+     */
+    private Secret(final byte[] plaintext, final boolean offHeap, final long expiry) {
+      super();
+      this.expiry = expiry;
+      if (offHeap) {
+        this.bytes = ByteBuffer.allocateDirect(plaintext.length);
+        this.bytes.put(plaintext);
+        this.bytes.clear();
+        this.value = null;
+      } else {
+        this.bytes = null;
+        this.value = new String(plaintext, StandardCharsets.UTF_8);
+      }
+    }
+
+    /**
+     * Returns {@code true} if this {@link Secret} has expired.
+     *
+     * @param now the current value of {@link System#nanoTime()}
+     *
+     * @return {@code true} if this {@link Secret} has expired
+     */
+    private final boolean isExpired(final long now) {
+      return now - this.expiry >= 0L;
+    }
+
+    /**
+     * Returns the plaintext, or {@code null} if this {@link Secret}
+     * has been {@linkplain #destroy() destroyed}.
+     *
+     * @return the plaintext, or {@code null}
+     */
+    private final String getValue() {
+      final String value = this.value;
+      if (value != null) {
+        return value;
+      }
+      WeakReference<String> decodedValue = this.decodedValue;
+      String returnValue = decodedValue == null ? null : decodedValue.get();
+      if (returnValue == null) {
+        synchronized (this) {
+          if (this.bytes != null) {
+            decodedValue = this.decodedValue;
+            returnValue = decodedValue == null ? null : decodedValue.get();
+            if (returnValue == null) {
+              returnValue = StandardCharsets.UTF_8.decode(this.bytes.duplicate()).toString();
+              this.decodedValue = new WeakReference<>(returnValue);
+            }
+          }
+        }
+      }
+      return returnValue;
+    }
+
+    /**
+     * Returns a new, read-only {@link ByteBuffer} containing a copy
+     * of the UTF-8 encoding of the plaintext, or {@code null} if this
+     * {@link Secret} has been {@linkplain #destroy() destroyed}.
+     *
+     * @return a new, read-only {@link ByteBuffer}, or {@code null}
+     */
+    private final synchronized ByteBuffer copyBytes() {
+      if (this.bytes == null) {
+        final String value = this.value;
+        return value == null ? null : StandardCharsets.UTF_8.encode(value).asReadOnlyBuffer();
+      }
+      final ByteBuffer copy = ByteBuffer.allocate(this.bytes.capacity());
+      copy.put(this.bytes.duplicate());
+      copy.clear();
+      return copy.asReadOnlyBuffer();
+    }
+
+    /**
+     * Discards the plaintext, overwriting its UTF-8 encoding with
+     * zeros.
+     *
+     * <p>The plaintext cannot be overwritten if it is held on the
+     * Java heap as a {@link String}; it is merely discarded.</p>
+     */
+    private final synchronized void destroy() {
+      this.value = null;
+      this.decodedValue = null;
+      final ByteBuffer bytes = this.bytes;
+      if (bytes != null) {
+        this.bytes = null;
+        for (int i = 0; i < bytes.capacity(); i++) {
+          bytes.put(i, (byte)0);
+        }
+      }
+    }
+
+  }
+
+}
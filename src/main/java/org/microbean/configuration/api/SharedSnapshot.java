@@ -0,0 +1,677 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2018 microBean.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.microbean.configuration.api;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+
+import java.nio.charset.StandardCharsets;
+
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import java.util.zip.CRC32;
+
+/**
+ * A memory-mapped file holding an immutable snapshot of {@link
+ * ConfigurationValue}s that is written by a single process and read
+ * in place, without being copied onto the heap, by any number of
+ * processes.
+ *
+ * <h2>Layout</h2>
+ *
+ * <p>The file begins with a {@value #HEADER_SIZE}-byte header
+ * containing a magic number, a format number, a <em>sequence</em>, a
+ * state, the length of the body and the CRC-32 of the body.  The
+ * body that follows begins with an {@code int} count of names and a
+ * table with, for each name, the {@code int} offsets of the name and
+ * of its values and the {@code int} number of its values.  The table
+ * is sorted by the unsigned UTF-8 bytes of each name so that a name
+ * can be found by binary search without decoding any other name.
+ * Each value consists of its source, its coordinates, its value and
+ * its authoritative flag.  Strings are an {@code int} byte length,
+ * or {@code -1} for {@code null}, followed by UTF-8 bytes.</p>
+ *
+ * <h2>Concurrency</h2>
+ *
+ * <p>A snapshot file is never changed once it has been moved into
+ * place, except to mark it as <em>superseded</em>.  The writer
+ * writes every new snapshot, with the next sequence, to a new file,
+ * moves that file into place and only then marks the old file as
+ * superseded so that readers map the new one.  A reader therefore
+ * never sees a partly written body, and it verifies the CRC-32 of
+ * the body once, when it maps the file.  Because the Java memory
+ * model makes no guarantees about memory-mapped files, a reader may
+ * notice that a file has been superseded later than it was, but it
+ * goes on reading a complete, older snapshot until it does.</p>
+ *
+ * <p>Instances of this class are safe for concurrent use by multiple
+ * threads.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson"
+ * target="_parent">Laird Nelson</a>
+ *
+ * @see SharedSnapshotConfigurations
+ */
+final class SharedSnapshot {
+
+
+  /*
+   * Static fields.
+   */
+
+
+  /**
+   * The magic number with which every snapshot file begins.
+   */
+  private static final int MAGIC = 0x6D42434E;
+
+  /**
+   * The format number of snapshot files written by this class.
+   */
+  private static final int FORMAT = 1;
+
+  /**
+   * The size of the header, in bytes.
+   */
+  static final int HEADER_SIZE = 64;
+
+  /**
+   * The offset of the {@code long} sequence within the header.
+   */
+  private static final int SEQUENCE_OFFSET = 8;
+
+  /**
+   * The offset of the {@code int} state within the header.
+   */
+  private static final int STATE_OFFSET = 16;
+
+  /**
+   * The offset of the {@code int} body length within the header.
+   */
+  private static final int LENGTH_OFFSET = 20;
+
+  /**
+   * The offset of the {@code long} CRC-32 of the body within the
+   * header.
+   */
+  private static final int CRC_OFFSET = 24;
+
+  /**
+   * The state of a file that has been replaced by a larger one.
+   */
+  private static final int SUPERSEDED = 1;
+
+  /**
+   * The size of each entry in the name table, in bytes.
+   */
+  private static final int TABLE_ENTRY_SIZE = 12;
+
+  /**
+   * A {@link Comparator} ordering {@code byte} arrays by their
+   * unsigned contents.
+   */
+  private static final Comparator<byte[]> unsignedOrder = (a, b) -> {
+    final int length = Math.min(a.length, b.length);
+    for (int i = 0; i < length; i++) {
+      final int comparison = Integer.compare(a[i] & 0xFF, b[i] & 0xFF);
+      if (comparison != 0) {
+        return comparison;
+      }
+    }
+    return Integer.compare(a.length, b.length);
+  };
+
+
+  /*
+   * Instance fields.
+   */
+
+
+  /**
+   * The read-only mapping of the snapshot file.
+   *
+   * <p>Only absolute accessors are used, so this field may be shared
+   * by multiple threads.</p>
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final MappedByteBuffer buffer;
+
+
+  /*
+   * Constructors.
+   */
+
+
+  /**
+   * Creates a new {@link SharedSnapshot}.
+   *
+   * @param buffer the read-only mapping of the snapshot file; must
+   * not be {@code null}
+   */
+  private SharedSnapshot(final MappedByteBuffer buffer) {
+    super();
+    this.buffer = Objects.requireNonNull(buffer);
+  }
+
+
+  /*
+   * Instance methods.
+   */
+
+
+  /**
+   * Returns the sequence of this {@link SharedSnapshot}, which is
+   * greater than that of every snapshot it has superseded.
+   *
+   * @return the sequence
+   */
+  final long getSequence() {
+    return this.buffer.getLong(SEQUENCE_OFFSET);
+  }
+
+  /**
+   * Returns {@code true} if the file mapped by this {@link
+   * SharedSnapshot} has been replaced by a larger one.
+   *
+   * @return {@code true} if this {@link SharedSnapshot} has been
+   * superseded
+   */
+  final boolean isSuperseded() {
+    return this.buffer.getInt(STATE_OFFSET) == SUPERSEDED;
+  }
+
+  /**
+   * Returns {@code true} if the body of this {@link SharedSnapshot}
+   * matches its CRC-32.
+   *
+   * @return {@code true} if the body matches its CRC-32
+   */
+  private final boolean verify() {
+    final int length = this.buffer.getInt(LENGTH_OFFSET);
+    final long crc = this.buffer.getLong(CRC_OFFSET);
+    if (length < 0 || length > this.buffer.capacity() - HEADER_SIZE) {
+      return false;
+    }
+    final ByteBuffer body = this.buffer.duplicate();
+    body.limit(HEADER_SIZE + length).position(HEADER_SIZE);
+    final CRC32 crc32 = new CRC32();
+    final byte[] chunk = new byte[Math.min(length, 8192)];
+    while (body.hasRemaining()) {
+      final int n = Math.min(chunk.length, body.remaining());
+      body.get(chunk, 0, n);
+      crc32.update(chunk, 0, n);
+    }
+    return crc32.getValue() == crc;
+  }
+
+  /**
+   * Returns the names of all configuration properties in this {@link
+   * SharedSnapshot}, in table order.
+   *
+   * @return a non-{@code null} {@link List} of names
+   */
+  final List<String> getNames() {
+    final int count = this.getInt(0);
+    final List<String> names = new ArrayList<>(Math.min(count, 1 << 16));
+    for (int i = 0; i < count; i++) {
+      names.add(this.getString(this.getInt(4 + i * TABLE_ENTRY_SIZE)));
+    }
+    return names;
+  }
+
+  /**
+   * Returns the {@link ConfigurationValue}s in this {@link
+   * SharedSnapshot} that are candidates for the supplied {@code
+   * configurationCoordinates} and {@code name}, decoding only those.
+   *
+   * <p>A {@link ConfigurationValue} is a candidate if its coordinates
+   * are a subset of the supplied {@code configurationCoordinates}, as
+   * described in the documentation for the {@link
+   * ConfigurationValueIndex} class.</p>
+   *
+   * @param configurationCoordinates the configuration coordinates of
+   * the request; may be {@code null}
+   *
+   * @param name the name of the request; must not be {@code null}
+   *
+   * @param nameBytes the UTF-8 encoding of {@code name}; must not be
+   * {@code null}
+   *
+   * @return a non-{@code null} array of candidate {@link
+   * ConfigurationValue}s
+   */
+  final ConfigurationValue[] getCandidates(final Map<String, String> configurationCoordinates, final String name, final byte[] nameBytes) {
+    int low = 0;
+    int high = this.getInt(0) - 1;
+    while (low <= high) {
+      final int middle = (low + high) >>> 1;
+      final int entry = 4 + middle * TABLE_ENTRY_SIZE;
+      final int comparison = this.compare(this.getInt(entry), nameBytes);
+      if (comparison < 0) {
+        low = middle + 1;
+      } else if (comparison > 0) {
+        high = middle - 1;
+      } else {
+        return this.getCandidates(configurationCoordinates, name, this.getInt(entry + 4), this.getInt(entry + 8));
+      }
+    }
+    return new ConfigurationValue[0];
+  }
+
+  /**
+   * Decodes the candidates among the supplied number of values
+   * beginning at the supplied offset.
+   *
+   * @param configurationCoordinates the configuration coordinates of
+   * the request; may be {@code null}
+   *
+   * @param name the name of the request; must not be {@code null}
+   *
+   * @param offset the offset within the body of the first value
+   *
+   * @param count the number of values
+   *
+   * @return a non-{@code null} array of candidate {@link
+   * ConfigurationValue}s
+   */
+  private final ConfigurationValue[] getCandidates(final Map<String, String> configurationCoordinates, final String name, int offset, final int count) {
+    final List<ConfigurationValue> candidates = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      final int sourceOffset = offset;
+      offset = this.skipString(offset);
+      final int coordinateCount = this.getInt(offset);
+      offset += 4;
+      final int coordinatesOffset = offset;
+      boolean candidate = true;
+      for (int j = 0; j < coordinateCount; j++) {
+        final int keyOffset = offset;
+        offset = this.skipString(offset);
+        final int valueOffset = offset;
+        offset = this.skipString(offset);
+        if (candidate) {
+          final String requested = configurationCoordinates == null ? null : configurationCoordinates.get(this.getString(keyOffset));
+          candidate = requested != null && this.compare(valueOffset, requested.getBytes(StandardCharsets.UTF_8)) == 0;
+        }
+      }
+      final int valueOffset = offset;
+      offset = this.skipString(offset);
+      final boolean authoritative = this.getByte(offset) != 0;
+      offset += 1;
+      if (candidate) {
+        final Map<String, String> coordinates = new HashMap<>();
+        int o = coordinatesOffset;
+        for (int j = 0; j < coordinateCount; j++) {
+          final String key = this.getString(o);
+          o = this.skipString(o);
+          coordinates.put(key, this.getString(o));
+          o = this.skipString(o);
+        }
+        candidates.add(new ConfigurationValue(this.getString(sourceOffset), coordinates, name, this.getString(valueOffset), authoritative));
+      }
+    }
+    return candidates.toArray(new ConfigurationValue[candidates.size()]);
+  }
+
+  /**
+   * Returns the {@code int} at the supplied offset within the body.
+   *
+   * @param offset the offset within the body
+   *
+   * @return the {@code int} at {@code offset}
+   */
+  private final int getInt(final int offset) {
+    return this.buffer.getInt(HEADER_SIZE + offset);
+  }
+
+  /**
+   * Returns the {@code byte} at the supplied offset within the body.
+   *
+   * @param offset the offset within the body
+   *
+   * @return the {@code byte} at {@code offset}
+   */
+  private final byte getByte(final int offset) {
+    return this.buffer.get(HEADER_SIZE + offset);
+  }
+
+  /**
+   * Returns the offset within the body of the first byte after the
+   * string at the supplied offset.
+   *
+   * @param offset the offset within the body of a string
+   *
+   * @return the offset of the first byte after the string
+   */
+  private final int skipString(final int offset) {
+    final int length = this.getInt(offset);
+    return offset + 4 + Math.max(0, length);
+  }
+
+  /**
+   * Decodes the string at the supplied offset within the body.
+   *
+   * @param offset the offset within the body of a string
+   *
+   * @return the decoded {@link String}, or {@code null}
+   *
+   * @exception IllegalStateException if the length of the string is
+   * implausible
+   */
+  private final String getString(final int offset) {
+    final int length = this.getInt(offset);
+    if (length < 0) {
+      return null;
+    } else if (length > this.buffer.capacity()) {
+      throw new IllegalStateException("length: " + length);
+    }
+    final byte[] bytes = new byte[length];
+    final int start = HEADER_SIZE + offset + 4;
+    for (int i = 0; i < length; i++) {
+      bytes[i] = this.buffer.get(start + i);
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Compares the unsigned UTF-8 bytes of the string at the supplied
+   * offset within the body with the supplied {@code bytes}, without
+   * decoding the string.
+   *
+   * @param offset the offset within the body of a string
+   *
+   * @param bytes the bytes to compare; must not be {@code null}
+   *
+   * @return a negative integer, zero or a positive integer as the
+   * string is less than, equal to or greater than {@code bytes}
+   */
+  private final int compare(final int offset, final byte[] bytes) {
+    final int length = Math.max(0, this.getInt(offset));
+    final int start = HEADER_SIZE + offset + 4;
+    final int common = Math.min(length, bytes.length);
+    for (int i = 0; i < common; i++) {
+      final int comparison = Integer.compare(this.buffer.get(start + i) & 0xFF, bytes[i] & 0xFF);
+      if (comparison != 0) {
+        return comparison;
+      }
+    }
+    return Integer.compare(length, bytes.length);
+  }
+
+
+  /*
+   * Static methods.
+   */
+
+
+  /**
+   * Maps the snapshot file at the supplied {@link Path} for reading
+   * and verifies the CRC-32 of its body.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param path the {@link Path} of the snapshot file; must not be
+   * {@code null}
+   *
+   * @return a non-{@code null} {@link SharedSnapshot}
+   *
+   * @exception NullPointerException if {@code path} is {@code null}
+   *
+   * @exception IOException if the file could not be mapped, is not a
+   * snapshot file or is corrupt
+   */
+  static final SharedSnapshot open(final Path path) throws IOException {
+    try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      final long size = channel.size();
+      if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+        throw new StreamCorruptedException(path + ": size: " + size);
+      }
+      final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0L, size);
+      if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT) {
+        throw new StreamCorruptedException(path + ": not a snapshot file");
+      }
+      final SharedSnapshot snapshot = new SharedSnapshot(buffer);
+      if (!snapshot.verify()) {
+        throw new StreamCorruptedException(path + ": snapshot " + snapshot.getSequence() + " is corrupt");
+      }
+      return snapshot;
+    }
+  }
+
+  /**
+   * Publishes a snapshot of the supplied {@link ConfigurationValue}s
+   * to the file at the supplied {@link Path} by writing a new file,
+   * moving it into place and marking the file it replaces as
+   * superseded.
+   *
+   * <p>Only one process at a time may publish to a given {@link
+   * Path}.</p>
+   *
+   * @param path the {@link Path} of the snapshot file; must not be
+   * {@code null}
+   *
+   * @param values the {@link ConfigurationValue}s to publish; must
+   * not be {@code null}
+   *
+   * @exception NullPointerException if either parameter is {@code
+   * null}
+   *
+   * @exception IOException if an input/output error occurs
+   */
+  static final void publish(final Path path, final Collection<? extends ConfigurationValue> values) throws IOException {
+    final byte[] body = encode(values);
+    final CRC32 crc32 = new CRC32();
+    crc32.update(body);
+    final Path absolutePath = path.toAbsolutePath();
+    long sequence = 0L;
+    boolean supersede = false;
+    FileChannel channel = null;
+    FileLock lock = null;
+    try {
+      if (Files.exists(absolutePath)) {
+        channel = FileChannel.open(absolutePath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        lock = channel.lock();
+        if (channel.size() >= HEADER_SIZE) {
+          final ByteBuffer oldHeader = ByteBuffer.allocate(HEADER_SIZE);
+          readFully(channel, oldHeader, 0L);
+          if (oldHeader.getInt(0) == MAGIC && oldHeader.getInt(4) == FORMAT && oldHeader.getInt(STATE_OFFSET) != SUPERSEDED) {
+            sequence = oldHeader.getLong(SEQUENCE_OFFSET);
+            supersede = true;
+          }
+        }
+      }
+
+      final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      header.putInt(0, MAGIC);
+      header.putInt(4, FORMAT);
+      header.putLong(SEQUENCE_OFFSET, sequence + 2L);
+      header.putInt(LENGTH_OFFSET, body.length);
+      header.putLong(CRC_OFFSET, crc32.getValue());
+      final Path temporaryFile = Files.createTempFile(absolutePath.getParent(), absolutePath.getFileName().toString(), ".tmp");
+      try {
+        try (final FileChannel newChannel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+          writeFully(newChannel, header, 0L);
+          writeFully(newChannel, ByteBuffer.wrap(body), HEADER_SIZE);
+          newChannel.force(true);
+        }
+        try {
+          Files.move(temporaryFile, absolutePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final AtomicMoveNotSupportedException atomicMoveNotSupportedException) {
+          Files.move(temporaryFile, absolutePath, StandardCopyOption.REPLACE_EXISTING);
+        }
+      } finally {
+        Files.deleteIfExists(temporaryFile);
+      }
+      if (supersede) {
+        // The new file is in place; only now may readers of the old
+        // one be told to map it.
+        final ByteBuffer state = ByteBuffer.allocate(4);
+        state.putInt(0, SUPERSEDED);
+        writeFully(channel, state, STATE_OFFSET);
+        channel.force(false);
+      }
+    } finally {
+      if (lock != null) {
+        lock.release();
+      }
+      if (channel != null) {
+        channel.close();
+      }
+    }
+  }
+
+  /**
+   * Writes all of the supplied {@link ByteBuffer} to the supplied
+   * {@link FileChannel} at the supplied position.
+   *
+   * @param channel the {@link FileChannel}; must not be {@code null}
+   *
+   * @param source the {@link ByteBuffer} to write; must not be {@code
+   * null}
+   *
+   * @param position the position within the file at which to write
+   *
+   * @exception IOException if an input/output error occurs
+   */
+  private static final void writeFully(final FileChannel channel, final ByteBuffer source, long position) throws IOException {
+    while (source.hasRemaining()) {
+      position += channel.write(source, position);
+    }
+  }
+
+  /**
+   * Fills the supplied {@link ByteBuffer} from the supplied {@link
+   * FileChannel} starting at the supplied position.
+   *
+   * @param channel the {@link FileChannel}; must not be {@code null}
+   *
+   * @param target the {@link ByteBuffer} to fill; must not be {@code
+   * null}
+   *
+   * @param position the position within the file at which to start
+   * reading
+   *
+   * @exception IOException if an input/output error occurs or the
+   * file ends before {@code target} is full
+   */
+  private static final void readFully(final FileChannel channel, final ByteBuffer target, long position) throws IOException {
+    while (target.hasRemaining()) {
+      final int n = channel.read(target, position);
+      if (n < 0) {
+        throw new StreamCorruptedException("unexpected end of file");
+      }
+      position += n;
+    }
+  }
+
+  /**
+   * Encodes the body of a snapshot of the supplied {@link
+   * ConfigurationValue}s.
+   *
+   * @param values the {@link ConfigurationValue}s; must not be {@code
+   * null}
+   *
+   * @return a non-{@code null} {@code byte} array
+   *
+   * @exception IOException if the body would be too large
+   */
+  private static final byte[] encode(final Collection<? extends ConfigurationValue> values) throws IOException {
+    final Map<byte[], List<ConfigurationValue>> byName = new TreeMap<>(unsignedOrder);
+    final Map<String, byte[]> nameBytes = new HashMap<>();
+    for (final ConfigurationValue value : values) {
+      final byte[] bytes = nameBytes.computeIfAbsent(value.getName(), n -> n.getBytes(StandardCharsets.UTF_8));
+      byName.computeIfAbsent(bytes, b -> new ArrayList<>()).add(value);
+    }
+    final int tableSize = 4 + byName.size() * TABLE_ENTRY_SIZE;
+    final ByteArrayOutputStream tableBytes = new ByteArrayOutputStream(tableSize);
+    final DataOutputStream table = new DataOutputStream(tableBytes);
+    final ByteArrayOutputStream dataBytes = new ByteArrayOutputStream();
+    final DataOutputStream data = new DataOutputStream(dataBytes);
+    table.writeInt(byName.size());
+    for (final Map.Entry<byte[], List<ConfigurationValue>> entry : byName.entrySet()) {
+      table.writeInt(tableSize + data.size());
+      data.writeInt(entry.getKey().length);
+      data.write(entry.getKey());
+      table.writeInt(tableSize + data.size());
+      final List<ConfigurationValue> nameValues = entry.getValue();
+      table.writeInt(nameValues.size());
+      for (final ConfigurationValue value : nameValues) {
+        writeString(data, String.valueOf(value.getSource()));
+        final Map<String, String> coordinates = value.getCoordinates();
+        data.writeInt(coordinates.size());
+        for (final Map.Entry<String, String> coordinate : coordinates.entrySet()) {
+          writeString(data, coordinate.getKey());
+          writeString(data, coordinate.getValue());
+        }
+        writeString(data, value.getValue());
+        data.writeBoolean(value.isAuthoritative());
+      }
+      if (data.size() < 0 || data.size() > Integer.MAX_VALUE - tableSize - HEADER_SIZE) {
+        throw new IOException("snapshot too large");
+      }
+    }
+    table.flush();
+    data.flush();
+    final byte[] body = new byte[tableSize + data.size()];
+    System.arraycopy(tableBytes.toByteArray(), 0, body, 0, tableSize);
+    System.arraycopy(dataBytes.toByteArray(), 0, body, tableSize, data.size());
+    return body;
+  }
+
+  /**
+   * Writes the supplied {@link String}, which may be {@code null}, as
+   * an {@code int} length followed by its UTF-8 encoding.
+   *
+   * @param out the {@link DataOutputStream} to write to; must not be
+   * {@code null}
+   *
+   * @param s the {@link String} to write; may be {@code null}
+   *
+   * @exception IOException if an error occurs while writing
+   */
+  private static final void writeString(final DataOutputStream out, final String s) throws IOException {
+    if (s == null) {
+      out.writeInt(-1);
+    } else {
+      final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+}
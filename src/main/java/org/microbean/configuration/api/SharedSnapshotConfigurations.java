@@ -0,0 +1,309 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2018 microBean.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.microbean.configuration.api;
+
+import java.io.IOException;
+
+import java.nio.charset.StandardCharsets;
+
+import java.nio.file.Path;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * An {@link AbstractConfigurations} that reads {@link
+ * ConfigurationValue}s in place from a memory-mapped snapshot file
+ * shared by every process on a host, so that the memory holding them
+ * is paid for once per host rather than once per process.
+ *
+ * <p>One process {@linkplain #publish(Path, Collection) publishes} a
+ * snapshot; any number of processes read it with instances of this
+ * class.  A reader notices a newly published snapshot on its next
+ * request, without re-fetching anything, and reports it by way of
+ * the {@link #configurationChanged()} method so that {@linkplain
+ * CachingConfigurations caches} built on top of it are
+ * invalidated.</p>
+ *
+ * <p>Selection follows the {@linkplain ConfigurationValueIndex
+ * rules} of the {@link ConfigurationValueIndex} class.  Only the
+ * {@link ConfigurationValue}s that are candidates for a request are
+ * decoded onto the heap, so a process that reads few configuration
+ * properties holds few of them.  Combining an instance of this class
+ * with a {@link CachingConfigurations} trades some of that per-host
+ * saving for speed on frequently requested values.</p>
+ *
+ * <p>A snapshot file is never changed in place: every snapshot is
+ * published as a new file that replaces the old one, and a reader
+ * verifies the CRC-32 of each file once, when it maps it.  The Java
+ * memory model makes no guarantees about memory-mapped files, so a
+ * reader may notice a newly published snapshot late, but it never
+ * reads a partly written one.</p>
+ *
+ * <p>Instances of this class are safe for concurrent use by multiple
+ * threads.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson"
+ * target="_parent">Laird Nelson</a>
+ *
+ * @see #publish(Path, Collection)
+ */
+public final class SharedSnapshotConfigurations extends AbstractConfigurations {
+
+
+  /*
+   * Instance fields.
+   */
+
+
+  /**
+   * The {@link Path} of the snapshot file.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final Path path;
+
+  /**
+   * The {@link SharedSnapshot} currently mapped.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private volatile SharedSnapshot snapshot;
+
+  /**
+   * The names in the current snapshot, or {@code null} if they have
+   * not been read since the snapshot last changed.
+   *
+   * <p>Writes to this field are guarded by {@code this}.</p>
+   *
+   * @see #getNames()
+   */
+  private volatile Set<String> names;
+
+
+  /*
+   * Constructors.
+   */
+
+
+  /**
+   * Creates a new {@link SharedSnapshotConfigurations} reading the
+   * snapshot file at the supplied {@link Path}.
+   *
+   * @param configurationCoordinates the configuration coordinates of
+   * the new {@link SharedSnapshotConfigurations}; may be {@code null}
+   *
+   * @param path the {@link Path} of a snapshot file previously
+   * {@linkplain #publish(Path, Collection) published}; must not be
+   * {@code null}
+   *
+   * @exception NullPointerException if {@code path} is {@code null}
+   *
+   * @exception IOException if the file could not be mapped, is not a
+   * snapshot file or is corrupt
+   */
+  public SharedSnapshotConfigurations(final Map<? extends String, ? extends String> configurationCoordinates, final Path path) throws IOException {
+    super(configurationCoordinates);
+    this.path = path.toAbsolutePath();
+    this.snapshot = SharedSnapshot.open(this.path);
+  }
+
+
+  /*
+   * Instance methods.
+   */
+
+
+  /**
+   * Returns the sequence of the snapshot most recently read by this
+   * {@link SharedSnapshotConfigurations}, which increases every time
+   * a snapshot is published.
+   *
+   * @return the sequence of the current snapshot
+   *
+   * @exception ConfigurationException if the snapshot could not be
+   * read
+   */
+  public final long getSequence() {
+    return this.getSnapshot().getSequence();
+  }
+
+  /**
+   * Returns the names of all configuration properties in the current
+   * snapshot.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return a non-{@code null}, immutable {@link Set} of names
+   *
+   * @exception ConfigurationException if the snapshot could not be
+   * read
+   */
+  @Override
+  public final Set<String> getNames() {
+    final SharedSnapshot snapshot = this.getSnapshot();
+    Set<String> names = this.names;
+    if (names == null) {
+      names = Collections.unmodifiableSet(new LinkedHashSet<>(snapshot.getNames()));
+      synchronized (this) {
+        if (this.snapshot == snapshot) {
+          this.names = names;
+        }
+      }
+    }
+    return names;
+  }
+
+  /**
+   * Returns the {@link ConfigurationValue} in the current snapshot
+   * most suitable for the supplied {@code configurationCoordinates}
+   * and {@code name}, or {@code null} if there is no such {@link
+   * ConfigurationValue}.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @param configurationCoordinates the configuration coordinates in
+   * effect for the request; may be {@code null}
+   *
+   * @param name the name of the configuration property; must not be
+   * {@code null}
+   *
+   * @return the selected {@link ConfigurationValue}, or {@code null}
+   *
+   * @exception NullPointerException if {@code name} is {@code null}
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable
+   *
+   * @exception ConfigurationException if the snapshot could not be
+   * read
+   */
+  @Override
+  public final ConfigurationValue getConfigurationValue(final Map<String, String> configurationCoordinates, final String name) {
+    final ConfigurationValue[] candidates = this.getSnapshot().getCandidates(configurationCoordinates, name, name.getBytes(StandardCharsets.UTF_8));
+    final int[] candidateIds = new int[candidates.length];
+    for (int i = 0; i < candidateIds.length; i++) {
+      candidateIds[i] = i;
+    }
+    return ConfigurationValueIndex.select(configurationCoordinates, name, candidates, candidateIds);
+  }
+
+  /**
+   * Returns {@code true}, since a change is reported as soon as a
+   * superseded snapshot is noticed, before any value is read from
+   * its replacement.
+   *
+   * @return {@code true}
+   */
+  @Override
+  protected final boolean isChangeReportingEnabled() {
+    return true;
+  }
+
+  /**
+   * Returns the {@link ConfigurationValue}s in the current snapshot
+   * that compete when a {@link ConfigurationValue} is {@linkplain
+   * #getConfigurationValue(Map, String) selected} for the supplied
+   * {@code configurationCoordinates} and {@code name}.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param configurationCoordinates the configuration coordinates in
+   * effect for the request; may be {@code null}
+   *
+   * @param name the name of the configuration property; must not be
+   * {@code null}
+   *
+   * @return an immutable {@link Collection} of {@link
+   * ConfigurationValue}s; never {@code null}
+   *
+   * @exception NullPointerException if {@code name} is {@code null}
+   *
+   * @exception ConfigurationException if the snapshot could not be
+   * read
+   */
+  @Override
+  final Collection<? extends ConfigurationValue> getCandidates(final Map<String, String> configurationCoordinates, final String name) {
+    return Collections.unmodifiableList(Arrays.asList(this.getSnapshot().getCandidates(configurationCoordinates, name, name.getBytes(StandardCharsets.UTF_8))));
+  }
+
+  /**
+   * Returns the {@link SharedSnapshot} to read, mapping the snapshot
+   * file afresh and reporting a {@linkplain #configurationChanged()
+   * change} if the current one has been superseded.
+   *
+   * @return a non-{@code null} {@link SharedSnapshot}
+   *
+   * @exception ConfigurationException if the snapshot file could not
+   * be mapped or is corrupt
+   */
+  private final SharedSnapshot getSnapshot() {
+    SharedSnapshot snapshot = this.snapshot;
+    if (snapshot.isSuperseded()) {
+      synchronized (this) {
+        snapshot = this.snapshot;
+        if (snapshot.isSuperseded()) {
+          try {
+            snapshot = SharedSnapshot.open(this.path);
+          } catch (final IOException ioException) {
+            throw new ConfigurationException(ioException.getMessage(), ioException);
+          }
+          this.snapshot = snapshot;
+          this.names = null;
+          this.configurationChanged();
+        }
+      }
+    }
+    return snapshot;
+  }
+
+
+  /*
+   * Static methods.
+   */
+
+
+  /**
+   * Publishes a snapshot of the supplied {@link ConfigurationValue}s
+   * to the file at the supplied {@link Path}, where it will be seen
+   * by every {@link SharedSnapshotConfigurations} reading that file.
+   *
+   * <p>Only one process at a time may publish to a given {@link
+   * Path}.  The new snapshot is written to a new file that then
+   * replaces the existing one.</p>
+   *
+   * @param path the {@link Path} of the snapshot file; must not be
+   * {@code null}
+   *
+   * @param values the {@link ConfigurationValue}s to publish; must
+   * not be {@code null}
+   *
+   * @exception NullPointerException if either parameter is {@code
+   * null}
+   *
+   * @exception IOException if an input/output error occurs
+   */
+  public static final void publish(final Path path, final Collection<? extends ConfigurationValue> values) throws IOException {
+    SharedSnapshot.publish(Objects.requireNonNull(path), Objects.requireNonNull(values));
+  }
+
+}
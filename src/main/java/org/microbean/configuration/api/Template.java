@@ -0,0 +1,312 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2018 microBean.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.microbean.configuration.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import java.util.function.Function;
+
+/**
+ * A configuration value parsed once into literal text and
+ * references to the values of other configuration properties, so
+ * that it can be expanded repeatedly without being parsed again.
+ *
+ * <p>A reference takes the form <code>${<em>name</em>}</code>, or
+ * <code>${<em>name</em>:<em>default</em>}</code>, in which case
+ * <em>default</em>, which may itself contain references, is
+ * expanded and used if there is no value for <em>name</em>.  The
+ * sequence <code>$${</code> stands for a literal <code>${</code>.
+ * A <code>${</code> without a matching <code>}</code>, and the
+ * sequence <code>${}</code>, are treated as literal text.</p>
+ *
+ * <p>Instances of this class are immutable and safe for concurrent
+ * use by multiple threads.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson"
+ * target="_parent">Laird Nelson</a>
+ *
+ * @see Configurations#interpolate()
+ */
+final class Template {
+
+
+  /*
+   * Instance fields.
+   */
+
+
+  /**
+   * The literal text before, between and after the references, of
+   * which there is always one more than there are references.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final String[] literals;
+
+  /**
+   * The names of the configuration properties referred to, in
+   * order.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final String[] names;
+
+  /**
+   * The {@link Template}s for the defaults of the references, in
+   * order, each of which may be {@code null} if its reference has no
+   * default.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final Template[] defaults;
+
+  /**
+   * The names of all the configuration properties referred to,
+   * including those referred to by defaults.
+   *
+   * <p>This field is never {@code null}.</p>
+   *
+   * @see #getNames()
+   */
+  private final Set<String> allNames;
+
+
+  /*
+   * Constructors.
+   */
+
+
+  /**
+   * Creates a new {@link Template}.
+   *
+   * @param literals the literal text before, between and after the
+   * references; must not be {@code null} and must contain one more
+   * element than {@code names}
+   *
+   * @param names the names of the configuration properties referred
+   * to; must not be {@code null}
+   *
+   * @param defaults the {@link Template}s for the defaults of the
+   * references; must not be {@code null} and must contain as many
+   * elements, which may be {@code null}, as {@code names}
+   */
+  private Template(final List<String> literals, final List<String> names, final List<Template> defaults) {
+    super();
+    this.literals = literals.toArray(new String[literals.size()]);
+    this.names = names.toArray(new String[names.size()]);
+    this.defaults = defaults.toArray(new Template[defaults.size()]);
+    if (this.names.length == 0) {
+      this.allNames = Collections.emptySet();
+    } else {
+      final Set<String> allNames = new LinkedHashSet<>();
+      for (int i = 0; i < this.names.length; i++) {
+        allNames.add(this.names[i]);
+        if (this.defaults[i] != null) {
+          allNames.addAll(this.defaults[i].allNames);
+        }
+      }
+      this.allNames = Collections.unmodifiableSet(allNames);
+    }
+  }
+
+
+  /*
+   * Instance methods.
+   */
+
+
+  /**
+   * Returns {@code true} if this {@link Template} contains no
+   * references, and so always expands to the same text.
+   *
+   * @return {@code true} if this {@link Template} contains no
+   * references
+   */
+  final boolean isConstant() {
+    return this.names.length == 0;
+  }
+
+  /**
+   * Returns an immutable {@link Set} of the names of all the
+   * configuration properties referred to by this {@link Template},
+   * including those referred to by the defaults of its references.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return a non-{@code null}, immutable {@link Set} of names
+   */
+  final Set<String> getNames() {
+    return this.allNames;
+  }
+
+  /**
+   * Expands this {@link Template}, replacing each reference with the
+   * value that the supplied {@code resolver} returns for its name, or
+   * with its expanded default if the {@code resolver} returns {@code
+   * null}.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param resolver a {@link Function} returning the expanded value
+   * of the configuration property with a given name, or {@code null}
+   * if it has no value; must not be {@code null}
+   *
+   * @param name the name of the configuration property whose value
+   * this {@link Template} represents, used in error messages; may be
+   * {@code null}
+   *
+   * @return the expanded text; never {@code null}
+   *
+   * @exception ConfigurationException if a reference without a
+   * default refers to a configuration property that has no value, or
+   * if the {@code resolver} throws one
+   */
+  final String expand(final Function<? super String, ? extends String> resolver, final String name) {
+    if (this.names.length == 0) {
+      return this.literals[0];
+    }
+    final StringBuilder sb = new StringBuilder(this.literals[0]);
+    for (int i = 0; i < this.names.length; i++) {
+      String value = resolver.apply(this.names[i]);
+      if (value == null) {
+        if (this.defaults[i] == null) {
+          throw new ConfigurationException("No value for ${" + this.names[i] + "}" + (name == null ? "" : " referred to by " + name));
+        }
+        value = this.defaults[i].expand(resolver, name);
+      }
+      sb.append(value).append(this.literals[i + 1]);
+    }
+    return sb.toString();
+  }
+
+
+  /*
+   * Static methods.
+   */
+
+
+  /**
+   * Parses the supplied {@code text} into a {@link Template}.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param text the text to parse; must not be {@code null}
+   *
+   * @return a non-{@code null} {@link Template}
+   *
+   * @exception NullPointerException if {@code text} is {@code null}
+   */
+  static final Template compile(final String text) {
+    final List<String> literals = new ArrayList<>();
+    final List<String> names = new ArrayList<>();
+    final List<Template> defaults = new ArrayList<>();
+    final StringBuilder literal = new StringBuilder();
+    final int length = text.length();
+    int i = 0;
+    while (i < length) {
+      final char c = text.charAt(i);
+      if (c == '$' && i + 2 < length && text.charAt(i + 1) == '$' && text.charAt(i + 2) == '{') {
+        literal.append("${");
+        i += 3;
+      } else if (c == '$' && i + 1 < length && text.charAt(i + 1) == '{') {
+        final int end = close(text, i + 2);
+        if (end < 0) {
+          // No matching brace; the rest is literal.
+          literal.append(text, i, length);
+          break;
+        }
+        final int colon = separator(text, i + 2, end);
+        final String name = text.substring(i + 2, colon < 0 ? end : colon);
+        if (name.isEmpty()) {
+          literal.append(text, i, end + 1);
+        } else {
+          literals.add(literal.toString());
+          literal.setLength(0);
+          names.add(name);
+          defaults.add(colon < 0 ? null : compile(text.substring(colon + 1, end)));
+        }
+        i = end + 1;
+      } else {
+        literal.append(c);
+        i++;
+      }
+    }
+    literals.add(literal.toString());
+    return new Template(literals, names, defaults);
+  }
+
+  /**
+   * Returns the index of the <code>}</code> that closes a reference
+   * whose body begins at the supplied {@code start} index, taking
+   * nested references into account, or {@code -1} if there is none.
+   *
+   * @param text the text; must not be {@code null}
+   *
+   * @param start the index at which the body of the reference
+   * begins
+   *
+   * @return the index of the closing brace, or {@code -1}
+   */
+  private static final int close(final String text, final int start) {
+    int depth = 1;
+    final int length = text.length();
+    for (int i = start; i < length; i++) {
+      final char c = text.charAt(i);
+      if (c == '$' && i + 1 < length && text.charAt(i + 1) == '{') {
+        depth++;
+        i++;
+      } else if (c == '}' && --depth == 0) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the index of the first <code>:</code> between the
+   * supplied {@code start} and {@code end} indices that is not inside
+   * a nested reference, or {@code -1} if there is none.
+   *
+   * @param text the text; must not be {@code null}
+   *
+   * @param start the index at which to start looking
+   *
+   * @param end the index at which to stop looking
+   *
+   * @return the index of the separator, or {@code -1}
+   */
+  private static final int separator(final String text, final int start, final int end) {
+    int depth = 0;
+    for (int i = start; i < end; i++) {
+      final char c = text.charAt(i);
+      if (c == '$' && i + 1 < end && text.charAt(i + 1) == '{') {
+        depth++;
+        i++;
+      } else if (c == '}') {
+        depth--;
+      } else if (c == ':' && depth == 0) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+}
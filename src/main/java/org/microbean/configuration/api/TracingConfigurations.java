@@ -0,0 +1,217 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2018 microBean.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.microbean.configuration.api;
+
+import java.lang.reflect.Type;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A {@link Configurations} that passes every request through to a
+ * delegate {@link Configurations} and records a {@linkplain
+ * LookupTracer.Trace trace} of a sampled fraction of conversion
+ * requests in a {@link LookupTracer}.
+ *
+ * <p>Instances of this class are safe for concurrent use by multiple
+ * threads.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson"
+ * target="_parent">Laird Nelson</a>
+ *
+ * @see LookupTracer#trace(Configurations)
+ */
+final class TracingConfigurations extends ForwardingConfigurations {
+
+
+  /*
+   * Instance fields.
+   */
+
+
+  /**
+   * The {@link LookupTracer} in which sampled requests are traced.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final LookupTracer tracer;
+
+
+  /*
+   * Constructors.
+   */
+
+
+  /**
+   * Creates a new {@link TracingConfigurations}.
+   *
+   * @param delegate the {@link Configurations} to which requests will
+   * be passed; must not be {@code null}
+   *
+   * @param tracer the {@link LookupTracer} in which sampled requests
+   * will be traced; must not be {@code null}
+   *
+   * @exception NullPointerException if either parameter is {@code
+   * null}
+   */
+  TracingConfigurations(final Configurations delegate, final LookupTracer tracer) {
+    super(delegate);
+    this.tracer = Objects.requireNonNull(tracer);
+  }
+
+
+  /*
+   * Instance methods.
+   */
+
+
+  /**
+   * Returns a new {@link TracingConfigurations} that traces requests with the same {@link LookupTracer}
+   * and passes them through to the supplied {@code delegate}.
+   *
+   * @param delegate the {@link Configurations} to which requests will
+   * be passed; must not be {@code null}
+   *
+   * @return a new {@link TracingConfigurations}
+   *
+   * @exception NullPointerException if {@code delegate} is {@code
+   * null}
+   */
+  @Override
+  protected final Configurations withDelegate(final Configurations delegate) {
+    return new TracingConfigurations(delegate, this.tracer);
+  }
+
+  /**
+   * Returns the result of calling the {@link Configurations#getValue(Map,
+   * String, Type, String)} method on the delegate, tracing the
+   * request in the {@link LookupTracer} if it is {@linkplain
+   * LookupTracer#sample() sampled}.
+   *
+   * <p>A sampled request returns exactly what a request that is not
+   * sampled returns, since both are answered by the delegate's {@link
+   * Configurations#getValue(Map, String, Type, String)} method.  A
+   * sampled request additionally asks the delegate for the
+   * {@linkplain Configurations#getConfigurationValue(Map, String)
+   * selected <code>ConfigurationValue</code>}, timing selection, and
+   * for the {@link ConfigurationValue}s that competed for selection,
+   * so sampled requests are somewhat slower than requests that are
+   * not sampled.  The time recorded for conversion is the time the
+   * delegate's {@link Configurations#getValue(Map, String, Type,
+   * String)} method took beyond that of selection alone.</p>
+   *
+   * @param <T> the type to which a {@link String}-typed configuration
+   * value should be converted
+   *
+   * @param configurationCoordinates a {@link Map} representing the
+   * configuration coordinates in effect for this request; may be
+   * {@code null}
+   *
+   * @param name the name of the configuration property for which a
+   * value will be returned; must not be {@code null}
+   *
+   * @param type a {@link Type} representing the type to which the
+   * configuration value will be converted; must not be {@code null}
+   *
+   * @param defaultValue the value that will be converted and returned
+   * if {@code null} would otherwise be returned; may be {@code null}
+   *
+   * @return the configuration value, or {@code null}
+   *
+   * @exception NullPointerException if {@code name} or {@code type}
+   * is {@code null}
+   *
+   * @exception ConversionException if type conversion could not occur
+   * for any reason
+   *
+   * @exception AmbiguousConfigurationValuesException if two or more
+   * values were found that could be suitable
+   */
+  @Override
+  public final <T> T getValue(final Map<String, String> configurationCoordinates, final String name, final Type type, final String defaultValue) {
+    if (name == null || type == null || !this.tracer.sample()) {
+      return this.getDelegate().getValue(configurationCoordinates, name, type, defaultValue);
+    }
+    final Configurations delegate = this.getDelegate();
+    final long start = System.nanoTime();
+    ConfigurationValue winner = null;
+    Collection<? extends ConfigurationValue> candidates = null;
+    try {
+      winner = delegate.getConfigurationValue(configurationCoordinates, name);
+    } catch (final AmbiguousConfigurationValuesException ambiguous) {
+      candidates = ambiguous.getValues();
+    }
+    final long selected = System.nanoTime();
+    final T returnValue;
+    try {
+      returnValue = delegate.getValue(configurationCoordinates, name, type, defaultValue);
+    } catch (final AmbiguousConfigurationValuesException ambiguous) {
+      this.tracer.add(configurationCoordinates, name, type, Resolution.Status.AMBIGUOUS, null, ambiguous.getValues(), selected - start, 0L);
+      throw ambiguous;
+    } catch (final ConversionException conversionException) {
+      final long converted = System.nanoTime();
+      this.tracer.add(configurationCoordinates, name, type, Resolution.Status.CONVERSION_FAILED, winner, delegate.getCandidates(configurationCoordinates, name), selected - start, conversionNanos(start, selected, converted));
+      throw conversionException;
+    }
+    final long converted = System.nanoTime();
+    final Resolution.Status status;
+    if (returnValue == null) {
+      status = Resolution.Status.NOT_FOUND;
+    } else if (winner == null || winner.getValue() == null) {
+      status = Resolution.Status.DEFAULTED;
+    } else {
+      status = Resolution.Status.FOUND;
+    }
+    if (candidates == null) {
+      candidates = delegate.getCandidates(configurationCoordinates, name);
+    }
+    this.tracer.add(configurationCoordinates, name, type, status, winner, candidates, selected - start, conversionNanos(start, selected, converted));
+    return returnValue;
+  }
+
+
+  /*
+   * Static methods.
+   */
+
+
+  /**
+   * Returns the time, in nanoseconds, that a call to the delegate's
+   * {@link Configurations#getValue(Map, String, Type, String)} method
+   * that ended at {@code converted} took beyond the time that
+   * selection alone took between {@code start} and {@code selected}.
+   *
+   * @param start the value of {@link System#nanoTime()} before
+   * selection
+   *
+   * @param selected the value of {@link System#nanoTime()} after
+   * selection, and before the call to the delegate's {@link
+   * Configurations#getValue(Map, String, Type, String)} method
+   *
+   * @param converted the value of {@link System#nanoTime()} after the
+   * call to the delegate's {@link Configurations#getValue(Map, String,
+   * Type, String)} method
+   *
+   * @return the estimated time taken by conversion, in nanoseconds;
+   * never negative
+   */
+  private static final long conversionNanos(final long start, final long selected, final long converted) {
+    return Math.max(0L, (converted - selected) - (selected - start));
+  }
+
+}
@@ -0,0 +1,344 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2018 microBean.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.microbean.configuration.api;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A benchmark that measures the heap footprint of {@link
+ * ConfigurationValue}s and of the {@link ConfigurationValueIndex}
+ * built over them, and the effect of keeping them reachable on
+ * garbage collection pauses.
+ *
+ * <p>For each of 10,000, 100,000 and 1,000,000 {@link
+ * ConfigurationValue}s, the {@link #main(String[])} method
+ * reports:</p>
+ *
+ * <ul>
+ *
+ * <li>the retained heap per {@link ConfigurationValue},</li>
+ *
+ * <li>the additional retained heap per {@link ConfigurationValue}
+ * of a {@link ConfigurationValueIndex} over them, and</li>
+ *
+ * <li>the time spent in, and number of, garbage collections while
+ * a fixed amount of short-lived garbage is allocated with the {@link
+ * ConfigurationValue}s and their {@link ConfigurationValueIndex}
+ * reachable, and the duration of an explicit full collection,
+ * each beside the same measurement made with nothing reachable.</li>
+ *
+ * </ul>
+ *
+ * <p>The {@link ConfigurationValue}s are given a realistic
+ * distribution of configuration coordinates: each configuration
+ * property name has an unqualified default value, a value for each
+ * of two environments, and a value for one region of the production
+ * environment.  Retained heap is measured as the difference in used
+ * heap after repeated collections, so this benchmark should be run
+ * with a fixed heap size (for example, {@code -Xms4g -Xmx4g}) and
+ * with nothing else running in the virtual machine.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson"
+ * target="_parent">Laird Nelson</a>
+ *
+ * @see #main(String[])
+ */
+public final class FootprintBenchmark {
+
+
+  /*
+   * Static fields.
+   */
+
+
+  /**
+   * The numbers of {@link ConfigurationValue}s measured.
+   */
+  private static final int[] SIZES = { 10_000, 100_000, 1_000_000 };
+
+  /**
+   * The number of {@link ConfigurationValue}s created for each
+   * configuration property name.
+   *
+   * @see #createValues(int)
+   */
+  private static final int VALUES_PER_NAME = 4;
+
+  /**
+   * The regions to which {@link ConfigurationValue}s may be
+   * qualified.
+   */
+  private static final String[] REGIONS = { "us-east", "us-west", "eu-west", "ap-south" };
+
+  /**
+   * The number of bytes of short-lived garbage allocated when
+   * measuring garbage collection pauses.
+   */
+  private static final long CHURN_BYTES = 8L * 1024L * 1024L * 1024L;
+
+  /**
+   * A sink for allocated garbage, so that its allocation is not
+   * eliminated.
+   */
+  private static volatile Object sink;
+
+
+  /*
+   * Constructors.
+   */
+
+
+  /**
+   * Creates a new {@link FootprintBenchmark}.
+   */
+  private FootprintBenchmark() {
+    super();
+  }
+
+
+  /*
+   * Static methods.
+   */
+
+
+  /**
+   * Runs this benchmark and prints its results.
+   *
+   * @param arguments the numbers of {@link ConfigurationValue}s to
+   * measure; if empty, 10,000, 100,000 and 1,000,000 are measured;
+   * must not be {@code null}
+   */
+  public static final void main(final String[] arguments) {
+    final int[] sizes;
+    if (arguments.length == 0) {
+      sizes = SIZES;
+    } else {
+      sizes = new int[arguments.length];
+      for (int i = 0; i < arguments.length; i++) {
+        sizes[i] = Integer.parseInt(arguments[i]);
+      }
+    }
+    final GcSample emptyChurn = churn();
+    final long emptyFullGcMillis = fullGcMillis();
+    System.out.println(String.format("%10s %14s %14s %14s %14s %14s",
+                                     "values", "value B/value", "index B/value", "churn gc ms", "churn gcs", "full gc ms"));
+    System.out.println(String.format("%10d %14s %14s %14d %14d %14d",
+                                     0, "-", "-", emptyChurn.millis, emptyChurn.count, emptyFullGcMillis));
+    for (final int size : sizes) {
+      final long baseline = usedHeap();
+      List<ConfigurationValue> values = createValues(size);
+      final long valuesHeap = usedHeap() - baseline;
+      ConfigurationValueIndex index = new ConfigurationValueIndex(values);
+      final long indexHeap = usedHeap() - baseline - valuesHeap;
+      final GcSample retainedChurn = churn();
+      final long retainedFullGcMillis = fullGcMillis();
+      if (index.size() != values.size()) {
+        throw new AssertionError();
+      }
+      System.out.println(String.format("%10d %14.1f %14.1f %14d %14d %14d",
+                                       size,
+                                       (double)valuesHeap / size,
+                                       (double)indexHeap / size,
+                                       retainedChurn.millis,
+                                       retainedChurn.count,
+                                       retainedFullGcMillis));
+      values = null;
+      index = null;
+    }
+  }
+
+  /**
+   * Creates the supplied number of {@link ConfigurationValue}s with
+   * a realistic distribution of configuration coordinates.
+   *
+   * @param size the number of {@link ConfigurationValue}s to create;
+   * must not be negative
+   *
+   * @return a new {@link List} of {@link ConfigurationValue}s; never
+   * {@code null}
+   */
+  private static final List<ConfigurationValue> createValues(final int size) {
+    final Random random = new Random(size);
+    final List<ConfigurationValue> values = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      final int nameIndex = i / VALUES_PER_NAME;
+      final String name = "service" + (nameIndex % 100) + ".component" + (nameIndex / 100) + ".setting";
+      final Map<String, String> coordinates;
+      switch (i % VALUES_PER_NAME) {
+      case 0:
+        coordinates = null;
+        break;
+      case 1:
+        coordinates = new HashMap<>();
+        coordinates.put("env", "dev");
+        break;
+      case 2:
+        coordinates = new HashMap<>();
+        coordinates.put("env", "prod");
+        break;
+      default:
+        coordinates = new HashMap<>();
+        coordinates.put("env", "prod");
+        coordinates.put("region", REGIONS[nameIndex % REGIONS.length]);
+        break;
+      }
+      final String value;
+      switch (random.nextInt(3)) {
+      case 0:
+        value = Integer.toString(random.nextInt(10_000));
+        break;
+      case 1:
+        value = Boolean.toString(random.nextBoolean());
+        break;
+      default:
+        value = "https://" + name + ".example.com:" + (8000 + random.nextInt(1000)) + "/";
+        break;
+      }
+      values.add(new ConfigurationValue("benchmark", coordinates, name, value, false));
+    }
+    return values;
+  }
+
+  /**
+   * Allocates {@link #CHURN_BYTES} bytes of short-lived garbage and
+   * returns the time spent in, and number of, garbage collections
+   * while doing so.
+   *
+   * @return a new {@link GcSample}; never {@code null}
+   */
+  private static final GcSample churn() {
+    usedHeap();
+    final long startMillis = gcMillis();
+    final long startCount = gcCount();
+    for (long allocated = 0L; allocated < CHURN_BYTES; allocated += 1024L) {
+      sink = new byte[1024 - 16];
+    }
+    sink = null;
+    return new GcSample(gcMillis() - startMillis, gcCount() - startCount);
+  }
+
+  /**
+   * Performs a full garbage collection and returns its duration in
+   * milliseconds.
+   *
+   * @return the duration of a full garbage collection in
+   * milliseconds
+   */
+  private static final long fullGcMillis() {
+    usedHeap();
+    final long start = System.nanoTime();
+    System.gc();
+    return (System.nanoTime() - start) / 1_000_000L;
+  }
+
+  /**
+   * Collects garbage until used heap stops shrinking and returns it.
+   *
+   * @return the number of bytes of used heap
+   */
+  private static final long usedHeap() {
+    final MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+    long used = Long.MAX_VALUE;
+    for (int i = 0; i < 10; i++) {
+      System.gc();
+      final long newUsed = memoryMXBean.getHeapMemoryUsage().getUsed();
+      if (newUsed >= used) {
+        return newUsed;
+      }
+      used = newUsed;
+    }
+    return used;
+  }
+
+  /**
+   * Returns the total time spent in garbage collection, in
+   * milliseconds, by all garbage collectors.
+   *
+   * @return the total time spent in garbage collection
+   */
+  private static final long gcMillis() {
+    long millis = 0L;
+    for (final GarbageCollectorMXBean garbageCollectorMXBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+      millis += Math.max(0L, garbageCollectorMXBean.getCollectionTime());
+    }
+    return millis;
+  }
+
+  /**
+   * Returns the total number of garbage collections performed by all
+   * garbage collectors.
+   *
+   * @return the total number of garbage collections
+   */
+  private static final long gcCount() {
+    long count = 0L;
+    for (final GarbageCollectorMXBean garbageCollectorMXBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+      count += Math.max(0L, garbageCollectorMXBean.getCollectionCount());
+    }
+    return count;
+  }
+
+
+  /*
+   * Inner and nested classes.
+   */
+
+
+  /**
+   * The time spent in, and number of, garbage collections during a
+   * measurement.
+   *
+   * @author <a href="https://about.me/lairdnelson"
+   * target="_parent">Laird Nelson</a>
+   */
+  private static final class GcSample {
+
+    /**
+     * The time spent in garbage collections, in milliseconds.
+     */
+    private final long millis;
+
+    /**
+     * The number of garbage collections.
+     */
+    private final long count;
+
+    /**
+     * Creates a new {@link GcSample}.
+     *
+     * @param millis the time spent in garbage collections, in
+     * milliseconds
+     *
+     * @param count the number of garbage collections
+     */
+    private GcSample(final long millis, final long count) {
+      super();
+      this.millis = millis;
+      this.count = count;
+    }
+
+  }
+
+}
@@ -0,0 +1,321 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2018 microBean.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.microbean.configuration.api;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A configuration store, listening on the loopback interface, that
+ * answers requests from {@link RemoteConfigurations} by consulting a
+ * {@link ConfigurationValueIndex}, so that {@link
+ * RemoteConfigurations} can be tested and benchmarked without any
+ * external service.
+ *
+ * <p>Each connection is served by its own thread, which answers
+ * requests in the order they arrive and flushes its responses only
+ * when no further requests are buffered, so that a pipelined batch
+ * of requests is answered by a batch of responses.</p>
+ *
+ * <p>Instances of this class are safe for concurrent use by multiple
+ * threads.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson"
+ * target="_parent">Laird Nelson</a>
+ *
+ * @see RemoteConfigurations
+ */
+final class LoopbackConfigurationServer implements Closeable {
+
+
+  /*
+   * Instance fields.
+   */
+
+
+  /**
+   * The {@link ServerSocket} accepting connections.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final ServerSocket serverSocket;
+
+  /**
+   * The {@link Socket}s of the connections being served.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final Set<Socket> sockets;
+
+  /**
+   * The number of requests answered.
+   *
+   * <p>This field is never {@code null}.</p>
+   */
+  private final LongAdder requestCount;
+
+  /**
+   * The {@link ConfigurationValueIndex} consulted to answer requests.
+   *
+   * <p>This field is never {@code null}.</p>
+   *
+   * @see #setConfigurationValueIndex(ConfigurationValueIndex)
+   */
+  private volatile ConfigurationValueIndex index;
+
+
+  /*
+   * Constructors.
+   */
+
+
+  /**
+   * Creates a new {@link LoopbackConfigurationServer} listening on an
+   * ephemeral port of the loopback interface.
+   *
+   * @param index the {@link ConfigurationValueIndex} to consult; must
+   * not be {@code null}
+   *
+   * @exception NullPointerException if {@code index} is {@code null}
+   *
+   * @exception IOException if the server could not be started
+   *
+   * @see #getAddress()
+   */
+  public LoopbackConfigurationServer(final ConfigurationValueIndex index) throws IOException {
+    super();
+    this.index = Objects.requireNonNull(index);
+    this.sockets = ConcurrentHashMap.newKeySet();
+    this.requestCount = new LongAdder();
+    this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+    final Thread acceptor = new Thread(this::accept, "LoopbackConfigurationServer acceptor (" + this.getAddress() + ")");
+    acceptor.setDaemon(true);
+    acceptor.start();
+  }
+
+
+  /*
+   * Instance methods.
+   */
+
+
+  /**
+   * Returns the address on which this {@link
+   * LoopbackConfigurationServer} is listening.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return a non-{@code null} {@link InetSocketAddress}
+   */
+  public final InetSocketAddress getAddress() {
+    return (InetSocketAddress)this.serverSocket.getLocalSocketAddress();
+  }
+
+  /**
+   * Returns the {@link ConfigurationValueIndex} consulted to answer
+   * requests.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return a non-{@code null} {@link ConfigurationValueIndex}
+   */
+  public final ConfigurationValueIndex getConfigurationValueIndex() {
+    return this.index;
+  }
+
+  /**
+   * Replaces the {@link ConfigurationValueIndex} consulted to answer
+   * requests, simulating a change in the store.
+   *
+   * @param index the new {@link ConfigurationValueIndex}; must not be
+   * {@code null}
+   *
+   * @exception NullPointerException if {@code index} is {@code null}
+   */
+  public final void setConfigurationValueIndex(final ConfigurationValueIndex index) {
+    this.index = Objects.requireNonNull(index);
+  }
+
+  /**
+   * Returns the number of requests this {@link
+   * LoopbackConfigurationServer} has answered, which is useful for
+   * verifying that concurrent identical requests were deduplicated.
+   *
+   * @return the number of requests answered
+   */
+  public final long getRequestCount() {
+    return this.requestCount.sum();
+  }
+
+  /**
+   * Stops accepting connections and closes every connection being
+   * served.
+   *
+   * @exception IOException if an error occurs while closing
+   */
+  @Override
+  public final void close() throws IOException {
+    IOException ioException = null;
+    try {
+      this.serverSocket.close();
+    } catch (final IOException e) {
+      ioException = e;
+    }
+    for (final Socket socket : new ArrayList<>(this.sockets)) {
+      try {
+        socket.close();
+      } catch (final IOException e) {
+        if (ioException == null) {
+          ioException = e;
+        } else {
+          ioException.addSuppressed(e);
+        }
+      }
+    }
+    if (ioException != null) {
+      throw ioException;
+    }
+  }
+
+  /**
+   * Accepts connections, serving each on its own thread, until this
+   * {@link LoopbackConfigurationServer} is closed.
+   */
+  private final void accept() {
+    while (!this.serverSocket.isClosed()) {
+      final Socket socket;
+      try {
+        socket = this.serverSocket.accept();
+      } catch (final IOException closed) {
+        break;
+      }
+      this.sockets.add(socket);
+      final Thread connection = new Thread(() -> this.serve(socket), "LoopbackConfigurationServer connection (" + socket.getRemoteSocketAddress() + ")");
+      connection.setDaemon(true);
+      connection.start();
+    }
+  }
+
+  /**
+   * Answers requests arriving on the supplied {@link Socket} until it
+   * is closed.
+   *
+   * @param socket the {@link Socket} to serve; must not be {@code
+   * null}
+   */
+  private final void serve(final Socket socket) {
+    try {
+      socket.setTcpNoDelay(true);
+      final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+      while (true) {
+        final int id = in.readInt();
+        final byte op = in.readByte();
+        switch (op) {
+        case RemoteProtocol.GET:
+          final Map<String, String> configurationCoordinates = RemoteProtocol.readCoordinates(in);
+          final String name = RemoteProtocol.readString(in);
+          this.answer(out, id, configurationCoordinates, name);
+          break;
+        case RemoteProtocol.NAMES:
+          out.writeInt(id);
+          out.writeByte(RemoteProtocol.NAMES);
+          RemoteProtocol.writeStrings(out, this.index.getNames());
+          break;
+        default:
+          throw new StreamCorruptedException("op: " + op);
+        }
+        this.requestCount.increment();
+        if (in.available() <= 0) {
+          out.flush();
+        }
+      }
+    } catch (final EOFException eof) {
+      // the client closed the connection
+    } catch (final IOException ioException) {
+      // the connection failed or this server was closed
+    } finally {
+      this.sockets.remove(socket);
+      try {
+        socket.close();
+      } catch (final IOException ignore) {
+        // the connection is finished with either way
+      }
+    }
+  }
+
+  /**
+   * Writes the response to a {@link RemoteProtocol#GET} request.
+   *
+   * @param out the {@link DataOutputStream} to write to; must not be
+   * {@code null}
+   *
+   * @param id the identifier of the request
+   *
+   * @param configurationCoordinates the configuration coordinates of
+   * the request; may be {@code null}
+   *
+   * @param name the name of the request; may be {@code null}
+   *
+   * @exception IOException if an error occurs while writing
+   */
+  private final void answer(final DataOutputStream out, final int id, final Map<String, String> configurationCoordinates, final String name) throws IOException {
+    out.writeInt(id);
+    if (name == null) {
+      out.writeByte(RemoteProtocol.ERROR);
+      RemoteProtocol.writeString(out, "null name");
+      return;
+    }
+    final Resolution<String> resolution = this.index.resolve(configurationCoordinates, name);
+    switch (resolution.getStatus()) {
+    case AMBIGUOUS:
+      out.writeByte(RemoteProtocol.AMBIGUOUS);
+      RemoteProtocol.writeConfigurationValues(out, resolution.getCompetingValues());
+      break;
+    default:
+      final ConfigurationValue configurationValue = resolution.getConfigurationValue();
+      if (configurationValue == null) {
+        out.writeByte(RemoteProtocol.NOT_FOUND);
+      } else {
+        out.writeByte(RemoteProtocol.FOUND);
+        RemoteProtocol.writeConfigurationValue(out, configurationValue);
+      }
+      break;
+    }
+  }
+
+}
@@ -0,0 +1,407 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2018 microBean.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.microbean.configuration.api;
+
+import java.io.IOException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * A <a href="https://openjdk.org/projects/code-tools/jmh/">JMH</a>
+ * benchmark that measures the throughput and latency of {@link
+ * Configurations#getValue(Map, String, java.lang.reflect.Type,
+ * String)} against the reference providers while another thread
+ * continuously reloads them, so that lock contention between
+ * lookups and reloads shows up as a failure to scale.
+ *
+ * <p>Each trial runs one reloading thread alongside a number of
+ * looking-up threads.  The {@link #main(String[])} method runs a
+ * trial for each of 1, 2, 4, 8, 16, 32 and 64 looking-up threads and
+ * prints, for each provider, the scalability curve: lookup
+ * throughput and 99th and 99.9th percentile lookup latency against
+ * the number of looking-up threads.  It accepts the usual JMH
+ * command line options, so that, for example, {@code -p
+ * provider=caching} restricts it to one provider.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson"
+ * target="_parent">Laird Nelson</a>
+ *
+ * @see #main(String[])
+ */
+@State(Scope.Group)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScalabilityBenchmark {
+
+
+  /*
+   * Static fields.
+   */
+
+
+  /**
+   * The number of configuration properties each provider holds.
+   */
+  private static final int NAME_COUNT = 1000;
+
+  /**
+   * The configuration coordinates of every lookup made of a provider
+   * whose values have configuration coordinates.
+   */
+  private static final Map<String, String> COORDINATES = ScopedCoordinates.intern(coordinates("prod", "eu"));
+
+
+  /*
+   * Instance fields.
+   */
+
+
+  /**
+   * The provider being measured: {@code environment} for an {@link
+   * EnvironmentConfigurations}, {@code caching} for a {@link
+   * CachingConfigurations} in front of one, {@code bound} for one
+   * {@linkplain Configurations#bind() bound} to its configuration
+   * coordinates, or {@code shared} for a {@link
+   * SharedSnapshotConfigurations}.
+   */
+  @Param({ "environment", "caching", "bound", "shared" })
+  public String provider;
+
+  /**
+   * The names of the configuration properties, looked up in turn.
+   */
+  private String[] names;
+
+  /**
+   * The environment variables currently returned to the {@link
+   * EnvironmentConfigurations} when it is {@linkplain
+   * EnvironmentConfigurations#refresh() refreshed}.
+   */
+  private volatile Map<String, String> environment;
+
+  /**
+   * The {@link EnvironmentConfigurations} that is reloaded, if the
+   * {@linkplain #provider provider} is not {@code shared}.
+   */
+  private EnvironmentConfigurations environmentConfigurations;
+
+  /**
+   * The snapshot file that is reloaded, if the {@linkplain #provider
+   * provider} is {@code shared}.
+   */
+  private Path snapshotPath;
+
+  /**
+   * The {@link ConfigurationValue}s most recently published to the
+   * {@linkplain #snapshotPath snapshot file}.
+   */
+  private List<ConfigurationValue> snapshotValues;
+
+  /**
+   * The {@link Configurations} being measured.
+   */
+  private Configurations configurations;
+
+  /**
+   * The configuration coordinates of every lookup.
+   */
+  private Map<String, String> lookupCoordinates;
+
+  /**
+   * The number of reloads performed, used to give each reload a
+   * different value.
+   */
+  private int reloadCount;
+
+
+  /*
+   * Constructors.
+   */
+
+
+  /**
+   * Creates a new {@link ScalabilityBenchmark}.
+   */
+  public ScalabilityBenchmark() {
+    super();
+  }
+
+
+  /*
+   * Instance methods.
+   */
+
+
+  /**
+   * Creates the {@linkplain #provider provider} being measured.
+   *
+   * @exception IOException if the snapshot file could not be created
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    this.names = new String[NAME_COUNT];
+    for (int i = 0; i < NAME_COUNT; i++) {
+      this.names[i] = "KEY_" + i;
+    }
+    if ("shared".equals(this.provider)) {
+      this.snapshotPath = Files.createTempFile(ScalabilityBenchmark.class.getSimpleName(), ".snapshot");
+      this.snapshotValues = new ArrayList<>(NAME_COUNT * 2);
+      for (int i = 0; i < NAME_COUNT; i++) {
+        this.snapshotValues.add(new ConfigurationValue("benchmark", null, this.names[i], Integer.toString(i), false));
+        this.snapshotValues.add(new ConfigurationValue("benchmark", coordinates("prod", "eu"), this.names[i], Integer.toString(i), false));
+      }
+      SharedSnapshotConfigurations.publish(this.snapshotPath, this.snapshotValues);
+      this.configurations = new SharedSnapshotConfigurations(null, this.snapshotPath);
+      this.lookupCoordinates = COORDINATES;
+      return;
+    }
+    final Map<String, String> environment = new HashMap<>();
+    for (int i = 0; i < NAME_COUNT; i++) {
+      environment.put(this.names[i], Integer.toString(i));
+    }
+    this.environment = environment;
+    this.environmentConfigurations = new EnvironmentConfigurations(null, () -> this.environment, Properties::new);
+    switch (this.provider) {
+    case "environment":
+      this.configurations = this.environmentConfigurations;
+      break;
+    case "caching":
+      this.configurations = new CachingConfigurations(this.environmentConfigurations, null, NAME_COUNT * 2L);
+      break;
+    case "bound":
+      this.configurations = this.environmentConfigurations.bind();
+      break;
+    default:
+      throw new IllegalArgumentException("provider: " + this.provider);
+    }
+    this.lookupCoordinates = this.configurations.getConfigurationCoordinates();
+  }
+
+  /**
+   * Deletes the snapshot file, if there is one.
+   *
+   * @exception IOException if the snapshot file could not be deleted
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    if (this.snapshotPath != null) {
+      Files.deleteIfExists(this.snapshotPath);
+    }
+  }
+
+  /**
+   * Looks up the next configuration property, converting its value
+   * to an {@link Integer}.
+   *
+   * @param cursor the per-thread {@link Cursor} selecting the name
+   * to look up; must not be {@code null}
+   *
+   * @return the value
+   */
+  @Benchmark
+  @Group("lookupDuringReload")
+  @GroupThreads(1)
+  public Integer lookup(final Cursor cursor) {
+    return this.configurations.getValue(this.lookupCoordinates, this.names[cursor.next()], Integer.class, null);
+  }
+
+  /**
+   * Changes the value of one configuration property and reloads the
+   * {@linkplain #provider provider}, so that it reports the change.
+   *
+   * @exception IOException if the snapshot file could not be
+   * published
+   */
+  @Benchmark
+  @Group("lookupDuringReload")
+  @GroupThreads(1)
+  public void reload() throws IOException {
+    final int reloadCount = this.reloadCount++;
+    final int index = reloadCount % NAME_COUNT;
+    final String value = Integer.toString(reloadCount);
+    if (this.snapshotPath == null) {
+      final Map<String, String> environment = new HashMap<>(this.environment);
+      environment.put(this.names[index], value);
+      this.environment = environment;
+      this.environmentConfigurations.refresh();
+    } else {
+      final ConfigurationValue old = this.snapshotValues.get(index * 2 + 1);
+      this.snapshotValues.set(index * 2 + 1, new ConfigurationValue("benchmark", old.getCoordinates(), old.getName(), value, false));
+      SharedSnapshotConfigurations.publish(this.snapshotPath, this.snapshotValues);
+    }
+  }
+
+
+  /*
+   * Static methods.
+   */
+
+
+  /**
+   * Runs this benchmark with one reloading thread and 1, 2, 4, 8, 16,
+   * 32 and 64 looking-up threads in turn, and prints the resulting
+   * scalability curves.
+   *
+   * @param arguments JMH command line options; must not be {@code
+   * null}
+   *
+   * @exception CommandLineOptionException if {@code arguments} could
+   * not be parsed
+   *
+   * @exception RunnerException if the benchmark could not be run
+   */
+  public static final void main(final String[] arguments) throws CommandLineOptionException, RunnerException {
+    final CommandLineOptions commandLineOptions = new CommandLineOptions(arguments);
+    final StringBuilder curves = new StringBuilder();
+    curves.append(String.format("%-12s %8s %16s %12s %12s%n", "provider", "threads", "lookups/us", "p99 us", "p99.9 us"));
+    for (int threads = 1; threads <= 64; threads *= 2) {
+      // Thread groups are distributed among the methods of a group
+      // in the lexicographic order of their names: lookup, then
+      // reload.
+      final Collection<RunResult> runResults =
+        new Runner(new OptionsBuilder()
+                   .parent(commandLineOptions)
+                   .include(ScalabilityBenchmark.class.getName() + ".lookupDuringReload")
+                   .threadGroups(threads, 1)
+                   .build()).run();
+      final Map<String, double[]> rows = new HashMap<>();
+      for (final RunResult runResult : runResults) {
+        final String provider = runResult.getParams().getParam("provider");
+        final double[] row = rows.computeIfAbsent(provider, p -> new double[3]);
+        final Result<?> lookupResult = runResult.getSecondaryResults().get("lookup");
+        if (lookupResult != null) {
+          switch (runResult.getParams().getMode()) {
+          case Throughput:
+            row[0] = lookupResult.getScore();
+            break;
+          case SampleTime:
+            row[1] = lookupResult.getStatistics().getPercentile(99.0);
+            row[2] = lookupResult.getStatistics().getPercentile(99.9);
+            break;
+          default:
+            break;
+          }
+        }
+      }
+      for (final Map.Entry<String, double[]> entry : rows.entrySet()) {
+        final double[] row = entry.getValue();
+        curves.append(String.format("%-12s %8d %16.3f %12.3f %12.3f%n", entry.getKey(), threads, row[0], row[1], row[2]));
+      }
+    }
+    System.out.print(curves);
+  }
+
+  /**
+   * Returns configuration coordinates with the supplied {@code env}
+   * and {@code region} values.
+   *
+   * @param env the value of the {@code env} coordinate; must not be
+   * {@code null}
+   *
+   * @param region the value of the {@code region} coordinate; must
+   * not be {@code null}
+   *
+   * @return a new, mutable {@link Map}
+   */
+  private static final Map<String, String> coordinates(final String env, final String region) {
+    final Map<String, String> coordinates = new HashMap<>();
+    coordinates.put("env", env);
+    coordinates.put("region", region);
+    return coordinates;
+  }
+
+
+  /*
+   * Inner and nested classes.
+   */
+
+
+  /**
+   * The per-thread position in the sequence of names looked up.
+   *
+   * @author <a href="https://about.me/lairdnelson"
+   * target="_parent">Laird Nelson</a>
+   */
+  @State(Scope.Thread)
+  public static class Cursor {
+
+    /**
+     * The index of the next name to look up.
+     */
+    private int index;
+
+    /**
+     * Creates a new {@link Cursor}.
+     */
+    public Cursor() {
+      super();
+    }
+
+    /**
+     * Returns the index of the next name to look up and advances
+     * this {@link Cursor}.
+     *
+     * @return the index of the next name to look up
+     */
+    final int next() {
+      final int index = this.index;
+      this.index = index + 1 == NAME_COUNT ? 0 : index + 1;
+      return index;
+    }
+
+  }
+
+}
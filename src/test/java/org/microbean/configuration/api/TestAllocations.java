@@ -0,0 +1,227 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2018 microBean.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.microbean.configuration.api;
+
+import java.lang.management.ManagementFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Tests that the operations on the hot path of a configuration
+ * lookup allocate nothing, by measuring the bytes allocated by the
+ * current thread with {@link
+ * com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)}.
+ *
+ * @author <a href="https://about.me/lairdnelson"
+ * target="_parent">Laird Nelson</a>
+ */
+public class TestAllocations {
+
+
+  /*
+   * Static fields.
+   */
+
+
+  /**
+   * The number of times each operation is performed before it is
+   * measured, so that it is compiled.
+   */
+  private static final int WARMUP_ITERATIONS = 200000;
+
+  /**
+   * The number of times each operation is performed while it is
+   * measured.
+   */
+  private static final int ITERATIONS = 100000;
+
+  /**
+   * The maximum number of times the {@link #ITERATIONS} operations
+   * are measured.
+   */
+  private static final int ROUNDS = 5;
+
+
+  /*
+   * Instance fields.
+   */
+
+
+  /**
+   * The {@link com.sun.management.ThreadMXBean} that measures
+   * allocation.
+   */
+  private com.sun.management.ThreadMXBean threadMXBean;
+
+  /**
+   * The result of the most recent operation, kept so that the
+   * operation cannot be eliminated.
+   */
+  private Object sink;
+
+
+  /*
+   * Constructors.
+   */
+
+
+  /**
+   * Creates a new {@link TestAllocations}.
+   */
+  public TestAllocations() {
+    super();
+  }
+
+
+  /*
+   * Instance methods.
+   */
+
+
+  /**
+   * Skips these tests unless the Java virtual machine can measure
+   * the bytes allocated by a thread.
+   */
+  @Before
+  public void setUp() {
+    final java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean);
+    this.threadMXBean = (com.sun.management.ThreadMXBean)threadMXBean;
+    assumeTrue(this.threadMXBean.isThreadAllocatedMemorySupported());
+    this.threadMXBean.setThreadAllocatedMemoryEnabled(true);
+  }
+
+  /**
+   * Tests that a lookup answered by a {@link CachingConfigurations}
+   * from its cache allocates nothing, both with the configuration
+   * coordinates of its delegate and with those of a {@linkplain
+   * ScopedCoordinates#enter(Map) scope}, whether the type requested
+   * is a class or a primitive type.
+   */
+  @Test
+  public void testCachedLookupAllocatesNothing() {
+    final Map<String, String> environment = new HashMap<>();
+    environment.put("PORT", "8080");
+    environment.put("HOST", "localhost");
+    final Configurations configurations =
+      new CachingConfigurations(new EnvironmentConfigurations(Collections.singletonMap("env", "test"), () -> environment, Properties::new),
+                                "env",
+                                1000L);
+    final Map<String, String> delegateCoordinates = configurations.getConfigurationCoordinates();
+    final Map<String, String> scopedCoordinates = ScopedCoordinates.intern(Collections.singletonMap("env", "prod"));
+    assertEquals(Integer.valueOf(8080), configurations.getValue(delegateCoordinates, "PORT", Integer.class, null));
+    assertEquals(0L, this.allocatedBytes(() -> this.sink = configurations.getValue(delegateCoordinates, "PORT", Integer.class, null)));
+    assertEquals(0L, this.allocatedBytes(() -> this.sink = configurations.getValue(scopedCoordinates, "HOST", String.class, null)));
+    assertEquals(0L, this.allocatedBytes(() -> this.sink = configurations.getValue((Map<String, String>)null, "PORT", Integer.class, null)));
+    assertEquals(Integer.valueOf(8080), configurations.getValue("PORT", Integer.class));
+    assertEquals(0L, this.allocatedBytes(() -> this.sink = configurations.getValue("PORT", Integer.class)));
+    assertEquals(Integer.valueOf(8080), configurations.getValue("PORT", int.class));
+    assertEquals(0L, this.allocatedBytes(() -> this.sink = configurations.getValue("PORT", int.class)));
+    final ScopedCoordinates.Scope scope = ScopedCoordinates.enter(scopedCoordinates);
+    try {
+      assertEquals(Integer.valueOf(8080), configurations.getValue("PORT", Integer.class));
+      assertEquals(0L, this.allocatedBytes(() -> this.sink = configurations.getValue("PORT", Integer.class)));
+    } finally {
+      scope.close();
+    }
+  }
+
+  /**
+   * Tests that comparing {@link ConfigurationValue}s with the {@link
+   * ConfigurationValue#equals(Object)} method allocates nothing,
+   * whether or not they are equal.
+   */
+  @Test
+  public void testConfigurationValueEqualsAllocatesNothing() {
+    final Map<String, String> coordinates = new HashMap<>();
+    coordinates.put("env", "prod");
+    coordinates.put("region", "eu");
+    final ConfigurationValue value = new ConfigurationValue("a", coordinates, "db.url", "jdbc:h2:mem:test", false);
+    final ConfigurationValue equalValue = new ConfigurationValue("b", new HashMap<>(coordinates), "db.url", "jdbc:h2:mem:test", true);
+    final ConfigurationValue otherValue = new ConfigurationValue("a", coordinates, "db.url", "jdbc:h2:mem:other", false);
+    final ConfigurationValue otherCoordinatesValue = new ConfigurationValue("a", Collections.singletonMap("env", "prod"), "db.url", "jdbc:h2:mem:test", false);
+    assertEquals(value, equalValue);
+    assertEquals(0L, this.allocatedBytes(() -> this.sink = Boolean.valueOf(value.equals(equalValue))));
+    assertEquals(0L, this.allocatedBytes(() -> this.sink = Boolean.valueOf(value.equals(otherValue))));
+    assertEquals(0L, this.allocatedBytes(() -> this.sink = Boolean.valueOf(value.equals(otherCoordinatesValue))));
+  }
+
+  /**
+   * Tests that computing the hash code of a {@link
+   * ConfigurationValue} with the {@link
+   * ConfigurationValue#hashCode()} method allocates nothing.
+   */
+  @Test
+  public void testConfigurationValueHashCodeAllocatesNothing() {
+    final Map<String, String> coordinates = new HashMap<>();
+    coordinates.put("env", "prod");
+    coordinates.put("region", "eu");
+    final ConfigurationValue value = new ConfigurationValue("a", coordinates, "db.url", "jdbc:h2:mem:test", false);
+    assertEquals(value.hashCode(), new ConfigurationValue("b", new HashMap<>(coordinates), "db.url", "jdbc:h2:mem:test", true).hashCode());
+    final int[] hashCodes = new int[1];
+    assertEquals(0L, this.allocatedBytes(() -> hashCodes[0] += value.hashCode()));
+    this.sink = hashCodes;
+  }
+
+  /**
+   * Performs the supplied {@code operation} {@link
+   * #WARMUP_ITERATIONS} times, and then {@link #ITERATIONS} times
+   * more while measuring the bytes allocated by the current thread,
+   * in up to {@link #ROUNDS} rounds, and returns the smallest total
+   * number of bytes allocated by the {@link #ITERATIONS} operations
+   * of a round, less the cost of measuring.
+   *
+   * <p>A total is returned rather than an average so that even an
+   * operation that allocates only occasionally is noticed.  The
+   * smallest of several rounds is returned so that the one-off
+   * allocations the Java virtual machine makes while it recompiles
+   * the operation are not.</p>
+   *
+   * @param operation the operation to measure; must not be {@code
+   * null}
+   *
+   * @return the total number of bytes allocated
+   */
+  private final long allocatedBytes(final Runnable operation) {
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      operation.run();
+    }
+    final long id = Thread.currentThread().getId();
+    final com.sun.management.ThreadMXBean threadMXBean = this.threadMXBean;
+    final long overheadStart = threadMXBean.getThreadAllocatedBytes(id);
+    final long overhead = threadMXBean.getThreadAllocatedBytes(id) - overheadStart;
+    long smallest = Long.MAX_VALUE;
+    for (int round = 0; round < ROUNDS && smallest > 0L; round++) {
+      final long start = threadMXBean.getThreadAllocatedBytes(id);
+      for (int i = 0; i < ITERATIONS; i++) {
+        operation.run();
+      }
+      smallest = Math.min(smallest, Math.max(0L, threadMXBean.getThreadAllocatedBytes(id) - start - overhead));
+    }
+    return smallest;
+  }
+
+}
@@ -0,0 +1,165 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2018 microBean.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.microbean.configuration.api;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests {@link RemoteConfigurations} against a {@link
+ * LoopbackConfigurationServer} and against a store that does not
+ * answer in time.
+ *
+ * @author <a href="https://about.me/lairdnelson"
+ * target="_parent">Laird Nelson</a>
+ *
+ * @see RemoteConfigurations
+ *
+ * @see LoopbackConfigurationServer
+ */
+public class TestRemoteConfigurations {
+
+  /**
+   * Creates a new {@link TestRemoteConfigurations}.
+   */
+  public TestRemoteConfigurations() {
+    super();
+  }
+
+  /**
+   * Tests that values, misses, ambiguities and names survive a round
+   * trip through a {@link LoopbackConfigurationServer}.
+   *
+   * @exception IOException if an error occurs
+   */
+  @Test
+  public void testRoundTrip() throws IOException {
+    final Map<String, String> prod = Collections.singletonMap("env", "prod");
+    final Map<String, String> eu = Collections.singletonMap("region", "eu");
+    final ConfigurationValueIndex index =
+      new ConfigurationValueIndex(Arrays.asList(new ConfigurationValue("test", null, "port", "8080", false),
+                                                new ConfigurationValue("test", prod, "port", "443", false),
+                                                new ConfigurationValue("test", prod, "host", "prod", false),
+                                                new ConfigurationValue("test", eu, "host", "eu", false)));
+    final Map<String, String> prodEu = new HashMap<>();
+    prodEu.put("env", "prod");
+    prodEu.put("region", "eu");
+    try (final LoopbackConfigurationServer server = new LoopbackConfigurationServer(index);
+         final RemoteConfigurations configurations = new RemoteConfigurations(null, server.getAddress())) {
+      assertEquals(Integer.valueOf(8080), configurations.getValue("port", Integer.class));
+      assertEquals(Integer.valueOf(443), configurations.getValue(prod, "port", Integer.class));
+      final ConfigurationValue configurationValue = configurations.getConfigurationValue(prod, "port");
+      assertEquals(prod, configurationValue.getCoordinates());
+      assertEquals("443", configurationValue.getValue());
+      assertNull(configurations.getValue("missing"));
+      try {
+        configurations.getValue(prodEu, "host");
+        fail();
+      } catch (final AmbiguousConfigurationValuesException expected) {
+        assertEquals(2, expected.getValues().size());
+      }
+      assertEquals(new HashSet<>(Arrays.asList("port", "host")), configurations.getNames());
+    }
+  }
+
+  /**
+   * Tests that a request that times out is forgotten, so that a later
+   * identical request is sent afresh rather than joining it, and that
+   * a late response to it is ignored.
+   *
+   * @exception IOException if an error occurs
+   *
+   * @exception InterruptedException if the test is interrupted
+   */
+  @Test
+  public void testTimedOutRequestIsForgotten() throws IOException, InterruptedException {
+    try (final ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+      final Thread store = new Thread(() -> {
+          try (final Socket socket = serverSocket.accept()) {
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            // Read, but do not answer, the first request.
+            final int unanswered = readGet(in);
+            // Answer the second request, after a late answer to the
+            // first.
+            final int answered = readGet(in);
+            out.writeInt(unanswered);
+            out.writeByte(RemoteProtocol.FOUND);
+            RemoteProtocol.writeConfigurationValue(out, new ConfigurationValue("test", null, "port", "1", false));
+            out.writeInt(answered);
+            out.writeByte(RemoteProtocol.FOUND);
+            RemoteProtocol.writeConfigurationValue(out, new ConfigurationValue("test", null, "port", "2", false));
+            out.flush();
+            in.read(); // wait for the client to close the connection
+          } catch (final IOException ioException) {
+            // the test is over
+          }
+      });
+      store.setDaemon(true);
+      store.start();
+      try (final RemoteConfigurations configurations = new RemoteConfigurations(null, serverSocket.getLocalSocketAddress(), 200L)) {
+        try {
+          configurations.getValue("port");
+          fail();
+        } catch (final ConfigurationException expected) {
+          // the first request timed out
+        }
+        assertEquals("2", configurations.getValue("port"));
+      }
+      store.join(5000L);
+    }
+  }
+
+  /**
+   * Reads a {@link RemoteProtocol#GET} request from the supplied
+   * {@link DataInputStream} and returns its identifier.
+   *
+   * @param in the {@link DataInputStream} to read from; must not be
+   * {@code null}
+   *
+   * @return the identifier of the request
+   *
+   * @exception IOException if an error occurs while reading
+   */
+  private static final int readGet(final DataInputStream in) throws IOException {
+    final int id = in.readInt();
+    assertEquals(RemoteProtocol.GET, in.readByte());
+    RemoteProtocol.readCoordinates(in);
+    RemoteProtocol.readString(in);
+    return id;
+  }
+
+}